@@ -1,10 +1,14 @@
 package com.tutorial.beans;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import com.tutorial.util.Assert;
+
 /**
  * Abstract implementation of the {@link PropertyAccessor} interface.
  * Provides base implementations of all convenience methods, with the
@@ -88,6 +92,138 @@ public abstract class AbstractPropertyAccessor extends PropertyEditorRegistrySup
 		}
 	}
 
+	/**
+	 * Create a plan for binding the given properties on objects of the class
+	 * of the given prototype, for use with
+	 * {@link #setPropertyValues(PropertyBindingPlan, List, List)}.
+	 * <p>Checks the writability and determines the type of each top-level property
+	 * once, against the prototype; nested properties are checked for every object
+	 * as usual. Switches this accessor to the prototype.
+	 * @param prototype an object of the class to bind, e.g. the first one of a batch
+	 * @param ignoreUnknown should we skip properties that are not writable?
+	 * @param propertyNames the properties to bind, in the order of the values passed in later
+	 * @return the binding plan
+	 * @throws NotWritablePropertyException if a property is not writable
+	 * and <code>ignoreUnknown</code> is <code>false</code>
+	 */
+	public PropertyBindingPlan createBindingPlan(Object prototype, boolean ignoreUnknown, String... propertyNames)
+			throws NotWritablePropertyException {
+		setWrappedInstance(prototype);
+		boolean[] skipped = new boolean[propertyNames.length];
+		Class<?>[] propertyTypes = new Class<?>[propertyNames.length];
+		for(int i = 0; i < propertyNames.length; i++) {
+			if(!PropertyAccessorUtils.isNestedOrIndexedProperty(propertyNames[i])) {
+				if(!isWritableProperty(propertyNames[i])) {
+					if(!ignoreUnknown) {
+						throw new NotWritablePropertyException(prototype.getClass(), propertyNames[i]);
+					}
+					skipped[i] = true;
+				} else {
+					propertyTypes[i] = getPropertyType(propertyNames[i]);
+				}
+			}
+		}
+		return new PropertyBindingPlan(prototype.getClass(), propertyNames, skipped, propertyTypes);
+	}
+
+	/**
+	 * Apply the given binding plan to each of the given target objects, with
+	 * the values at the same position in the given list, switching this accessor
+	 * to each target in turn.
+	 * <p>In contrast to {@link #setPropertyValues(PropertyValues, boolean, boolean)},
+	 * failures do not abort the binding: every property access failure, including
+	 * invalid nested paths, is collected as {@link PropertyBindingError} and the
+	 * remaining values are bound nonetheless. String values for number and
+	 * boolean properties that are not converted through custom editors or a
+	 * ConversionService get checked upfront, and are reported without a
+	 * conversion attempt if they are malformed.
+	 * @param plan the binding plan, created for the class of the targets
+	 * @param targets the objects to bind
+	 * @param values an array of values per target, in the order of the plan's properties
+	 * @return the errors encountered (never <code>null</code>; empty if all values have been bound)
+	 * @throws IllegalArgumentException if a target is not an instance of the plan's
+	 * class, or does not come with a value for each property of the plan
+	 * @see #createBindingPlan
+	 */
+	public List<PropertyBindingError> setPropertyValues(PropertyBindingPlan plan, List<?> targets, List<Object[]> values)
+			throws BeansException {
+		Assert.isTrue(targets.size() == values.size(), "Expected one array of values per target");
+		List<PropertyBindingError> errors = new ArrayList<PropertyBindingError>();
+		int propertyCount = plan.getPropertyCount();
+		DefaultStringConverters.StringConverter[] converters = getStringConverters(plan);
+		int targetIndex = 0;
+		Iterator<Object[]> valueIterator = values.iterator();
+		for(Object target : targets) {
+			Object[] targetValues = valueIterator.next();
+			if(target.getClass() != plan.getTargetClass()) {
+				throw new IllegalArgumentException("Binding plan for class [" + plan.getTargetClass().getName() +
+						"] does not apply to target of class [" + target.getClass().getName() + "]");
+			}
+			Assert.isTrue(targetValues.length == propertyCount, "Expected " + propertyCount + " values per target");
+			setWrappedInstance(target);
+			for(int i = 0; i < propertyCount; i++) {
+				if(plan.isSkipped(i)) {
+					continue;
+				}
+				if(converters[i] != null && targetValues[i] instanceof String &&
+						!converters[i].isConvertible((String) targetValues[i])) {
+					errors.add(new PropertyBindingError(targetIndex, plan.getPropertyName(i), targetValues[i],
+							plan.getPropertyType(i)));
+					continue;
+				}
+				try {
+					setPropertyValue(plan.getPropertyPath(i), targetValues[i]);
+				} catch (PropertyAccessException ex) {
+					errors.add(new PropertyBindingError(targetIndex, plan.getPropertyName(i), targetValues[i], ex));
+				} catch (InvalidPropertyException ex) {
+					errors.add(new PropertyBindingError(targetIndex, plan.getPropertyName(i), targetValues[i], ex));
+				}
+			}
+			targetIndex++;
+		}
+		return errors;
+	}
+
+	/**
+	 * Determine the shared String converters to check the values for the
+	 * properties of the given plan with, as far as this accessor would convert
+	 * them through the corresponding default editors.
+	 * @param plan the binding plan
+	 * @return a converter per property, <code>null</code> for properties not to check
+	 */
+	private DefaultStringConverters.StringConverter[] getStringConverters(PropertyBindingPlan plan) {
+		DefaultStringConverters.StringConverter[] converters =
+				new DefaultStringConverters.StringConverter[plan.getPropertyCount()];
+		if(getConversionService() == null) {
+			for(int i = 0; i < converters.length; i++) {
+				Class<?> propertyType = plan.getPropertyType(i);
+				if(propertyType != null && isBuiltInDefaultEditor(propertyType) &&
+						findCustomEditor(propertyType, plan.getPropertyName(i)) == null) {
+					converters[i] = DefaultStringConverters.getConverter(propertyType);
+				}
+			}
+		}
+		return converters;
+	}
+
+	/**
+	 * Switch the target object of this accessor, as required for batch binding.
+	 * @param target the new target object
+	 * @see #setPropertyValues(PropertyBindingPlan, List, List)
+	 */
+	public abstract void setWrappedInstance(Object target);
+
+	/**
+	 * Set the value of the property at the given precompiled path.
+	 * <p>The default implementation delegates to {@link #setPropertyValue(String, Object)};
+	 * subclasses may use the precompiled form to avoid parsing the path.
+	 * @param propertyPath the compiled property path
+	 * @param value the new value
+	 */
+	public void setPropertyValue(CompiledPropertyPath propertyPath, Object value) throws BeansException {
+		setPropertyValue(propertyPath.getPath(), value);
+	}
+
 	public <T> T convertIfNecessary(Object value, Class<T> requiredType) throws TypeMisMatchException {
 		return convertIfNecessary(value, requiredType, null);
 	}
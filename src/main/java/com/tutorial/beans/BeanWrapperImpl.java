@@ -155,24 +155,28 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * if the class of the new object is different to that of the replaced object.
 	 * @param object the new target object
 	 */
+	@Override
 	public void setWrappedInstance(Object object) {
 		setWrappedInstance(object, "", null);
 	}
 
 	/**
-	 * Switch the target object, replacing the cached introspection results only
-	 * if the class of the new object is different to that of the replaced object.
+	 * Switch the target object, replacing the cached introspection results and
+	 * the type converter only if the class of the new object is different to that
+	 * of the replaced object.
 	 * @param object the new target object
 	 * @param nestedPath the nested path of the object
 	 * @param rootObject the root object at the top of the path
 	 */
 	public void setWrappedInstance(Object object, String nestedPath, Object rootObject) {
 		Assert.notNull(object, "Bean object must not be null");
+		if(this.object == null || this.object.getClass() != object.getClass()) {
+			this.typeConverterDelegate = new TypeConverterDelegate(this, object);
+		}
 		this.object = object;
 		this.nestedPath = (nestedPath != null ? nestedPath : "");
 		this.rootObject = (!"".equals(nestedPath) ? rootObject : object);
 		this.nestedBeanWrappers = null;
-		this.typeConverterDelegate = new TypeConverterDelegate(this, object);
 		setIntrospectionClass(object.getClass());
 	}
 
@@ -258,10 +262,10 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	public TypeDescriptor getPropertyTypeDescriptor(String propertyName) throws BeansException {
 		try {
-			BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
-			String finalPath = getFinalPath(nestedBw, propertyName);
-			PropertyTokenHolder tokens = getPropertyNameTokens(finalPath);
-			PropertyDescriptor pd = nestedBw.getCachedIntrospectionResults().getPropertyDescriptor(tokens.actualName);
+			CompiledPropertyPath propertyPath = CompiledPropertyPath.forPath(propertyName);
+			BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyPath);
+			PropertyTokenHolder tokens = propertyPath.getFinalTokens();
+			PropertyDescriptor pd = nestedBw.getPropertyDescriptor(tokens);
 			if(pd != null) {
 				if(tokens.keys != null) {
 					if(pd.getReadMethod() != null || pd.getWriteMethod() != null) {
@@ -281,9 +285,22 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	@Override
 	public Object getPropertyValue(String propertyName) throws BeansException {
-		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
-		PropertyTokenHolder tokens = getPropertyNameTokens(getFinalPath(nestedBw, propertyName));
-		return nestedBw.getPropertyValue(tokens);
+		return getPropertyValue(CompiledPropertyPath.forPath(propertyName));
+	}
+
+	/**
+	 * Get the current value of the property at the given precompiled path.
+	 * @param propertyPath the compiled property path, which may be nested and/or indexed
+	 * @return the value of the property
+	 * @throws InvalidPropertyException if there is no such property or
+	 * if the property isn't readable
+	 * @throws PropertyAccessException if the property was valid but the
+	 * accessor method failed
+	 * @see #getPropertyValue(String)
+	 */
+	public Object getPropertyValue(CompiledPropertyPath propertyPath) throws BeansException {
+		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyPath);
+		return nestedBw.getPropertyValue(propertyPath.getFinalTokens());
 	}
 
 	public PropertyDescriptor[] getPropertyDescriptors() {
@@ -301,10 +318,23 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	@Override
 	public void setPropertyValue(String propertyName, Object value) throws BeansException {
-		BeanWrapperImpl nestedBw;
-		nestedBw = getBeanWrapperForPropertyPath(propertyName);
-		PropertyTokenHolder tokens = getPropertyNameTokens(getFinalPath(nestedBw, propertyName));
-		nestedBw.setPropertyValue(tokens, new PropertyValue(propertyName, value));
+		setPropertyValue(CompiledPropertyPath.forPath(propertyName), value);
+	}
+
+	/**
+	 * Set the specified value as current value of the property at the given precompiled path.
+	 * @param propertyPath the compiled property path, which may be nested and/or indexed
+	 * @param value the new value
+	 * @throws InvalidPropertyException if there is no such property or
+	 * if the property isn't writable
+	 * @throws PropertyAccessException if the property was valid but the
+	 * accessor method failed or a type mismatch occured
+	 * @see #setPropertyValue(String, Object)
+	 */
+	@Override
+	public void setPropertyValue(CompiledPropertyPath propertyPath, Object value) throws BeansException {
+		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyPath);
+		nestedBw.setPropertyValue(propertyPath.getFinalTokens(), new PropertyValue(propertyPath.getPath(), value));
 	}
 
 	/**
@@ -313,16 +343,21 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * @return a BeanWrapper for the target bean
 	 */
 	protected BeanWrapperImpl getBeanWrapperForPropertyPath(String propertyPath) {
-		int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(propertyPath);
-		// handle nested properties recursively.
-		if(pos > -1) {
-			String nestedProperty = propertyPath.substring(0, pos);
-			String nestedPath = propertyPath.substring(pos + 1);
-			BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedProperty);
-			return nestedBw.getBeanWrapperForPropertyPath(nestedPath);
-		} else {
-			return this;
+		return getBeanWrapperForPropertyPath(CompiledPropertyPath.forPath(propertyPath));
+	}
+
+	/**
+	 * Navigate along the nested properties of the given compiled path.
+	 * @param propertyPath the compiled property path
+	 * @return a BeanWrapper for the final target bean
+	 */
+	private BeanWrapperImpl getBeanWrapperForPropertyPath(CompiledPropertyPath propertyPath) {
+		PropertyTokenHolder[] tokens = propertyPath.getTokens();
+		BeanWrapperImpl nestedBw = this;
+		for(int i = 0; i < tokens.length - 1; i++) {
+			nestedBw = nestedBw.getNestedBeanWrapper(tokens[i]);
 		}
+		return nestedBw;
 	}
 
 	/**
@@ -330,15 +365,14 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * Create a new one if not found in the cache.
 	 * <p>Note: Caching nested BeanWrappers is necessary now,
 	 * to keep registered custom editors for nested properties.
-	 * @param nestedProperty property to create the BeanWrapper for
+	 * @param tokens the tokens of the property to create the BeanWrapper for
 	 * @return the BeanWrapper instance, either cached or newly created
 	 */
-	private BeanWrapperImpl getNestedBeanWrapper(String nestedProperty) {
+	private BeanWrapperImpl getNestedBeanWrapper(PropertyTokenHolder tokens) {
 		if(this.nestedBeanWrappers == null) {
 			this.nestedBeanWrappers = new HashMap<String, BeanWrapperImpl>();
 		}
 		// get the value of bean property.
-		PropertyTokenHolder tokens = getPropertyNameTokens(nestedProperty);
 		String canonicalName = tokens.canonicalName;
 		Object propertyValue = getPropertyValue(tokens);
 		if(propertyValue == null) {
@@ -373,14 +407,15 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		PropertyTokenHolder tokens = (PropertyTokenHolder) pv.resolvedTokens;
 		if(tokens == null) {
 			String propertyName = pv.getName();
+			CompiledPropertyPath propertyPath = CompiledPropertyPath.forPath(propertyName);
 			BeanWrapperImpl nestedBw;
 			try {
-				nestedBw = getBeanWrapperForPropertyPath(propertyName);
+				nestedBw = getBeanWrapperForPropertyPath(propertyPath);
 			} catch (NotReadablePropertyException ex) {
 				throw new NotWritablePropertyException(getRootClass(), this.nestedPath + propertyName,
 						"Nested property in path '" + propertyName + "' does not exist", ex);
 			}
-			tokens = getPropertyNameTokens(getFinalPath(nestedBw, propertyName));
+			tokens = propertyPath.getFinalTokens();
 			if(nestedBw == this) {
 				pv.getOriginalPropertyValue().resolvedTokens = tokens;
 			} 
@@ -484,7 +519,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	private Object getPropertyValue(PropertyTokenHolder tokens) throws BeansException {
 		String propertyName = tokens.canonicalName;
 		String actualName = tokens.actualName;
-		PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(actualName);
+		PropertyDescriptor pd = getPropertyDescriptor(tokens);
 		if(pd == null || pd.getReadMethod() == null) {
 			throw new NotReadablePropertyException(getRootClass(), this.nestedPath + propertyName);
 		}
@@ -672,7 +707,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 				}
 			}
 			if(propValue.getClass().isArray()) {
-				PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(actualName);
+				PropertyDescriptor pd = getPropertyDescriptor(tokens);
 				Class<?> requiredType = propValue.getClass().getComponentType();
 				int arrayIndex = Integer.parseInt(key);
 				Object oldValue = null;
@@ -688,7 +723,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 							"Invalid array index in property path '" + propertyName + "'", ex);
 				} 
 			} else if(propValue instanceof List) {
-				PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(actualName);
+				PropertyDescriptor pd = getPropertyDescriptor(tokens);
 				Class<?> requiredType = GenericCollectionTypeResolver.getCollectionReturnType(
 						pd.getReadMethod(), tokens.keys.length);
 				List list = (List) propValue;
@@ -721,7 +756,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 				}
 			} else if(propValue instanceof Map) {
-				PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(actualName);
+				PropertyDescriptor pd = getPropertyDescriptor(tokens);
 				Class<?> mapKeyType = GenericCollectionTypeResolver.getMapKeyReturnType(
 						pd.getReadMethod(), tokens.keys.length);
 				Class<?> mapValueType = GenericCollectionTypeResolver.getMapValueReturnType(
@@ -749,7 +784,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		} else {
 			PropertyDescriptor pd = pv.resolvedDescriptor;
 			if(pd == null || !pd.getWriteMethod().getDeclaringClass().isInstance(this.object)) {
-				pd = getCachedIntrospectionResults().getPropertyDescriptor(actualName);
+				pd = getPropertyDescriptor(tokens);
 				if(pd == null || pd.getWriteMethod() == null) {
 					if(pv.isOptional()) {
 						logger.debug("Ignoring optional value for property '" + actualName +
@@ -960,12 +995,30 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.cachedIntrospectionResults;
 	}
 
+	/**
+	 * Return the PropertyDescriptor for the given property tokens on the wrapped
+	 * object, reusing the descriptor last resolved for the tokens if it has been
+	 * resolved against the same class.
+	 * @param tokens the property tokens
+	 * @return the PropertyDescriptor, or <code>null</code> if not found
+	 */
+	private PropertyDescriptor getPropertyDescriptor(PropertyTokenHolder tokens) {
+		Class<?> beanClass = getWrappedClass();
+		ResolvedPropertyDescriptor resolved = tokens.resolvedDescriptor;
+		if(resolved != null && resolved.beanClass == beanClass) {
+			return resolved.descriptor;
+		}
+		PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(tokens.actualName);
+		tokens.resolvedDescriptor = new ResolvedPropertyDescriptor(beanClass, pd);
+		return pd;
+	}
+
 	/**
 	 * Parse the given property name into the corresponding property name tokens.
 	 * @param propertyName the property name to parse
 	 * @return representation of the parsed property tokens
 	 */
-	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+	static PropertyTokenHolder getPropertyNameTokens(String propertyName) {
 		PropertyTokenHolder tokens = new PropertyTokenHolder();
 		String actualName = null;
 		List<String> keys = new ArrayList<String>(2);
@@ -1024,12 +1077,27 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	// Inner class for internal use
 	//---------------------------------------------------------------------
 
-	private static class PropertyTokenHolder {
+	static class PropertyTokenHolder {
 		public String canonicalName;
 		
 		public String actualName;
 		
 		public String[] keys;
+		
+		/** The PropertyDescriptor that these tokens have last been resolved to, if any */
+		volatile ResolvedPropertyDescriptor resolvedDescriptor;
+	}
+	
+	private static class ResolvedPropertyDescriptor {
+		
+		private final Class<?> beanClass;
+		
+		private final PropertyDescriptor descriptor;
+		
+		public ResolvedPropertyDescriptor(Class<?> beanClass, PropertyDescriptor descriptor) {
+			this.beanClass = beanClass;
+			this.descriptor = descriptor;
+		}
 	}
 
 }
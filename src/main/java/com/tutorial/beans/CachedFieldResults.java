@@ -0,0 +1,161 @@
+package com.tutorial.beans;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.tutorial.core.convert.TypeDescriptor;
+import com.tutorial.util.ClassUtils;
+import com.tutorial.util.ReflectionUtils;
+
+/**
+ * Internal class that caches the instance fields of a Java class, for
+ * {@link DirectFieldAccessor}. Not intended for direct use by application code.
+ *
+ * <p>Walks the class hierarchy once per class, makes each field accessible
+ * once and precomputes its {@link TypeDescriptor}, so that accessors for many
+ * objects of the same class do not repeat the reflection work.
+ *
+ * <p>Like {@link CachedIntrospectionResults}, the cache is a ConcurrentHashMap
+ * keyed by weak class references, so lookups do not lock. Results for classes
+ * that are not cache-safe with respect to this class's ClassLoader are only
+ * referenced weakly, so that they do not keep their ClassLoader alive.
+ *
+ * @see #forClass(Class)
+ */
+final class CachedFieldResults {
+
+	/**
+	 * Map keyed by weak class references, containing CachedFieldResults or
+	 * WeakReferences to CachedFieldResults for classes that are not cache-safe.
+	 * Weak keys and values allow for proper garbage collection in case of
+	 * multiple class loaders.
+	 */
+	static final ConcurrentMap<Object, Object> classCache = new ConcurrentHashMap<Object, Object>(64);
+
+	/** Queue of weak class keys whose classes have been garbage collected */
+	private static final ReferenceQueue<Class<?>> staleClassKeys = new ReferenceQueue<Class<?>>();
+
+	/**
+	 * Clear the field cache for the given ClassLoader, removing the results
+	 * for all classes underneath that ClassLoader.
+	 * @param classLoader the ClassLoader to clear the cache for
+	 */
+	static void clearClassLoader(ClassLoader classLoader) {
+		if(classLoader == null) {
+			return;
+		}
+		for(Iterator<Object> it = classCache.keySet().iterator(); it.hasNext();) {
+			Class<?> clazz = ((WeakClassKey) it.next()).get();
+			if(clazz == null) {
+				continue;
+			}
+			ClassLoader candidate = clazz.getClassLoader();
+			while(candidate != null && candidate != classLoader) {
+				candidate = candidate.getParent();
+			}
+			if(candidate != null) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Obtain the CachedFieldResults for the given class.
+	 * <p>Does not synchronize the creation: results are immutable, so the
+	 * occasional concurrent creation for the same class at startup is harmless.
+	 * @param clazz the class to analyze
+	 * @return the corresponding CachedFieldResults
+	 */
+	@SuppressWarnings("rawtypes")
+	static CachedFieldResults forClass(Class<?> clazz) {
+		CachedFieldResults results;
+		Object value = classCache.get(new WeakClassKey.Lookup(clazz));
+		if(value instanceof Reference) {
+			results = (CachedFieldResults) ((Reference) value).get();
+		} else {
+			results = (CachedFieldResults) value;
+		}
+		if(results == null) {
+			expungeStaleClassKeys();
+			results = new CachedFieldResults(clazz);
+			classCache.put(new WeakClassKey(clazz, staleClassKeys),
+					(ClassUtils.isCacheSafe(clazz, CachedFieldResults.class.getClassLoader()) ? results :
+							new WeakReference<CachedFieldResults>(results)));
+		}
+		return results;
+	}
+
+	/**
+	 * Remove the cache entries of all classes that have been garbage collected.
+	 */
+	private static void expungeStaleClassKeys() {
+		Reference<? extends Class<?>> staleKey;
+		while((staleKey = staleClassKeys.poll()) != null) {
+			classCache.remove(staleKey);
+		}
+	}
+
+
+	private final Class<?> targetClass;
+
+	/** CachedField objects keyed by field name String */
+	private final Map<String, CachedField> fields = new HashMap<String, CachedField>();
+
+	private CachedFieldResults(Class<?> targetClass) {
+		this.targetClass = targetClass;
+		ReflectionUtils.doWithFields(targetClass, new ReflectionUtils.FieldCallback() {
+			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
+				if(fields.containsKey(field.getName())) {
+					// ignore superclass declarations of fields already found in a subclass
+				} else {
+					ReflectionUtils.makeAccessible(field);
+					fields.put(field.getName(), new CachedField(field));
+				}
+			}
+		});
+	}
+
+
+	Class<?> getTargetClass() {
+		return this.targetClass;
+	}
+
+	/**
+	 * Return the field of the given name, or <code>null</code> if none.
+	 */
+	CachedField getField(String fieldName) {
+		return this.fields.get(fieldName);
+	}
+
+
+	/**
+	 * An accessible field along with its precomputed TypeDescriptor.
+	 */
+	static final class CachedField {
+
+		private final Field field;
+
+		private final TypeDescriptor typeDescriptor;
+
+		private CachedField(Field field) {
+			this.field = field;
+			this.typeDescriptor = new TypeDescriptor(field);
+		}
+
+		public Field getField() {
+			return this.field;
+		}
+
+		public TypeDescriptor getTypeDescriptor() {
+			return this.typeDescriptor;
+		}
+	}
+
+}
@@ -5,14 +5,21 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,11 +58,16 @@ public class CachedIntrospectionResults {
 	static final Set<ClassLoader> acceptedClassLoaders = Collections.synchronizedSet(new HashSet<ClassLoader>());
 	
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple class loaders.
+	 * Map keyed by weak class references, containing CachedIntrospectionResults,
+	 * WeakReferences to CachedIntrospectionResults for classes that are not
+	 * cache-safe, or Futures for results that are still being introspected.
+	 * Weak keys and values allow for proper garbage collection in case of
+	 * multiple class loaders.
 	 */
-	static final Map<Class<?>, Object> classCache = Collections.synchronizedMap(new WeakHashMap<Class<?>, Object>());
+	static final ConcurrentMap<Object, Object> classCache = new ConcurrentHashMap<Object, Object>(64);
+
+	/** Queue of weak class keys whose classes have been garbage collected */
+	private static final ReferenceQueue<Class<?>> staleClassKeys = new ReferenceQueue<Class<?>>();
 		
 	/**
 	 * Accept the given ClassLoader as cache-safe, even if its classes would
@@ -86,12 +98,10 @@ public class CachedIntrospectionResults {
 		if(classLoader == null) {
 			return;
 		}
-		synchronized(classCache) {
-			for(Iterator<Class<?>> it = classCache.keySet().iterator(); it.hasNext();) {
-				Class<?> beanClass = it.next();
-				if(isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
-					it.remove();
-				}
+		for(Iterator<Object> it = classCache.keySet().iterator(); it.hasNext();) {
+			Class<?> beanClass = ((WeakClassKey) it.next()).get();
+			if(beanClass != null && isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
+				it.remove();
 			}
 		}
 		synchronized(acceptedClassLoaders) {
@@ -106,39 +116,124 @@ public class CachedIntrospectionResults {
 	
 	/**
 	 * Create CachedIntrospectionResults for the given bean class.
-	 * <P>We don't want to use synchronization here. Object references are atomic,
-	 * so we can live with doing the occasional unnecessary lookup at startup only.
+	 * <p>Lookups do not lock. Concurrent misses for the same class wait for a
+	 * single introspection of that class, without blocking lookups for other classes.
 	 * @param beanClass the bean class to analyze
 	 * @return the corresponding CachedIntrospectionResults
 	 * @throws BeansException in case of introspection failure
 	 */
+	public static CachedIntrospectionResults forClass(final Class<?> beanClass) throws BeansException {
+		CachedIntrospectionResults results = getCachedResults(classCache.get(new WeakClassKey.Lookup(beanClass)));
+		if(results != null) {
+			return results;
+		}
+		expungeStaleClassKeys();
+		WeakClassKey key = new WeakClassKey(beanClass, staleClassKeys);
+		FutureTask<CachedIntrospectionResults> future = new FutureTask<CachedIntrospectionResults>(
+				new Callable<CachedIntrospectionResults>() {
+					public CachedIntrospectionResults call() {
+						return introspect(beanClass);
+					}
+				});
+		Object value = classCache.putIfAbsent(key, future);
+		while(value != null) {
+			// Introspected or being introspected by another thread.
+			results = getCachedResults(value);
+			if(results != null) {
+				return results;
+			}
+			if(value instanceof Future) {
+				return awaitResults(beanClass, (Future<?>) value);
+			}
+			// Weakly cached results have been garbage collected.
+			if(classCache.replace(key, value, future)) {
+				break;
+			}
+			value = classCache.putIfAbsent(key, future);
+		}
+		future.run();
+		try {
+			results = awaitResults(beanClass, future);
+		} catch (BeansException ex) {
+			classCache.remove(key, future);
+			throw ex;
+		}
+		classCache.replace(key, future,
+				(results.cacheStrongly ? results : new WeakReference<CachedIntrospectionResults>(results)));
+		return results;
+	}
+
+	/**
+	 * Introspect the given bean class, as part of a {@link #forClass} call.
+	 */
+	private static CachedIntrospectionResults introspect(Class<?> beanClass) {
+		// On JDK 1.5 and higher, it is almost always safe to cache the bean class..
+		// The sole exception is a custom Beaninfo class being provided in a non-safe classLoader.
+		boolean fullyCacheable = ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
+				isClassLoaderAccepted(beanClass.getClassLoader());
+		if(fullyCacheable || !ClassUtils.isPresent(beanClass.getName() + "BeanInfo", beanClass.getClassLoader())) {
+			return new CachedIntrospectionResults(beanClass, fullyCacheable, true);
+		} else {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
+			}
+			return new CachedIntrospectionResults(beanClass, true, false);
+		}
+	}
+
+	/**
+	 * Return the results held by the given cache value, if introspection has completed
+	 * and the results have not been garbage collected.
+	 */
 	@SuppressWarnings("rawtypes")
-	public static CachedIntrospectionResults forClass(Class<?> beanClass) throws BeansException {
-		CachedIntrospectionResults results;
-		Object value = classCache.get(beanClass);
-		if(value instanceof Reference) {
-			Reference ref = (Reference) value;
-			results = (CachedIntrospectionResults) ref.get();
+	private static CachedIntrospectionResults getCachedResults(Object value) {
+		if(value instanceof CachedIntrospectionResults) {
+			return (CachedIntrospectionResults) value;
+		} else if(value instanceof Reference) {
+			return (CachedIntrospectionResults) ((Reference) value).get();
 		} else {
-			results = (CachedIntrospectionResults) value;
-		} 
-		if(results == null) {
-			// On JDK 1.5 and higher, it is almost always safe to cache the bean class..
-			// The sole exception is a custom Beaninfo class being provided in a non-safe classLoader.
-			boolean fullyCacheable = ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
-					isClassLoaderAccepted(beanClass.getClassLoader());
-			if(fullyCacheable || !ClassUtils.isPresent(beanClass.getName() + "BeanInfo", beanClass.getClassLoader())) {
-				results = new CachedIntrospectionResults(beanClass, fullyCacheable);
-				classCache.put(beanClass, results);
-			} else {
-				if(logger.isDebugEnabled()) {
-					logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
+			return null;
+		}
+	}
+
+	/**
+	 * Wait for the given introspection to complete, rethrowing any introspection failure.
+	 */
+	private static CachedIntrospectionResults awaitResults(Class<?> beanClass, Future<?> future) {
+		boolean interrupted = false;
+		try {
+			while(true) {
+				try {
+					return (CachedIntrospectionResults) future.get();
+				} catch (InterruptedException ex) {
+					interrupted = true;
 				}
-				results = new CachedIntrospectionResults(beanClass, true);
-				classCache.put(beanClass, new WeakReference<CachedIntrospectionResults>(results));
+			}
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof BeansException) {
+				throw (BeansException) cause;
+			} else if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", cause);
+		} finally {
+			if(interrupted) {
+				Thread.currentThread().interrupt();
 			}
 		}
-		return results;
+	}
+
+	/**
+	 * Remove the cache entries of all classes that have been garbage collected.
+	 */
+	private static void expungeStaleClassKeys() {
+		Reference<? extends Class<?>> staleKey;
+		while((staleKey = staleClassKeys.poll()) != null) {
+			classCache.remove(staleKey);
+		}
 	}
 
 	/**
@@ -184,18 +279,31 @@ public class CachedIntrospectionResults {
 		return false;
 	}
 
+	/** Whether these results may be strongly referenced from the class cache */
+	private final boolean cacheStrongly;
+
 	/** The BeanInfo object for the introspected bean class */
 	private final BeanInfo beanInfo;
 	
 	/** PropertyDescriptor objects keyed by property name String */
 	private final Map<String, PropertyDescriptor> propertyDescriptorCache;
+
+	/**
+	 * PropertyDescriptor objects keyed by the property name with the case of its
+	 * first letter flipped, for lenient lookups of e.g. "Name" for "name"
+	 */
+	private final Map<String, PropertyDescriptor> propertyDescriptorAliases;
 	
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
 	 * @param beanClass the bean class to analyze
+	 * @param cacheFullMetadata whether to build generic type aware descriptors upfront
+	 * @param cacheStrongly whether the results may be strongly referenced from the class cache
 	 * @throws BeansException in case of introspection failure
 	 */
-	private CachedIntrospectionResults(Class<?> beanClass, boolean cacheFullMetadata) throws BeansException {
+	private CachedIntrospectionResults(Class<?> beanClass, boolean cacheFullMetadata, boolean cacheStrongly)
+			throws BeansException {
+		this.cacheStrongly = cacheStrongly;
 		try {
 			if(logger.isTraceEnabled()) {
 				logger.trace("Getting BeanInfo for class [" + beanClass.getName() + "]");
@@ -235,11 +343,27 @@ public class CachedIntrospectionResults {
 				}
 				this.propertyDescriptorCache.put(pd.getName(), pd);
 			}
+			
+			// Same lenient fallback checking as in PropertyTypeDescriptor, resolved upfront:
+			// a name with its first letter lower-cased takes precedence over upper-cased.
+			this.propertyDescriptorAliases = new HashMap<String, PropertyDescriptor>();
+			for(PropertyDescriptor pd : this.propertyDescriptorCache.values()) {
+				addPropertyDescriptorAlias(StringUtils.capitalize(pd.getName()), pd);
+			}
+			for(PropertyDescriptor pd : this.propertyDescriptorCache.values()) {
+				addPropertyDescriptorAlias(StringUtils.uncapitalize(pd.getName()), pd);
+			}
 		} catch (IntrospectionException ex) {
 			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", ex);
 		}
 	}
 	
+	private void addPropertyDescriptorAlias(String alias, PropertyDescriptor pd) {
+		if(!this.propertyDescriptorCache.containsKey(alias) && !this.propertyDescriptorAliases.containsKey(alias)) {
+			this.propertyDescriptorAliases.put(alias, pd);
+		}
+	}
+
 	private PropertyDescriptor buildGenericTypeAwarePropertyDescriptor(Class<?> beanClass, PropertyDescriptor pd) {
 		try {
 			return new GenericTypeAwarePropertyDescriptor(beanClass, pd.getName(),
@@ -259,12 +383,8 @@ public class CachedIntrospectionResults {
 	
 	PropertyDescriptor getPropertyDescriptor(String name) {
 		PropertyDescriptor pd = this.propertyDescriptorCache.get(name);
-		if(pd == null && StringUtils.hasLength(name)) {
-			// Same lenient fallback checking as in PropertyTypeDescriptor...
-			pd = this.propertyDescriptorCache.get(name.substring(0, 1).toLowerCase() + name.substring(1));
-			if(pd == null) {
-				pd = this.propertyDescriptorCache.get(name.substring(0,1).toUpperCase() + name.substring(1));
-			}
+		if(pd == null) {
+			pd = this.propertyDescriptorAliases.get(name);
 		}
 		return (pd == null || pd instanceof GenericTypeAwarePropertyDescriptor ? pd :
 			buildGenericTypeAwarePropertyDescriptor(getBeanClass(), pd));
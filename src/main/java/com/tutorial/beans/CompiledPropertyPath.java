@@ -0,0 +1,164 @@
+package com.tutorial.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.tutorial.util.Assert;
+
+/**
+ * A property path (like <code>order.lines[3].sku</code> or <code>attrs['x']</code>),
+ * parsed once into its nested property tokens, to be applied to any number of
+ * target objects through {@link BeanWrapperImpl#getPropertyValue(CompiledPropertyPath)}
+ * and {@link BeanWrapperImpl#setPropertyValue(CompiledPropertyPath, Object)}.
+ *
+ * <p>Each token also remembers the <code>PropertyDescriptor</code> it has last
+ * been resolved to, along with the class it was resolved against, so that
+ * repeated access to objects of the same class skips the introspection lookup.
+ *
+ * <p>Instances are immutable and thread-safe. They are obtained through
+ * {@link #forPath(String)}, which keeps them in a global cache, bounded by
+ * {@link #setCacheLimit cache limit}: once full, the cache is cleared and starts
+ * over, so that paths built from dynamic input cannot exhaust memory.
+ * <code>BeanWrapperImpl</code> goes through this cache for every String path as
+ * well; holding on to a CompiledPropertyPath just saves the cache lookup.
+ *
+ * <pre class="code">
+ * CompiledPropertyPath sku = CompiledPropertyPath.forPath("order.lines[3].sku");
+ * BeanWrapperImpl bw = new BeanWrapperImpl();
+ * for (Object target : targets) {
+ *     bw.setWrappedInstance(target);
+ *     bw.setPropertyValue(sku, "4711");
+ * }</pre>
+ *
+ * @see BeanWrapperImpl
+ */
+public final class CompiledPropertyPath {
+
+	/** Default maximum number of cached property paths */
+	public static final int DEFAULT_CACHE_LIMIT = 4096;
+
+	private static final ConcurrentHashMap<String, CompiledPropertyPath> cache =
+			new ConcurrentHashMap<String, CompiledPropertyPath>(256);
+
+	private static volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+
+	private final String path;
+
+	/** Tokens for each nested property, the last one being the property on the final target */
+	private final BeanWrapperImpl.PropertyTokenHolder[] tokens;
+
+	private CompiledPropertyPath(String path) {
+		this.path = path;
+		List<BeanWrapperImpl.PropertyTokenHolder> tokens = new ArrayList<BeanWrapperImpl.PropertyTokenHolder>(4);
+		String remainingPath = path;
+		int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(remainingPath);
+		while(pos > -1) {
+			tokens.add(BeanWrapperImpl.getPropertyNameTokens(remainingPath.substring(0, pos)));
+			remainingPath = remainingPath.substring(pos + 1);
+			pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(remainingPath);
+		}
+		tokens.add(BeanWrapperImpl.getPropertyNameTokens(remainingPath));
+		this.tokens = tokens.toArray(new BeanWrapperImpl.PropertyTokenHolder[tokens.size()]);
+	}
+
+
+	/**
+	 * Return the compiled form of the given property path, from the cache if possible.
+	 * @param propertyPath the property path, which may be nested and/or indexed
+	 * @return the compiled property path (never <code>null</code>)
+	 */
+	public static CompiledPropertyPath forPath(String propertyPath) {
+		Assert.notNull(propertyPath, "Property path must not be null");
+		CompiledPropertyPath compiledPath = cache.get(propertyPath);
+		if(compiledPath == null) {
+			compiledPath = new CompiledPropertyPath(propertyPath);
+			if(cache.size() >= cacheLimit) {
+				cache.clear();
+			}
+			CompiledPropertyPath existing = cache.putIfAbsent(propertyPath, compiledPath);
+			if(existing != null) {
+				compiledPath = existing;
+			}
+		}
+		return compiledPath;
+	}
+
+	/**
+	 * Set the maximum number of property paths to keep in the global cache.
+	 * <p>Default is {@link #DEFAULT_CACHE_LIMIT}.
+	 */
+	public static void setCacheLimit(int limit) {
+		Assert.isTrue(limit > 0, "Cache limit must be 1 or higher");
+		cacheLimit = limit;
+	}
+
+	/**
+	 * Return the maximum number of property paths to keep in the global cache.
+	 */
+	public static int getCacheLimit() {
+		return cacheLimit;
+	}
+
+	/**
+	 * Return the number of property paths currently in the global cache.
+	 */
+	public static int getCacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Remove all property paths from the global cache.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+
+
+	/**
+	 * Return the property path that this instance has been compiled from.
+	 */
+	public String getPath() {
+		return this.path;
+	}
+
+	/**
+	 * Return whether this path navigates into nested properties, e.g. <code>order.id</code>.
+	 */
+	public boolean isNested() {
+		return this.tokens.length > 1;
+	}
+
+	/**
+	 * Return the tokens of the nested properties leading to the final target,
+	 * followed by the tokens of the property on the final target.
+	 */
+	BeanWrapperImpl.PropertyTokenHolder[] getTokens() {
+		return this.tokens;
+	}
+
+	/**
+	 * Return the tokens of the property on the final target.
+	 */
+	BeanWrapperImpl.PropertyTokenHolder getFinalTokens() {
+		return this.tokens[this.tokens.length - 1];
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof CompiledPropertyPath &&
+				this.path.equals(((CompiledPropertyPath) other).path)));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.path.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.path;
+	}
+
+}
@@ -0,0 +1,232 @@
+package com.tutorial.beans;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tutorial.beans.propertyeditors.CustomBooleanEditor;
+import com.tutorial.util.ClassUtils;
+import com.tutorial.util.NumberUtils;
+import com.tutorial.util.StringUtils;
+
+/**
+ * Stateless String converters for the most common default editor types:
+ * numbers, booleans, <code>Class</code> and enums.
+ *
+ * <p>{@link TypeConverterDelegate} consults these before falling back to the
+ * default PropertyEditors of its {@link PropertyEditorRegistrySupport}. Since
+ * PropertyEditors are stateful, every registry creates its own set of default
+ * editors on first use; converting a String to, say, an <code>int</code>
+ * through a shared converter instead avoids creating that set altogether,
+ * which matters for the many short-lived BeanWrappers of prototype beans.
+ *
+ * <p>Each converter parses exactly like the default editor it stands in for
+ * ({@link com.tutorial.beans.propertyeditors.CustomNumberEditor},
+ * {@link CustomBooleanEditor}, {@link com.tutorial.beans.propertyeditors.ClassEditor}),
+ * including the handling of empty Strings and the exceptions thrown.
+ * All converters are immutable and thread-safe.
+ *
+ * @see PropertyEditorRegistrySupport#getDefaultEditor
+ */
+final class DefaultStringConverters {
+
+	private static final Map<Class<?>, StringConverter> converters;
+
+	static {
+		Map<Class<?>, StringConverter> map = new HashMap<Class<?>, StringConverter>(32);
+		map.put(byte.class, new NumberConverter(Byte.class, false));
+		map.put(Byte.class, new NumberConverter(Byte.class, true));
+		map.put(short.class, new NumberConverter(Short.class, false));
+		map.put(Short.class, new NumberConverter(Short.class, true));
+		map.put(int.class, new NumberConverter(Integer.class, false));
+		map.put(Integer.class, new NumberConverter(Integer.class, true));
+		map.put(long.class, new NumberConverter(Long.class, false));
+		map.put(Long.class, new NumberConverter(Long.class, true));
+		map.put(float.class, new NumberConverter(Float.class, false));
+		map.put(Float.class, new NumberConverter(Float.class, true));
+		map.put(double.class, new NumberConverter(Double.class, false));
+		map.put(Double.class, new NumberConverter(Double.class, true));
+		map.put(BigInteger.class, new NumberConverter(BigInteger.class, true));
+		map.put(BigDecimal.class, new NumberConverter(BigDecimal.class, true));
+		map.put(boolean.class, new BooleanConverter(false));
+		map.put(Boolean.class, new BooleanConverter(true));
+		map.put(Class.class, new ClassConverter());
+		converters = Collections.unmodifiableMap(map);
+	}
+
+
+	private DefaultStringConverters() {
+	}
+
+
+	/**
+	 * Return the shared converter for the given default editor type.
+	 * @param requiredType the type to convert to
+	 * @return the converter, or <code>null</code> if the type is not covered
+	 */
+	public static StringConverter getConverter(Class<?> requiredType) {
+		return converters.get(requiredType);
+	}
+
+	/**
+	 * Resolve the enum constant of the given name.
+	 * <p>Only covers actual enum constants; anything else (empty Strings,
+	 * custom constant fields) is left to the regular enum conversion.
+	 * @param enumType the enum type
+	 * @param text the (untrimmed) constant name
+	 * @return the enum constant, or <code>null</code> if there is no such constant
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Object convertToEnum(Class<?> enumType, String text) {
+		String trimmedText = text.trim();
+		if(trimmedText.length() == 0) {
+			return null;
+		}
+		try {
+			return Enum.valueOf((Class<Enum>) enumType, trimmedText);
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Strategy for converting a String into the target type of a default editor.
+	 */
+	static abstract class StringConverter {
+
+		/**
+		 * Convert the given String.
+		 * @param text the String to convert (never <code>null</code>)
+		 * @return the converted value (may be <code>null</code> for an empty String)
+		 * @throws IllegalArgumentException if the String cannot be converted
+		 */
+		public abstract Object convert(String text) throws IllegalArgumentException;
+
+		/**
+		 * Check whether the given String could be converted, without converting it.
+		 * <p>The default implementation returns <code>true</code>, leaving the
+		 * decision to {@link #convert}.
+		 * @param text the String to check (never <code>null</code>)
+		 * @return <code>false</code> if {@link #convert} would certainly throw an
+		 * IllegalArgumentException, <code>true</code> if it may succeed
+		 */
+		public boolean isConvertible(String text) {
+			return true;
+		}
+	}
+
+
+	private static class NumberConverter extends StringConverter {
+
+		private final Class<? extends Number> numberClass;
+
+		private final boolean allowEmpty;
+
+		public NumberConverter(Class<? extends Number> numberClass, boolean allowEmpty) {
+			this.numberClass = numberClass;
+			this.allowEmpty = allowEmpty;
+		}
+
+		@Override
+		public Object convert(String text) {
+			if(this.allowEmpty && !StringUtils.hasText(text)) {
+				return null;
+			}
+			return NumberUtils.parseNumber(text, this.numberClass);
+		}
+
+		/**
+		 * Checks the syntax of integral numbers, in decimal or hex notation
+		 * as accepted by {@link NumberUtils#parseNumber}; the range is not checked.
+		 */
+		@Override
+		public boolean isConvertible(String text) {
+			if(this.allowEmpty && !StringUtils.hasText(text)) {
+				return true;
+			}
+			if(this.numberClass == Float.class || this.numberClass == Double.class ||
+					this.numberClass == BigDecimal.class) {
+				return true;
+			}
+			String trimmed = StringUtils.trimAllWhitespace(text);
+			int index = (trimmed.startsWith("-") || trimmed.startsWith("+") ? 1 : 0);
+			int radix = 10;
+			if(trimmed.startsWith("0x", index) || trimmed.startsWith("0X", index)) {
+				index += 2;
+				radix = 16;
+			} else if(trimmed.startsWith("#", index)) {
+				index++;
+				radix = 16;
+			}
+			if(index == trimmed.length()) {
+				return false;
+			}
+			for(int i = index; i < trimmed.length(); i++) {
+				if(Character.digit(trimmed.charAt(i), radix) < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	private static class BooleanConverter extends StringConverter {
+
+		private final boolean allowEmpty;
+
+		public BooleanConverter(boolean allowEmpty) {
+			this.allowEmpty = allowEmpty;
+		}
+
+		@Override
+		public Object convert(String text) {
+			String input = text.trim();
+			if(this.allowEmpty && input.length() == 0) {
+				return null;
+			} else if(isTrue(input)) {
+				return Boolean.TRUE;
+			} else if(isFalse(input)) {
+				return Boolean.FALSE;
+			} else {
+				throw new IllegalArgumentException("Invalid boolean value [" + text + "]");
+			}
+		}
+
+		@Override
+		public boolean isConvertible(String text) {
+			String input = text.trim();
+			return ((this.allowEmpty && input.length() == 0) || isTrue(input) || isFalse(input));
+		}
+
+		private static boolean isTrue(String input) {
+			return (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_TRUE) || input.equalsIgnoreCase(CustomBooleanEditor.VALUE_ON) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_YES) || input.equalsIgnoreCase(CustomBooleanEditor.VALUE_1));
+		}
+
+		private static boolean isFalse(String input) {
+			return (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_FALSE) || input.equalsIgnoreCase(CustomBooleanEditor.VALUE_OFF) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_NO) || input.equalsIgnoreCase(CustomBooleanEditor.VALUE_0));
+		}
+	}
+
+
+	/**
+	 * Resolves class names against the thread context ClassLoader at the time of
+	 * conversion, where the ClassEditor uses the one current at its creation.
+	 */
+	private static class ClassConverter extends StringConverter {
+
+		@Override
+		public Object convert(String text) {
+			if(StringUtils.hasText(text)) {
+				return ClassUtils.resolveClassName(text.trim(), ClassUtils.getDefaultClassLoader());
+			}
+			return null;
+		}
+	}
+
+}
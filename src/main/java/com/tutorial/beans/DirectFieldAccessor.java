@@ -2,15 +2,12 @@ package com.tutorial.beans;
 
 import java.beans.PropertyChangeEvent;
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.tutorial.core.MethodParameter;
 import com.tutorial.core.convert.ConversionException;
 import com.tutorial.core.convert.ConverterNotFoundException;
 import com.tutorial.core.convert.TypeDescriptor;
 import com.tutorial.util.Assert;
-import com.tutorial.util.ReflectionUtils;
 
 /**
  * {@link PropertyAccessor} implementation that directly accesses instance fields.
@@ -21,64 +18,79 @@ import com.tutorial.util.ReflectionUtils;
  *
  * <p>A DirectFieldAccessor's default for the "extractOldValueForEditor" setting
  * is "true", since a field can always be read without side effects.
+ *
+ * <p>Field metadata is cached per class (see {@link CachedFieldResults}), and an
+ * accessor can be switched to another target object through
+ * {@link #setWrappedInstance}, so binding many objects of the same class
+ * neither repeats the reflection work nor requires a new accessor per object.
  * 
  * @author Liufeng
  * Created on 2018年12月9日 下午5:24:44
  */
 public class DirectFieldAccessor extends AbstractPropertyAccessor {
 	
-	private final Object target;
+	private Object target;
 	
-	private final Map<String, Field> fieldMap = new HashMap<String, Field>();
+	private CachedFieldResults cachedFieldResults;
 	
-	private final TypeConverterDelegate typeConverterDelegate;
+	private TypeConverterDelegate typeConverterDelegate;
 	
 	/**
 	 * Create a new DirectFieldAccessor for the given target object.
 	 * @param target the target object to access
 	 */
-	public DirectFieldAccessor(final Object target) {
-		Assert.notNull(target, "Target object must not be null");
-		this.target = target;
-		ReflectionUtils.doWithFields(this.target.getClass(), new ReflectionUtils.FieldCallback() {
-			@Override
-			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
-				if(fieldMap.containsKey(field.getName())) {
-					// ignore superclass declarations of fields already found in a subclass
-				} else {
-					fieldMap.put(field.getName(), field);
-				}
-			}
-		});
-		this.typeConverterDelegate = new TypeConverterDelegate(this, target);
+	public DirectFieldAccessor(Object target) {
 		registerDefaultEditors();
 		setExtractOldValueForEditor(true);
+		setWrappedInstance(target);
+	}
+
+	/**
+	 * Switch the target object, replacing the cached field metadata only
+	 * if the class of the new object is different to that of the replaced object.
+	 * @param target the new target object
+	 */
+	@Override
+	public void setWrappedInstance(Object target) {
+		Assert.notNull(target, "Target object must not be null");
+		this.target = target;
+		if(this.cachedFieldResults == null || this.cachedFieldResults.getTargetClass() != target.getClass()) {
+			this.cachedFieldResults = CachedFieldResults.forClass(target.getClass());
+			this.typeConverterDelegate = new TypeConverterDelegate(this, target);
+		}
+	}
+
+	/**
+	 * Return the target object that this accessor currently operates on.
+	 */
+	public Object getWrappedInstance() {
+		return this.target;
 	}
 
 	@Override
 	public boolean isReadableProperty(String propertyName) {
-		return this.fieldMap.containsKey(propertyName);
+		return (this.cachedFieldResults.getField(propertyName) != null);
 	}
 
 	@Override
 	public boolean isWritableProperty(String propertyName) {
-		return this.fieldMap.containsKey(propertyName);
+		return (this.cachedFieldResults.getField(propertyName) != null);
 	}
 
 	@Override
 	public TypeDescriptor getPropertyTypeDescriptor(String propertyName) throws BeansException {
-		Field field = this.fieldMap.get(propertyName);
+		CachedFieldResults.CachedField field = this.cachedFieldResults.getField(propertyName);
 		if(field != null) {
-			return new TypeDescriptor(field);
+			return field.getTypeDescriptor();
 		}
 		return null;
 	}
 	
 	@Override
 	public Class<?> getPropertyType(String propertyName) {
-		Field field = this.fieldMap.get(propertyName);
+		CachedFieldResults.CachedField field = this.cachedFieldResults.getField(propertyName);
 		if(field != null) {
-			return field.getClass();
+			return field.getField().getClass();
 		}
 		return null;
 	}
@@ -97,14 +109,13 @@ public class DirectFieldAccessor extends AbstractPropertyAccessor {
 
 	@Override
 	public Object getPropertyValue(String propertyName) throws BeansException {
-		Field field = this.fieldMap.get(propertyName);
-		if(field == null) {
+		CachedFieldResults.CachedField cachedField = this.cachedFieldResults.getField(propertyName);
+		if(cachedField == null) {
 			throw new NotReadablePropertyException(
 					this.target.getClass(), propertyName, "Field '" + propertyName + "' does not exist");
 		}
 		try {
-			ReflectionUtils.makeAccessible(field);
-			return field.get(target);
+			return cachedField.getField().get(this.target);
 		} catch (IllegalAccessException ex) {
 			throw new InvalidPropertyException(this.target.getClass(), propertyName, "Field is not accessible", ex);
 		}
@@ -112,17 +123,17 @@ public class DirectFieldAccessor extends AbstractPropertyAccessor {
 
 	@Override
 	public void setPropertyValue(String propertyName, Object newValue) throws BeansException {
-		Field field = this.fieldMap.get(propertyName);
-		if(field == null) {
+		CachedFieldResults.CachedField cachedField = this.cachedFieldResults.getField(propertyName);
+		if(cachedField == null) {
 			throw new NotReadablePropertyException(
 					this.target.getClass(), propertyName, "Field '" + propertyName + "' does not exist");
 		} 
+		Field field = cachedField.getField();
 		Object oldValue = null;
 		try {
-			ReflectionUtils.makeAccessible(field);
-			oldValue = field.get(target);
+			oldValue = field.get(this.target);
 			Object convertedValue = this.typeConverterDelegate.convertIfNecessary(
-					field.getName(), oldValue, newValue, field.getType(), new TypeDescriptor(field));
+					field.getName(), oldValue, newValue, field.getType(), cachedField.getTypeDescriptor());
 			field.set(this.target, convertedValue);
 		} catch (ConverterNotFoundException e) {
 			PropertyChangeEvent pce = new PropertyChangeEvent(this.target, propertyName, oldValue, newValue);
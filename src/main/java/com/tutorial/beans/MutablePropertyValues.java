@@ -181,6 +181,19 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 		return this;
 	}
 	
+	/**
+	 * Reduce the memory footprint of this object for long-term storage:
+	 * trims the underlying list to its current size and interns all property names.
+	 */
+	public void compact() {
+		if(this.propertyValueList instanceof ArrayList) {
+			((ArrayList<PropertyValue>) this.propertyValueList).trimToSize();
+		}
+		for(PropertyValue pv : this.propertyValueList) {
+			pv.internName();
+		}
+	}
+	
 	/**
 	 * Modify a PropertyValue object held in this object.
 	 * Indexed from 0.
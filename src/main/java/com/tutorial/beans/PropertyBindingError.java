@@ -0,0 +1,106 @@
+package com.tutorial.beans;
+
+import com.tutorial.util.ClassUtils;
+
+/**
+ * A failure to bind a single property value, as collected by
+ * {@link AbstractPropertyAccessor#setPropertyValues(PropertyBindingPlan, java.util.List, java.util.List)}.
+ *
+ * <p>Only keeps a summary of the exception that has been thrown, so that
+ * collecting many errors in a bulk binding does not retain their stack traces.
+ * Values rejected by the pre-check of the {@link PropertyBindingPlan} are
+ * reported without any exception being created in the first place.
+ */
+public class PropertyBindingError {
+
+	private final int targetIndex;
+
+	private final String propertyName;
+
+	private final Object value;
+
+	private final Class<? extends BeansException> exceptionType;
+
+	private final String errorCode;
+
+	private final String message;
+
+	/**
+	 * Create a new PropertyBindingError from the given exception.
+	 * @param targetIndex the position of the target object in the batch
+	 * @param propertyName the property that could not be bound
+	 * @param value the rejected value
+	 * @param ex the exception that has been thrown
+	 */
+	public PropertyBindingError(int targetIndex, String propertyName, Object value, BeansException ex) {
+		this.targetIndex = targetIndex;
+		this.propertyName = propertyName;
+		this.value = value;
+		this.exceptionType = ex.getClass();
+		this.errorCode = (ex instanceof PropertyAccessException ? ((PropertyAccessException) ex).getErrorCode() : null);
+		this.message = ex.getMessage();
+	}
+
+	/**
+	 * Create a new PropertyBindingError for a value that has been found not to be
+	 * convertible to the type of the property, without an exception having been thrown.
+	 * @param targetIndex the position of the target object in the batch
+	 * @param propertyName the property that could not be bound
+	 * @param value the rejected value
+	 * @param requiredType the type of the property
+	 */
+	PropertyBindingError(int targetIndex, String propertyName, Object value, Class<?> requiredType) {
+		this.targetIndex = targetIndex;
+		this.propertyName = propertyName;
+		this.value = value;
+		this.exceptionType = TypeMisMatchException.class;
+		this.errorCode = TypeMisMatchException.ERROR_CODE;
+		this.message = "Failed to convert property value of type '" + ClassUtils.getDescriptiveType(value) +
+				"' to required type '" + ClassUtils.getQualifiedName(requiredType) + "' for property '" + propertyName + "'";
+	}
+
+
+	/**
+	 * Return the position of the target object in the batch.
+	 */
+	public int getTargetIndex() {
+		return this.targetIndex;
+	}
+
+	public String getPropertyName() {
+		return this.propertyName;
+	}
+
+	/**
+	 * Return the rejected value.
+	 */
+	public Object getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Return the type of the exception that has been thrown,
+	 * e.g. {@link TypeMisMatchException} or {@link NotWritablePropertyException}.
+	 */
+	public Class<? extends BeansException> getExceptionType() {
+		return this.exceptionType;
+	}
+
+	/**
+	 * Return the error code of the exception, e.g. {@link TypeMisMatchException#ERROR_CODE},
+	 * or <code>null</code> if the exception was not a PropertyAccessException.
+	 */
+	public String getErrorCode() {
+		return this.errorCode;
+	}
+
+	public String getMessage() {
+		return this.message;
+	}
+
+	@Override
+	public String toString() {
+		return "Target " + this.targetIndex + ", property '" + this.propertyName + "': " + this.message;
+	}
+
+}
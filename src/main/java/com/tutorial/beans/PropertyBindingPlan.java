@@ -0,0 +1,112 @@
+package com.tutorial.beans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Precomputed plan for binding the same set of properties on many objects of
+ * the same class, e.g. one per row of a bulk import. Created once through
+ * {@link AbstractPropertyAccessor#createBindingPlan} and applied through
+ * {@link AbstractPropertyAccessor#setPropertyValues(PropertyBindingPlan, List, List)}.
+ *
+ * <p>Each property path is compiled once (see {@link CompiledPropertyPath}),
+ * and the writability of each top-level property is checked once against the
+ * target class rather than for every object. Properties found not to be
+ * writable are either rejected when creating the plan or skipped when applying it.
+ * The type of each top-level property is determined once as well, so that String
+ * values which cannot possibly be converted to a number or boolean property are
+ * reported without going through a failing conversion.
+ *
+ * <p>Instances are immutable and may be shared between accessors and threads.
+ */
+public final class PropertyBindingPlan {
+
+	private final Class<?> targetClass;
+
+	private final String[] propertyNames;
+
+	private final CompiledPropertyPath[] propertyPaths;
+
+	/** Whether each property is to be skipped, having been found not to be writable */
+	private final boolean[] skipped;
+
+	/** The type of each top-level property, or <code>null</code> if not known */
+	private final Class<?>[] propertyTypes;
+
+	PropertyBindingPlan(Class<?> targetClass, String[] propertyNames, boolean[] skipped, Class<?>[] propertyTypes) {
+		this.targetClass = targetClass;
+		this.propertyNames = propertyNames.clone();
+		this.propertyPaths = new CompiledPropertyPath[propertyNames.length];
+		for(int i = 0; i < propertyNames.length; i++) {
+			this.propertyPaths[i] = CompiledPropertyPath.forPath(propertyNames[i]);
+		}
+		this.skipped = skipped;
+		this.propertyTypes = propertyTypes;
+	}
+
+
+	/**
+	 * Return the class of the objects that this plan applies to.
+	 */
+	public Class<?> getTargetClass() {
+		return this.targetClass;
+	}
+
+	/**
+	 * Return the number of properties in this plan, i.e. the number of values
+	 * expected per target object.
+	 */
+	public int getPropertyCount() {
+		return this.propertyNames.length;
+	}
+
+	/**
+	 * Return the name of the property at the given position.
+	 */
+	public String getPropertyName(int index) {
+		return this.propertyNames[index];
+	}
+
+	/**
+	 * Return the properties that are skipped when applying this plan,
+	 * since they have been found not to be writable.
+	 */
+	public List<String> getSkippedProperties() {
+		List<String> result = new ArrayList<String>();
+		for(int i = 0; i < this.propertyNames.length; i++) {
+			if(this.skipped[i]) {
+				result.add(this.propertyNames[i]);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	CompiledPropertyPath getPropertyPath(int index) {
+		return this.propertyPaths[index];
+	}
+
+	boolean isSkipped(int index) {
+		return this.skipped[index];
+	}
+
+	Class<?> getPropertyType(int index) {
+		return this.propertyTypes[index];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("PropertyBindingPlan for [").append(this.targetClass.getName()).append("]: ");
+		for(int i = 0; i < this.propertyNames.length; i++) {
+			if(i > 0) {
+				sb.append(", ");
+			}
+			sb.append(this.propertyNames[i]);
+			if(this.skipped[i]) {
+				sb.append(" (skipped)");
+			}
+		}
+		return sb.toString();
+	}
+
+}
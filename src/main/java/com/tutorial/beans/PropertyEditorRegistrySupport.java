@@ -162,7 +162,27 @@ public class PropertyEditorRegistrySupport implements PropertyEditorRegistry {
 		}
 		return this.defaultEditors.get(requiredType);
 	}
-	
+
+	/**
+	 * Determine whether the given type would be converted by the built-in default
+	 * editor for it, i.e. whether default editors are active and the default editor
+	 * for that type has not been overridden. Does not create the default editors.
+	 * @param requiredType type of the property
+	 * @see DefaultStringConverters
+	 */
+	boolean isBuiltInDefaultEditor(Class<?> requiredType) {
+		return (this.defaultEditorsActive && !hasOverriddenDefaultEditor(requiredType));
+	}
+
+	/**
+	 * Determine whether the default editor for the given type has been overridden.
+	 * @param requiredType type of the property
+	 * @see #overrideDefaultEditor
+	 */
+	boolean hasOverriddenDefaultEditor(Class<?> requiredType) {
+		return (this.overriddenDefaultEditors != null && this.overriddenDefaultEditors.containsKey(requiredType));
+	}
+
 	/**
 	 * Actually register the default editors for this registry instance.
 	 */
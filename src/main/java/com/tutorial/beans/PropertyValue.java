@@ -92,6 +92,14 @@ public class PropertyValue extends BeanMetadataAttributeAccessor implements Seri
 		return name;
 	}
 
+	/**
+	 * Replace the property name with its canonical representation,
+	 * so that equal names held by many property values share one instance.
+	 */
+	void internName() {
+		this.name = this.name.intern();
+	}
+
 	public Object getValue() {
 		return value;
 	}
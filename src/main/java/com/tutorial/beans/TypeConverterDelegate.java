@@ -126,9 +126,30 @@ class TypeConverterDelegate {
 				}
 			}
 		}
-		
+
+		// No custom editor -> try the shared converters for common default editor types.
+		if(editor == null && requiredType != null && convertedValue instanceof String) {
+			if(requiredType.isEnum()) {
+				if(!this.propertyEditorRegistry.hasOverriddenDefaultEditor(requiredType)) {
+					// An editor following the "Editor" suffix convention takes precedence.
+					editor = BeanUtils.findEditorByConvention(requiredType);
+					if(editor == null) {
+						Object enumValue = DefaultStringConverters.convertToEnum(requiredType, (String) convertedValue);
+						if(enumValue != null) {
+							return (T) enumValue;
+						}
+					}
+				}
+			} else {
+				DefaultStringConverters.StringConverter converter = DefaultStringConverters.getConverter(requiredType);
+				if(converter != null && this.propertyEditorRegistry.isBuiltInDefaultEditor(requiredType)) {
+					return (T) converter.convert((String) convertedValue);
+				}
+			}
+		}
+
 		// value not of required type
-		if(editor != null || 
+		if(editor != null ||
 				(requiredType != null && !ClassUtils.isAssignableValue(requiredType, convertedValue))) {
 			if(requiredType != null && Collection.class.isAssignableFrom(requiredType) && convertedValue instanceof String) {
 				TypeDescriptor elementType = typeDescriptor.getElementTypeDescriptor();
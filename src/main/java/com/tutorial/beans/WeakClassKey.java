@@ -0,0 +1,67 @@
+package com.tutorial.beans;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Weak reference to a class, serving as key in the concurrent class caches of
+ * this package ({@link CachedIntrospectionResults}, {@link CachedFieldResults}).
+ * Equal to any other key for the same class, as long as that class has not been
+ * garbage collected.
+ *
+ * <p>Lookups use a strong, short-lived {@link Lookup} key instead, avoiding
+ * the creation of a WeakReference for every lookup.
+ */
+final class WeakClassKey extends WeakReference<Class<?>> {
+
+	private final int hashCode;
+
+	public WeakClassKey(Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+		super(clazz, queue);
+		this.hashCode = System.identityHashCode(clazz);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		Class<?> clazz = get();
+		if(clazz == null) {
+			return false;
+		}
+		if(other instanceof WeakClassKey) {
+			return (clazz == ((WeakClassKey) other).get());
+		}
+		return (other instanceof Lookup && clazz == ((Lookup) other).clazz);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+
+	/**
+	 * Strong, short-lived key for looking up a class in a class cache.
+	 */
+	static final class Lookup {
+
+		private final Class<?> clazz;
+
+		public Lookup(Class<?> clazz) {
+			this.clazz = clazz;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof WeakClassKey && this.clazz == ((WeakClassKey) other).get()));
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.clazz);
+		}
+	}
+
+}
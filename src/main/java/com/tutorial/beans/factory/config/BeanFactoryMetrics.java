@@ -0,0 +1,47 @@
+package com.tutorial.beans.factory.config;
+
+/**
+ * Callback interface for collecting runtime metrics of a bean factory:
+ * bean requests, bean creations and bean destructions, per bean name.
+ *
+ * <p>Invoked from the <code>doGetBean</code>, <code>createBean</code> and
+ * <code>destroyBean</code> methods of
+ * {@link com.tutorial.beans.factory.support.AbstractBeanFactory}, on
+ * whatever thread performs the operation. Implementations therefore need
+ * to be thread-safe, and should be cheap, since they are called on every
+ * <code>getBean</code> call.
+ *
+ * <p>Registered through {@link ConfigurableBeanFactory#setBeanFactoryMetrics};
+ * no metrics are collected by default.
+ *
+ * @see com.tutorial.beans.factory.support.DefaultBeanFactoryMetrics
+ */
+public interface BeanFactoryMetrics {
+
+	/**
+	 * Called whenever a bean is requested from the factory.
+	 * @param beanName the name of the bean (after alias resolution)
+	 * @param singletonCacheHit <code>true</code> if the request has been
+	 * served from the singleton cache, <code>false</code> if it had to go
+	 * through the bean definition (which may involve creating the bean)
+	 */
+	void beanRequested(String beanName, boolean singletonCacheHit);
+
+	/**
+	 * Called after a bean instance has been created successfully, including
+	 * its initialization and post-processing.
+	 * @param beanName the name of the bean
+	 * @param scope the scope of the bean, e.g.
+	 * {@link BeanDefinition#SCOPE_PROTOTYPE}
+	 * @param durationNanos the time taken to create the bean, in nanoseconds
+	 */
+	void beanCreated(String beanName, String scope, long durationNanos);
+
+	/**
+	 * Called after a bean instance has been destroyed.
+	 * @param beanName the name of the bean
+	 * @param durationNanos the time taken to destroy the bean, in nanoseconds
+	 */
+	void beanDestroyed(String beanName, long durationNanos);
+
+}
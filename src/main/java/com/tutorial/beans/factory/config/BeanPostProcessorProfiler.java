@@ -0,0 +1,47 @@
+package com.tutorial.beans.factory.config;
+
+/**
+ * Callback interface for profiling the BeanPostProcessor chains of a bean
+ * factory: notified of every post-processor callback invocation along with
+ * the time it took, so that the cost of post-processing can be attributed to
+ * individual (post-processor, callback) pairs.
+ *
+ * <p>Invoked from
+ * {@link com.tutorial.beans.factory.support.AbstractAutowireCapableBeanFactory}
+ * on whatever thread creates the bean. Implementations therefore need to be
+ * thread-safe, and should be cheap, since they are called for every
+ * post-processor and every bean.
+ *
+ * <p>Registered through {@link ConfigurableBeanFactory#setBeanPostProcessorProfiler};
+ * nothing is profiled by default.
+ *
+ * @see com.tutorial.beans.factory.support.DefaultBeanPostProcessorProfiler
+ */
+public interface BeanPostProcessorProfiler {
+
+	/** Callback name for {@link InstantiationAwareBeanPostProcessor#postProcessBeforeInstantiation} */
+	String BEFORE_INSTANTIATION = "postProcessBeforeInstantiation";
+
+	/** Callback name for {@link InstantiationAwareBeanPostProcessor#postProcessAfterInstantiation} */
+	String AFTER_INSTANTIATION = "postProcessAfterInstantiation";
+
+	/** Callback name for {@link InstantiationAwareBeanPostProcessor#postProcessPropertyValues} */
+	String PROPERTY_VALUES = "postProcessPropertyValues";
+
+	/** Callback name for {@link BeanPostProcessor#postProcessBeforeInitialization} */
+	String BEFORE_INITIALIZATION = "postProcessBeforeInitialization";
+
+	/** Callback name for {@link BeanPostProcessor#postProcessAfterInitialization} */
+	String AFTER_INITIALIZATION = "postProcessAfterInitialization";
+
+
+	/**
+	 * Called after a post-processor callback has returned normally.
+	 * @param beanPostProcessor the post-processor that has been invoked
+	 * @param callback the callback that has been invoked, e.g. {@link #BEFORE_INITIALIZATION}
+	 * @param beanName the name of the bean being post-processed
+	 * @param durationNanos the time taken by the callback, in nanoseconds
+	 */
+	void callbackInvoked(BeanPostProcessor beanPostProcessor, String callback, String beanName, long durationNanos);
+
+}
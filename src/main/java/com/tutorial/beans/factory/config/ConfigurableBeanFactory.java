@@ -11,6 +11,7 @@ import com.tutorial.beans.factory.BeanFactory;
 import com.tutorial.beans.factory.HierarchicalBeanFactory;
 import com.tutorial.beans.factory.NoSuchBeanDefinitionException;
 import com.tutorial.core.convert.ConversionService;
+import com.tutorial.core.metrics.StartupRecorder;
 import com.tutorial.util.StringValueResolver;
 
 /**
@@ -250,6 +251,47 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 	 */
 	AccessControlContext getAccessControlContext();
 
+	/**
+	 * Set a StartupRecorder to record the creation of every bean with,
+	 * measuring wall time, CPU time and allocated bytes per bean.
+	 * <p>Default is none, in which case nothing is recorded.
+	 * @param startupRecorder the recorder to use, or <code>null</code> for none
+	 */
+	void setStartupRecorder(StartupRecorder startupRecorder);
+
+	/**
+	 * Return the StartupRecorder for this factory, if any.
+	 */
+	StartupRecorder getStartupRecorder();
+
+	/**
+	 * Set a BeanFactoryMetrics listener to be notified of every bean request,
+	 * creation and destruction in this factory.
+	 * <p>Default is none, in which case no metrics are collected.
+	 * @param beanFactoryMetrics the listener to use, or <code>null</code> for none
+	 * @see com.tutorial.beans.factory.support.DefaultBeanFactoryMetrics
+	 */
+	void setBeanFactoryMetrics(BeanFactoryMetrics beanFactoryMetrics);
+
+	/**
+	 * Return the BeanFactoryMetrics listener for this factory, if any.
+	 */
+	BeanFactoryMetrics getBeanFactoryMetrics();
+
+	/**
+	 * Set a BeanPostProcessorProfiler to be notified of every BeanPostProcessor
+	 * callback invocation in this factory, along with the time it took.
+	 * <p>Default is none, in which case post-processors are not timed at all.
+	 * @param beanPostProcessorProfiler the profiler to use, or <code>null</code> for none
+	 * @see com.tutorial.beans.factory.support.DefaultBeanPostProcessorProfiler
+	 */
+	void setBeanPostProcessorProfiler(BeanPostProcessorProfiler beanPostProcessorProfiler);
+
+	/**
+	 * Return the BeanPostProcessorProfiler for this factory, if any.
+	 */
+	BeanPostProcessorProfiler getBeanPostProcessorProfiler();
+
 	/**
 	 * Copy all relevant configuration from the given other factory.
 	 * <p>Should include all standard configuration settings as well as
@@ -0,0 +1,30 @@
+package com.tutorial.beans.factory.config;
+
+/**
+ * Extension of the {@link BeanPostProcessor} interface for post-processors
+ * that only apply to beans of certain types, e.g. to beans carrying a certain
+ * annotation or implementing a certain marker interface.
+ *
+ * <p>The bean factory asks once per bean class and caches the answer, skipping
+ * the post-processor entirely for beans of classes that it does not apply to:
+ * none of its callbacks (including the ones of sub-interfaces such as
+ * {@link InstantiationAwareBeanPostProcessor}) get invoked for such beans.
+ * The answer must therefore be stable for a given class.
+ *
+ * @see com.tutorial.beans.factory.support.AbstractBeanFactory#getBeanPostProcessors(Class)
+ */
+public interface SelectiveBeanPostProcessor extends BeanPostProcessor {
+
+	/**
+	 * Determine whether this post-processor applies to beans of the given class.
+	 * <p>For the initialization, early reference and destruction callbacks, this
+	 * is the class of the bean instance passed into the post-processor chain; for
+	 * the instantiation, type prediction and constructor determination callbacks,
+	 * it is the bean class of the bean definition.
+	 * @param beanClass the class of the bean
+	 * @return <code>false</code> if none of this post-processor's callbacks
+	 * need to be invoked for beans of the given class
+	 */
+	boolean isApplicableTo(Class<?> beanClass);
+
+}
@@ -1,5 +1,6 @@
 package com.tutorial.beans.factory.support;
 
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -25,11 +26,16 @@ import java.util.concurrent.ConcurrentHashMap;
 import com.tutorial.beans.BeanWrapper;
 import com.tutorial.beans.BeanWrapperImpl;
 import com.tutorial.beans.BeansException;
+import com.tutorial.beans.GenericTypeAwarePropertyDescriptor;
+import com.tutorial.beans.MethodInvocationException;
 import com.tutorial.beans.MutablePropertyValues;
+import com.tutorial.beans.PropertyAccessException;
 import com.tutorial.beans.PropertyAccessorUtils;
+import com.tutorial.beans.PropertyBatchUpdateException;
 import com.tutorial.beans.PropertyValue;
 import com.tutorial.beans.PropertyValues;
 import com.tutorial.beans.TypeConverter;
+import com.tutorial.beans.TypeMisMatchException;
 import com.tutorial.beans.factory.Aware;
 import com.tutorial.beans.factory.BeanClassLoaderAware;
 import com.tutorial.beans.factory.BeanCreationException;
@@ -44,7 +50,9 @@ import com.tutorial.beans.factory.ObjectFactory;
 import com.tutorial.beans.factory.UnsatisfiedDependencyException;
 import com.tutorial.beans.factory.config.AutowireCapableBeanFactory;
 import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.config.BeanFactoryMetrics;
 import com.tutorial.beans.factory.config.BeanPostProcessor;
+import com.tutorial.beans.factory.config.BeanPostProcessorProfiler;
 import com.tutorial.beans.factory.config.ConfigurableBeanFactory;
 import com.tutorial.beans.factory.config.DependencyDescriptor;
 import com.tutorial.beans.factory.config.InstantiationAwareBeanPostProcessor;
@@ -55,6 +63,8 @@ import com.tutorial.core.LocalVariableTableParameterNameDiscoverer;
 import com.tutorial.core.MethodParameter;
 import com.tutorial.core.ParameterNameDiscoverer;
 import com.tutorial.core.PriorityOrdered;
+import com.tutorial.core.metrics.StartupRecorder;
+import com.tutorial.core.metrics.StartupStep;
 import com.tutorial.util.BeanUtils;
 import com.tutorial.util.ClassUtils;
 import com.tutorial.util.ObjectUtils;
@@ -364,8 +374,14 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName) 
 				throws BeansException {
 		Object result = existingBean;
-		for(BeanPostProcessor beanProcessor : getBeanPostProcessors()) {
+		BeanPostProcessorProfiler profiler = getBeanPostProcessorProfiler();
+		for(BeanPostProcessor beanProcessor : getBeanPostProcessors(getBeanClass(existingBean))) {
+			long startTime = (profiler != null ? System.nanoTime() : 0);
 			result = beanProcessor.postProcessBeforeInitialization(result, beanName);
+			if(profiler != null) {
+				profiler.callbackInvoked(beanProcessor, BeanPostProcessorProfiler.BEFORE_INITIALIZATION,
+						beanName, System.nanoTime() - startTime);
+			}
 			if(result == null) {
 				return result;
 			}
@@ -375,14 +391,24 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
 	public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String name) throws BeansException {
 		Object result = existingBean;
-		for(BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
+		BeanPostProcessorProfiler profiler = getBeanPostProcessorProfiler();
+		for(BeanPostProcessor beanPostProcessor : getBeanPostProcessors(getBeanClass(existingBean))) {
+			long startTime = (profiler != null ? System.nanoTime() : 0);
 			result = beanPostProcessor.postProcessAfterInitialization(result, name);
+			if(profiler != null) {
+				profiler.callbackInvoked(beanPostProcessor, BeanPostProcessorProfiler.AFTER_INITIALIZATION,
+						name, System.nanoTime() - startTime);
+			}
 			if(result == null) {
 				return result;
 			}
 		}
 		return result;
 	}
+
+	private static Class<?> getBeanClass(Object bean) {
+		return (bean != null ? bean.getClass() : null);
+	}
 	
 	//-----------------------------------------------------------------------------------------
 	//   Implementation of relevant AbstractBeanFactory template methods
@@ -400,6 +426,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		if(logger.isDebugEnabled()) {
 			logger.debug("Creating instance of bean '" + beanName + "'");
 		}
+		BeanFactoryMetrics metrics = getBeanFactoryMetrics();
+		long startTime = (metrics != null ? System.nanoTime() : 0);
+		
 		// Make sure bean class is actually resolved at this point.
 		resolveBeanClass(mbd, beanName);
 		
@@ -415,6 +444,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
 			Object bean = resolveBeforeInstantiation(beanName, mbd);
 			if(bean != null) {
+				if(metrics != null) {
+					metrics.beanCreated(beanName, getScopeName(mbd), System.nanoTime() - startTime);
+				}
 				return bean;
 			}
 		} catch (Throwable ex) {
@@ -422,7 +454,21 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 					"BeanPostProcessor before instantiation of bean failed", ex);
 		}
 		
-		Object beanInstance = doCreateBean(beanName, mbd, args);
+		Object beanInstance;
+		StartupRecorder startupRecorder = getStartupRecorder();
+		if(startupRecorder != null) {
+			StartupStep step = startupRecorder.start(StartupRecorder.CATEGORY_BEAN, beanName);
+			try {
+				beanInstance = doCreateBean(beanName, mbd, args);
+			} finally {
+				step.end();
+			}
+		} else {
+			beanInstance = doCreateBean(beanName, mbd, args);
+		}
+		if(metrics != null) {
+			metrics.beanCreated(beanName, getScopeName(mbd), System.nanoTime() - startTime);
+		}
 		if(logger.isDebugEnabled()) {
 			logger.debug("Finished creating instance of bean '" + beanName + "'");
 		}
@@ -446,6 +492,15 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	@SuppressWarnings("rawtypes")
 	protected Object doCreateBean(final String beanName, final RootBeanDefinition mbd, final Object[] args) {
+		// Shortcut when re-creating the same prototype...
+		boolean planApplicable = (args == null && isPrototypeCreationPlanApplicable(mbd));
+		if(planApplicable) {
+			PrototypeCreationPlan plan = mbd.prototypeCreationPlan;
+			if(plan != null) {
+				return createBeanFromPlan(beanName, mbd, plan);
+			}
+		}
+		
 		// Instantiate the bean.
 		BeanWrapper instanceWrapper = null;
 		if(mbd.isSingleton()) {
@@ -528,9 +583,185 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		} catch (BeanDefinitionValidationException e) {
 			throw new BeanCreationException(mbd.getResourceDescription(), beanName, "Invalid destruction signature", e);
 		}
+		
+		// Remember how the prototype has been created, for further instances.
+		if(planApplicable && instanceWrapper != null && mbd.prototypeCreationPlan == null) {
+			mbd.prototypeCreationPlan = buildPrototypeCreationPlan(mbd, instanceWrapper);
+		}
 		return exposedObject;
 	}
 
+	/**
+	 * Determine whether the given bean definition may be served through a
+	 * {@link PrototypeCreationPlan}: a prototype without factory method, method
+	 * overrides, autowiring by name or type and dependency check, in a factory
+	 * without InstantiationAwareBeanPostProcessors that might interfere with the
+	 * creation of any particular instance.
+	 * @param mbd the merged bean definition for the bean
+	 */
+	private boolean isPrototypeCreationPlanApplicable(RootBeanDefinition mbd) {
+		return (mbd.isPrototype() && mbd.getFactoryMethodName() == null && !mbd.hasMethodOverrides() &&
+				mbd.getResolvedAutowireMode() != AUTOWIRE_BY_NAME && mbd.getResolvedAutowireMode() != AUTOWIRE_BY_TYPE &&
+				mbd.getDependencyCheck() == RootBeanDefinition.DEPENDENCY_CHECK_NONE &&
+				!hasInstantiationAwareBeanPostProcessors() && System.getSecurityManager() == null);
+	}
+
+	/**
+	 * Capture the resolved constructor, property setters and lifecycle methods
+	 * of a freshly created prototype instance.
+	 * @param mbd the merged bean definition for the bean
+	 * @param bw BeanWrapper with the first bean instance, fully populated
+	 * @return the creation plan, or <code>null</code> if the bean definition
+	 * does not allow for one (e.g. because of nested property paths)
+	 */
+	private PrototypeCreationPlan buildPrototypeCreationPlan(RootBeanDefinition mbd, BeanWrapper bw) {
+		ConstructorResolution resolution = mbd.constructorResolution;
+		if(resolution == null || !(resolution.getConstructorOrFactoryMethod() instanceof Constructor)) {
+			return null;
+		}
+		Constructor<?> constructor = (Constructor<?>) resolution.getConstructorOrFactoryMethod();
+		Object[] constructorArguments = 
+				(resolution.isArgumentsResolved() ? resolution.getResolvedArguments() : new Object[0]);
+		
+		Class<?> beanClass = bw.getWrappedClass();
+		BeanAccessor beanAccessor = null;
+		if(getInstantiationStrategy() instanceof BytecodeInstantiationStrategy) {
+			beanAccessor = ((BytecodeInstantiationStrategy) getInstantiationStrategy()).getBeanAccessor(beanClass);
+		}
+		List<PrototypeCreationPlan.PropertySetter> propertySetters = 
+				new ArrayList<PrototypeCreationPlan.PropertySetter>(mbd.getPropertyValues().size());
+		for(PropertyValue pv : mbd.getPropertyValues().getPropertyValueList()) {
+			String propertyName = pv.getName();
+			if(PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName) || !bw.isWritableProperty(propertyName)) {
+				return null;
+			}
+			PropertyDescriptor pd = bw.getPropertyDescriptor(propertyName);
+			Method writeMethod = (pd instanceof GenericTypeAwarePropertyDescriptor ?
+					((GenericTypeAwarePropertyDescriptor) pd).getWriteMethodForActualAccess() : pd.getWriteMethod());
+			propertySetters.add(new PrototypeCreationPlan.PropertySetter(pv, writeMethod, beanAccessor));
+		}
+		
+		Method initMethod = null;
+		if(mbd.getInitMethodName() != null) {
+			initMethod = findInitMethod(beanClass, mbd);
+		}
+		String destroyMethodName = mbd.getDestroyMethodName();
+		Method destroyMethod = null;
+		if(destroyMethodName != null && !AbstractBeanDefinition.INFER_METHOD.equals(destroyMethodName)) {
+			try {
+				destroyMethod = (mbd.isNonPublicAccessAllowed() ?
+						BeanUtils.findMethodWithMinimalParameters(beanClass, destroyMethodName) :
+						BeanUtils.findMethodWithMinimalParameters(beanClass.getMethods(), destroyMethodName));
+			} catch (IllegalArgumentException ex) {
+				// Ambiguous destroy method: leave it to the regular resolution and its error reporting.
+			}
+		}
+		return new PrototypeCreationPlan(beanClass, constructor, constructorArguments, propertySetters,
+				initMethod, destroyMethodName, destroyMethod);
+	}
+
+	/**
+	 * Create a further instance of a prototype according to the given plan,
+	 * skipping constructor resolution as well as the deep copy and property
+	 * path parsing for property values that are the same for every instance.
+	 * @param beanName the name of the bean
+	 * @param mbd the merged bean definition for the bean
+	 * @param plan the creation plan captured from the first instance
+	 * @return a new instance of the bean
+	 * @see #buildPrototypeCreationPlan
+	 */
+	private Object createBeanFromPlan(String beanName, RootBeanDefinition mbd, PrototypeCreationPlan plan) {
+		Object bean;
+		BeanWrapper bw = null;
+		if(plan.getConstructorArguments() != null) {
+			try {
+				bean = getInstantiationStrategy().instantiate(
+						mbd, beanName, this, plan.getConstructor(), plan.getConstructorArguments());
+			} catch (Throwable ex) {
+				throw new BeanCreationException(mbd.getResourceDescription(),
+						beanName, "Instantiation of bean failed", ex);
+			}
+		} else {
+			// Constructor arguments need to be resolved for every instance.
+			bw = createBeanInstance(beanName, mbd, null);
+			bean = bw.getWrappedInstance();
+		}
+		
+		try {
+			applyPropertyValues(beanName, mbd, plan, bean, bw);
+			return initializeBean(beanName, bean, mbd);
+		} catch (Throwable e) {
+			if(e instanceof BeanCreationException && beanName.equals(((BeanCreationException) e).getBeanName())) {
+				throw (BeanCreationException) e;
+			} else {
+				throw new BeanCreationException(mbd.getResourceDescription(), beanName, "Initialization of bean failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Apply the property values of the given creation plan, invoking the
+	 * pre-bound setters directly. Only values that need to be resolved for
+	 * every instance go through a BeanDefinitionValueResolver and conversion.
+	 * @param beanName the bean name passed for better exception information
+	 * @param mbd the merged bean definition
+	 * @param plan the creation plan
+	 * @param bean the bean instance to populate
+	 * @param bw BeanWrapper for the bean instance, or <code>null</code> if none created yet
+	 */
+	private void applyPropertyValues(String beanName, RootBeanDefinition mbd, PrototypeCreationPlan plan,
+			Object bean, BeanWrapper bw) {
+		TypeConverter converter = null;
+		BeanDefinitionValueResolver valueResolver = null;
+		if(plan.isResolveNecessary()) {
+			if(bw == null) {
+				bw = new BeanWrapperImpl(bean);
+				initBeanWrapper(bw);
+			}
+			converter = getCustomTypeConverter();
+			if(converter == null) {
+				converter = bw;
+			}
+			valueResolver = new BeanDefinitionValueResolver(this, beanName, mbd, converter);
+		}
+		
+		List<PropertyAccessException> propertyAccessExceptions = null;
+		for(PrototypeCreationPlan.PropertySetter setter : plan.getPropertySetters()) {
+			PropertyValue pv = setter.getPropertyValue();
+			Object value;
+			if(setter.isResolveNecessary()) {
+				Object resolvedValue = valueResolver.resolveValueIfNecessary(pv, pv.getValue());
+				value = convertForProperty(resolvedValue, setter.getPropertyName(), bw, converter);
+			} else {
+				value = setter.getConvertedValue();
+			}
+			try {
+				setter.setValue(bean, value);
+			} catch (Exception ex) {
+				PropertyChangeEvent pce = new PropertyChangeEvent(bean, setter.getPropertyName(), null, pv.getValue());
+				PropertyAccessException pae;
+				if(ex instanceof InvocationTargetException) {
+					Throwable targetEx = ((InvocationTargetException) ex).getTargetException();
+					pae = (targetEx instanceof ClassCastException ?
+							new TypeMisMatchException(pce, setter.getPropertyType(), targetEx) :
+							new MethodInvocationException(pce, targetEx));
+				} else {
+					pae = new MethodInvocationException(pce, ex);
+				}
+				if(propertyAccessExceptions == null) {
+					propertyAccessExceptions = new LinkedList<PropertyAccessException>();
+				}
+				propertyAccessExceptions.add(pae);
+			}
+		}
+		if(propertyAccessExceptions != null) {
+			PropertyAccessException[] paeArray =
+					propertyAccessExceptions.toArray(new PropertyAccessException[propertyAccessExceptions.size()]);
+			throw new BeanCreationException(mbd.getResourceDescription(), beanName, "Error setting property values",
+					new PropertyBatchUpdateException(paeArray));
+		}
+	}
+
 	@Override
 	protected Class<?> predictBeanType(String beanName, RootBeanDefinition mbd, Class<?>... typesToMatch) {
 		Class<?> beanClass;
@@ -542,7 +773,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		// Apply SmartInstantiationAwareBeanPostProcessors to predict the 
 		// eventual type after a before-instantiation shortcut.
 		if(beanClass != null && !mbd.isSynthetic() && hasInstantiationAwareBeanPostProcessors()) {
-			for(BeanPostProcessor bp : getBeanPostProcessors()) {
+			for(BeanPostProcessor bp : getBeanPostProcessors(beanClass)) {
 				if(bp instanceof SmartInstantiationAwareBeanPostProcessor) {
 					SmartInstantiationAwareBeanPostProcessor ibp = (SmartInstantiationAwareBeanPostProcessor) bp;
 					Class<?> processedType = ibp.predictBeanType(beanClass, beanName);
@@ -680,7 +911,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected Object getEarlyBeanReference(String beanName, RootBeanDefinition mbd, Object bean) {
 		Object exposedObject = bean;
 		if(bean != null && !mbd.isSynthetic() && hasInstantiationAwareBeanPostProcessors()) {
-			for(BeanPostProcessor bp : getBeanPostProcessors()) {
+			for(BeanPostProcessor bp : getBeanPostProcessors(bean.getClass())) {
 				if(bp instanceof SmartInstantiationAwareBeanPostProcessor) {
 					SmartInstantiationAwareBeanPostProcessor ibp = (SmartInstantiationAwareBeanPostProcessor) bp;
 					exposedObject = ibp.getEarlyBeanReference(exposedObject, beanName);
@@ -707,7 +938,12 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 * that we couldn't obtain a shortcut FactoryBean instance
 	 */
 	private FactoryBean<?> getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
-		synchronized(getSingletonMutex()) {
+		// Never wait for another thread here: if the FactoryBean is being created
+		// concurrently, the caller falls back to regular type prediction.
+		if(!tryLockSingleton(beanName)) {
+			return null;
+		}
+		try {
 			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
 			if(bw != null) {
 				return (FactoryBean<?>) bw.getWrappedInstance();
@@ -734,6 +970,8 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 				this.factoryBeanInstanceCache.put(beanName, bw);
 			}
 			return fb;
+		} finally {
+			unlockSingleton(beanName);
 		}
 	}
 
@@ -779,7 +1017,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected void applyMergedBeanDefinitionPostProcessors(RootBeanDefinition mbd, Class<?> beanType, String beanName)
 			throws BeansException {
 		try {
-			for(BeanPostProcessor bp : getBeanPostProcessors()) {
+			for(BeanPostProcessor bp : getBeanPostProcessors(beanType)) {
 				if(bp instanceof MergedBeanDefinitionPostProcessor) {
 					MergedBeanDefinitionPostProcessor bdp = (MergedBeanDefinitionPostProcessor) bp;
 					bdp.postProcessMergedBeanDefinition(mbd, beanType, beanName);
@@ -827,10 +1065,16 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	protected Object applyBeanPostProcessorsBeforeInstantiation(Class<?> beanClass, String beanName) 
 					throws BeansException {
-		for(BeanPostProcessor bp : getBeanPostProcessors()) {
+		BeanPostProcessorProfiler profiler = getBeanPostProcessorProfiler();
+		for(BeanPostProcessor bp : getBeanPostProcessors(beanClass)) {
 			if(bp instanceof InstantiationAwareBeanPostProcessor) {
 				InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) bp;
+				long startTime = (profiler != null ? System.nanoTime() : 0);
 				Object result = ibp.postProcessBeforeInstantiation(beanClass, beanName);
+				if(profiler != null) {
+					profiler.callbackInvoked(bp, BeanPostProcessorProfiler.BEFORE_INSTANTIATION,
+							beanName, System.nanoTime() - startTime);
+				}
 				if(result != null) {
 					return result;
 				}
@@ -866,11 +1110,10 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		boolean resolved = false;
 		boolean autowireNecessary = false;
 		if(args == null) {
-			synchronized(mbd.constructorArgumentLock) {
-				if(mbd.resolvedConstructorOrFactoryMethod != null) {
-					resolved = true;
-					autowireNecessary = mbd.constructorArgumentsResolved;
-				}
+			ConstructorResolution resolution = mbd.constructorResolution;
+			if(resolution != null && resolution.getConstructorOrFactoryMethod() != null) {
+				resolved = true;
+				autowireNecessary = resolution.isArgumentsResolved();
 			}
 		}
 		if(resolved) {
@@ -905,7 +1148,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected Constructor<?>[] determineConstructorsFromBeanPostProcessors(Class<?> beanClass, String beanName) 
 						throws BeansException {
 		if(beanClass != null && hasInstantiationAwareBeanPostProcessors()) {
-			for(BeanPostProcessor bp : getBeanPostProcessors()) {
+			for(BeanPostProcessor bp : getBeanPostProcessors(beanClass)) {
 				if(bp instanceof SmartInstantiationAwareBeanPostProcessor) {
 					SmartInstantiationAwareBeanPostProcessor ibp = (SmartInstantiationAwareBeanPostProcessor) bp;
 					Constructor<?>[] ctors = ibp.determineCandidateConstructors(beanClass, beanName);
@@ -1007,12 +1250,19 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		// state of the bean before properties are set. This can be used, for example, 
 		// to support styles of field injection.
 		boolean continueWithPropertyPopulation = true;
+		BeanPostProcessorProfiler profiler = getBeanPostProcessorProfiler();
 		
 		if(!mbd.isSynthetic() && hasInstantiationAwareBeanPostProcessors()) {
-			for(BeanPostProcessor bp : getBeanPostProcessors()) {
+			for(BeanPostProcessor bp : getBeanPostProcessors(bw.getWrappedClass())) {
 				if(bp instanceof InstantiationAwareBeanPostProcessor) {
 					InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) bp;
-					if(!ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
+					long startTime = (profiler != null ? System.nanoTime() : 0);
+					boolean continuePopulation = ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName);
+					if(profiler != null) {
+						profiler.callbackInvoked(bp, BeanPostProcessorProfiler.AFTER_INSTANTIATION,
+								beanName, System.nanoTime() - startTime);
+					}
+					if(!continuePopulation) {
 						continueWithPropertyPopulation = false;
 						break;
 					}
@@ -1044,10 +1294,15 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		if(hasInstAwareBpps || needsDepCheck) {
 			PropertyDescriptor[] filteredPds = filterPropertyDescriptorsForDependencyCheck(bw);
 			if(hasInstAwareBpps) {
-				for(BeanPostProcessor bp : getBeanPostProcessors()) {
+				for(BeanPostProcessor bp : getBeanPostProcessors(bw.getWrappedClass())) {
 					if(bp instanceof InstantiationAwareBeanPostProcessor) {
 						InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) bp;
+						long startTime = (profiler != null ? System.nanoTime() : 0);
 						pvs = ibp.postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
+						if(profiler != null) {
+							profiler.callbackInvoked(bp, BeanPostProcessorProfiler.PROPERTY_VALUES,
+									beanName, System.nanoTime() - startTime);
+						}
 						if(pvs == null) return;
 					}
 				}
@@ -1458,9 +1713,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	protected void invokeCustomInitMethod(String beanName, final Object bean, RootBeanDefinition mbd) throws Throwable {
 		String initMethodName = mbd.getInitMethodName();
-		final Method initMethod = (mbd.isNonPublicAccessAllowed() ? 
-				BeanUtils.findMethod(bean.getClass(), initMethodName) :
-					ClassUtils.getMethodIfAvailable(bean.getClass(), initMethodName));
+		PrototypeCreationPlan plan = mbd.prototypeCreationPlan;
+		Method resolvedInitMethod = (plan != null ? plan.getInitMethod(bean.getClass()) : null);
+		final Method initMethod = (resolvedInitMethod != null ? resolvedInitMethod : findInitMethod(bean.getClass(), mbd));
 		if(initMethod == null) {
 			if(mbd.isEnforceInitMethod()) {
 				throw new BeanDefinitionValidationException("Couldn't find an init method named '" + 
@@ -1506,6 +1761,16 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		}
 	}
 	
+	/**
+	 * Look up the custom init method of the given bean definition on the given class.
+	 * @return the init method, or <code>null</code> if not found
+	 */
+	private Method findInitMethod(Class<?> beanClass, RootBeanDefinition mbd) {
+		return (mbd.isNonPublicAccessAllowed() ?
+				BeanUtils.findMethod(beanClass, mbd.getInitMethodName()) :
+				ClassUtils.getMethodIfAvailable(beanClass, mbd.getInitMethodName()));
+	}
+	
 	/**
 	 * Applies the <code>postProcessAfterInitialization</code> callback of all
 	 * registered BeanPostProcessors, giving them a chance to post-process the
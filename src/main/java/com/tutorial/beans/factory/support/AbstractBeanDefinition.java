@@ -64,9 +64,10 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	private boolean enforceDestroyMethod = true;
 	private boolean synthetic = false;
 	
+	// Allocated on first access: many bean definitions never need them.
 	private ConstructorArgumentValues constructorArgumentValues;
 	private MutablePropertyValues propertyValues;
-	private MethodOverrides methodOverrides = new MethodOverrides();
+	private MethodOverrides methodOverrides;
 	private String initMethodName;
 	private String destroyMethodName; 
 	private String factoryMethodName;
@@ -74,8 +75,7 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	private String scope = SCOPE_DEFAULT;
 	private String description;
 	
-	private final Map<String, AutowireCandidateQualifier> qualifiers =
-			new LinkedHashMap<String, AutowireCandidateQualifier>(0);
+	private Map<String, AutowireCandidateQualifier> qualifiers;
 	
 	private int autowireMode = AUTOWIRE_NO;
 	private int dependencyCheck = DEPENDENCY_CHECK_NONE;
@@ -103,13 +103,17 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 		setAbstract(original.isAbstract());
 		setLazyInit(original.isLazyInit());
 		setRole(original.getRole());
-		setConstructorArgumentValues(new ConstructorArgumentValues(original.getConstructorArgumentValues()));
-		setPropertyValues(new MutablePropertyValues(original.getPropertyValues()));
 		setSource(original.getSource());
 		copyAttributesFrom(original);
 
 		if (original instanceof AbstractBeanDefinition) {
 			AbstractBeanDefinition originalAbd = (AbstractBeanDefinition) original;
+			if (originalAbd.hasConstructorArgumentValues()) {
+				setConstructorArgumentValues(new ConstructorArgumentValues(originalAbd.getConstructorArgumentValues()));
+			}
+			if (originalAbd.hasPropertyValues()) {
+				setPropertyValues(new MutablePropertyValues(originalAbd.getPropertyValues()));
+			}
 			if (originalAbd.hasBeanClass()) {
 				setBeanClass(originalAbd.getBeanClass());
 			}
@@ -125,11 +129,15 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 			setEnforceInitMethod(originalAbd.isEnforceInitMethod());
 			setDestroyMethodName(originalAbd.getDestroyMethodName());
 			setEnforceDestroyMethod(originalAbd.isEnforceDestroyMethod());
-			setMethodOverrides(new MethodOverrides(originalAbd.getMethodOverrides()));
+			if (originalAbd.hasMethodOverrides()) {
+				setMethodOverrides(new MethodOverrides(originalAbd.getMethodOverrides()));
+			}
 			setSynthetic(originalAbd.isSynthetic());
 			setResource(originalAbd.getResource());
 		}
 		else {
+			setConstructorArgumentValues(new ConstructorArgumentValues(original.getConstructorArgumentValues()));
+			setPropertyValues(new MutablePropertyValues(original.getPropertyValues()));
 			setResourceDescription(original.getResourceDescription());
 		}
 	}
@@ -176,13 +184,17 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 		setLazyInit(other.isLazyInit());
 		setRole(other.getRole());
 		
-		getConstructorArgumentValues().addArgumentValues(other.getConstructorArgumentValues());
-		getPropertyValues().addPropertyValues(other.getPropertyValues());
 		setSource(other.getSource());
 		copyAttributesFrom(other);
 		
 		if (other instanceof AbstractBeanDefinition) {
 			AbstractBeanDefinition otherAbd = (AbstractBeanDefinition) other;
+			if (otherAbd.hasConstructorArgumentValues()) {
+				getConstructorArgumentValues().addArgumentValues(otherAbd.getConstructorArgumentValues());
+			}
+			if (otherAbd.hasPropertyValues()) {
+				getPropertyValues().addPropertyValues(otherAbd.getPropertyValues());
+			}
 			if (otherAbd.hasBeanClass()) {
 				setBeanClass(otherAbd.getBeanClass());
 			}
@@ -202,11 +214,15 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 				setDestroyMethodName(otherAbd.getDestroyMethodName());
 				setEnforceDestroyMethod(otherAbd.isEnforceDestroyMethod());
 			}
-			getMethodOverrides().addOverrides(otherAbd.getMethodOverrides());
+			if (otherAbd.hasMethodOverrides()) {
+				getMethodOverrides().addOverrides(otherAbd.getMethodOverrides());
+			}
 			setSynthetic(otherAbd.isSynthetic());
 			setResource(otherAbd.getResource());
 		}
 		else {
+			getConstructorArgumentValues().addArgumentValues(other.getConstructorArgumentValues());
+			getPropertyValues().addPropertyValues(other.getPropertyValues());
 			setResourceDescription(other.getResourceDescription());
 		}
 	}
@@ -427,6 +443,9 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * @see AutowireCandidateQualifier#getTypeName()
 	 */
 	public void addQualifier(AutowireCandidateQualifier qualifier) {
+		if(this.qualifiers == null) {
+			this.qualifiers = new LinkedHashMap<String, AutowireCandidateQualifier>(4);
+		}
 		this.qualifiers.put(qualifier.getTypeName(), qualifier);
 	}
 
@@ -434,14 +453,14 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * Return whether this bean has the specified qualifier.
 	 */
 	public boolean hasQualifier(String typeName) {
-		return this.qualifiers.keySet().contains(typeName);
+		return (this.qualifiers != null && this.qualifiers.containsKey(typeName));
 	}
 	
 	/**
 	 * Return the qualifier mapped to the provided type name.
 	 */
 	public AutowireCandidateQualifier getQualifier(String typeName) {
-		return this.qualifiers.get(typeName);
+		return (this.qualifiers != null ? this.qualifiers.get(typeName) : null);
 	}
 
 	/**
@@ -449,6 +468,9 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * @return the Set of {@link AutowireCandidateQualifier} objects.
 	 */
 	public Set<AutowireCandidateQualifier> getQualifiers() {
+		if(this.qualifiers == null) {
+			return new LinkedHashSet<AutowireCandidateQualifier>(0);
+		}
 		return new LinkedHashSet<AutowireCandidateQualifier>(this.qualifiers.values());
 	}
 
@@ -458,7 +480,11 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 */
 	public void copyQualifiersFrom(AbstractBeanDefinition source) {
 		Assert.notNull(source, "Source must not be null");
-		this.qualifiers.putAll(source.qualifiers);
+		if(source.qualifiers != null) {
+			for(AutowireCandidateQualifier qualifier : source.qualifiers.values()) {
+				addQualifier(qualifier);
+			}
+		}
 	}
 	
 	/**
@@ -503,14 +529,16 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * Specify constructor argument values for this bean.
 	 */
 	public void setConstructorArgumentValues(ConstructorArgumentValues constructorArgumentValues) {
-		this.constructorArgumentValues =
-				(constructorArgumentValues != null ? constructorArgumentValues : new ConstructorArgumentValues());
+		this.constructorArgumentValues = constructorArgumentValues;
 	}
 
 	/**
 	 * Return constructor argument values for this bean (never <code>null</code>).
 	 */
 	public ConstructorArgumentValues getConstructorArgumentValues() {
+		if(this.constructorArgumentValues == null) {
+			this.constructorArgumentValues = new ConstructorArgumentValues();
+		}
 		return this.constructorArgumentValues;
 	}
 
@@ -518,28 +546,38 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * Return if there are constructor argument values defined for this bean.
 	 */
 	public boolean hasConstructorArgumentValues() {
-		return !this.constructorArgumentValues.isEmpty();
+		return (this.constructorArgumentValues != null && !this.constructorArgumentValues.isEmpty());
 	}
 
 	/**
 	 * Specify property values for this bean, if any.
 	 */
 	public void setPropertyValues(MutablePropertyValues propertyValues) {
-		this.propertyValues = (propertyValues != null ? propertyValues : new MutablePropertyValues());
+		this.propertyValues = propertyValues;
 	}
 
 	/**
 	 * Return property values for this bean (never <code>null</code>).
 	 */
 	public MutablePropertyValues getPropertyValues() {
+		if(this.propertyValues == null) {
+			this.propertyValues = new MutablePropertyValues();
+		}
 		return this.propertyValues;
 	}
 
+	/**
+	 * Return if there are property values defined for this bean.
+	 */
+	public boolean hasPropertyValues() {
+		return (this.propertyValues != null && !this.propertyValues.isEmpty());
+	}
+
 	/**
 	 * Specify method overrides for the bean, if any.
 	 */
 	public void setMethodOverrides(MethodOverrides methodOverrides) {
-		this.methodOverrides = (methodOverrides != null ? methodOverrides : new MethodOverrides());
+		this.methodOverrides = methodOverrides;
 	}
 
 	/**
@@ -548,9 +586,19 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * Never returns null.
 	 */
 	public MethodOverrides getMethodOverrides() {
+		if(this.methodOverrides == null) {
+			this.methodOverrides = new MethodOverrides();
+		}
 		return this.methodOverrides;
 	}
 
+	/**
+	 * Return if there are method overrides defined for this bean.
+	 */
+	public boolean hasMethodOverrides() {
+		return (this.methodOverrides != null && !this.methodOverrides.isEmpty());
+	}
+
 
 	public void setFactoryBeanName(String factoryBeanName) {
 		this.factoryBeanName = factoryBeanName;
@@ -766,7 +814,7 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * @throws BeanDefinitionValidationException
 	 */
 	public void validate() throws BeanDefinitionValidationException {
-		if(!getMethodOverrides().isEmpty() && getFactoryMethodName() != null) {
+		if(hasMethodOverrides() && getFactoryMethodName() != null) {
 			throw new  BeanDefinitionValidationException(
 				    "Cannot combine static factory method with method overrides: " +
 				    "the static factory method must create the instance");
@@ -782,9 +830,8 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * @throws BeanDefinitionValidationException in case of validation failure
 	 */
 	public void prepareMethodOverrides() throws BeanDefinitionValidationException {
-		MethodOverrides methodOverrides = getMethodOverrides();
-		if(!methodOverrides.isEmpty()) {
-			for(MethodOverride mo : methodOverrides.getOverrides()) {
+		if(hasMethodOverrides()) {
+			for(MethodOverride mo : this.methodOverrides.getOverrides()) {
 				prepareMethodOverride(mo);
 			}
 		}
@@ -810,6 +857,71 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 		}
 	}
 	
+	/**
+	 * Reduce the memory footprint of this bean definition for long-term
+	 * storage in a registry: releases empty constructor argument values,
+	 * property values and method overrides (to be allocated again on demand),
+	 * and interns the bean class name, scope, parent and factory names,
+	 * init and destroy method names as well as all property names.
+	 * <p>Intended for bean definitions that are complete: a
+	 * <code>ConstructorArgumentValues</code> or <code>MutablePropertyValues</code>
+	 * object obtained from this definition before will no longer be connected
+	 * to it if it was empty at this point.
+	 * @see DefaultListableBeanFactory#setCompactBeanDefinitions
+	 */
+	public void compact() {
+		if(this.beanClass instanceof String) {
+			this.beanClass = ((String) this.beanClass).intern();
+		}
+		this.scope = intern(this.scope);
+		String parentName = getParentName();
+		if(parentName != null) {
+			setParentName(parentName.intern());
+		}
+		this.factoryBeanName = intern(this.factoryBeanName);
+		this.factoryMethodName = intern(this.factoryMethodName);
+		this.initMethodName = intern(this.initMethodName);
+		this.destroyMethodName = intern(this.destroyMethodName);
+		if(this.dependsOn != null) {
+			for(int i = 0; i < this.dependsOn.length; i++) {
+				this.dependsOn[i] = intern(this.dependsOn[i]);
+			}
+		}
+
+		if(!hasConstructorArgumentValues()) {
+			this.constructorArgumentValues = null;
+		} else {
+			for(ConstructorArgumentValues.ValueHolder valueHolder :
+					this.constructorArgumentValues.getIndexedArgumentValues().values()) {
+				compact(valueHolder);
+			}
+			for(ConstructorArgumentValues.ValueHolder valueHolder :
+					this.constructorArgumentValues.getGenericArgumentValues()) {
+				compact(valueHolder);
+			}
+		}
+		if(!hasPropertyValues()) {
+			this.propertyValues = null;
+		} else {
+			this.propertyValues.compact();
+		}
+		if(!hasMethodOverrides()) {
+			this.methodOverrides = null;
+		}
+		if(this.qualifiers != null && this.qualifiers.isEmpty()) {
+			this.qualifiers = null;
+		}
+	}
+
+	private static void compact(ConstructorArgumentValues.ValueHolder valueHolder) {
+		valueHolder.setType(intern(valueHolder.getType()));
+		valueHolder.setName(intern(valueHolder.getName()));
+	}
+
+	private static String intern(String value) {
+		return (value != null ? value.intern() : null);
+	}
+	
 	/**
 	 * Public declaration of Object's <code>clone()</code> method.
 	 * Delegates to {@link #cloneBeanDefinition()}.
@@ -847,14 +959,17 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 		if (this.dependencyCheck != that.dependencyCheck) return false;
 		if (!Arrays.equals(this.dependsOn, that.dependsOn)) return false;
 		if (this.autowireCandidate != that.autowireCandidate) return false;
-		if (!ObjectUtils.nullSafeEquals(this.qualifiers, that.qualifiers)) return false;
+		if (!getQualifiers().equals(that.getQualifiers())) return false;
 		if (this.primary != that.primary) return false;
 
 		if (this.nonPublicAccessAllowed != that.nonPublicAccessAllowed) return false;
 		if (this.lenientConstructorResolution != that.lenientConstructorResolution) return false;
-		if (!ObjectUtils.nullSafeEquals(this.constructorArgumentValues, that.constructorArgumentValues)) return false;
-		if (!ObjectUtils.nullSafeEquals(this.propertyValues, that.propertyValues)) return false;
-		if (!ObjectUtils.nullSafeEquals(this.methodOverrides, that.methodOverrides)) return false;
+		if (hasConstructorArgumentValues() ? !this.constructorArgumentValues.equals(that.constructorArgumentValues) :
+				that.hasConstructorArgumentValues()) return false;
+		if (hasPropertyValues() ? !this.propertyValues.equals(that.propertyValues) :
+				that.hasPropertyValues()) return false;
+		if (hasMethodOverrides() ? !this.methodOverrides.equals(that.methodOverrides) :
+				that.hasMethodOverrides()) return false;
 
 		if (!ObjectUtils.nullSafeEquals(this.factoryBeanName, that.factoryBeanName)) return false;
 		if (!ObjectUtils.nullSafeEquals(this.factoryMethodName, that.factoryMethodName)) return false;
@@ -873,8 +988,8 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	public int hashCode() {
 		int hashCode = ObjectUtils.nullSafeHashCode(getBeanClassName());
 		hashCode = 29 * hashCode + ObjectUtils.nullSafeHashCode(this.scope);
-		hashCode = 29 * hashCode + ObjectUtils.nullSafeHashCode(this.constructorArgumentValues);
-		hashCode = 29 * hashCode + ObjectUtils.nullSafeHashCode(this.propertyValues);
+		hashCode = 29 * hashCode + (hasConstructorArgumentValues() ? this.constructorArgumentValues.hashCode() : 0);
+		hashCode = 29 * hashCode + (hasPropertyValues() ? this.propertyValues.hashCode() : 0);
 		hashCode = 29 * hashCode + ObjectUtils.nullSafeHashCode(this.factoryBeanName);
 		hashCode = 29 * hashCode + ObjectUtils.nullSafeHashCode(this.factoryMethodName);
 		hashCode = 29 * hashCode + super.hashCode();
@@ -1,7 +1,14 @@
 package com.tutorial.beans.factory.support;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +50,8 @@ public abstract class AbstractBeanDefinitionReader implements EnvironmentCapable
 	
 	private BeanNameGenerator beanNameGenerator = new DefaultBeanNameGenerator();
 	
+	private int parallelism = 1;
+	
 	/**
 	 * Create a new AbstractBeanDefinitionReader for the given bean factory.
 	 * <p>If the passed-in bean factory does not only implement the BeanDefinitionRegistry
@@ -150,15 +159,170 @@ public abstract class AbstractBeanDefinitionReader implements EnvironmentCapable
 	public BeanNameGenerator getBeanNameGenerator() {
 		return this.beanNameGenerator;
 	}
+	
+	/**
+	 * Set the maximum number of resources to parse concurrently when loading
+	 * bean definitions from several resources at once. Default is 1, i.e.
+	 * resources are parsed one after the other.
+	 * <p>With a higher parallelism, each resource gets parsed into a staging
+	 * registry of its own on a dedicated {@link ForkJoinPool}. The staged
+	 * registrations are then applied to the actual registry in resource order,
+	 * so bean definition overriding, generated bean names and duplicate name
+	 * errors come out exactly as with serial loading. The first failing resource
+	 * gets reported after the resources before it have been applied, again as
+	 * serial loading would. Only supported by readers that are able to create
+	 * {@link #createStagingReader staging readers}; others keep loading serially.
+	 * @see #loadBeanDefinitions(Resource...)
+	 * @see #loadBeanDefinitions(String...)
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than 0");
+		this.parallelism = parallelism;
+	}
+	
+	public int getParallelism() {
+		return this.parallelism;
+	}
+	
+	/**
+	 * Create a reader with the same configuration as this reader, loading
+	 * bean definitions into the given staging registry.
+	 * <p>The default implementation returns <code>null</code>, indicating that
+	 * this reader does not support parallel loading.
+	 * @param stagingRegistry the registry for the reader to load bean definitions into
+	 * @return the staging reader, or <code>null</code> for serial loading only
+	 * @see #setParallelism
+	 * @see #copyConfigurationFrom
+	 */
+	protected AbstractBeanDefinitionReader createStagingReader(BeanDefinitionRegistry stagingRegistry) {
+		return null;
+	}
+	
+	/**
+	 * Copy the common configuration (ResourceLoader, Environment, bean ClassLoader
+	 * and BeanNameGenerator) from the given reader into this reader.
+	 * @param other the reader to copy the configuration from
+	 */
+	protected void copyConfigurationFrom(AbstractBeanDefinitionReader other) {
+		this.resourceLoader = other.resourceLoader;
+		this.environment = other.environment;
+		this.beanClassLoader = other.beanClassLoader;
+		this.beanNameGenerator = other.beanNameGenerator;
+	}
+	
+	/**
+	 * Handle a bean definition that the actual registry refused while applying
+	 * staged registrations, i.e. an error that serial loading would have run into
+	 * while parsing the given resource.
+	 * <p>The default implementation simply rethrows the given exception.
+	 * Subclasses may report it the way their parser reports registration errors.
+	 * @param resource the resource the bean definition has been read from
+	 * @param beanName the name of the bean definition
+	 * @param ex the exception thrown by the registry
+	 */
+	protected void stagedRegistrationFailed(Resource resource, String beanName, BeanDefinitionStoreException ex) {
+		throw ex;
+	}
 
 	public int loadBeanDefinitions(Resource... resources) throws BeanDefinitionStoreException {
 		Assert.notNull(resources, "Resource array must not be null"); 
+		if(this.parallelism > 1 && resources.length > 1) {
+			List<StagingBeanDefinitionRegistry> stagingRegistries = 
+					new ArrayList<StagingBeanDefinitionRegistry>(resources.length);
+			List<AbstractBeanDefinitionReader> stagingReaders = 
+					new ArrayList<AbstractBeanDefinitionReader>(resources.length);
+			for(Resource resource : resources) {
+				StagingBeanDefinitionRegistry stagingRegistry = new StagingBeanDefinitionRegistry(this.registry);
+				AbstractBeanDefinitionReader stagingReader = createStagingReader(stagingRegistry);
+				if(stagingReader == null) {
+					stagingReaders = null;
+					break;
+				}
+				stagingReader.setBeanNameGenerator(
+						stagingRegistry.recordingBeanNameGenerator(stagingReader.getBeanNameGenerator()));
+				stagingRegistries.add(stagingRegistry);
+				stagingReaders.add(stagingReader);
+			}
+			if(stagingReaders != null) {
+				return loadBeanDefinitionsInParallel(resources, stagingRegistries, stagingReaders);
+			}
+		}
 		int counter = 0;
 		for(Resource resource : resources) {
 			counter += loadBeanDefinitions(resource);
 		}
 		return counter;
 	}
+	
+	/**
+	 * Parse the given resources concurrently into their staging registries,
+	 * then apply the staged registrations in resource order.
+	 */
+	private int loadBeanDefinitionsInParallel(final Resource[] resources, 
+			List<StagingBeanDefinitionRegistry> stagingRegistries, 
+			final List<AbstractBeanDefinitionReader> stagingReaders) throws BeanDefinitionStoreException {
+		
+		if(logger.isDebugEnabled()) {
+			logger.debug("Loading bean definitions from " + resources.length + 
+					" resources with parallelism " + this.parallelism);
+		}
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(resources.length);
+		for(int i = 0; i < resources.length; i++) {
+			final int index = i;
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					stagingReaders.get(index).loadBeanDefinitions(resources[index]);
+					return null;
+				}
+			});
+		}
+		List<Future<Object>> futures;
+		ForkJoinPool pool = new ForkJoinPool(Math.min(this.parallelism, resources.length), 
+				new DefaultListableBeanFactory.BootstrapThreadFactory(Thread.currentThread().getContextClassLoader()), 
+				null, false);
+		try {
+			futures = pool.invokeAll(tasks);
+		} finally {
+			pool.shutdown();
+		}
+		
+		int counter = 0;
+		for(int i = 0; i < resources.length; i++) {
+			awaitStaging(futures.get(i), resources[i]);
+			final Resource resource = resources[i];
+			int countBefore = this.registry.getBeanDefinitionCount();
+			stagingRegistries.get(i).replay(this.beanNameGenerator, 
+					new StagingBeanDefinitionRegistry.RegistrationFailureHandler() {
+						public void registrationFailed(String beanName, BeanDefinitionStoreException ex) {
+							stagedRegistrationFailed(resource, beanName, ex);
+						}
+					});
+			counter += this.registry.getBeanDefinitionCount() - countBefore;
+		}
+		return counter;
+	}
+	
+	/**
+	 * Wait for the given staging task, propagating its failure if any.
+	 */
+	private void awaitStaging(Future<Object> future, Resource resource) {
+		try {
+			future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BeanDefinitionStoreException(
+					"Interrupted while loading bean definitions from " + resource, ex);
+		} catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new BeanDefinitionStoreException("Could not load bean definitions from " + resource, cause);
+		}
+	}
 
 	public int loadBeanDefinitions(String location) throws BeanDefinitionStoreException {
 		return loadBeanDefinitions(location, null);
@@ -221,6 +385,19 @@ public abstract class AbstractBeanDefinitionReader implements EnvironmentCapable
 
 	public int loadBeanDefinitions(String... locations) throws BeanDefinitionStoreException {
 		Assert.notNull(locations, "Location must not be null");
+		if(this.parallelism > 1 && locations.length > 1 && getResourceLoader() instanceof ResourcePatternResolver) {
+			// Resolve all locations up front, in order to parse all resources concurrently.
+			List<Resource> resources = new ArrayList<Resource>();
+			for(String location : locations) {
+				try {
+					Collections.addAll(resources, ((ResourcePatternResolver) getResourceLoader()).getResources(location));
+				} catch (IOException e) {
+					throw new BeanDefinitionStoreException(
+							"Could not resolve bean definition resource pattern [" + location + "]", e);
+				}
+			}
+			return loadBeanDefinitions(resources.toArray(new Resource[resources.size()]));
+		}
 		int counter = 0;
 		for(String location : locations) {
 			counter += loadBeanDefinitions(location);
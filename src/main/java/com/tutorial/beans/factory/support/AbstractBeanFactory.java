@@ -44,14 +44,18 @@ import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.beans.factory.config.BeanDefinitionHolder;
 import com.tutorial.beans.factory.config.BeanExpressionContext;
 import com.tutorial.beans.factory.config.BeanExpressionResolver;
+import com.tutorial.beans.factory.config.BeanFactoryMetrics;
 import com.tutorial.beans.factory.config.BeanPostProcessor;
+import com.tutorial.beans.factory.config.BeanPostProcessorProfiler;
 import com.tutorial.beans.factory.config.ConfigurableBeanFactory;
 import com.tutorial.beans.factory.config.DestructionAwareBeanPostProcessor;
 import com.tutorial.beans.factory.config.InstantiationAwareBeanPostProcessor;
 import com.tutorial.beans.factory.config.Scope;
+import com.tutorial.beans.factory.config.SelectiveBeanPostProcessor;
 import com.tutorial.core.DecoratingClassLoader;
 import com.tutorial.core.NamedThreadLocal;
 import com.tutorial.core.convert.ConversionService;
+import com.tutorial.core.metrics.StartupRecorder;
 import com.tutorial.util.Assert;
 import com.tutorial.util.BeanUtils;
 import com.tutorial.util.ClassUtils;
@@ -136,15 +140,33 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** Indicates whether any DestructionAwareBeanPostProcessors have been registered */
 	private boolean hasDestructionAwareBeanPostProcessors;
 
+	/** Indicates whether any SelectiveBeanPostProcessors have been registered */
+	private volatile boolean hasSelectiveBeanPostProcessors;
+
+	/** Cache from bean class to the BeanPostProcessors that apply to it */
+	private final Map<Class<?>, List<BeanPostProcessor>> applicableBeanPostProcessors =
+			new ConcurrentHashMap<Class<?>, List<BeanPostProcessor>>(64);
+
 	/** Map from scope identifier String to corresponding Scope */
 	private final Map<String, Scope> scopes = new HashMap<String, Scope>();
 
 	/** Security context used when running with a SecurityManager */
 	private SecurityContextProvider securityContextProvider;
 
-	/** Map from bean name to merged RootBeanDefinition */
-	private final Map<String, RootBeanDefinition> mergedBeanDefinitions = 
-			new ConcurrentHashMap<String, RootBeanDefinition>();
+	/** Recorder for bean creation steps, if any */
+	private volatile StartupRecorder startupRecorder;
+
+	/** Listener for bean request, creation and destruction metrics, if any */
+	private volatile BeanFactoryMetrics beanFactoryMetrics;
+
+	/** Profiler for BeanPostProcessor callbacks, if any */
+	private volatile BeanPostProcessorProfiler beanPostProcessorProfiler;
+
+	/** Cache from bean name to merged RootBeanDefinition */
+	private volatile MergedBeanDefinitionCache mergedBeanDefinitions = new DefaultMergedBeanDefinitionCache();
+
+	/** Lock for merging bean definitions, enforcing a single merged instance per cached bean */
+	private final Object mergedBeanDefinitionLock = new Object();
 
 	/** Names of beans that have already been created at least once */
 	private final Set<String> alreadyCreated = Collections.synchronizedSet(new HashSet<String>());
@@ -215,7 +237,11 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		
 		// Eagerly check singleton cache for manually registered singletons.
 		Object sharedInstance = getSingleton(beanName);
+		BeanFactoryMetrics metrics = this.beanFactoryMetrics;
 		if(sharedInstance != null && args == null) {
+			if(metrics != null) {
+				metrics.beanRequested(beanName, true);
+			}
 			if(logger.isDebugEnabled()) {
 				if(isSingletonCurrentlyInCreation(beanName)) {
 					logger.debug("Returning eagerly cached instance of singleton bean '" + beanName +
@@ -247,6 +273,10 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 				}
 			}  
 			
+			if(metrics != null) {
+				metrics.beanRequested(beanName, false);
+			}
+			
 			if(!typeCheckOnly) {
 				markBeanAsCreated(beanName);
 			}
@@ -711,6 +741,10 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		if(beanPostProcessor instanceof DestructionAwareBeanPostProcessor) {
 			this.hasDestructionAwareBeanPostProcessors = true;
 		}
+		if(beanPostProcessor instanceof SelectiveBeanPostProcessor) {
+			this.hasSelectiveBeanPostProcessors = true;
+		}
+		this.applicableBeanPostProcessors.clear();
 	}
 	
 	public int getBeanPostProcessorCount() {
@@ -725,6 +759,33 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.beanPostProcessors;
 	}
 
+	/**
+	 * Return the BeanPostProcessors that apply to beans of the given class,
+	 * in the order of {@link #getBeanPostProcessors()}: all of them except for
+	 * {@link SelectiveBeanPostProcessor SelectiveBeanPostProcessors} that do
+	 * not apply to the class. Determined once per class and cached until
+	 * another BeanPostProcessor gets added or the singletons get destroyed.
+	 * @param beanClass the class of the bean to post-process
+	 * (may be <code>null</code>, in which case all BeanPostProcessors apply)
+	 */
+	protected List<BeanPostProcessor> getBeanPostProcessors(Class<?> beanClass) {
+		if(!this.hasSelectiveBeanPostProcessors || beanClass == null) {
+			return this.beanPostProcessors;
+		}
+		List<BeanPostProcessor> applicable = this.applicableBeanPostProcessors.get(beanClass);
+		if(applicable == null) {
+			applicable = new ArrayList<BeanPostProcessor>(this.beanPostProcessors.size());
+			for(BeanPostProcessor bp : this.beanPostProcessors) {
+				if(!(bp instanceof SelectiveBeanPostProcessor) ||
+						((SelectiveBeanPostProcessor) bp).isApplicableTo(beanClass)) {
+					applicable.add(bp);
+				}
+			}
+			this.applicableBeanPostProcessors.put(beanClass, applicable);
+		}
+		return applicable;
+	}
+
 	/**
 	 * Return whether this factory holds a DestructionAwareBeanPostProcessor
 	 * that will get applied to singleton beans on shutdown.
@@ -783,6 +844,54 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 					AccessController.getContext());
 	}
 
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	public StartupRecorder getStartupRecorder() {
+		return this.startupRecorder;
+	}
+
+	public void setBeanFactoryMetrics(BeanFactoryMetrics beanFactoryMetrics) {
+		this.beanFactoryMetrics = beanFactoryMetrics;
+	}
+
+	public BeanFactoryMetrics getBeanFactoryMetrics() {
+		return this.beanFactoryMetrics;
+	}
+
+	public void setBeanPostProcessorProfiler(BeanPostProcessorProfiler beanPostProcessorProfiler) {
+		this.beanPostProcessorProfiler = beanPostProcessorProfiler;
+	}
+
+	public BeanPostProcessorProfiler getBeanPostProcessorProfiler() {
+		return this.beanPostProcessorProfiler;
+	}
+
+	/**
+	 * Specify the cache to hold merged bean definitions in.
+	 * <p>Default is a {@link DefaultMergedBeanDefinitionCache}, holding on to
+	 * the merged bean definitions of all beans created so far. Specify a
+	 * {@link BoundedMergedBeanDefinitionCache} to limit the number of merged
+	 * definitions held for non-singleton beans.
+	 * <p>Merged bean definitions cached so far are dropped: they will be
+	 * merged again on next access.
+	 */
+	public void setMergedBeanDefinitionCache(MergedBeanDefinitionCache mergedBeanDefinitionCache) {
+		Assert.notNull(mergedBeanDefinitionCache, "MergedBeanDefinitionCache must not be null");
+		synchronized(this.mergedBeanDefinitionLock) {
+			this.mergedBeanDefinitions = mergedBeanDefinitionCache;
+		}
+	}
+
+	/**
+	 * Return the cache that merged bean definitions are held in,
+	 * e.g. for exposing its hit, miss and eviction counts.
+	 */
+	public MergedBeanDefinitionCache getMergedBeanDefinitionCache() {
+		return this.mergedBeanDefinitions;
+	}
+
 	public void copyConfigurationFrom(ConfigurableBeanFactory otherFactory) {
 		Assert.notNull(otherFactory, "BeanFactory must not be null");
 		setBeanClassLoader(otherFactory.getBeanClassLoader());
@@ -797,8 +906,16 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 					otherAbstractFactory.hasInstantiationAwareBeanPostProcessors;
 			this.hasDestructionAwareBeanPostProcessors = this.hasDestructionAwareBeanPostProcessors ||
 					otherAbstractFactory.hasDestructionAwareBeanPostProcessors;
+			this.hasSelectiveBeanPostProcessors = this.hasSelectiveBeanPostProcessors ||
+					otherAbstractFactory.hasSelectiveBeanPostProcessors;
+			this.applicableBeanPostProcessors.clear();
 			this.scopes.putAll(otherAbstractFactory.scopes);
 			this.securityContextProvider = otherAbstractFactory.securityContextProvider;
+			this.startupRecorder = otherAbstractFactory.startupRecorder;
+			this.beanFactoryMetrics = otherAbstractFactory.beanFactoryMetrics;
+			this.beanPostProcessorProfiler = otherAbstractFactory.beanPostProcessorProfiler;
+			setDestructionParallelism(otherAbstractFactory.getDestructionParallelism());
+			setDestructionTimeout(otherAbstractFactory.getDestructionTimeout());
 		} else {
 			setTypeConverter(otherFactory.getTypeConverter());
 		}
@@ -918,8 +1035,53 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 */
 	protected void destroyBean(String beanName, Object beanInstance,
 			RootBeanDefinition mbd) {
-		new DisposableBeanAdapter(beanInstance, beanName, mbd, getBeanPostProcessors(), 
+		BeanFactoryMetrics metrics = this.beanFactoryMetrics;
+		long startTime = (metrics != null ? System.nanoTime() : 0);
+		new DisposableBeanAdapter(beanInstance, beanName, mbd, getBeanPostProcessors(beanInstance.getClass()), 
 				getAccessControlContext()).destroy();
+		if(metrics != null) {
+			metrics.beanDestroyed(beanName, System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Determine the effective scope name of the given bean definition,
+	 * as reported to the {@link #setBeanFactoryMetrics BeanFactoryMetrics}.
+	 * @param mbd the merged bean definition
+	 * @return the scope name (never empty)
+	 */
+	static String getScopeName(RootBeanDefinition mbd) {
+		if(mbd.isSingleton()) {
+			return SCOPE_SINGLETON;
+		}
+		if(mbd.isPrototype()) {
+			return SCOPE_PROTOTYPE;
+		}
+		return mbd.getScope();
+	}
+
+	/**
+	 * Overridden to report the destruction of a singleton to the
+	 * {@link #setBeanFactoryMetrics BeanFactoryMetrics}, if any, timing
+	 * only the bean's own destruction (not that of its dependent beans).
+	 */
+	@Override
+	protected void destroyBean(final String beanName, final DisposableBean bean) {
+		final BeanFactoryMetrics metrics = this.beanFactoryMetrics;
+		if(metrics == null || bean == null) {
+			super.destroyBean(beanName, bean);
+			return;
+		}
+		super.destroyBean(beanName, new DisposableBean() {
+			public void destroy() throws Exception {
+				long startTime = System.nanoTime();
+				try {
+					bean.destroy();
+				} finally {
+					metrics.beanDestroyed(beanName, System.nanoTime() - startTime);
+				}
+			}
+		});
 	}
 
 	public void destroyScopedBean(String beanName) {
@@ -939,6 +1101,17 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 			destroyBean(beanName, bean, mbd);
 		}
 	}
+
+	/**
+	 * Overridden to also drop the cached BeanPostProcessors per bean class,
+	 * so that the classes of destroyed beans do not remain referenced.
+	 * @see #getBeanPostProcessors(Class)
+	 */
+	@Override
+	public void destroySingletons() {
+		super.destroySingletons();
+		this.applicableBeanPostProcessors.clear();
+	}
 	
 	//-------------------------------------------------------------------------
 	//   Implementation methods
@@ -1068,12 +1241,13 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 */
 	protected RootBeanDefinition getMergedBeanDefinition(String beanName, 
 			BeanDefinition bd, BeanDefinition containingBd) throws BeanDefinitionStoreException {
-		synchronized(this.mergedBeanDefinitions) {
+		synchronized(this.mergedBeanDefinitionLock) {
 			RootBeanDefinition mbd = null;
 			
-			// Check with full lock now in order to enforce the same merged instance.
+			// Check with full lock now in order to enforce the same merged instance,
+			// without counting the lookup again.
 			if(containingBd == null) {
-				mbd = this.mergedBeanDefinitions.get(beanName);
+				mbd = this.mergedBeanDefinitions.peek(beanName);
 			}
 			
 			if(mbd == null) {
@@ -1423,7 +1597,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 				// DisposableBean interface, custom destroy method.
 				
 				registerDisposableBean(beanName, 
-						new DisposableBeanAdapter(bean, beanName, mbd, getBeanPostProcessors(), acc));
+						new DisposableBeanAdapter(bean, beanName, mbd, getBeanPostProcessors(bean.getClass()), acc));
 			} else {
 				// A bean with a custom scope...
 				Scope scope = this.scopes.get(mbd.getScope());
@@ -1431,7 +1605,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 					throw new IllegalStateException("No scope registered for scope '" + mbd.getScope() + "'");
 				}
 				scope.registerDestructionCallback(beanName, 
-						new DisposableBeanAdapter(bean, beanName, mbd, getBeanPostProcessors(), acc));
+						new DisposableBeanAdapter(bean, beanName, mbd, getBeanPostProcessors(bean.getClass()), acc));
 			}
 		}
 	}
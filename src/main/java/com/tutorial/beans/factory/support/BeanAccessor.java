@@ -0,0 +1,121 @@
+package com.tutorial.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Base class for generated classes that invoke the public constructors and
+ * setter methods of a specific bean class directly, through plain
+ * <code>new</code> and <code>invokevirtual</code> instructions instead of
+ * reflection.
+ *
+ * <p>Constructors and setter methods are addressed by index, as determined
+ * through {@link #getConstructorIndex} and {@link #getWriteMethodIndex};
+ * callers are expected to look up an index once and reuse it. Arguments
+ * are cast to the declared parameter types (and unboxed for primitives)
+ * without any further conversion, so they need to match already.
+ *
+ * <p>Instances are obtained from a {@link BytecodeInstantiationStrategy}.
+ *
+ * @see BytecodeInstantiationStrategy#getBeanAccessor(Class)
+ */
+public abstract class BeanAccessor {
+
+	private Class<?> beanClass;
+
+	private Constructor<?>[] constructors;
+
+	private Method[] writeMethods;
+
+	/**
+	 * Initialize this accessor with the constructors and methods that its
+	 * generated subclass has been built for, in index order.
+	 */
+	final void initialize(Class<?> beanClass, Constructor<?>[] constructors, Method[] writeMethods) {
+		this.beanClass = beanClass;
+		this.constructors = constructors;
+		this.writeMethods = writeMethods;
+	}
+
+	/**
+	 * Return the bean class that this accessor has been generated for.
+	 */
+	public final Class<?> getBeanClass() {
+		return this.beanClass;
+	}
+
+	/**
+	 * Return the index of the given constructor.
+	 * @param ctor the constructor
+	 * @return the constructor index, or <code>-1</code> if not supported by this accessor
+	 */
+	public final int getConstructorIndex(Constructor<?> ctor) {
+		for(int i = 0; i < this.constructors.length; i++) {
+			if(this.constructors[i].equals(ctor)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the constructor at the given index.
+	 */
+	public final Constructor<?> getConstructor(int constructorIndex) {
+		return this.constructors[constructorIndex];
+	}
+
+	/**
+	 * Return the index of the given setter method.
+	 * @param writeMethod the setter method
+	 * @return the method index, or <code>-1</code> if not supported by this accessor
+	 */
+	public final int getWriteMethodIndex(Method writeMethod) {
+		for(int i = 0; i < this.writeMethods.length; i++) {
+			if(this.writeMethods[i].equals(writeMethod)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the setter method at the given index.
+	 */
+	public final Method getWriteMethod(int writeMethodIndex) {
+		return this.writeMethods[writeMethodIndex];
+	}
+
+	/**
+	 * Create a new bean instance through the constructor at the given index.
+	 * @param constructorIndex the index of the constructor
+	 * @param args the constructor arguments, matching the parameter types
+	 * @return the new bean instance
+	 * @throws Throwable whatever the constructor throws
+	 */
+	public final Object newInstance(int constructorIndex, Object[] args) throws Throwable {
+		return doNewInstance(constructorIndex, args);
+	}
+
+	/**
+	 * Invoke the setter method at the given index on the given bean.
+	 * @param writeMethodIndex the index of the setter method
+	 * @param bean the target bean
+	 * @param value the value to set, matching the parameter type
+	 * @throws Throwable whatever the setter method throws
+	 */
+	public final void setPropertyValue(int writeMethodIndex, Object bean, Object value) throws Throwable {
+		doSetPropertyValue(writeMethodIndex, bean, value);
+	}
+
+	/**
+	 * Implemented by the generated subclass.
+	 */
+	protected abstract Object doNewInstance(int constructorIndex, Object[] args) throws Throwable;
+
+	/**
+	 * Implemented by the generated subclass.
+	 */
+	protected abstract void doSetPropertyValue(int writeMethodIndex, Object bean, Object value) throws Throwable;
+
+}
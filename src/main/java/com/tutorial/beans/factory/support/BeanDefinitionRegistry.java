@@ -1,5 +1,7 @@
 package com.tutorial.beans.factory.support;
 
+import java.util.Map;
+
 import com.tutorial.beans.factory.BeanDefinitionStoreException;
 import com.tutorial.beans.factory.NoSuchBeanDefinitionException;
 import com.tutorial.beans.factory.config.BeanDefinition;
@@ -72,6 +74,21 @@ public interface BeanDefinitionRegistry extends AliasRegistry {
 	void registerBeanDefinition(String name, BeanDefinition beanDefinition)
 			throws BeanDefinitionStoreException;
 	
+	/**
+	 * Register a batch of new bean definitions with this registry, in the
+	 * iteration order of the given Map.
+	 * <p>Equivalent to calling {@link #registerBeanDefinition} for each entry,
+	 * but allows implementations to register the entire batch at once, e.g.
+	 * within a single critical section.
+	 * @param beanDefinitions the bean definitions to register, keyed by bean name
+	 * @throws BeanDefinitionStoreException if a BeanDefinition is invalid
+	 * or if there is already a BeanDefinition for one of the bean names
+	 * (and we are not allowed to override it)
+	 * @see #registerBeanDefinition
+	 */
+	void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions)
+			throws BeanDefinitionStoreException;
+	
 	/**
 	 * Remove the BeanDefinition for the given name.
 	 * @param beanName the name of the bean instance to register
@@ -0,0 +1,1035 @@
+package com.tutorial.beans.factory.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.tutorial.beans.BeanMetadataAttribute;
+import com.tutorial.beans.BeanMetadataAttributeAccessor;
+import com.tutorial.beans.BeansException;
+import com.tutorial.beans.MutablePropertyValues;
+import com.tutorial.beans.PropertyValue;
+import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.config.BeanDefinitionHolder;
+import com.tutorial.beans.factory.config.ConfigurableBeanFactory;
+import com.tutorial.beans.factory.config.ConstructorArgumentValues;
+import com.tutorial.beans.factory.config.RuntimeBeanNameReference;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
+import com.tutorial.beans.factory.config.TypedStringValue;
+import com.tutorial.core.env.Environment;
+import com.tutorial.core.io.Resource;
+import com.tutorial.core.io.ResourceLoader;
+import com.tutorial.core.io.UrlResource;
+import com.tutorial.core.io.support.ResourcePatternResolver;
+import com.tutorial.util.Assert;
+import com.tutorial.util.ClassUtils;
+import com.tutorial.util.FileCopyUtils;
+
+/**
+ * Compact binary snapshot of a set of bean definitions and their aliases,
+ * allowing them to be registered again without parsing their original
+ * sources (e.g. XML files).
+ *
+ * <p>Top-level bean definitions are stored in merged form wherever their
+ * parents are part of the same snapshot, so that child definitions do not
+ * need to be merged with their parents again on the next startup. Property values,
+ * constructor arguments, method overrides, qualifiers and metadata attributes
+ * are stored as far as they consist of the value types produced by the
+ * standard bean definition readers: Strings, {@link TypedStringValue TypedStringValues},
+ * bean references, inner beans, managed collections, and primitive wrappers.
+ * Any other value type causes {@link #writeTo} to fail.
+ *
+ * <p>A snapshot also records every source resource it has been built from,
+ * with its last-modified timestamp and a SHA-1 hash of its content, as well as
+ * the conditions its content depends on: the active and default profiles of the
+ * environment, and the resources that each location pattern (e.g. of an import
+ * with wildcards) has been resolved to. The snapshot counts as
+ * {@link #isUpToDate up to date} if the profiles are the same, every location
+ * pattern still resolves to the same resources, and every resource still has
+ * the same timestamp, or else the same content hash.
+ *
+ * @see #capture
+ * @see #readIfUpToDate
+ * @see com.tutorial.beans.factory.xml.XmlBeanDefinitionReader#setSnapshotDirectory
+ */
+public class BeanDefinitionSnapshot {
+
+	private static final int MAGIC = 0x42445353;
+
+	private static final int VERSION = 2;
+
+	private static final String HASH_ALGORITHM = "SHA-1";
+
+	// Value tags
+	private static final int NULL = 0;
+	private static final int STRING = 1;
+	private static final int TYPED_STRING_VALUE = 2;
+	private static final int BEAN_REFERENCE = 3;
+	private static final int BEAN_NAME_REFERENCE = 4;
+	private static final int BEAN_DEFINITION_HOLDER = 5;
+	private static final int BEAN_DEFINITION = 6;
+	private static final int MANAGED_LIST = 7;
+	private static final int MANAGED_SET = 8;
+	private static final int MANAGED_MAP = 9;
+	private static final int MANAGED_PROPERTIES = 10;
+	private static final int MANAGED_ARRAY = 11;
+	private static final int METADATA_ATTRIBUTE = 12;
+	private static final int BOOLEAN = 13;
+	private static final int INTEGER = 14;
+	private static final int LONG = 15;
+	private static final int CLASS = 16;
+
+	// Bean definition kinds
+	private static final int ROOT_BEAN_DEFINITION = 1;
+	private static final int GENERIC_BEAN_DEFINITION = 2;
+	private static final int CHILD_BEAN_DEFINITION = 3;
+
+
+	private final SnapshotHeader header;
+
+	private final Map<String, BeanDefinition> beanDefinitions;
+
+	private final Map<String, String> aliases;
+
+	private BeanDefinitionSnapshot(SnapshotHeader header,
+			Map<String, BeanDefinition> beanDefinitions, Map<String, String> aliases) {
+		this.header = header;
+		this.beanDefinitions = beanDefinitions;
+		this.aliases = aliases;
+	}
+
+
+	/**
+	 * Capture the given bean definitions from the given registry, in merged
+	 * form where possible.
+	 * @param registry the registry holding the bean definitions
+	 * @param beanNames the names of the bean definitions to capture, in registration order
+	 * @param aliases the aliases to capture, as a Map from alias to bean name
+	 * @param sourceResources all resources that the bean definitions have been loaded from,
+	 * including imported ones
+	 * @param environment the environment that the bean definitions have been loaded in
+	 * @param resolvedLocations the location patterns that have been resolved while loading,
+	 * along with the resources each of them resolved to
+	 * @return the snapshot
+	 * @throws IOException if a source resource could not be read for hashing,
+	 * or does not have a URL to check it against later
+	 */
+	public static BeanDefinitionSnapshot capture(BeanDefinitionRegistry registry, Collection<String> beanNames,
+			Map<String, String> aliases, Collection<Resource> sourceResources, Environment environment,
+			Map<String, ? extends Collection<Resource>> resolvedLocations) throws IOException {
+
+		Assert.notNull(registry, "BeanDefinitionRegistry must not be null");
+		Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>(beanNames.size());
+		for(String beanName : beanNames) {
+			BeanDefinition bd = registry.getBeanDefinition(beanName);
+			if(registry instanceof ConfigurableBeanFactory && isSelfContained(registry, bd, beanNames)) {
+				try {
+					bd = ((ConfigurableBeanFactory) registry).getMergedBeanDefinition(beanName);
+				} catch (BeansException ex) {
+					// Parent not available yet: keep the definition unmerged.
+				}
+			}
+			beanDefinitions.put(beanName, bd);
+		}
+		List<ResourceStamp> resourceStamps = new ArrayList<ResourceStamp>(sourceResources.size());
+		for(Resource resource : sourceResources) {
+			resourceStamps.add(new ResourceStamp(resource.getURL().toExternalForm(),
+					resource.lastModified(), hash(resource)));
+		}
+		Map<String, List<String>> locationUrls = new LinkedHashMap<String, List<String>>(resolvedLocations.size());
+		for(Map.Entry<String, ? extends Collection<Resource>> entry : resolvedLocations.entrySet()) {
+			locationUrls.put(entry.getKey(), getUrls(entry.getValue()));
+		}
+		SnapshotHeader header = new SnapshotHeader(environment.getActiveProfiles(),
+				environment.getDefaultProfiles(), resourceStamps, locationUrls);
+		return new BeanDefinitionSnapshot(header, beanDefinitions, new LinkedHashMap<String, String>(aliases));
+	}
+
+	/**
+	 * Check whether all ancestors of the given bean definition are captured as well,
+	 * so that the merged definition does not depend on anything outside the snapshot.
+	 */
+	private static boolean isSelfContained(BeanDefinitionRegistry registry, BeanDefinition bd,
+			Collection<String> beanNames) {
+
+		String parentName = bd.getParentName();
+		while(parentName != null) {
+			if(!beanNames.contains(parentName) || !registry.containsBeanDefinition(parentName)) {
+				return false;
+			}
+			parentName = registry.getBeanDefinition(parentName).getParentName();
+		}
+		return true;
+	}
+
+	/**
+	 * Read a snapshot from the given stream.
+	 * @param in the stream to read from (not closed afterwards)
+	 * @return the snapshot
+	 * @throws IOException if the stream could not be read or is not a valid snapshot
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream in) throws IOException {
+		SnapshotInput input = new SnapshotInput(in);
+		SnapshotHeader header = input.readHeader();
+		return input.readContent(header);
+	}
+
+	/**
+	 * Read a snapshot from the given stream, provided that it is up to date
+	 * with respect to the given environment and its source resources. Bean
+	 * definitions are only decoded if the snapshot turns out to be up to date.
+	 * @param in the stream to read from (not closed afterwards)
+	 * @param environment the environment to load the bean definitions in
+	 * @param resourceLoader the ResourceLoader to resolve location patterns with
+	 * @return the snapshot, or <code>null</code> if it is stale
+	 * @throws IOException if the stream could not be read or is not a valid snapshot
+	 * @see #isUpToDate
+	 */
+	public static BeanDefinitionSnapshot readIfUpToDate(InputStream in, Environment environment,
+			ResourceLoader resourceLoader) throws IOException {
+
+		SnapshotInput input = new SnapshotInput(in);
+		SnapshotHeader header = input.readHeader();
+		if(!header.isUpToDate(environment, resourceLoader)) {
+			return null;
+		}
+		return input.readContent(header);
+	}
+
+
+	/**
+	 * Return the captured bean definitions, keyed by bean name in registration order.
+	 */
+	public Map<String, BeanDefinition> getBeanDefinitions() {
+		return Collections.unmodifiableMap(this.beanDefinitions);
+	}
+
+	/**
+	 * Return the captured aliases, as a Map from alias to bean name.
+	 */
+	public Map<String, String> getAliases() {
+		return Collections.unmodifiableMap(this.aliases);
+	}
+
+	/**
+	 * Return the URLs of the resources that this snapshot has been built from.
+	 */
+	public List<String> getSourceUrls() {
+		List<String> urls = new ArrayList<String>(this.header.resourceStamps.size());
+		for(ResourceStamp stamp : this.header.resourceStamps) {
+			urls.add(stamp.url);
+		}
+		return urls;
+	}
+
+	/**
+	 * Check whether this snapshot is still up to date: that is, whether the
+	 * given environment has the recorded active and default profiles, every
+	 * recorded location pattern still resolves to the same resources, and
+	 * every source resource still exists with either the recorded last-modified
+	 * timestamp or the recorded content hash.
+	 * @param environment the environment to load the bean definitions in
+	 * @param resourceLoader the ResourceLoader to resolve location patterns with
+	 */
+	public boolean isUpToDate(Environment environment, ResourceLoader resourceLoader) {
+		return this.header.isUpToDate(environment, resourceLoader);
+	}
+
+	/**
+	 * Register the captured bean definitions and aliases with the given registry.
+	 * @param registry the registry to register with
+	 * @return the number of bean definitions registered
+	 * @throws BeansException in case of registration errors
+	 */
+	public int registerBeanDefinitions(BeanDefinitionRegistry registry) throws BeansException {
+		for(Map.Entry<String, BeanDefinition> entry : this.beanDefinitions.entrySet()) {
+			registry.registerBeanDefinition(entry.getKey(), entry.getValue());
+		}
+		for(Map.Entry<String, String> entry : this.aliases.entrySet()) {
+			registry.registerAlias(entry.getValue(), entry.getKey());
+		}
+		return this.beanDefinitions.size();
+	}
+
+	/**
+	 * Write this snapshot to the given stream.
+	 * @param out the stream to write to (not closed afterwards)
+	 * @throws IOException if the stream could not be written to, or if a bean
+	 * definition contains a value that cannot be stored in a snapshot
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		// Encode completely before writing anything, to not leave a partial snapshot behind.
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+		SnapshotOutput output = new SnapshotOutput(buffer);
+		output.writeSnapshot(this);
+		buffer.writeTo(out);
+		out.flush();
+	}
+
+	@Override
+	public String toString() {
+		return "BeanDefinitionSnapshot with " + this.beanDefinitions.size() + " bean definitions from " +
+				getSourceUrls();
+	}
+
+
+	private static List<String> getUrls(Collection<Resource> resources) throws IOException {
+		List<String> urls = new ArrayList<String>(resources.size());
+		for(Resource resource : resources) {
+			urls.add(resource.getURL().toExternalForm());
+		}
+		Collections.sort(urls);
+		return urls;
+	}
+
+	private static byte[] hash(Resource resource) throws IOException {
+		return hash(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+	}
+
+	/**
+	 * Compute the hash that snapshots use for comparing resource content.
+	 * @param content the content to hash
+	 * @return the SHA-1 hash of the content
+	 */
+	public static byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("Hash algorithm " + HASH_ALGORITHM + " not available", ex);
+		}
+	}
+
+
+	/**
+	 * Last-modified timestamp and content hash of a source resource.
+	 */
+	private static class ResourceStamp {
+
+		private final String url;
+
+		private final long lastModified;
+
+		private final byte[] hash;
+
+		public ResourceStamp(String url, long lastModified, byte[] hash) {
+			this.url = url;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+		public boolean isUpToDate() {
+			try {
+				Resource resource = new UrlResource(this.url);
+				if(!resource.exists()) {
+					return false;
+				}
+				if(this.lastModified > 0 && resource.lastModified() == this.lastModified) {
+					return true;
+				}
+				return MessageDigest.isEqual(this.hash, hash(resource));
+			} catch (IOException ex) {
+				return false;
+			}
+		}
+	}
+
+
+	/**
+	 * The part of a snapshot that determines whether it is up to date.
+	 */
+	private static class SnapshotHeader {
+
+		private final String[] activeProfiles;
+
+		private final String[] defaultProfiles;
+
+		private final List<ResourceStamp> resourceStamps;
+
+		/** Sorted resource URLs, keyed by location pattern */
+		private final Map<String, List<String>> locationUrls;
+
+		public SnapshotHeader(String[] activeProfiles, String[] defaultProfiles,
+				List<ResourceStamp> resourceStamps, Map<String, List<String>> locationUrls) {
+			this.activeProfiles = activeProfiles;
+			this.defaultProfiles = defaultProfiles;
+			this.resourceStamps = resourceStamps;
+			this.locationUrls = locationUrls;
+		}
+
+		public boolean isUpToDate(Environment environment, ResourceLoader resourceLoader) {
+			if(!sameProfiles(this.activeProfiles, environment.getActiveProfiles()) ||
+					!sameProfiles(this.defaultProfiles, environment.getDefaultProfiles())) {
+				return false;
+			}
+			for(Map.Entry<String, List<String>> entry : this.locationUrls.entrySet()) {
+				try {
+					Resource[] resources = (resourceLoader instanceof ResourcePatternResolver ?
+							((ResourcePatternResolver) resourceLoader).getResources(entry.getKey()) :
+							new Resource[] {resourceLoader.getResource(entry.getKey())});
+					if(!entry.getValue().equals(getUrls(Arrays.asList(resources)))) {
+						return false;
+					}
+				} catch (IOException ex) {
+					return false;
+				}
+			}
+			for(ResourceStamp stamp : this.resourceStamps) {
+				if(!stamp.isUpToDate()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean sameProfiles(String[] recorded, String[] current) {
+			Set<String> recordedSet = (recorded != null ? new HashSet<String>(Arrays.asList(recorded)) : Collections.<String>emptySet());
+			Set<String> currentSet = (current != null ? new HashSet<String>(Arrays.asList(current)) : Collections.<String>emptySet());
+			return recordedSet.equals(currentSet);
+		}
+	}
+
+
+	/**
+	 * Writes a snapshot in binary form: variable-length integers, plus a
+	 * table of strings so that repeated class names, property names and
+	 * bean names are only written once.
+	 */
+	private static class SnapshotOutput {
+
+		private final DataOutputStream out;
+
+		private final Map<String, Integer> strings = new HashMap<String, Integer>(256);
+
+		public SnapshotOutput(OutputStream out) {
+			this.out = new DataOutputStream(out);
+		}
+
+		public void writeSnapshot(BeanDefinitionSnapshot snapshot) throws IOException {
+			SnapshotHeader header = snapshot.header;
+			this.out.writeInt(MAGIC);
+			writeInt(VERSION);
+			writeStringArray(header.activeProfiles);
+			writeStringArray(header.defaultProfiles);
+			writeInt(header.resourceStamps.size());
+			for(ResourceStamp stamp : header.resourceStamps) {
+				writeString(stamp.url);
+				this.out.writeLong(stamp.lastModified);
+				writeInt(stamp.hash.length);
+				this.out.write(stamp.hash);
+			}
+			writeInt(header.locationUrls.size());
+			for(Map.Entry<String, List<String>> entry : header.locationUrls.entrySet()) {
+				writeString(entry.getKey());
+				writeStringArray(entry.getValue().toArray(new String[entry.getValue().size()]));
+			}
+			writeInt(snapshot.beanDefinitions.size());
+			for(Map.Entry<String, BeanDefinition> entry : snapshot.beanDefinitions.entrySet()) {
+				writeString(entry.getKey());
+				writeBeanDefinition(entry.getValue());
+			}
+			writeInt(snapshot.aliases.size());
+			for(Map.Entry<String, String> entry : snapshot.aliases.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue());
+			}
+			this.out.flush();
+		}
+
+		private void writeBeanDefinition(BeanDefinition beanDefinition) throws IOException {
+			if(!(beanDefinition instanceof AbstractBeanDefinition)) {
+				throw unsupported(beanDefinition);
+			}
+			AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+			if(bd instanceof RootBeanDefinition) {
+				writeInt(ROOT_BEAN_DEFINITION);
+			} else if(bd instanceof ChildBeanDefinition) {
+				writeInt(CHILD_BEAN_DEFINITION);
+				writeString(bd.getParentName());
+			} else if(bd instanceof GenericBeanDefinition) {
+				writeInt(GENERIC_BEAN_DEFINITION);
+				writeString(bd.getParentName());
+			} else {
+				throw unsupported(bd);
+			}
+			writeString(bd.getBeanClassName());
+			writeString(bd.getScope());
+			int flags = (bd.isAbstract() ? 1 : 0) | (bd.isLazyInit() ? 2 : 0) | (bd.isAutowireCandidate() ? 4 : 0) |
+					(bd.isPrimary() ? 8 : 0) | (bd.isNonPublicAccessAllowed() ? 16 : 0) |
+					(bd.isLenientConstructorResolution() ? 32 : 0) | (bd.isEnforceInitMethod() ? 64 : 0) |
+					(bd.isEnforceDestroyMethod() ? 128 : 0) | (bd.isSynthetic() ? 256 : 0) |
+					(bd instanceof RootBeanDefinition && ((RootBeanDefinition) bd).isFactoryMethodUnique() ? 512 : 0);
+			writeInt(flags);
+			writeInt(bd.getAutowireMode());
+			writeInt(bd.getDependencyCheck());
+			writeInt(bd.getRole());
+			writeStringArray(bd.getDependsOn());
+			writeString(bd.getFactoryBeanName());
+			writeString(bd.getFactoryMethodName());
+			writeString(bd.getInitMethodName());
+			writeString(bd.getDestroyMethodName());
+			writeString(bd.getDescription());
+			writeString(bd.getResourceDescription());
+
+			ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+			writeInt(cargs.getIndexedArgumentValues().size());
+			for(Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry :
+					cargs.getIndexedArgumentValues().entrySet()) {
+				writeInt(entry.getKey());
+				writeValueHolder(entry.getValue());
+			}
+			writeInt(cargs.getGenericArgumentValues().size());
+			for(ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+				writeValueHolder(valueHolder);
+			}
+
+			writePropertyValues(bd.getPropertyValues());
+
+			Set<MethodOverride> overrides = bd.getMethodOverrides().getOverrides();
+			writeInt(overrides.size());
+			for(MethodOverride override : overrides) {
+				if(override instanceof LookupOverride) {
+					writeInt(1);
+					writeString(override.getMethodName());
+					writeString(((LookupOverride) override).getBeanName());
+				} else if(override instanceof ReplaceOverride) {
+					ReplaceOverride replaceOverride = (ReplaceOverride) override;
+					writeInt(2);
+					writeString(override.getMethodName());
+					writeString(replaceOverride.getMethodReplacerBeanName());
+					List<String> typeIdentifiers = replaceOverride.getTypeIdentifiers();
+					writeStringArray(typeIdentifiers.toArray(new String[typeIdentifiers.size()]));
+				} else {
+					throw unsupported(override);
+				}
+			}
+
+			Set<AutowireCandidateQualifier> qualifiers = bd.getQualifiers();
+			writeInt(qualifiers.size());
+			for(AutowireCandidateQualifier qualifier : qualifiers) {
+				writeString(qualifier.getTypeName());
+				writeAttributes(qualifier);
+			}
+			writeAttributes(bd);
+
+			if(bd instanceof RootBeanDefinition) {
+				writeValue(((RootBeanDefinition) bd).getDecoratedDefinition());
+			}
+		}
+
+		private void writeValueHolder(ConstructorArgumentValues.ValueHolder valueHolder) throws IOException {
+			writeValue(valueHolder.getValue());
+			writeString(valueHolder.getType());
+			writeString(valueHolder.getName());
+		}
+
+		private void writePropertyValues(MutablePropertyValues pvs) throws IOException {
+			List<PropertyValue> pvList = pvs.getPropertyValueList();
+			writeInt(pvList.size());
+			for(PropertyValue pv : pvList) {
+				writeString(pv.getName());
+				writeValue(pv.getValue());
+				writeInt(pv.isOptional() ? 1 : 0);
+				writeAttributes(pv);
+			}
+		}
+
+		private void writeAttributes(BeanMetadataAttributeAccessor accessor) throws IOException {
+			String[] attributeNames = accessor.attributeNames();
+			writeInt(attributeNames.length);
+			for(String attributeName : attributeNames) {
+				writeString(attributeName);
+				BeanMetadataAttribute metadataAttribute = accessor.getMetadataAttribute(attributeName);
+				writeValue(metadataAttribute != null ? metadataAttribute : accessor.getAttribute(attributeName));
+			}
+		}
+
+		@SuppressWarnings("rawtypes")
+		private void writeValue(Object value) throws IOException {
+			if(value == null) {
+				writeInt(NULL);
+			} else if(value instanceof String) {
+				writeInt(STRING);
+				writeString((String) value);
+			} else if(value instanceof TypedStringValue) {
+				TypedStringValue typedValue = (TypedStringValue) value;
+				writeInt(TYPED_STRING_VALUE);
+				writeString(typedValue.getValue());
+				writeString(typedValue.hasTargetType() ? typedValue.getTargetType().getName() :
+						typedValue.getTargetTypeName());
+				writeString(typedValue.getSpecifiedTypeName());
+				writeInt(typedValue.isDynamic() ? 1 : 0);
+			} else if(value instanceof RuntimeBeanReference) {
+				RuntimeBeanReference ref = (RuntimeBeanReference) value;
+				writeInt(BEAN_REFERENCE);
+				writeString(ref.getBeanName());
+				writeInt(ref.isToParent() ? 1 : 0);
+			} else if(value instanceof RuntimeBeanNameReference) {
+				writeInt(BEAN_NAME_REFERENCE);
+				writeString(((RuntimeBeanNameReference) value).getBeanName());
+			} else if(value instanceof BeanDefinitionHolder) {
+				BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+				writeInt(BEAN_DEFINITION_HOLDER);
+				writeString(holder.getBeanName());
+				writeStringArray(holder.getAliases());
+				writeBeanDefinition(holder.getBeanDefinition());
+			} else if(value instanceof BeanDefinition) {
+				writeInt(BEAN_DEFINITION);
+				writeBeanDefinition((BeanDefinition) value);
+			} else if(value instanceof ManagedArray) {
+				ManagedArray array = (ManagedArray) value;
+				writeInt(MANAGED_ARRAY);
+				writeString(array.getElementTypeName());
+				writeInt(array.isMergeEnabled() ? 1 : 0);
+				writeElements(array);
+			} else if(value instanceof ManagedList) {
+				ManagedList list = (ManagedList) value;
+				writeInt(MANAGED_LIST);
+				writeString(list.getElementTypeName());
+				writeInt(list.isMergeEnabled() ? 1 : 0);
+				writeElements(list);
+			} else if(value instanceof ManagedSet) {
+				ManagedSet set = (ManagedSet) value;
+				writeInt(MANAGED_SET);
+				writeString(set.getElementTypeName());
+				writeInt(set.isMergeEnabled() ? 1 : 0);
+				writeElements(set);
+			} else if(value instanceof ManagedMap) {
+				ManagedMap map = (ManagedMap) value;
+				writeInt(MANAGED_MAP);
+				writeString(map.getKeyTypeName());
+				writeString(map.getValueTypeName());
+				writeInt(map.isMergeEnabled() ? 1 : 0);
+				writeEntries(map);
+			} else if(value instanceof ManagedProperties) {
+				ManagedProperties props = (ManagedProperties) value;
+				writeInt(MANAGED_PROPERTIES);
+				writeInt(props.isMergeEnabled() ? 1 : 0);
+				writeEntries(props);
+			} else if(value instanceof BeanMetadataAttribute) {
+				BeanMetadataAttribute attribute = (BeanMetadataAttribute) value;
+				writeInt(METADATA_ATTRIBUTE);
+				writeString(attribute.getName());
+				writeValue(attribute.getValue());
+			} else if(value instanceof Boolean) {
+				writeInt(BOOLEAN);
+				writeInt(((Boolean) value) ? 1 : 0);
+			} else if(value instanceof Integer) {
+				writeInt(INTEGER);
+				this.out.writeInt((Integer) value);
+			} else if(value instanceof Long) {
+				writeInt(LONG);
+				this.out.writeLong((Long) value);
+			} else if(value instanceof Class) {
+				writeInt(CLASS);
+				writeString(((Class) value).getName());
+			} else {
+				throw unsupported(value);
+			}
+		}
+
+		private void writeElements(Collection<?> elements) throws IOException {
+			writeInt(elements.size());
+			for(Object element : elements) {
+				writeValue(element);
+			}
+		}
+
+		private void writeEntries(Map<?, ?> map) throws IOException {
+			writeInt(map.size());
+			for(Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeStringArray(String[] array) throws IOException {
+			if(array == null) {
+				writeInt(0);
+				return;
+			}
+			writeInt(array.length + 1);
+			for(String element : array) {
+				writeString(element);
+			}
+		}
+
+		/**
+		 * Write a string as 0 for <code>null</code>, as 1 followed by its
+		 * UTF-8 bytes on first occurrence, or as its table index plus 2.
+		 */
+		private void writeString(String value) throws IOException {
+			if(value == null) {
+				writeInt(0);
+				return;
+			}
+			Integer index = this.strings.get(value);
+			if(index != null) {
+				writeInt(index + 2);
+				return;
+			}
+			this.strings.put(value, this.strings.size());
+			byte[] bytes = value.getBytes("UTF-8");
+			writeInt(1);
+			writeInt(bytes.length);
+			this.out.write(bytes);
+		}
+
+		/**
+		 * Write a non-negative int in variable-length encoding,
+		 * 7 bits per byte.
+		 */
+		private void writeInt(int value) throws IOException {
+			while((value & ~0x7F) != 0) {
+				this.out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.out.writeByte(value);
+		}
+
+		private IOException unsupported(Object value) {
+			return new IOException("Cannot store value of type [" + value.getClass().getName() +
+					"] in bean definition snapshot: " + value);
+		}
+	}
+
+
+	/**
+	 * Reads a snapshot written by {@link SnapshotOutput}.
+	 */
+	private static class SnapshotInput {
+
+		private final DataInputStream in;
+
+		private final List<String> strings = new ArrayList<String>(256);
+
+		public SnapshotInput(InputStream in) {
+			this.in = new DataInputStream(in);
+		}
+
+		public SnapshotHeader readHeader() throws IOException {
+			if(this.in.readInt() != MAGIC) {
+				throw new IOException("Not a bean definition snapshot");
+			}
+			int version = readInt();
+			if(version != VERSION) {
+				throw new IOException("Unsupported bean definition snapshot version " + version);
+			}
+			String[] activeProfiles = readStringArray();
+			String[] defaultProfiles = readStringArray();
+			int stampCount = readInt();
+			List<ResourceStamp> resourceStamps = new ArrayList<ResourceStamp>(stampCount);
+			for(int i = 0; i < stampCount; i++) {
+				String url = readString();
+				long lastModified = this.in.readLong();
+				byte[] hash = new byte[readInt()];
+				this.in.readFully(hash);
+				resourceStamps.add(new ResourceStamp(url, lastModified, hash));
+			}
+			int locationCount = readInt();
+			Map<String, List<String>> locationUrls = new LinkedHashMap<String, List<String>>(locationCount * 2);
+			for(int i = 0; i < locationCount; i++) {
+				String location = readString();
+				locationUrls.put(location, Arrays.asList(readStringArray()));
+			}
+			return new SnapshotHeader(activeProfiles, defaultProfiles, resourceStamps, locationUrls);
+		}
+
+		public BeanDefinitionSnapshot readContent(SnapshotHeader header) throws IOException {
+			int beanCount = readInt();
+			Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>(beanCount * 2);
+			for(int i = 0; i < beanCount; i++) {
+				String beanName = readString();
+				beanDefinitions.put(beanName, readBeanDefinition());
+			}
+			int aliasCount = readInt();
+			Map<String, String> aliases = new LinkedHashMap<String, String>(aliasCount * 2);
+			for(int i = 0; i < aliasCount; i++) {
+				String alias = readString();
+				aliases.put(alias, readString());
+			}
+			return new BeanDefinitionSnapshot(header, beanDefinitions, aliases);
+		}
+
+		private AbstractBeanDefinition readBeanDefinition() throws IOException {
+			int kind = readInt();
+			AbstractBeanDefinition bd;
+			if(kind == ROOT_BEAN_DEFINITION) {
+				bd = new RootBeanDefinition();
+			} else if(kind == CHILD_BEAN_DEFINITION) {
+				bd = new ChildBeanDefinition(readString());
+			} else if(kind == GENERIC_BEAN_DEFINITION) {
+				GenericBeanDefinition gbd = new GenericBeanDefinition();
+				gbd.setParentName(readString());
+				bd = gbd;
+			} else {
+				throw new IOException("Corrupt bean definition snapshot: unknown bean definition kind " + kind);
+			}
+			bd.setBeanClassName(readString());
+			bd.setScope(readString());
+			int flags = readInt();
+			bd.setAbstract((flags & 1) != 0);
+			bd.setLazyInit((flags & 2) != 0);
+			bd.setAutowireCandidate((flags & 4) != 0);
+			bd.setPrimary((flags & 8) != 0);
+			bd.setNonPublicAccessAllowed((flags & 16) != 0);
+			bd.setLenientConstructorResolution((flags & 32) != 0);
+			bd.setEnforceInitMethod((flags & 64) != 0);
+			bd.setEnforceDestroyMethod((flags & 128) != 0);
+			bd.setSynthetic((flags & 256) != 0);
+			bd.setAutowireMode(readInt());
+			bd.setDependencyCheck(readInt());
+			bd.setRole(readInt());
+			bd.setDependsOn(readStringArray());
+			bd.setFactoryBeanName(readString());
+			String factoryMethodName = readString();
+			if(factoryMethodName != null && (flags & 512) != 0) {
+				((RootBeanDefinition) bd).setUniqueFactoryMethodName(factoryMethodName);
+			} else {
+				bd.setFactoryMethodName(factoryMethodName);
+			}
+			bd.setInitMethodName(readString());
+			bd.setDestroyMethodName(readString());
+			bd.setDescription(readString());
+			String resourceDescription = readString();
+			if(resourceDescription != null) {
+				bd.setResourceDescription(resourceDescription);
+			}
+
+			ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+			int indexedCount = readInt();
+			for(int i = 0; i < indexedCount; i++) {
+				int index = readInt();
+				cargs.addIndexedArgumentValue(index, readValueHolder());
+			}
+			int genericCount = readInt();
+			for(int i = 0; i < genericCount; i++) {
+				cargs.addGenericArgumentValue(readValueHolder());
+			}
+
+			readPropertyValues(bd.getPropertyValues());
+
+			int overrideCount = readInt();
+			for(int i = 0; i < overrideCount; i++) {
+				int overrideKind = readInt();
+				String methodName = readString();
+				if(overrideKind == 1) {
+					bd.getMethodOverrides().addOverride(new LookupOverride(methodName, readString()));
+				} else {
+					ReplaceOverride override = new ReplaceOverride(methodName, readString());
+					String[] typeIdentifiers = readStringArray();
+					if(typeIdentifiers != null) {
+						for(String typeIdentifier : typeIdentifiers) {
+							override.addTypeIdentifier(typeIdentifier);
+						}
+					}
+					bd.getMethodOverrides().addOverride(override);
+				}
+			}
+
+			int qualifierCount = readInt();
+			for(int i = 0; i < qualifierCount; i++) {
+				AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(readString());
+				readAttributes(qualifier);
+				bd.addQualifier(qualifier);
+			}
+			readAttributes(bd);
+
+			if(bd instanceof RootBeanDefinition) {
+				((RootBeanDefinition) bd).setDecoratedDefinition((BeanDefinitionHolder) readValue());
+			}
+			return bd;
+		}
+
+		private ConstructorArgumentValues.ValueHolder readValueHolder() throws IOException {
+			Object value = readValue();
+			String type = readString();
+			String name = readString();
+			return new ConstructorArgumentValues.ValueHolder(value, type, name);
+		}
+
+		private void readPropertyValues(MutablePropertyValues pvs) throws IOException {
+			int count = readInt();
+			for(int i = 0; i < count; i++) {
+				PropertyValue pv = new PropertyValue(readString(), readValue());
+				pv.setOptional(readInt() != 0);
+				readAttributes(pv);
+				pvs.addPropertyValue(pv);
+			}
+		}
+
+		private void readAttributes(BeanMetadataAttributeAccessor accessor) throws IOException {
+			int count = readInt();
+			for(int i = 0; i < count; i++) {
+				String attributeName = readString();
+				Object value = readValue();
+				if(value instanceof BeanMetadataAttribute) {
+					accessor.addMetadataAttribute((BeanMetadataAttribute) value);
+				} else {
+					accessor.setAttribute(attributeName, value);
+				}
+			}
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Object readValue() throws IOException {
+			int tag = readInt();
+			switch(tag) {
+				case NULL:
+					return null;
+				case STRING:
+					return readString();
+				case TYPED_STRING_VALUE: {
+					TypedStringValue typedValue = new TypedStringValue(readString());
+					String targetTypeName = readString();
+					if(targetTypeName != null) {
+						typedValue.setTargetTypeName(targetTypeName);
+					}
+					typedValue.setSpecifiedTypeName(readString());
+					if(readInt() != 0) {
+						typedValue.setDynamic();
+					}
+					return typedValue;
+				}
+				case BEAN_REFERENCE: {
+					String beanName = readString();
+					return new RuntimeBeanReference(beanName, readInt() != 0);
+				}
+				case BEAN_NAME_REFERENCE:
+					return new RuntimeBeanNameReference(readString());
+				case BEAN_DEFINITION_HOLDER: {
+					String beanName = readString();
+					String[] aliases = readStringArray();
+					return new BeanDefinitionHolder(readBeanDefinition(), beanName, aliases);
+				}
+				case BEAN_DEFINITION:
+					return readBeanDefinition();
+				case MANAGED_ARRAY: {
+					String elementTypeName = readString();
+					boolean mergeEnabled = (readInt() != 0);
+					int size = readInt();
+					ManagedArray array = new ManagedArray(elementTypeName, size);
+					array.setMergeEnabled(mergeEnabled);
+					readElements(array, size);
+					return array;
+				}
+				case MANAGED_LIST: {
+					ManagedList list = new ManagedList();
+					list.setElementTypeName(readString());
+					list.setMergeEnabled(readInt() != 0);
+					readElements(list, readInt());
+					return list;
+				}
+				case MANAGED_SET: {
+					ManagedSet set = new ManagedSet();
+					set.setElementTypeName(readString());
+					set.setMergeEnabled(readInt() != 0);
+					readElements(set, readInt());
+					return set;
+				}
+				case MANAGED_MAP: {
+					ManagedMap map = new ManagedMap();
+					map.setKeyTypeName(readString());
+					map.setValueTypeName(readString());
+					map.setMergeEnabled(readInt() != 0);
+					readEntries(map);
+					return map;
+				}
+				case MANAGED_PROPERTIES: {
+					ManagedProperties props = new ManagedProperties();
+					props.setMergeEnabled(readInt() != 0);
+					readEntries(props);
+					return props;
+				}
+				case METADATA_ATTRIBUTE: {
+					String name = readString();
+					return new BeanMetadataAttribute(name, readValue());
+				}
+				case BOOLEAN:
+					return (readInt() != 0);
+				case INTEGER:
+					return this.in.readInt();
+				case LONG:
+					return this.in.readLong();
+				case CLASS: {
+					String className = readString();
+					try {
+						return ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+					} catch (ClassNotFoundException ex) {
+						throw new IOException("Class [" + className + "] referenced from bean definition snapshot not found");
+					}
+				}
+				default:
+					throw new IOException("Corrupt bean definition snapshot: unknown value tag " + tag);
+			}
+		}
+
+		private void readElements(Collection<Object> elements, int count) throws IOException {
+			for(int i = 0; i < count; i++) {
+				elements.add(readValue());
+			}
+		}
+
+		private void readEntries(Map<Object, Object> map) throws IOException {
+			int count = readInt();
+			for(int i = 0; i < count; i++) {
+				Object key = readValue();
+				map.put(key, readValue());
+			}
+		}
+
+		private String[] readStringArray() throws IOException {
+			int length = readInt() - 1;
+			if(length < 0) {
+				return null;
+			}
+			String[] array = new String[length];
+			for(int i = 0; i < length; i++) {
+				array[i] = readString();
+			}
+			return array;
+		}
+
+		private String readString() throws IOException {
+			int code = readInt();
+			if(code == 0) {
+				return null;
+			}
+			if(code > 1) {
+				return this.strings.get(code - 2);
+			}
+			byte[] bytes = new byte[readInt()];
+			this.in.readFully(bytes);
+			String value = new String(bytes, "UTF-8");
+			this.strings.add(value);
+			return value;
+		}
+
+		private int readInt() throws IOException {
+			int value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = this.in.readUnsignedByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while((b & 0x80) != 0);
+			return value;
+		}
+	}
+
+}
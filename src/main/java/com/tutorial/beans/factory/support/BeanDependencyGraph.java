@@ -0,0 +1,179 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.tutorial.util.Assert;
+
+/**
+ * Simple directed graph of bean names, where an edge points from a bean
+ * to a bean that it depends on. Used for splitting a set of beans into
+ * "waves" that can be processed concurrently: every bean in a wave only
+ * depends on beans in earlier waves.
+ *
+ * <p>Beans are kept in the order in which they were added, which is also
+ * the order of the beans within each wave. Beans that participate in a
+ * dependency cycle cannot be placed in any wave; they are exposed through
+ * {@link #getCyclicBeans()} instead, to be processed serially.
+ *
+ * <p>Not thread-safe: meant to be built and evaluated by a single thread.
+ *
+ * @see DefaultListableBeanFactory#preInstantiateSingletons()
+ */
+class BeanDependencyGraph {
+
+	/** Map from bean name to the names of the beans it depends on, in insertion order */
+	private final Map<String, Set<String>> dependencies = new LinkedHashMap<String, Set<String>>();
+
+	private List<List<String>> waves;
+
+	private List<String> cyclicBeans;
+
+	/**
+	 * Add the given bean to the graph, if not already present.
+	 * @param beanName the name of the bean
+	 */
+	public void addBean(String beanName) {
+		Assert.notNull(beanName, "Bean name must not be null");
+		if(!this.dependencies.containsKey(beanName)) {
+			this.dependencies.put(beanName, new LinkedHashSet<String>(4));
+			this.waves = null;
+		}
+	}
+
+	/**
+	 * Register a dependency between two beans. Dependencies on beans that
+	 * have not been added to the graph are ignored, as are self-references.
+	 * @param beanName the name of the dependent bean
+	 * @param dependsOnBeanName the name of the bean that the bean depends on
+	 */
+	public void addDependency(String beanName, String dependsOnBeanName) {
+		Set<String> beanDependencies = this.dependencies.get(beanName);
+		Assert.notNull(beanDependencies, "Bean '" + beanName + "' has not been added to the graph");
+		if(!beanName.equals(dependsOnBeanName) && this.dependencies.containsKey(dependsOnBeanName)) {
+			beanDependencies.add(dependsOnBeanName);
+			this.waves = null;
+		}
+	}
+
+	/**
+	 * Return the names of all beans in this graph, in insertion order.
+	 */
+	public Set<String> getBeanNames() {
+		return Collections.unmodifiableSet(this.dependencies.keySet());
+	}
+
+	/**
+	 * Return the names of the beans that the given bean depends on.
+	 * @param beanName the name of the bean
+	 * @return the names of the dependencies (never <code>null</code>)
+	 */
+	public Set<String> getDependencies(String beanName) {
+		Set<String> beanDependencies = this.dependencies.get(beanName);
+		return (beanDependencies != null ? Collections.unmodifiableSet(beanDependencies) :
+				Collections.<String>emptySet());
+	}
+
+	/**
+	 * Return the beans of this graph in topological waves: each bean only
+	 * depends on beans in earlier waves, so that the beans of a single wave
+	 * can be processed concurrently.
+	 * @return the list of waves (never <code>null</code>)
+	 * @see #getCyclicBeans()
+	 */
+	public List<List<String>> getWaves() {
+		computeWavesIfNecessary();
+		return this.waves;
+	}
+
+	/**
+	 * Return the beans which could not be assigned to any wave since they
+	 * are part of (or depend on) a dependency cycle.
+	 * @return the names of the cyclic beans, in insertion order (never <code>null</code>)
+	 */
+	public List<String> getCyclicBeans() {
+		computeWavesIfNecessary();
+		return this.cyclicBeans;
+	}
+
+	private void computeWavesIfNecessary() {
+		if(this.waves != null) {
+			return;
+		}
+		// Kahn's algorithm, level by level: count unresolved dependencies per bean
+		// and track the reverse edges for decrementing those counts.
+		Map<String, Integer> order = new LinkedHashMap<String, Integer>(this.dependencies.size());
+		Map<String, Integer> pendingCounts = new LinkedHashMap<String, Integer>(this.dependencies.size());
+		Map<String, List<String>> dependents = new LinkedHashMap<String, List<String>>(this.dependencies.size());
+		List<String> wave = new ArrayList<String>();
+		for(Map.Entry<String, Set<String>> entry : this.dependencies.entrySet()) {
+			String beanName = entry.getKey();
+			order.put(beanName, order.size());
+			pendingCounts.put(beanName, entry.getValue().size());
+			if(entry.getValue().isEmpty()) {
+				wave.add(beanName);
+			}
+			for(String dependency : entry.getValue()) {
+				List<String> dependentBeans = dependents.get(dependency);
+				if(dependentBeans == null) {
+					dependentBeans = new ArrayList<String>(4);
+					dependents.put(dependency, dependentBeans);
+				}
+				dependentBeans.add(beanName);
+			}
+		}
+		Comparator<String> insertionOrder = new InsertionOrderComparator(order);
+		List<List<String>> waves = new ArrayList<List<String>>();
+		int assigned = 0;
+		while(!wave.isEmpty()) {
+			waves.add(Collections.unmodifiableList(wave));
+			assigned += wave.size();
+			List<String> nextWave = new ArrayList<String>();
+			for(String beanName : wave) {
+				List<String> dependentBeans = dependents.get(beanName);
+				if(dependentBeans != null) {
+					for(String dependentBean : dependentBeans) {
+						int pending = pendingCounts.get(dependentBean) - 1;
+						pendingCounts.put(dependentBean, pending);
+						if(pending == 0) {
+							nextWave.add(dependentBean);
+						}
+					}
+				}
+			}
+			Collections.sort(nextWave, insertionOrder);
+			wave = nextWave;
+		}
+		List<String> cyclicBeans = new ArrayList<String>(this.dependencies.size() - assigned);
+		for(Map.Entry<String, Integer> entry : pendingCounts.entrySet()) {
+			if(entry.getValue() > 0) {
+				cyclicBeans.add(entry.getKey());
+			}
+		}
+		this.cyclicBeans = Collections.unmodifiableList(cyclicBeans);
+		this.waves = Collections.unmodifiableList(waves);
+	}
+
+	/**
+	 * Comparator that sorts bean names by the order in which they were added to the graph.
+	 */
+	private static class InsertionOrderComparator implements Comparator<String> {
+
+		private final Map<String, Integer> order;
+
+		public InsertionOrderComparator(Map<String, Integer> order) {
+			this.order = order;
+		}
+
+		public int compare(String o1, String o2) {
+			return this.order.get(o1).compareTo(this.order.get(o2));
+		}
+	}
+
+}
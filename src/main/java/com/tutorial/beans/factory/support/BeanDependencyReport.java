@@ -0,0 +1,335 @@
+package com.tutorial.beans.factory.support;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.config.ConfigurableListableBeanFactory;
+import com.tutorial.core.metrics.StartupRecorder;
+import com.tutorial.core.metrics.StartupStep;
+import com.tutorial.util.Assert;
+
+/**
+ * Snapshot of the dependencies between the beans of a bean factory, as
+ * recorded while creating them, along with the time spent creating each bean
+ * and the <i>critical path</i>: the chain of dependent beans with the highest
+ * total creation time, which bounds how fast the beans could be created even
+ * with unlimited concurrent bootstrap threads.
+ *
+ * <p>Meant to be taken after the factory's singletons have been
+ * pre-instantiated, e.g. right after an application context refresh.
+ * Creation times are taken from the factory's {@link StartupRecorder}, if any:
+ * a bean's creation time excludes the nested creation of other beans, so
+ * that every nanosecond is attributed to exactly one bean. Without a
+ * recorder, all creation times are zero and the critical path is simply
+ * the longest chain of dependent beans.
+ *
+ * <p>The report can be written as a GraphViz DOT graph, with the critical
+ * path highlighted, or as a JSON document.
+ *
+ * @see com.tutorial.beans.factory.config.ConfigurableBeanFactory#getDependenciesForBean
+ * @see com.tutorial.beans.factory.config.ConfigurableBeanFactory#setStartupRecorder
+ * @see com.tutorial.context.support.BeanDependencyReportGenerator
+ */
+public class BeanDependencyReport {
+
+	private final BeanDependencyGraph graph = new BeanDependencyGraph();
+
+	private final Map<String, Long> creationTimes = new HashMap<String, Long>();
+
+	private final List<String> criticalPath;
+
+	private final long criticalPathNanos;
+
+	/**
+	 * Create a report for the given bean factory's current state.
+	 * @param beanFactory the bean factory to analyze
+	 */
+	public BeanDependencyReport(ConfigurableListableBeanFactory beanFactory) {
+		Assert.notNull(beanFactory, "BeanFactory must not be null");
+		String[] beanNames = beanFactory.getBeanDefinitionNames();
+		for(String beanName : beanNames) {
+			BeanDefinition bd = beanFactory.getBeanDefinition(beanName);
+			if(!bd.isAbstract()) {
+				this.graph.addBean(beanName);
+			}
+		}
+		for(String beanName : this.graph.getBeanNames()) {
+			for(String dependency : beanFactory.getDependenciesForBean(beanName)) {
+				this.graph.addDependency(beanName, dependency);
+			}
+		}
+		StartupRecorder startupRecorder = beanFactory.getStartupRecorder();
+		if(startupRecorder != null) {
+			for(StartupStep step : startupRecorder.getSteps(StartupRecorder.CATEGORY_BEAN)) {
+				if(step.isEnded() && this.graph.getBeanNames().contains(step.getName())) {
+					Long creationTime = this.creationTimes.get(step.getName());
+					this.creationTimes.put(step.getName(),
+							(creationTime != null ? creationTime : 0) + getOwnTimeNanos(step));
+				}
+			}
+		}
+
+		// Longest path through the DAG, in topological order: a bean can only be
+		// created once all of its dependencies have been created. Ties (e.g. without
+		// recorded creation times) are broken by the number of beans in the chain.
+		Map<String, Long> finishTimes = new HashMap<String, Long>();
+		Map<String, Integer> chainLengths = new HashMap<String, Integer>();
+		Map<String, String> predecessors = new HashMap<String, String>();
+		String last = null;
+		for(List<String> wave : this.graph.getWaves()) {
+			for(String beanName : wave) {
+				String predecessor = null;
+				for(String dependency : this.graph.getDependencies(beanName)) {
+					if(predecessor == null || isLongerChain(dependency, predecessor, finishTimes, chainLengths)) {
+						predecessor = dependency;
+					}
+				}
+				long startTime = 0;
+				int chainLength = 1;
+				if(predecessor != null) {
+					predecessors.put(beanName, predecessor);
+					startTime = finishTimes.get(predecessor);
+					chainLength += chainLengths.get(predecessor);
+				}
+				finishTimes.put(beanName, startTime + getCreationTimeNanos(beanName));
+				chainLengths.put(beanName, chainLength);
+				if(last == null || isLongerChain(beanName, last, finishTimes, chainLengths)) {
+					last = beanName;
+				}
+			}
+		}
+		List<String> criticalPath = new ArrayList<String>();
+		for(String beanName = last; beanName != null; beanName = predecessors.get(beanName)) {
+			criticalPath.add(0, beanName);
+		}
+		this.criticalPath = Collections.unmodifiableList(criticalPath);
+		this.criticalPathNanos = (last != null ? finishTimes.get(last) : 0);
+	}
+
+	private static boolean isLongerChain(String beanName, String otherBeanName,
+			Map<String, Long> finishTimes, Map<String, Integer> chainLengths) {
+		long finishTime = finishTimes.get(beanName);
+		long otherFinishTime = finishTimes.get(otherBeanName);
+		return (finishTime > otherFinishTime ||
+				(finishTime == otherFinishTime && chainLengths.get(beanName) > chainLengths.get(otherBeanName)));
+	}
+
+	/**
+	 * Return the wall time of the given step minus the wall time of the nested bean steps.
+	 */
+	private static long getOwnTimeNanos(StartupStep step) {
+		long ownTime = step.getWallTimeNanos();
+		for(StartupStep child : step.getChildren()) {
+			if(child.isEnded() && StartupRecorder.CATEGORY_BEAN.equals(child.getCategory())) {
+				ownTime -= child.getWallTimeNanos();
+			}
+		}
+		return Math.max(ownTime, 0);
+	}
+
+
+	/**
+	 * Return the names of all (non-abstract) beans in the report, in registration order.
+	 */
+	public Set<String> getBeanNames() {
+		return this.graph.getBeanNames();
+	}
+
+	/**
+	 * Return the names of the beans that the given bean depends on.
+	 * @param beanName the name of the bean
+	 * @return the names of the dependencies (never <code>null</code>)
+	 */
+	public Set<String> getDependencies(String beanName) {
+		return this.graph.getDependencies(beanName);
+	}
+
+	/**
+	 * Return the total time spent creating the given bean itself, excluding
+	 * the nested creation of its dependencies.
+	 * @param beanName the name of the bean
+	 * @return the creation time in nanoseconds, or 0 if not recorded
+	 */
+	public long getCreationTimeNanos(String beanName) {
+		Long creationTime = this.creationTimes.get(beanName);
+		return (creationTime != null ? creationTime : 0);
+	}
+
+	/**
+	 * Return the critical path: the chain of beans, each depending on the
+	 * previous one, with the highest total creation time.
+	 * @return the bean names, from the first bean to create to the last
+	 */
+	public List<String> getCriticalPath() {
+		return this.criticalPath;
+	}
+
+	/**
+	 * Return the total creation time of the beans on the critical path:
+	 * a lower bound for creating all beans, no matter how concurrently.
+	 */
+	public long getCriticalPathNanos() {
+		return this.criticalPathNanos;
+	}
+
+	/**
+	 * Return the beans that are part of (or depend on) a dependency cycle,
+	 * which are not considered for the critical path.
+	 */
+	public List<String> getCyclicBeans() {
+		return this.graph.getCyclicBeans();
+	}
+
+
+	/**
+	 * Return this report as a GraphViz DOT graph.
+	 * @see #writeDot(Writer)
+	 */
+	public String toDot() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeDot(writer);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unexpected IOException from StringWriter", ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Write this report as a GraphViz DOT graph to the given Writer: one node
+	 * per bean, labeled with its creation time, and one edge from each bean to
+	 * each bean it depends on. Beans and edges on the critical path are drawn
+	 * in red; cyclic beans are drawn dashed.
+	 * @param writer the Writer to write to (not closed afterwards)
+	 * @throws IOException if writing failed
+	 */
+	public void writeDot(Writer writer) throws IOException {
+		Map<String, String> criticalEdges = new LinkedHashMap<String, String>();
+		for(int i = 1; i < this.criticalPath.size(); i++) {
+			criticalEdges.put(this.criticalPath.get(i), this.criticalPath.get(i - 1));
+		}
+		writer.write("digraph beans {\n");
+		writer.write("  node [shape=box];\n");
+		for(String beanName : getBeanNames()) {
+			writer.write("  " + dotId(beanName) + " [label=" +
+					dotId(beanName + "\\n" + formatMillis(getCreationTimeNanos(beanName)) + " ms"));
+			if(this.criticalPath.contains(beanName)) {
+				writer.write(", color=red, penwidth=2");
+			} else if(getCyclicBeans().contains(beanName)) {
+				writer.write(", style=dashed");
+			}
+			writer.write("];\n");
+		}
+		for(String beanName : getBeanNames()) {
+			for(String dependency : getDependencies(beanName)) {
+				writer.write("  " + dotId(beanName) + " -> " + dotId(dependency));
+				if(dependency.equals(criticalEdges.get(beanName))) {
+					writer.write(" [color=red, penwidth=2]");
+				}
+				writer.write(";\n");
+			}
+		}
+		writer.write("}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Return this report as a JSON document.
+	 * @see #writeJson(Writer)
+	 */
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeJson(writer);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unexpected IOException from StringWriter", ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Write this report as a JSON document to the given Writer: an object with
+	 * a <code>"beans"</code> array holding each bean's name, creation time and
+	 * dependencies, a <code>"criticalPath"</code> object holding the beans on
+	 * the critical path and their total creation time, and a
+	 * <code>"cyclicBeans"</code> array.
+	 * @param writer the Writer to write to (not closed afterwards)
+	 * @throws IOException if writing failed
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\"beans\":[");
+		boolean first = true;
+		for(String beanName : getBeanNames()) {
+			if(!first) {
+				writer.write(",");
+			}
+			first = false;
+			writer.write("{\"name\":");
+			writeJsonString(beanName, writer);
+			writer.write(",\"creationTimeNanos\":" + getCreationTimeNanos(beanName));
+			writer.write(",\"dependencies\":");
+			writeJsonStrings(getDependencies(beanName), writer);
+			writer.write("}");
+		}
+		writer.write("],\"criticalPath\":{\"beans\":");
+		writeJsonStrings(this.criticalPath, writer);
+		writer.write(",\"totalTimeNanos\":" + this.criticalPathNanos);
+		writer.write("},\"cyclicBeans\":");
+		writeJsonStrings(getCyclicBeans(), writer);
+		writer.write("}");
+		writer.flush();
+	}
+
+	private static String dotId(String value) {
+		return "\"" + value.replace("\"", "\\\"") + "\"";
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000.0);
+	}
+
+	private static void writeJsonStrings(Iterable<String> values, Writer writer) throws IOException {
+		writer.write("[");
+		boolean first = true;
+		for(String value : values) {
+			if(!first) {
+				writer.write(",");
+			}
+			first = false;
+			writeJsonString(value, writer);
+		}
+		writer.write("]");
+	}
+
+	private static void writeJsonString(String value, Writer writer) throws IOException {
+		writer.write('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"': writer.write("\\\""); break;
+				case '\\': writer.write("\\\\"); break;
+				case '\n': writer.write("\\n"); break;
+				case '\r': writer.write("\\r"); break;
+				case '\t': writer.write("\\t"); break;
+				default:
+					if(c < 0x20) {
+						writer.write(String.format("\\u%04x", (int) c));
+					} else {
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+
+}
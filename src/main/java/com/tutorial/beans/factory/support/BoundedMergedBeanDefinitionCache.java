@@ -0,0 +1,191 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tutorial.util.Assert;
+
+/**
+ * {@link MergedBeanDefinitionCache} that holds at most a given number of
+ * merged bean definitions for non-singleton beans, evicting the least
+ * recently used ones in CLOCK order when full. Merged bean definitions of
+ * singleton beans are always kept, just like with the default cache.
+ *
+ * <p>CLOCK approximates LRU with a single "referenced" bit per entry: lookups
+ * merely set that bit and never take a lock or reorder anything, which keeps
+ * <code>getBean</code> calls free of contention. Only insertions take a lock,
+ * sweeping the clock hand past recently referenced entries (clearing their
+ * bits) until it finds one to replace.
+ *
+ * <p>An evicted merged bean definition is simply merged again on next access,
+ * so its per-definition caches (resolved constructor, creation plan,
+ * post-processing) get rebuilt for the next instance of the bean.
+ *
+ * @see AbstractBeanFactory#setMergedBeanDefinitionCache
+ */
+public class BoundedMergedBeanDefinitionCache implements MergedBeanDefinitionCache {
+
+	private final Map<String, RootBeanDefinition> singletons = new ConcurrentHashMap<String, RootBeanDefinition>(64);
+
+	private final Map<String, ClockEntry> nonSingletons;
+
+	/** The clock: slots holding the non-singleton entries, <code>null</code> if free */
+	private final ClockEntry[] clock;
+
+	private int hand = 0;
+
+	/** Guards modifications of both maps and the clock */
+	private final Object clockLock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Create a new BoundedMergedBeanDefinitionCache.
+	 * @param maxNonSingletons the maximum number of merged bean definitions
+	 * for non-singleton beans to hold
+	 */
+	public BoundedMergedBeanDefinitionCache(int maxNonSingletons) {
+		Assert.isTrue(maxNonSingletons > 0, "'maxNonSingletons' must be 1 or higher");
+		this.nonSingletons = new ConcurrentHashMap<String, ClockEntry>(maxNonSingletons);
+		this.clock = new ClockEntry[maxNonSingletons];
+	}
+
+
+	/**
+	 * Return the maximum number of merged bean definitions for non-singleton beans.
+	 */
+	public int getMaxNonSingletons() {
+		return this.clock.length;
+	}
+
+	public RootBeanDefinition get(String beanName) {
+		RootBeanDefinition mbd = this.singletons.get(beanName);
+		if(mbd == null) {
+			ClockEntry entry = this.nonSingletons.get(beanName);
+			if(entry != null) {
+				entry.referenced = true;
+				mbd = entry.mbd;
+			}
+		}
+		if(mbd != null) {
+			this.hits.increment();
+		} else {
+			this.misses.increment();
+		}
+		return mbd;
+	}
+
+	public RootBeanDefinition peek(String beanName) {
+		RootBeanDefinition mbd = this.singletons.get(beanName);
+		if(mbd == null) {
+			ClockEntry entry = this.nonSingletons.get(beanName);
+			if(entry != null) {
+				mbd = entry.mbd;
+			}
+		}
+		return mbd;
+	}
+
+	public void put(String beanName, RootBeanDefinition mbd) {
+		synchronized(this.clockLock) {
+			if(mbd.isSingleton()) {
+				removeNonSingleton(beanName);
+				this.singletons.put(beanName, mbd);
+				return;
+			}
+			this.singletons.remove(beanName);
+			ClockEntry existing = this.nonSingletons.get(beanName);
+			int slot = (existing != null ? existing.slot : nextFreeSlot());
+			ClockEntry entry = new ClockEntry(beanName, mbd, slot);
+			this.clock[slot] = entry;
+			this.nonSingletons.put(beanName, entry);
+		}
+	}
+
+	public void remove(String beanName) {
+		synchronized(this.clockLock) {
+			this.singletons.remove(beanName);
+			removeNonSingleton(beanName);
+		}
+	}
+
+	public int size() {
+		return this.singletons.size() + this.nonSingletons.size();
+	}
+
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return this.evictions.sum();
+	}
+
+	private void removeNonSingleton(String beanName) {
+		ClockEntry entry = this.nonSingletons.remove(beanName);
+		if(entry != null) {
+			this.clock[entry.slot] = null;
+		}
+	}
+
+	/**
+	 * Advance the clock hand to a free slot, evicting the first entry
+	 * that has not been referenced since the hand last passed it.
+	 */
+	private int nextFreeSlot() {
+		while(true) {
+			int slot = this.hand;
+			this.hand = (slot + 1) % this.clock.length;
+			ClockEntry entry = this.clock[slot];
+			if(entry == null) {
+				return slot;
+			}
+			if(entry.referenced) {
+				entry.referenced = false;
+			} else {
+				this.nonSingletons.remove(entry.beanName);
+				this.clock[slot] = null;
+				this.evictions.increment();
+				return slot;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": size=" + size() + ", hits=" + getHitCount() +
+				", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+	}
+
+
+	/**
+	 * A merged bean definition for a non-singleton bean, along with its slot
+	 * in the clock and its "referenced" bit.
+	 */
+	private static class ClockEntry {
+
+		private final String beanName;
+
+		private final RootBeanDefinition mbd;
+
+		private final int slot;
+
+		private volatile boolean referenced;
+
+		public ClockEntry(String beanName, RootBeanDefinition mbd, int slot) {
+			this.beanName = beanName;
+			this.mbd = mbd;
+			this.slot = slot;
+		}
+	}
+
+}
@@ -0,0 +1,446 @@
+package com.tutorial.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.tutorial.beans.BeanInstantiationException;
+import com.tutorial.beans.BeansException;
+import com.tutorial.beans.factory.BeanFactory;
+import com.tutorial.util.ClassUtils;
+
+/**
+ * Instantiation strategy that generates a small {@link BeanAccessor} class per
+ * bean class, creating bean instances through a direct constructor invocation
+ * instead of <code>Constructor.newInstance</code>. The same accessor is used
+ * for setting property values of prototypes created from a
+ * {@link PrototypeCreationPlan}, through direct setter invocations.
+ *
+ * <p>Accessor classes are generated with ASM and defined in a dedicated
+ * ClassLoader per bean ClassLoader, which keeps them apart from application
+ * classes. Since they live in a different runtime package, only public bean
+ * classes with public constructors and setters can be served; anything else,
+ * as well as arguments that do not match the parameter types as-is, falls back
+ * to reflection. Method Injection is handled as in the superclass.
+ *
+ * <p>Activated through
+ * {@link AbstractAutowireCapableBeanFactory#setInstantiationStrategy}.
+ *
+ * @see BeanAccessor
+ */
+public class BytecodeInstantiationStrategy extends CglibSubclassingInstantiationStrategy {
+
+	private static final Log logger = LogFactory.getLog(BytecodeInstantiationStrategy.class);
+
+	private static final String ACCESSOR_CLASS_SUFFIX = "$$BeanAccessor$$";
+
+	private static final Object[] EMPTY_ARGS = new Object[0];
+
+	/** Marker for bean classes that cannot be served through a generated accessor */
+	private static final Object NO_ACCESSOR = new Object();
+
+	private static final AtomicInteger accessorClassCounter = new AtomicInteger();
+
+	/** Cache of generated accessors, keyed by bean class */
+	private final ConcurrentMap<Class<?>, Object> beanAccessorCache = new ConcurrentHashMap<Class<?>, Object>(64);
+
+	/** Dedicated ClassLoaders for the accessor classes, keyed by parent ClassLoader */
+	private final Map<ClassLoader, AccessorClassLoader> accessorClassLoaders =
+			new HashMap<ClassLoader, AccessorClassLoader>(4);
+
+
+	@Override
+	public Object instantiate(RootBeanDefinition beanDefinition, String beanName, BeanFactory owner)
+			throws BeansException {
+		if(!beanDefinition.hasMethodOverrides()) {
+			AccessorConstructor resolved = beanDefinition.accessorConstructor;
+			if(resolved == null || resolved.constructor != null) {
+				resolved = resolveAccessorConstructor(beanDefinition.getBeanClass(), null);
+				beanDefinition.accessorConstructor = resolved;
+			}
+			if(resolved.constructorIndex >= 0) {
+				if(beanDefinition.constructorResolution == null) {
+					synchronized(beanDefinition.constructorArgumentLock) {
+						if(beanDefinition.constructorResolution == null) {
+							beanDefinition.constructorResolution = new ConstructorResolution(
+									resolved.accessor.getConstructor(resolved.constructorIndex));
+						}
+					}
+				}
+				return newInstance(resolved.accessor, resolved.constructorIndex, EMPTY_ARGS);
+			}
+		}
+		return super.instantiate(beanDefinition, beanName, owner);
+	}
+
+	@Override
+	public Object instantiate(RootBeanDefinition beanDefinition, String beanName, BeanFactory owner,
+			Constructor<?> ctor, Object[] args) throws BeansException {
+		if(!beanDefinition.hasMethodOverrides()) {
+			AccessorConstructor resolved = beanDefinition.accessorConstructor;
+			if(resolved == null || resolved.constructor != ctor) {
+				resolved = resolveAccessorConstructor(ctor.getDeclaringClass(), ctor);
+				beanDefinition.accessorConstructor = resolved;
+			}
+			if(resolved.constructorIndex >= 0 && isAssignable(resolved.parameterTypes, args)) {
+				return newInstance(resolved.accessor, resolved.constructorIndex, (args != null ? args : EMPTY_ARGS));
+			}
+		}
+		return super.instantiate(beanDefinition, beanName, owner, ctor, args);
+	}
+
+	/**
+	 * Return the generated accessor for the given bean class, generating it
+	 * on first access.
+	 * @param beanClass the bean class
+	 * @return the accessor, or <code>null</code> if the given class cannot be
+	 * served through a generated accessor (e.g. because it is not public)
+	 */
+	public BeanAccessor getBeanAccessor(Class<?> beanClass) {
+		Object accessor = this.beanAccessorCache.get(beanClass);
+		if(accessor == null) {
+			accessor = createBeanAccessor(beanClass);
+			if(accessor == null) {
+				accessor = NO_ACCESSOR;
+			}
+			Object existing = this.beanAccessorCache.putIfAbsent(beanClass, accessor);
+			if(existing != null) {
+				accessor = existing;
+			}
+		}
+		return (accessor != NO_ACCESSOR ? (BeanAccessor) accessor : null);
+	}
+
+	/**
+	 * Look up the accessor for the given bean class and the index of the given
+	 * constructor in it, for caching in the bean definition.
+	 * @param beanClass the bean class
+	 * @param ctor the constructor, or <code>null</code> for the default constructor
+	 */
+	private AccessorConstructor resolveAccessorConstructor(Class<?> beanClass, Constructor<?> ctor) {
+		BeanAccessor accessor = getBeanAccessor(beanClass);
+		if(accessor == null) {
+			return new AccessorConstructor(null, ctor, -1, null);
+		}
+		Constructor<?> target = (ctor != null ? ctor : ClassUtils.getConstructorIfAvailable(beanClass));
+		int constructorIndex = (target != null ? accessor.getConstructorIndex(target) : -1);
+		return new AccessorConstructor(accessor, ctor, constructorIndex,
+				(constructorIndex >= 0 ? target.getParameterTypes() : null));
+	}
+
+	private Object newInstance(BeanAccessor accessor, int constructorIndex, Object[] args) {
+		try {
+			return accessor.newInstance(constructorIndex, args);
+		} catch (Throwable ex) {
+			throw new BeanInstantiationException(accessor.getBeanClass(), "Constructor threw exception", ex);
+		}
+	}
+
+	private boolean isAssignable(Class<?>[] paramTypes, Object[] args) {
+		int argCount = (args != null ? args.length : 0);
+		if(paramTypes.length != argCount) {
+			return false;
+		}
+		for(int i = 0; i < argCount; i++) {
+			if(!ClassUtils.isAssignableValue(paramTypes[i], args[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Generate and instantiate the accessor class for the given bean class.
+	 * @return the accessor, or <code>null</code> if not applicable
+	 */
+	private BeanAccessor createBeanAccessor(Class<?> beanClass) {
+		if(!Modifier.isPublic(beanClass.getModifiers()) || beanClass.isInterface() || beanClass.isArray() ||
+				beanClass.isPrimitive()) {
+			return null;
+		}
+		ClassLoader parent = determineParentClassLoader(beanClass);
+		if(parent == null) {
+			return null;
+		}
+
+		List<Constructor<?>> constructors = new ArrayList<Constructor<?>>();
+		if(!Modifier.isAbstract(beanClass.getModifiers())) {
+			for(Constructor<?> ctor : beanClass.getConstructors()) {
+				if(isAccessible(ctor.getParameterTypes(), parent)) {
+					constructors.add(ctor);
+				}
+			}
+		}
+		List<Method> writeMethods = new ArrayList<Method>();
+		for(Method method : beanClass.getMethods()) {
+			if(method.getName().startsWith("set") && method.getParameterTypes().length == 1 &&
+					!Modifier.isStatic(method.getModifiers()) && isAccessible(method.getParameterTypes(), parent)) {
+				writeMethods.add(method);
+			}
+		}
+		if(constructors.isEmpty() && writeMethods.isEmpty()) {
+			return null;
+		}
+
+		String accessorClassName = beanClass.getName() + ACCESSOR_CLASS_SUFFIX + accessorClassCounter.incrementAndGet();
+		if(accessorClassName.startsWith("java.")) {
+			accessorClassName = BeanAccessor.class.getPackage().getName() + "." + accessorClassName;
+		}
+		Constructor<?>[] ctorArray = constructors.toArray(new Constructor<?>[constructors.size()]);
+		Method[] methodArray = writeMethods.toArray(new Method[writeMethods.size()]);
+		try {
+			byte[] bytecode = generateAccessorClass(accessorClassName, beanClass, ctorArray, methodArray);
+			Class<?> accessorClass = getAccessorClassLoader(parent).defineClass(accessorClassName, bytecode);
+			BeanAccessor accessor = (BeanAccessor) accessorClass.getDeclaredConstructor().newInstance();
+			accessor.initialize(beanClass, ctorArray, methodArray);
+			if(logger.isDebugEnabled()) {
+				logger.debug("Generated bean accessor for [" + beanClass.getName() + "] with " + ctorArray.length +
+						" constructors and " + methodArray.length + " setter methods");
+			}
+			return accessor;
+		} catch (InvocationTargetException ex) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Generated bean accessor for [" + beanClass.getName() +
+						"] could not be instantiated - falling back to reflection", ex.getTargetException());
+			}
+			return null;
+		} catch (Throwable ex) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Could not generate bean accessor for [" + beanClass.getName() +
+						"] - falling back to reflection", ex);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Determine a ClassLoader that sees both the given bean class and the
+	 * {@link BeanAccessor} base class, or <code>null</code> if none.
+	 */
+	private ClassLoader determineParentClassLoader(Class<?> beanClass) {
+		ClassLoader beanClassLoader = beanClass.getClassLoader();
+		if(beanClassLoader != null && ClassUtils.isVisible(BeanAccessor.class, beanClassLoader)) {
+			return beanClassLoader;
+		}
+		ClassLoader accessorClassLoader = BeanAccessor.class.getClassLoader();
+		if(accessorClassLoader != null && ClassUtils.isVisible(beanClass, accessorClassLoader)) {
+			return accessorClassLoader;
+		}
+		return null;
+	}
+
+	/**
+	 * Check whether the given parameter types can be referenced from
+	 * a class defined in a child of the given ClassLoader.
+	 */
+	private boolean isAccessible(Class<?>[] paramTypes, ClassLoader classLoader) {
+		for(Class<?> paramType : paramTypes) {
+			Class<?> type = paramType;
+			while(type.isArray()) {
+				type = type.getComponentType();
+			}
+			if(!type.isPrimitive() && (!Modifier.isPublic(type.getModifiers()) || !ClassUtils.isVisible(type, classLoader))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private AccessorClassLoader getAccessorClassLoader(ClassLoader parent) {
+		synchronized(this.accessorClassLoaders) {
+			AccessorClassLoader classLoader = this.accessorClassLoaders.get(parent);
+			if(classLoader == null) {
+				classLoader = new AccessorClassLoader(parent);
+				this.accessorClassLoaders.put(parent, classLoader);
+			}
+			return classLoader;
+		}
+	}
+
+	/**
+	 * Generate the bytecode of an accessor class: a {@link BeanAccessor} subclass
+	 * with a <code>tableswitch</code> over the given constructors and setter methods.
+	 */
+	private static byte[] generateAccessorClass(String className, Class<?> beanClass,
+			Constructor<?>[] constructors, Method[] writeMethods) {
+		String internalName = className.replace('.', '/');
+		String superName = Type.getInternalName(BeanAccessor.class);
+		String beanName = Type.getInternalName(beanClass);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC,
+				internalName, null, superName, null);
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V");
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// protected Object doNewInstance(int constructorIndex, Object[] args)
+		mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "doNewInstance",
+				"(I[Ljava/lang/Object;)Ljava/lang/Object;", null, new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		Label[] labels = visitSwitch(mv, constructors.length);
+		for(int i = 0; i < constructors.length; i++) {
+			mv.visitLabel(labels[i]);
+			mv.visitTypeInsn(Opcodes.NEW, beanName);
+			mv.visitInsn(Opcodes.DUP);
+			Class<?>[] paramTypes = constructors[i].getParameterTypes();
+			for(int j = 0; j < paramTypes.length; j++) {
+				mv.visitVarInsn(Opcodes.ALOAD, 2);
+				visitIntConstant(mv, j);
+				mv.visitInsn(Opcodes.AALOAD);
+				visitUnboxOrCast(mv, paramTypes[j]);
+			}
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, beanName, "<init>",
+					Type.getConstructorDescriptor(constructors[i]));
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		visitInvalidIndex(mv, labels[constructors.length]);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// protected void doSetPropertyValue(int writeMethodIndex, Object bean, Object value)
+		mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "doSetPropertyValue",
+				"(ILjava/lang/Object;Ljava/lang/Object;)V", null, new String[] {"java/lang/Throwable"});
+		mv.visitCode();
+		labels = visitSwitch(mv, writeMethods.length);
+		for(int i = 0; i < writeMethods.length; i++) {
+			Method writeMethod = writeMethods[i];
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			mv.visitTypeInsn(Opcodes.CHECKCAST, beanName);
+			mv.visitVarInsn(Opcodes.ALOAD, 3);
+			visitUnboxOrCast(mv, writeMethod.getParameterTypes()[0]);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, beanName, writeMethod.getName(),
+					Type.getMethodDescriptor(writeMethod));
+			Class<?> returnType = writeMethod.getReturnType();
+			if(returnType == long.class || returnType == double.class) {
+				mv.visitInsn(Opcodes.POP2);
+			} else if(returnType != void.class) {
+				mv.visitInsn(Opcodes.POP);
+			}
+			mv.visitInsn(Opcodes.RETURN);
+		}
+		visitInvalidIndex(mv, labels[writeMethods.length]);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Emit a <code>tableswitch</code> on the index in local variable 1.
+	 * @return the case labels, followed by the default label
+	 */
+	private static Label[] visitSwitch(MethodVisitor mv, int count) {
+		Label[] labels = new Label[count + 1];
+		for(int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+		if(count > 0) {
+			Label[] caseLabels = new Label[count];
+			System.arraycopy(labels, 0, caseLabels, 0, count);
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitTableSwitchInsn(0, count - 1, labels[count], caseLabels);
+		}
+		return labels;
+	}
+
+	private static void visitInvalidIndex(MethodVisitor mv, Label label) {
+		mv.visitLabel(label);
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitLdcInsn("Invalid index");
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+				"(Ljava/lang/String;)V");
+		mv.visitInsn(Opcodes.ATHROW);
+	}
+
+	private static void visitIntConstant(MethodVisitor mv, int value) {
+		if(value <= 5) {
+			mv.visitInsn(Opcodes.ICONST_0 + value);
+		} else if(value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.BIPUSH, value);
+		} else {
+			mv.visitIntInsn(Opcodes.SIPUSH, value);
+		}
+	}
+
+	/**
+	 * Cast the Object on top of the stack to the given type,
+	 * unboxing it in case of a primitive type.
+	 */
+	private static void visitUnboxOrCast(MethodVisitor mv, Class<?> type) {
+		if(type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			String wrapperName = Type.getInternalName(wrapperType);
+			mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperName);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperName, type.getName() + "Value",
+					"()" + Type.getDescriptor(type));
+		} else if(type != Object.class) {
+			mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader dedicated to defining generated accessor classes.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+
+		public AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineClass(String name, byte[] bytecode) {
+			return defineClass(name, bytecode, 0, bytecode.length);
+		}
+	}
+
+
+	/**
+	 * Generated accessor and constructor index resolved for a bean definition,
+	 * cached in {@link RootBeanDefinition#accessorConstructor} so that instantiation
+	 * does not look up the constructor again for every instance.
+	 */
+	static final class AccessorConstructor {
+
+		final BeanAccessor accessor;
+
+		/** The explicitly given constructor, or <code>null</code> for the default constructor */
+		final Constructor<?> constructor;
+
+		final int constructorIndex;
+
+		final Class<?>[] parameterTypes;
+
+		AccessorConstructor(BeanAccessor accessor, Constructor<?> constructor, int constructorIndex,
+				Class<?>[] parameterTypes) {
+			this.accessor = accessor;
+			this.constructor = constructor;
+			this.constructorIndex = constructorIndex;
+			this.parameterTypes = parameterTypes;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.tutorial.beans.factory.support;
+
+/**
+ * Immutable snapshot of a resolved constructor or factory method, together
+ * with its cached arguments, as stored in {@link RootBeanDefinition}.
+ *
+ * <p>Published as a whole through a volatile field, so that the constructor
+ * and its arguments can be read consistently without holding the bean
+ * definition's lock. Updates create a new snapshot.
+ *
+ * @see RootBeanDefinition#constructorResolution
+ * @see ConstructorResolver
+ */
+final class ConstructorResolution {
+
+	private final Object constructorOrFactoryMethod;
+
+	private final boolean argumentsResolved;
+
+	private final Object[] resolvedArguments;
+
+	private final Object[] preparedArguments;
+
+	/**
+	 * Create a snapshot for a resolved constructor or factory method
+	 * without any cached arguments.
+	 * @param constructorOrFactoryMethod the resolved constructor or factory method
+	 */
+	public ConstructorResolution(Object constructorOrFactoryMethod) {
+		this(constructorOrFactoryMethod, false, null, null);
+	}
+
+	/**
+	 * Create a snapshot for a resolved constructor or factory method
+	 * with cached arguments.
+	 * @param constructorOrFactoryMethod the resolved constructor or factory method
+	 * @param argumentsResolved whether the arguments have been resolved
+	 * @param resolvedArguments the fully resolved arguments, if any
+	 * @param preparedArguments the partly prepared arguments, if any
+	 * (to be resolved for every instance)
+	 */
+	public ConstructorResolution(Object constructorOrFactoryMethod, boolean argumentsResolved,
+			Object[] resolvedArguments, Object[] preparedArguments) {
+		this.constructorOrFactoryMethod = constructorOrFactoryMethod;
+		this.argumentsResolved = argumentsResolved;
+		this.resolvedArguments = resolvedArguments;
+		this.preparedArguments = preparedArguments;
+	}
+
+	/**
+	 * Return the resolved constructor or factory method, if any.
+	 */
+	public Object getConstructorOrFactoryMethod() {
+		return this.constructorOrFactoryMethod;
+	}
+
+	/**
+	 * Return whether the arguments have been resolved, either fully
+	 * or as prepared arguments.
+	 */
+	public boolean isArgumentsResolved() {
+		return this.argumentsResolved;
+	}
+
+	/**
+	 * Return the fully resolved arguments, if any.
+	 */
+	public Object[] getResolvedArguments() {
+		return this.resolvedArguments;
+	}
+
+	/**
+	 * Return the partly prepared arguments, if any.
+	 */
+	public Object[] getPreparedArguments() {
+		return this.preparedArguments;
+	}
+
+	/**
+	 * Return a copy of this snapshot with the given constructor or factory method.
+	 */
+	public ConstructorResolution withConstructorOrFactoryMethod(Object constructorOrFactoryMethod) {
+		return new ConstructorResolution(constructorOrFactoryMethod, this.argumentsResolved,
+				this.resolvedArguments, this.preparedArguments);
+	}
+
+}
@@ -98,13 +98,14 @@ class ConstructorResolver {
 			argsToUse = explicitArgs;
 		} else {
 			Object[] argsToResolve = null;
-			synchronized(mbd.constructorArgumentLock) {
-				constructorToUse = (Constructor<?>) mbd.resolvedConstructorOrFactoryMethod;
-				if(constructorToUse != null && mbd.constructorArgumentsResolved) {
+			ConstructorResolution resolution = mbd.constructorResolution;
+			if(resolution != null) {
+				constructorToUse = (Constructor<?>) resolution.getConstructorOrFactoryMethod();
+				if(constructorToUse != null && resolution.isArgumentsResolved()) {
 					// Found a cached constructor...
-					argsToUse = mbd.resolvedConstructorArgument;
+					argsToUse = resolution.getResolvedArguments();
 					if(argsToUse == null) {
-						argsToResolve = mbd.preparedConstructorArguments;
+						argsToResolve = resolution.getPreparedArguments();
 					}
 				}
 			}
@@ -288,7 +289,9 @@ class ConstructorResolver {
 		}
 		
 		synchronized(mbd.constructorArgumentLock) {
-			mbd.resolvedConstructorOrFactoryMethod = uniqueCandidate;
+			ConstructorResolution resolution = mbd.constructorResolution;
+			mbd.constructorResolution = (resolution != null ?
+					resolution.withConstructorOrFactoryMethod(uniqueCandidate) : new ConstructorResolution(uniqueCandidate));
 		}
 	}
 	
@@ -401,13 +404,14 @@ class ConstructorResolver {
 			argsToUse = explicitArgs;
 		} else {
 			Object[] argsToResolve = null;
-			synchronized(mbd.constructorArgumentLock) {
-				factoryMethodToUse = (Method) mbd.resolvedConstructorOrFactoryMethod;
-				if(factoryMethodToUse != null && mbd.constructorArgumentsResolved) {
+			ConstructorResolution resolution = mbd.constructorResolution;
+			if(resolution != null) {
+				factoryMethodToUse = (Method) resolution.getConstructorOrFactoryMethod();
+				if(factoryMethodToUse != null && resolution.isArgumentsResolved()) {
 					// Found a cached factory method...
-					argsToUse = mbd.resolvedConstructorArgument;
+					argsToUse = resolution.getResolvedArguments();
 					if(argsToUse == null) {
-						argsToResolve = mbd.preparedConstructorArguments;
+						argsToResolve = resolution.getPreparedArguments();
 					}
 				}
 			}
@@ -782,12 +786,12 @@ class ConstructorResolver {
 		
 		public void storeCache(RootBeanDefinition mbd, Object constructorOrFactoryMethod) {
 			synchronized(mbd.constructorArgumentLock) {
-				mbd.resolvedConstructorOrFactoryMethod = constructorOrFactoryMethod;
-				mbd.constructorArgumentsResolved = true;
 				if(this.resolveNecessary) {
-					mbd.preparedConstructorArguments = this.preparedArguments;
+					mbd.constructorResolution = 
+							new ConstructorResolution(constructorOrFactoryMethod, true, null, this.preparedArguments);
 				} else {
-					mbd.resolvedConstructorArgument = this.arguments;
+					mbd.constructorResolution = 
+							new ConstructorResolution(constructorOrFactoryMethod, true, this.arguments, null);
 				}
 			}
 		}
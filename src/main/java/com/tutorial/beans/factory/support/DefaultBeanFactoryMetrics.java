@@ -0,0 +1,257 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.tutorial.beans.factory.config.BeanFactoryMetrics;
+
+/**
+ * Default {@link BeanFactoryMetrics} implementation, keeping request,
+ * singleton cache hit, creation and destruction counts plus creation and
+ * destruction latency histograms per bean name.
+ *
+ * <p>Counters are {@link LongAdder LongAdders} and histograms are
+ * fixed-bucket {@link LatencyHistogram LatencyHistograms}, so recording
+ * never blocks concurrent <code>getBean</code> calls. Histograms are only
+ * allocated for beans that actually get created or destroyed.
+ *
+ * <p>Typical use for finding the most expensive prototypes:
+ *
+ * <pre class="code">
+ * DefaultBeanFactoryMetrics metrics = new DefaultBeanFactoryMetrics();
+ * beanFactory.setBeanFactoryMetrics(metrics);
+ * ...
+ * for (DefaultBeanFactoryMetrics.BeanMetrics bm : metrics.getMostExpensiveBeans(10)) {
+ *     System.out.println(bm);
+ * }</pre>
+ */
+public class DefaultBeanFactoryMetrics implements BeanFactoryMetrics {
+
+	private final ConcurrentHashMap<String, BeanMetrics> beanMetrics = new ConcurrentHashMap<String, BeanMetrics>(64);
+
+	public void beanRequested(String beanName, boolean singletonCacheHit) {
+		BeanMetrics bm = obtainBeanMetrics(beanName);
+		bm.requests.increment();
+		if(singletonCacheHit) {
+			bm.singletonCacheHits.increment();
+		}
+	}
+
+	public void beanCreated(String beanName, String scope, long durationNanos) {
+		BeanMetrics bm = obtainBeanMetrics(beanName);
+		bm.scope = scope;
+		bm.obtainCreationTimes().record(durationNanos);
+	}
+
+	public void beanDestroyed(String beanName, long durationNanos) {
+		obtainBeanMetrics(beanName).obtainDestructionTimes().record(durationNanos);
+	}
+
+	private BeanMetrics obtainBeanMetrics(String beanName) {
+		BeanMetrics bm = this.beanMetrics.get(beanName);
+		if(bm == null) {
+			BeanMetrics newBm = new BeanMetrics(beanName);
+			bm = this.beanMetrics.putIfAbsent(beanName, newBm);
+			if(bm == null) {
+				bm = newBm;
+			}
+		}
+		return bm;
+	}
+
+
+	/**
+	 * Return the metrics for the given bean name.
+	 * @param beanName the name of the bean
+	 * @return the metrics, or <code>null</code> if nothing has been recorded for that bean
+	 */
+	public BeanMetrics getBeanMetrics(String beanName) {
+		return this.beanMetrics.get(beanName);
+	}
+
+	/**
+	 * Return a snapshot of the metrics for all beans, keyed by bean name.
+	 */
+	public Map<String, BeanMetrics> getAllBeanMetrics() {
+		return Collections.unmodifiableMap(new LinkedHashMap<String, BeanMetrics>(this.beanMetrics));
+	}
+
+	/**
+	 * Return the beans with the highest total creation time, i.e. the beans
+	 * that cost the most in creation overall (typically prototypes).
+	 * @param maxBeans the maximum number of beans to return
+	 */
+	public List<BeanMetrics> getMostExpensiveBeans(int maxBeans) {
+		List<BeanMetrics> result = new ArrayList<BeanMetrics>();
+		for(BeanMetrics bm : this.beanMetrics.values()) {
+			if(bm.getCreationCount() > 0) {
+				result.add(bm);
+			}
+		}
+		Collections.sort(result, new Comparator<BeanMetrics>() {
+			public int compare(BeanMetrics o1, BeanMetrics o2) {
+				long t1 = o1.getCreationTimes().getTotalNanos();
+				long t2 = o2.getCreationTimes().getTotalNanos();
+				return (t1 > t2 ? -1 : (t1 < t2 ? 1 : 0));
+			}
+		});
+		return (result.size() > maxBeans ? result.subList(0, maxBeans) : result);
+	}
+
+	/**
+	 * Return the total number of bean requests across all beans.
+	 */
+	public long getRequestCount() {
+		long count = 0;
+		for(BeanMetrics bm : this.beanMetrics.values()) {
+			count += bm.getRequestCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Return the ratio of requests served from the singleton cache across all
+	 * beans, between 0 and 1 (or 0 if there have not been any requests).
+	 */
+	public double getSingletonCacheHitRatio() {
+		long requests = 0;
+		long hits = 0;
+		for(BeanMetrics bm : this.beanMetrics.values()) {
+			requests += bm.getRequestCount();
+			hits += bm.getSingletonCacheHitCount();
+		}
+		return (requests > 0 ? (double) hits / requests : 0);
+	}
+
+	/**
+	 * Discard all recorded metrics.
+	 */
+	public void reset() {
+		this.beanMetrics.clear();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + this.beanMetrics.size() + " beans, " +
+				getRequestCount() + " requests";
+	}
+
+
+	/**
+	 * Metrics recorded for a single bean name.
+	 */
+	public static class BeanMetrics {
+
+		private final String beanName;
+
+		private volatile String scope;
+
+		private final LongAdder requests = new LongAdder();
+
+		private final LongAdder singletonCacheHits = new LongAdder();
+
+		private volatile LatencyHistogram creationTimes;
+
+		private volatile LatencyHistogram destructionTimes;
+
+		BeanMetrics(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public String getBeanName() {
+			return this.beanName;
+		}
+
+		/**
+		 * Return the scope the bean has last been created in,
+		 * or <code>null</code> if it has not been created yet.
+		 */
+		public String getScope() {
+			return this.scope;
+		}
+
+		public long getRequestCount() {
+			return this.requests.sum();
+		}
+
+		public long getSingletonCacheHitCount() {
+			return this.singletonCacheHits.sum();
+		}
+
+		public long getCreationCount() {
+			LatencyHistogram histogram = this.creationTimes;
+			return (histogram != null ? histogram.getCount() : 0);
+		}
+
+		public long getDestructionCount() {
+			LatencyHistogram histogram = this.destructionTimes;
+			return (histogram != null ? histogram.getCount() : 0);
+		}
+
+		/**
+		 * Return the histogram of creation times (never <code>null</code>).
+		 */
+		public LatencyHistogram getCreationTimes() {
+			return obtainCreationTimes();
+		}
+
+		/**
+		 * Return the histogram of destruction times (never <code>null</code>).
+		 */
+		public LatencyHistogram getDestructionTimes() {
+			return obtainDestructionTimes();
+		}
+
+		LatencyHistogram obtainCreationTimes() {
+			LatencyHistogram histogram = this.creationTimes;
+			if(histogram == null) {
+				synchronized(this) {
+					histogram = this.creationTimes;
+					if(histogram == null) {
+						histogram = new LatencyHistogram();
+						this.creationTimes = histogram;
+					}
+				}
+			}
+			return histogram;
+		}
+
+		LatencyHistogram obtainDestructionTimes() {
+			LatencyHistogram histogram = this.destructionTimes;
+			if(histogram == null) {
+				synchronized(this) {
+					histogram = this.destructionTimes;
+					if(histogram == null) {
+						histogram = new LatencyHistogram();
+						this.destructionTimes = histogram;
+					}
+				}
+			}
+			return histogram;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("Bean '").append(this.beanName).append("'");
+			if(this.scope != null) {
+				sb.append(" (").append(this.scope).append(")");
+			}
+			sb.append(": requests=").append(getRequestCount());
+			sb.append(", singletonCacheHits=").append(getSingletonCacheHitCount());
+			if(this.creationTimes != null) {
+				sb.append(", creation [").append(this.creationTimes).append("]");
+			}
+			if(this.destructionTimes != null) {
+				sb.append(", destruction [").append(this.destructionTimes).append("]");
+			}
+			return sb.toString();
+		}
+	}
+
+}
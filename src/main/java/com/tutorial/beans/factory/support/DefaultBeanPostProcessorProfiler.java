@@ -0,0 +1,173 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.tutorial.beans.factory.config.BeanPostProcessor;
+import com.tutorial.beans.factory.config.BeanPostProcessorProfiler;
+
+/**
+ * Default {@link BeanPostProcessorProfiler} implementation, keeping an
+ * invocation count and a latency histogram per (post-processor, callback)
+ * pair.
+ *
+ * <p>Histograms are fixed-bucket {@link LatencyHistogram LatencyHistograms},
+ * so recording never blocks concurrent bean creation.
+ *
+ * <p>Typical use for finding a slow post-processor:
+ *
+ * <pre class="code">
+ * DefaultBeanPostProcessorProfiler profiler = new DefaultBeanPostProcessorProfiler();
+ * beanFactory.setBeanPostProcessorProfiler(profiler);
+ * ...
+ * for (DefaultBeanPostProcessorProfiler.CallbackProfile profile : profiler.getMostExpensiveCallbacks(5)) {
+ *     System.out.println(profile);
+ * }</pre>
+ */
+public class DefaultBeanPostProcessorProfiler implements BeanPostProcessorProfiler {
+
+	private final ConcurrentHashMap<BeanPostProcessor, ConcurrentHashMap<String, CallbackProfile>> profiles =
+			new ConcurrentHashMap<BeanPostProcessor, ConcurrentHashMap<String, CallbackProfile>>(16);
+
+	public void callbackInvoked(BeanPostProcessor beanPostProcessor, String callback, String beanName, long durationNanos) {
+		obtainCallbackProfile(beanPostProcessor, callback).invocationTimes.record(durationNanos);
+	}
+
+	private CallbackProfile obtainCallbackProfile(BeanPostProcessor beanPostProcessor, String callback) {
+		ConcurrentHashMap<String, CallbackProfile> callbackProfiles = this.profiles.get(beanPostProcessor);
+		if(callbackProfiles == null) {
+			ConcurrentHashMap<String, CallbackProfile> newCallbackProfiles = new ConcurrentHashMap<String, CallbackProfile>(8);
+			callbackProfiles = this.profiles.putIfAbsent(beanPostProcessor, newCallbackProfiles);
+			if(callbackProfiles == null) {
+				callbackProfiles = newCallbackProfiles;
+			}
+		}
+		CallbackProfile profile = callbackProfiles.get(callback);
+		if(profile == null) {
+			CallbackProfile newProfile = new CallbackProfile(beanPostProcessor, callback);
+			profile = callbackProfiles.putIfAbsent(callback, newProfile);
+			if(profile == null) {
+				profile = newProfile;
+			}
+		}
+		return profile;
+	}
+
+
+	/**
+	 * Return the profile for the given post-processor and callback.
+	 * @param beanPostProcessor the post-processor
+	 * @param callback the callback, e.g. {@link #BEFORE_INITIALIZATION}
+	 * @return the profile, or <code>null</code> if that callback has not been invoked
+	 */
+	public CallbackProfile getCallbackProfile(BeanPostProcessor beanPostProcessor, String callback) {
+		ConcurrentHashMap<String, CallbackProfile> callbackProfiles = this.profiles.get(beanPostProcessor);
+		return (callbackProfiles != null ? callbackProfiles.get(callback) : null);
+	}
+
+	/**
+	 * Return the profiles of all invoked (post-processor, callback) pairs.
+	 */
+	public List<CallbackProfile> getCallbackProfiles() {
+		List<CallbackProfile> result = new ArrayList<CallbackProfile>();
+		for(ConcurrentHashMap<String, CallbackProfile> callbackProfiles : this.profiles.values()) {
+			result.addAll(callbackProfiles.values());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the (post-processor, callback) pairs with the highest total time.
+	 * @param maxCallbacks the maximum number of pairs to return
+	 */
+	public List<CallbackProfile> getMostExpensiveCallbacks(int maxCallbacks) {
+		List<CallbackProfile> result = getCallbackProfiles();
+		Collections.sort(result, new Comparator<CallbackProfile>() {
+			public int compare(CallbackProfile o1, CallbackProfile o2) {
+				long t1 = o1.getTotalNanos();
+				long t2 = o2.getTotalNanos();
+				return (t1 > t2 ? -1 : (t1 < t2 ? 1 : 0));
+			}
+		});
+		return (result.size() > maxCallbacks ? result.subList(0, maxCallbacks) : result);
+	}
+
+	/**
+	 * Return the total time spent in the given post-processor's callbacks.
+	 * @param beanPostProcessor the post-processor
+	 */
+	public long getTotalNanos(BeanPostProcessor beanPostProcessor) {
+		long total = 0;
+		ConcurrentHashMap<String, CallbackProfile> callbackProfiles = this.profiles.get(beanPostProcessor);
+		if(callbackProfiles != null) {
+			for(CallbackProfile profile : callbackProfiles.values()) {
+				total += profile.getTotalNanos();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Discard all recorded profiles.
+	 */
+	public void reset() {
+		this.profiles.clear();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + this.profiles.size() + " post-processors, " +
+				getCallbackProfiles().size() + " callbacks";
+	}
+
+
+	/**
+	 * Profile recorded for a single callback of a single post-processor.
+	 */
+	public static class CallbackProfile {
+
+		private final BeanPostProcessor beanPostProcessor;
+
+		private final String callback;
+
+		private final LatencyHistogram invocationTimes = new LatencyHistogram();
+
+		CallbackProfile(BeanPostProcessor beanPostProcessor, String callback) {
+			this.beanPostProcessor = beanPostProcessor;
+			this.callback = callback;
+		}
+
+		public BeanPostProcessor getBeanPostProcessor() {
+			return this.beanPostProcessor;
+		}
+
+		public String getCallback() {
+			return this.callback;
+		}
+
+		public long getInvocationCount() {
+			return this.invocationTimes.getCount();
+		}
+
+		public long getTotalNanos() {
+			return this.invocationTimes.getTotalNanos();
+		}
+
+		/**
+		 * Return the histogram of invocation times (never <code>null</code>).
+		 */
+		public LatencyHistogram getInvocationTimes() {
+			return this.invocationTimes;
+		}
+
+		@Override
+		public String toString() {
+			return this.beanPostProcessor.getClass().getName() + "." + this.callback +
+					": [" + this.invocationTimes + "]";
+		}
+	}
+
+}
@@ -12,20 +12,34 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.inject.Provider;
 
 import com.tutorial.beans.BeansException;
+import com.tutorial.beans.PropertyValue;
 import com.tutorial.beans.FatalBeanException;
 import com.tutorial.beans.TypeConverter;
 import com.tutorial.beans.factory.BeanCreationException;
@@ -43,9 +57,12 @@ import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.beans.factory.config.BeanDefinitionHolder;
 import com.tutorial.beans.factory.config.ConfigurableBeanFactory;
 import com.tutorial.beans.factory.config.ConfigurableListableBeanFactory;
+import com.tutorial.beans.factory.config.ConstructorArgumentValues;
 import com.tutorial.beans.factory.config.DependencyDescriptor;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
 import com.tutorial.core.annotation.AnnotationUtils;
 import com.tutorial.util.Assert;
+import com.tutorial.util.ClassUtils;
 import com.tutorial.util.ObjectUtils;
 import com.tutorial.util.StringUtils;
 
@@ -119,12 +136,27 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of bean definition objects, keyed by bean name */
 	private final Map<String, BeanDefinition> beanDefinitionMap = new ConcurrentHashMap<String, BeanDefinition>();
 	
+	/** Map of singleton and non-singleton bean names keyed by dependency type */
+	private final Map<Class<?>, String[]> allBeanNamesByType = new ConcurrentHashMap<Class<?>, String[]>(64);
+	
+	/** Map of singleton-only bean names keyed by dependency type */
+	private final Map<Class<?>, String[]> singletonBeanNamesByType = new ConcurrentHashMap<Class<?>, String[]>(64);
+	
 	/** Cached array of bean definition names in case of frozen configuration */
 	private String[] frozenBeanDefinitionNames;
 	
 	/** Whether bean definition metadata may be cached for all beans  */
 	private boolean configurationFrozen = false;
 	
+	/** Number of threads used for pre-instantiating singletons, 1 meaning serial bootstrap */
+	private int preInstantiationParallelism = 1;
+	
+	/** Whether to compact bean definitions when registering them */
+	private boolean compactBeanDefinitions = false;
+	
+	/** Whether to inject List and Map dependencies as views that create the beans on first access */
+	private boolean lazyCollectionInjection = false;
+	
 	/**
 	 * Create a new DefaultListableBeanFactory.
 	 */
@@ -178,6 +210,72 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.allowEagerClassLoading = allowEagerClassLoading;
 	}
 
+	/**
+	 * Set the number of threads to pre-instantiate non-lazy singletons with.
+	 * <p>Default is 1, creating all singletons one after the other on the calling
+	 * thread. A higher value enables parallel bootstrap: the singletons are split
+	 * into waves according to their declared dependencies ("depends-on", factory
+	 * bean, constructor argument and property references), and the singletons of
+	 * each wave are created concurrently on a dedicated {@link ForkJoinPool}.
+	 * Beans that are part of a reference cycle are created serially afterwards,
+	 * keeping the regular resolution of circular references.
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+		Assert.isTrue(preInstantiationParallelism > 0, "'preInstantiationParallelism' must be 1 or higher");
+		this.preInstantiationParallelism = preInstantiationParallelism;
+	}
+	
+	/**
+	 * Return the number of threads to pre-instantiate non-lazy singletons with.
+	 */
+	public int getPreInstantiationParallelism() {
+		return this.preInstantiationParallelism;
+	}
+	
+	/**
+	 * Set whether to reduce the memory footprint of bean definitions when they
+	 * get registered, releasing empty sub-structures and interning class names,
+	 * scopes and property names. Recommended for very large registries.
+	 * <p>Default is "false". Note that bean definitions must not be modified
+	 * after registration when this is turned on.
+	 * @see AbstractBeanDefinition#compact()
+	 */
+	public void setCompactBeanDefinitions(boolean compactBeanDefinitions) {
+		this.compactBeanDefinitions = compactBeanDefinitions;
+	}
+	
+	/**
+	 * Return whether bean definitions get compacted when registered.
+	 */
+	public boolean isCompactBeanDefinitions() {
+		return this.compactBeanDefinitions;
+	}
+	
+	/**
+	 * Set whether to inject autowired <code>List</code>, <code>Collection</code>
+	 * and <code>Map</code> dependencies as lazy views. Such a view is backed by
+	 * the names of the matching beans only; each bean gets obtained through
+	 * {@link #getBean(String)} on first access of its element or entry, and is
+	 * kept by the view from then on.
+	 * <p>Default is "false", obtaining all matching beans right away. Turn this
+	 * flag on for large plugin-style collections of which only a few elements
+	 * are used, or to avoid creating lazy-init beans merely for injecting them.
+	 * Other collection types (e.g. <code>Set</code>) and arrays are always
+	 * resolved eagerly. Note that the views are unmodifiable.
+	 * @see #resolveDependency
+	 */
+	public void setLazyCollectionInjection(boolean lazyCollectionInjection) {
+		this.lazyCollectionInjection = lazyCollectionInjection;
+	}
+	
+	/**
+	 * Return whether List and Map dependencies get injected as lazy views.
+	 */
+	public boolean isLazyCollectionInjection() {
+		return this.lazyCollectionInjection;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -215,6 +313,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DefaultListableBeanFactory otherListableBeanFactory = (DefaultListableBeanFactory) otherFactory;
 			this.allowBeanDefinitionOverriding = otherListableBeanFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableBeanFactory.allowEagerClassLoading;
+			this.preInstantiationParallelism = otherListableBeanFactory.preInstantiationParallelism;
 			this.autowireCandidateResolver = otherListableBeanFactory.autowireCandidateResolver;
 			this.resolvableDependencies.putAll(otherListableBeanFactory.resolvableDependencies);
 		}
@@ -273,6 +372,29 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 	public String[] getBeanNamesForType(Class<?> type, boolean includeNonSingletons, boolean allowEagerInit) {
+		if(!isConfigurationFrozen() || type == null || !allowEagerInit) {
+			return doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		}
+		Map<Class<?>, String[]> cache = 
+				(includeNonSingletons ? this.allBeanNamesByType : this.singletonBeanNamesByType);
+		String[] resolvedBeanNames = cache.get(type);
+		if(resolvedBeanNames != null) {
+			return resolvedBeanNames;
+		}
+		resolvedBeanNames = doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		if(ClassUtils.isCacheSafe(type, getBeanClassLoader())) {
+			cache.put(type, resolvedBeanNames);
+		}
+		return resolvedBeanNames;
+	}
+	
+	/**
+	 * Actually determine the names of beans matching the given type,
+	 * checking all bean definitions as well as manually registered singletons.
+	 * Results are cached by {@link #getBeanNamesForType(Class, boolean, boolean)}
+	 * once the configuration has been frozen.
+	 */
+	private String[] doGetBeanNamesForType(Class<?> type, boolean includeNonSingletons, boolean allowEagerInit) {
 		List<String> result = new ArrayList<String>();
 		
 		// check all bean definitions.
@@ -472,11 +594,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DependencyDescriptor descriptor) {
 		resolveBeanClass(mbd, beanName);
 		if(mbd.isFactoryMethodUnique()) {
-			boolean resolve;
-			synchronized(mbd.constructorArgumentLock) {
-				resolve = (mbd.resolvedConstructorOrFactoryMethod == null);
-			}
-			if(resolve) {
+			ConstructorResolution resolution = mbd.constructorResolution;
+			if(resolution == null || resolution.getConstructorOrFactoryMethod() == null) {
 				new ConstructorResolver(this).resolveFactoryMethodIfPossible(mbd);
 			}
 		}
@@ -501,6 +620,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		synchronized(this.beanDefinitionMap) {
 			this.frozenBeanDefinitionNames = StringUtils.toStringArray(this.beanDefinitionNames);
 		}
+		clearByTypeCache();
 	}
 
 	public boolean isConfigurationFrozen() {
@@ -521,6 +641,16 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		if(this.logger.isInfoEnabled()) {
 			this.logger.info("Pre-instantiateing singletons in " + this);
 		}
+		if(this.preInstantiationParallelism > 1) {
+			// Do not hold the definition lock while waiting for the worker threads:
+			// they need it for by-type lookups and for registering further definitions.
+			List<String> beanNames;
+			synchronized(this.beanDefinitionMap) {
+				beanNames = new ArrayList<String>(this.beanDefinitionNames);
+			}
+			preInstantiateSingletonsInParallel(beanNames);
+			return;
+		}
 		synchronized(this.beanDefinitionMap) {
 			// Iterate over a copy to allow for init methods which in turn register new bean definition. 
 			// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
@@ -528,27 +658,173 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			for(String beanName : beanNames) {
 				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
 				if(!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-					if(isFactoryBean(beanName)) {
-						final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
-						boolean isEagerInit;
-						if(System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>(){
-								public Boolean run() {
-									return ((SmartFactoryBean<?>) factory).isEagerInit();
-								}
-							}, getAccessControlContext());
-						} else {
-							isEagerInit = (factory instanceof SmartFactoryBean && 
-									         ((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if(isEagerInit) {
-							getBean(beanName);
-						}
-					} else {
-						getBean(beanName);
+					preInstantiateSingleton(beanName);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Eagerly create the given singleton, or - in case of a FactoryBean - the
+	 * FactoryBean itself and its object if it is a SmartFactoryBean asking for eager init.
+	 * @param beanName the name of the non-lazy singleton bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		if(isFactoryBean(beanName)) {
+			final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
+			boolean isEagerInit;
+			if(System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+				isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>(){
+					public Boolean run() {
+						return ((SmartFactoryBean<?>) factory).isEagerInit();
 					}
+				}, getAccessControlContext());
+			} else {
+				isEagerInit = (factory instanceof SmartFactoryBean && 
+						         ((SmartFactoryBean<?>) factory).isEagerInit());
+			}
+			if(isEagerInit) {
+				getBean(beanName);
+			}
+		} else {
+			getBean(beanName);
+		}
+	}
+	
+	/**
+	 * Pre-instantiate the non-lazy singletons among the given beans in topological
+	 * waves, creating the singletons of each wave concurrently.
+	 * @param beanNames the names of all bean definitions, in registration order
+	 * @see #setPreInstantiationParallelism
+	 */
+	private void preInstantiateSingletonsInParallel(List<String> beanNames) {
+		BeanDependencyGraph graph = new BeanDependencyGraph();
+		Map<String, RootBeanDefinition> candidates = new LinkedHashMap<String, RootBeanDefinition>();
+		for(String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if(!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				graph.addBean(beanName);
+				candidates.put(beanName, bd);
+			}
+		}
+		for(Map.Entry<String, RootBeanDefinition> candidate : candidates.entrySet()) {
+			Set<String> references = new LinkedHashSet<String>();
+			collectDeclaredDependencies(candidate.getValue(), references);
+			for(String reference : references) {
+				graph.addDependency(candidate.getKey(), reference);
+			}
+		}
+		
+		if(this.logger.isDebugEnabled()) {
+			this.logger.debug("Pre-instantiating " + candidates.size() + " singletons in " + 
+					graph.getWaves().size() + " waves with parallelism " + this.preInstantiationParallelism + 
+					" (" + graph.getCyclicBeans().size() + " beans with circular references deferred)");
+		}
+		ForkJoinPool pool = new ForkJoinPool(this.preInstantiationParallelism, 
+				new BootstrapThreadFactory(Thread.currentThread().getContextClassLoader()), null, false);
+		try {
+			for(List<String> wave : graph.getWaves()) {
+				if(wave.size() == 1) {
+					preInstantiateSingleton(wave.get(0));
+					continue;
+				}
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(wave.size());
+				for(final String beanName : wave) {
+					tasks.add(new Callable<Object>() {
+						public Object call() {
+							preInstantiateSingleton(beanName);
+							return null;
+						}
+					});
+				}
+				// Report the first failure in registration order, as serial bootstrap would.
+				for(Future<Object> future : pool.invokeAll(tasks)) {
+					awaitPreInstantiation(future);
 				}
 			}
+		} finally {
+			pool.shutdown();
+		}
+		
+		// Beans within reference cycles: serial creation, resolving circular references as usual.
+		for(String beanName : graph.getCyclicBeans()) {
+			preInstantiateSingleton(beanName);
+		}
+	}
+	
+	/**
+	 * Wait for the given pre-instantiation task, propagating its failure if any.
+	 */
+	private void awaitPreInstantiation(Future<Object> future) {
+		try {
+			future.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new FatalBeanException("Interrupted while pre-instantiating singletons", ex);
+		} catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new FatalBeanException("Pre-instantiation of singleton failed", cause);
+		}
+	}
+	
+	/**
+	 * Collect the names of the beans that the given bean definition declares
+	 * a dependency on: "depends-on" beans, the factory bean, and bean references
+	 * among its constructor argument and property values (including nested
+	 * collections and inner beans). Autowired dependencies are not covered.
+	 * @param bd the bean definition to introspect
+	 * @param result the Set to add the (canonical) bean names to
+	 */
+	private void collectDeclaredDependencies(BeanDefinition bd, Set<String> result) {
+		if(bd.getDependsOn() != null) {
+			for(String dependsOnBean : bd.getDependsOn()) {
+				result.add(transformedBeanName(dependsOnBean));
+			}
+		}
+		if(bd.getFactoryBeanName() != null) {
+			result.add(transformedBeanName(bd.getFactoryBeanName()));
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		if(cargs != null && !cargs.isEmpty()) {
+			for(ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+				collectReferencedBeanNames(valueHolder.getValue(), result);
+			}
+			for(ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+				collectReferencedBeanNames(valueHolder.getValue(), result);
+			}
+		}
+		if(bd.getPropertyValues() != null) {
+			for(PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				collectReferencedBeanNames(pv.getValue(), result);
+			}
+		}
+	}
+	
+	private void collectReferencedBeanNames(Object value, Set<String> result) {
+		if(value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			if(!ref.isToParent()) {
+				result.add(transformedBeanName(ref.getBeanName()));
+			}
+		} else if(value instanceof BeanDefinitionHolder) {
+			collectDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), result);
+		} else if(value instanceof BeanDefinition) {
+			collectDeclaredDependencies((BeanDefinition) value, result);
+		} else if(value instanceof Collection) {
+			for(Object element : (Collection<?>) value) {
+				collectReferencedBeanNames(element, result);
+			}
+		} else if(value instanceof Map) {
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferencedBeanNames(entry.getKey(), result);
+				collectReferencedBeanNames(entry.getValue(), result);
+			}
 		}
 	}
 
@@ -568,6 +844,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				throw new BeanDefinitionStoreException(beanDefinition.getResourceDescription(), beanName,
 						"Validation of bean definition failed", e);
 			}
+			if(this.compactBeanDefinitions) {
+				((AbstractBeanDefinition) beanDefinition).compact();
+			}
 		}
 		
 		synchronized(this.beanDefinitionMap) {
@@ -594,6 +873,92 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Registers the entire batch within a single critical section: bean
+	 * definitions get validated up front, and bean definition names as well
+	 * as by-type caches get updated once per batch rather than once per bean.
+	 * <p>The batch is registered atomically: if overriding is not allowed and
+	 * any of the given names is already taken, none of the given bean
+	 * definitions gets registered.
+	 */
+	public void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions)
+			throws BeanDefinitionStoreException {
+		Assert.notNull(beanDefinitions, "BeanDefinition Map must not be null");
+		for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+			String beanName = entry.getKey();
+			BeanDefinition beanDefinition = entry.getValue();
+			Assert.hasText(beanName, "Bean name must not be null");
+			Assert.notNull(beanDefinition, "BeanDefinition must not be null");
+			if(beanDefinition instanceof AbstractBeanDefinition) {
+				try {
+					((AbstractBeanDefinition) beanDefinition).validate();
+				} catch (BeanDefinitionValidationException e) {
+					throw new BeanDefinitionStoreException(beanDefinition.getResourceDescription(), beanName,
+							"Validation of bean definition failed", e);
+				}
+				if(this.compactBeanDefinitions) {
+					((AbstractBeanDefinition) beanDefinition).compact();
+				}
+			}
+		}
+		
+		synchronized(this.beanDefinitionMap) {
+			if(!this.allowBeanDefinitionOverriding) {
+				for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+					Object oldBeanDefinition = this.beanDefinitionMap.get(entry.getKey());
+					if(oldBeanDefinition != null) {
+						throw new BeanDefinitionStoreException(entry.getValue().getResourceDescription(), entry.getKey(),
+								"Cannot register bean definition [" + entry.getValue() + "] for bean '" + 
+								entry.getKey() + "': There is already [" + oldBeanDefinition + "] bound.");
+					}
+				}
+			}
+			List<String> newBeanNames = new ArrayList<String>(beanDefinitions.size());
+			List<String> overriddenBeanNames = new ArrayList<String>();
+			for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+				String beanName = entry.getKey();
+				Object oldBeanDefinition = this.beanDefinitionMap.put(beanName, entry.getValue());
+				if(oldBeanDefinition != null) {
+					if(this.logger.isInfoEnabled()) {
+						this.logger.info("Overriding bean definition for bean '" + beanName +
+								"': replacing [" + oldBeanDefinition + "] with [" + entry.getValue() + "]");
+					}
+					if(!overriddenBeanNames.contains(beanName)) {
+						overriddenBeanNames.add(beanName);
+					}
+				} else {
+					newBeanNames.add(beanName);
+				}
+			}
+			this.beanDefinitionNames.addAll(newBeanNames);
+			this.frozenBeanDefinitionNames = null;
+			
+			// Overridden bean definitions: full reset, as for individual registration.
+			for(String beanName : overriddenBeanNames) {
+				resetBeanDefinition(beanName);
+			}
+			// New bean definitions: only stale state left behind by earlier registrations, if any.
+			if(!newBeanNames.isEmpty()) {
+				Set<String> newBeanNameSet = new HashSet<String>(newBeanNames);
+				for(String beanName : newBeanNames) {
+					clearMergedBeanDefinition(beanName);
+					if(containsSingleton(beanName)) {
+						synchronized(getSingletonMutex()) {
+							destroySingleton(beanName);
+						}
+					}
+				}
+				clearByTypeCache();
+				for(String bdName : this.beanDefinitionNames) {
+					String parentName = this.beanDefinitionMap.get(bdName).getParentName();
+					if(parentName != null && newBeanNameSet.contains(parentName) && !newBeanNameSet.contains(bdName)) {
+						resetBeanDefinition(bdName);
+					}
+				}
+			}
+		}
+	}
+
 	public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
 		Assert.hasText(beanName, "'beanName' must not be null");
 		synchronized(this.beanDefinitionMap) {
@@ -627,6 +992,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			destroySingleton(beanName);
 		}
 		
+		// Remove any assumptions about by-type mappings.
+		clearByTypeCache();
+		
 		// Reset all bean definitions that have the given bean as parent (recursively).
 		for(String bdName : this.beanDefinitionNames) {
 			if(!beanName.equals(bdName)) {
@@ -637,6 +1005,26 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 	}
+	
+	@Override
+	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
+		super.registerSingleton(beanName, singletonObject);
+		clearByTypeCache();
+	}
+	
+	@Override
+	public void destroySingleton(String beanName) {
+		super.destroySingleton(beanName);
+		clearByTypeCache();
+	}
+	
+	/**
+	 * Remove any assumptions about by-type mappings.
+	 */
+	private void clearByTypeCache() {
+		this.allBeanNamesByType.clear();
+		this.singletonBeanNamesByType.clear();
+	}
 
 	/**
 	 * Only allows alias overriding if bean definition overriding is allowed.
@@ -697,7 +1085,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				}
 				return null;
 			}
-			Map<String, Object> matchingBeans = findAutowireCandidates(beanName, elementType, descriptor);
+			boolean lazy = (this.lazyCollectionInjection && type.isAssignableFrom(List.class));
+			Map<String, Object> matchingBeans = findAutowireCandidates(beanName, elementType, descriptor, !lazy);
 			if (matchingBeans.isEmpty()) {
 				if (descriptor.isRequired()) {
 					raiseNoSuchBeanDefinitionException(elementType, "collection of " + elementType.getName(), descriptor);
@@ -707,6 +1096,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			if (autowiredBeanNames != null) {
 				autowiredBeanNames.addAll(matchingBeans.keySet());
 			}
+			if(lazy) {
+				return new LazyBeanList(matchingBeans);
+			}
 			TypeConverter converter = (typeConverter != null ? typeConverter : getTypeConverter());
 			return converter.convertIfNecessary(matchingBeans.values(), type);
 		} else if(Map.class.isAssignableFrom(type) && type.isInterface()) {
@@ -725,7 +1117,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				}
 				return null;
 			}
-			Map<String, Object> matchingBeans = findAutowireCandidates(beanName, valueType, descriptor);
+			boolean lazy = (this.lazyCollectionInjection && type.isAssignableFrom(Map.class));
+			Map<String, Object> matchingBeans = findAutowireCandidates(beanName, valueType, descriptor, !lazy);
 			if(matchingBeans.isEmpty()) {
 				if(descriptor.isRequired()) {
 					raiseNoSuchBeanDefinitionException(valueType, "map with value type " + valueType.getName(), descriptor);
@@ -735,6 +1128,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			if(autowiredBeanNames != null) {
 				autowiredBeanNames.addAll(matchingBeans.keySet());
 			}
+			if(lazy) {
+				return new LazyBeanMap(matchingBeans);
+			}
 			return matchingBeans;
 		} else {
 			Map<String, Object> matchingBeans = findAutowireCandidates(beanName, type, descriptor);
@@ -779,6 +1175,16 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	 */
 	protected Map<String, Object> findAutowireCandidates(String beanName, Class<?> requiredType,
 			DependencyDescriptor descriptor) {
+		return findAutowireCandidates(beanName, requiredType, descriptor, true);
+	}
+
+	/**
+	 * Find the beans that match the required type, obtaining the bean instances
+	 * only if <code>resolve</code> is set; otherwise, the candidate names map
+	 * to <code>null</code>, apart from the resolvable dependencies.
+	 */
+	private Map<String, Object> findAutowireCandidates(String beanName, Class<?> requiredType,
+			DependencyDescriptor descriptor, boolean resolve) {
 		String[] candidateNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(this, 
 										requiredType, true, descriptor.isEager());
 		Map<String, Object> result = new LinkedHashMap<String, Object>(candidateNames.length);
@@ -794,7 +1200,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 		for(String candidateName : candidateNames) {
 			if(!candidateName.equals(beanName) && isAutowireCandidate(candidateName, descriptor)) {
-				result.put(candidateName, getBean(candidateName));
+				result.put(candidateName, (resolve ? getBean(candidateName) : null));
 			}
 		}
 		return result;
@@ -991,4 +1397,162 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 		
 	}
+	
+	/**
+	 * Unmodifiable List of autowire candidates that obtains each bean on first
+	 * access of its element, keeping the instance from then on.
+	 */
+	private class LazyBeanList extends AbstractList<Object> {
+
+		private final String[] beanNames;
+
+		private final AtomicReferenceArray<Object> beans;
+
+		public LazyBeanList(Map<String, Object> candidates) {
+			this.beanNames = candidates.keySet().toArray(new String[candidates.size()]);
+			this.beans = new AtomicReferenceArray<Object>(this.beanNames.length);
+			int i = 0;
+			for(Object candidate : candidates.values()) {
+				// resolvable dependencies come pre-resolved
+				this.beans.set(i++, candidate);
+			}
+		}
+
+		public String getBeanName(int index) {
+			return this.beanNames[index];
+		}
+
+		@Override
+		public Object get(int index) {
+			Object bean = this.beans.get(index);
+			if(bean == null) {
+				bean = getBean(this.beanNames[index]);
+				if(!this.beans.compareAndSet(index, null, bean)) {
+					bean = this.beans.get(index);
+				}
+			}
+			return bean;
+		}
+
+		@Override
+		public int size() {
+			return this.beanNames.length;
+		}
+	}
+	
+	/**
+	 * Unmodifiable Map from bean name to autowire candidate that obtains each bean
+	 * on first access of its value, keeping the instance from then on.
+	 */
+	private class LazyBeanMap extends AbstractMap<String, Object> {
+
+		private final LazyBeanList beans;
+
+		private final Map<String, Integer> indexes;
+
+		public LazyBeanMap(Map<String, Object> candidates) {
+			this.beans = new LazyBeanList(candidates);
+			this.indexes = new LinkedHashMap<String, Integer>(candidates.size());
+			for(int i = 0; i < this.beans.size(); i++) {
+				this.indexes.put(this.beans.getBeanName(i), i);
+			}
+		}
+
+		@Override
+		public Object get(Object key) {
+			Integer index = this.indexes.get(key);
+			return (index != null ? this.beans.get(index) : null);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return this.indexes.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return this.beans.size();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return Collections.unmodifiableSet(this.indexes.keySet());
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new Iterator<Map.Entry<String, Object>>() {
+						private int index = 0;
+						public boolean hasNext() {
+							return this.index < beans.size();
+						}
+						public Map.Entry<String, Object> next() {
+							if(!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							final int entryIndex = this.index++;
+							return new Map.Entry<String, Object>() {
+								public String getKey() {
+									return beans.getBeanName(entryIndex);
+								}
+								public Object getValue() {
+									return beans.get(entryIndex);
+								}
+								public Object setValue(Object value) {
+									throw new UnsupportedOperationException();
+								}
+								@Override
+								public boolean equals(Object other) {
+									if(!(other instanceof Map.Entry)) {
+										return false;
+									}
+									Map.Entry<?, ?> otherEntry = (Map.Entry<?, ?>) other;
+									return (ObjectUtils.nullSafeEquals(getKey(), otherEntry.getKey()) &&
+											ObjectUtils.nullSafeEquals(getValue(), otherEntry.getValue()));
+								}
+								@Override
+								public int hashCode() {
+									return ObjectUtils.nullSafeHashCode(getKey()) ^ ObjectUtils.nullSafeHashCode(getValue());
+								}
+								@Override
+								public String toString() {
+									return getKey() + "=" + getValue();
+								}
+							};
+						}
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				@Override
+				public int size() {
+					return beans.size();
+				}
+			};
+		}
+	}
+	
+	/**
+	 * Thread factory for the pre-instantiation pool (and for parallel bean definition
+	 * loading), exposing the bootstrap thread's context ClassLoader to the worker threads.
+	 */
+	static class BootstrapThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+		
+		private final ClassLoader contextClassLoader;
+		
+		public BootstrapThreadFactory(ClassLoader contextClassLoader) {
+			this.contextClassLoader = contextClassLoader;
+		}
+		
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("bootstrap-" + thread.getPoolIndex());
+			thread.setContextClassLoader(this.contextClassLoader);
+			return thread;
+		}
+	}
 }
@@ -0,0 +1,69 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link MergedBeanDefinitionCache}: an unbounded concurrent map,
+ * holding on to every merged bean definition until it gets removed
+ * explicitly, e.g. because its bean definition has been re-registered.
+ *
+ * <p>Never evicts. Use {@link BoundedMergedBeanDefinitionCache} for
+ * registries with many short-lived non-singleton bean definitions.
+ */
+public class DefaultMergedBeanDefinitionCache implements MergedBeanDefinitionCache {
+
+	private final Map<String, RootBeanDefinition> mergedBeanDefinitions =
+			new ConcurrentHashMap<String, RootBeanDefinition>(64);
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+
+	public RootBeanDefinition get(String beanName) {
+		RootBeanDefinition mbd = this.mergedBeanDefinitions.get(beanName);
+		if(mbd != null) {
+			this.hits.increment();
+		} else {
+			this.misses.increment();
+		}
+		return mbd;
+	}
+
+	public RootBeanDefinition peek(String beanName) {
+		return this.mergedBeanDefinitions.get(beanName);
+	}
+
+	public void put(String beanName, RootBeanDefinition mbd) {
+		this.mergedBeanDefinitions.put(beanName, mbd);
+	}
+
+	public void remove(String beanName) {
+		this.mergedBeanDefinitions.remove(beanName);
+	}
+
+	public int size() {
+		return this.mergedBeanDefinitions.size();
+	}
+
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": size=" + size() + ", hits=" + getHitCount() +
+				", misses=" + getMissCount();
+	}
+
+}
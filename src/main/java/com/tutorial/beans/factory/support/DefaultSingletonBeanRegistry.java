@@ -6,9 +6,21 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -19,6 +31,7 @@ import com.tutorial.beans.factory.BeanCurrentlyInCreationException;
 import com.tutorial.beans.factory.DisposableBean;
 import com.tutorial.beans.factory.ObjectFactory;
 import com.tutorial.beans.factory.config.SingletonBeanRegistry;
+import com.tutorial.core.NamedThreadLocal;
 import com.tutorial.core.SimpleAliasRegistry;
 import com.tutorial.util.Assert;
 import com.tutorial.util.StringUtils;
@@ -65,32 +78,56 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Logger available to subclasses */
 	protected final Log logger = LogFactory.getLog(getClass());
 	
+	/**
+	 * Interval in milliseconds between checks for a cross-thread circular reference
+	 * while waiting for a singleton that is being created by another thread.
+	 */
+	private static final long SINGLETON_LOCK_CHECK_INTERVAL = 20;
+	
+	/**
+	 * Interval in milliseconds between checks whether a queued bean destruction
+	 * has started, in order to apply the destruction timeout from its actual start.
+	 */
+	private static final long DESTRUCTION_START_CHECK_INTERVAL = 10;
+	
 	/** List of suppressed Exceptions, available for associating related causes */
-	private Set<Exception> suppressedExceptions;
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<Set<Exception>>("Suppressed exceptions of singleton creation");
 	
 	/** Names of beans currently excluded from in creation checks */
-	private final Set<String> inCreationCheckExclusions = new HashSet<String>();
+	private final Set<String> inCreationCheckExclusions = 
+			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
 	
 	/** Disposable bean instances: bean name --> disposable instance */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<String, Object>();
 	
 	/** Names of beans that are currently in creation */
-	private final Set<String> singletonsCurrentlyInCreation = Collections.synchronizedSet(new HashSet<String>());
+	private final Set<String> singletonsCurrentlyInCreation = 
+			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
 	
 	/** Cache of singleton objects: bean name --> bean instance */
-	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<String, Object>();
+	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<String, Object>(64);
 	
 	/** Cache of singleton factories: bean name --> ObjectFactory */
-	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<String, ObjectFactory<?>>();
+	private final Map<String, ObjectFactory<?>> singletonFactories = new ConcurrentHashMap<String, ObjectFactory<?>>(16);
 	
 	/** Cache of early singleton objects: bean name --> bean instance */
-	private final Map<String, Object> earlySingletonObjects = new HashMap<String, Object>();
+	private final ConcurrentMap<String, Object> earlySingletonObjects = new ConcurrentHashMap<String, Object>(16);
 	
 	/** Set of registered singletons, containing the bean names in registration order */
-	private final Set<String> registeredSingletons = new LinkedHashSet<String>(16);
+	private final Set<String> registeredSingletons = Collections.synchronizedSet(new LinkedHashSet<String>(64));
+	
+	/**
+	 * Creation locks for singletons: bean name --> lock held while the singleton is being created.
+	 * Never removed, since threads may still hold or be about to acquire a lock.
+	 */
+	private final ConcurrentMap<String, SingletonLock> singletonLocks = new ConcurrentHashMap<String, SingletonLock>(64);
+	
+	/** Threads waiting for a singleton creation lock: thread --> awaited lock */
+	private final Map<Thread, SingletonLock> singletonLockWaiters = new ConcurrentHashMap<Thread, SingletonLock>(16);
 	
 	/** Flag that indicates whether we're currently within destroySingletons */
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
 	
 	/** Map between containing bean names: bean name --> Set of bean names that the bean contains */
 	private final Map<String, Set<String>> containedBeanMap = new ConcurrentHashMap<String, Set<String>>();
@@ -101,15 +138,83 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Map between depending bean names: bean name --> Set of bean names for the bean's dependencies */
 	private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<String, Set<String>>();
 	
+	/** Number of threads used for destroying singletons, 1 meaning serial shutdown */
+	private int destructionParallelism = 1;
+	
+	/** Maximum time in milliseconds to wait for a single bean's destruction in parallel shutdown, 0 for no limit */
+	private long destructionTimeout = 0;
+	
+	/** Summary of the last destroySingletons run, if any */
+	private volatile SingletonDestructionReport lastDestructionReport;
+	
+	/**
+	 * Set the number of threads to destroy singletons with.
+	 * <p>Default is 1, destroying all singletons one after the other on the
+	 * calling thread, in reverse registration order. A higher value enables
+	 * parallel shutdown: the disposable singletons are split into waves according
+	 * to their registered dependent beans, and the singletons of each wave are
+	 * destroyed concurrently on a dedicated thread pool, every bean only after
+	 * all beans that depend on it. Beans that are part of a dependency cycle,
+	 * as well as beans contained in other beans, are destroyed serially
+	 * (respectively along with their containing bean).
+	 * @see #destroySingletons()
+	 * @see #setDestructionTimeout
+	 */
+	public void setDestructionParallelism(int destructionParallelism) {
+		Assert.isTrue(destructionParallelism > 0, "'destructionParallelism' must be 1 or higher");
+		this.destructionParallelism = destructionParallelism;
+	}
+	
+	/**
+	 * Return the number of threads to destroy singletons with.
+	 */
+	public int getDestructionParallelism() {
+		return this.destructionParallelism;
+	}
+	
+	/**
+	 * Set the maximum time in milliseconds to wait for the destruction of a single
+	 * bean during parallel shutdown, measured from the start of its destruction.
+	 * <p>Default is 0, waiting for every bean as long as it takes. When a bean's
+	 * destruction times out, its destruction thread gets interrupted and the
+	 * shutdown proceeds without waiting for it any further, i.e. the beans it
+	 * depends on may get destroyed while it is still shutting down.
+	 * @see #setDestructionParallelism
+	 * @see SingletonDestructionReport#getTimedOutBeans()
+	 */
+	public void setDestructionTimeout(long destructionTimeout) {
+		Assert.isTrue(destructionTimeout >= 0, "'destructionTimeout' must not be negative");
+		this.destructionTimeout = destructionTimeout;
+	}
+	
+	/**
+	 * Return the maximum time in milliseconds to wait for the destruction of a single bean.
+	 */
+	public long getDestructionTimeout() {
+		return this.destructionTimeout;
+	}
+	
+	/**
+	 * Return the summary of the last {@link #destroySingletons()} run, including
+	 * the slowest beans to destroy, or <code>null</code> if there has not been any.
+	 */
+	public SingletonDestructionReport getLastDestructionReport() {
+		return this.lastDestructionReport;
+	}
+	
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
 		Assert.notNull(beanName, "'beanName' must not be null");
-		synchronized (this.singletonObjects) {
+		SingletonLock lock = getSingletonLock(beanName);
+		lock.lock();
+		try {
 			Object oldObject = this.singletonObjects.get(beanName);
 			if(oldObject != null) {
 				throw new IllegalStateException("Could not register object [" + singletonObject +
 				"] under bean name '" + beanName + "': there is already object [" + oldObject + "] bound");
 			}
 			addSingleton(beanName, singletonObject);
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -120,12 +225,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param singletonObject the singleton object
 	 */
 	protected void addSingleton(String beanName, Object singletonObject) {
-		synchronized (this.singletonObjects) {
-			this.singletonObjects.put(beanName, (singletonObject != null ? singletonObject : NULL_OBJECT));
-			this.singletonFactories.remove(beanName);
-			this.earlySingletonObjects.remove(beanName);
-			this.registeredSingletons.add(beanName);
-		}
+		// Publish the full instance before dropping the early reference,
+		// so that lock-free readers always find one of the two.
+		this.singletonObjects.put(beanName, (singletonObject != null ? singletonObject : NULL_OBJECT));
+		this.singletonFactories.remove(beanName);
+		this.earlySingletonObjects.remove(beanName);
+		this.registeredSingletons.add(beanName);
 	}
 	
 	/**
@@ -138,12 +243,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	protected void addSingletonFactory(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(singletonFactory, "Singleton factory must not be null");
-		synchronized(this.singletonObjects) {
-			if(!this.singletonObjects.containsKey(beanName)) {
-				this.singletonFactories.put(beanName, singletonFactory);
-				this.earlySingletonObjects.remove(beanName);
-				this.registeredSingletons.add(beanName);
-			}
+		if(!this.singletonObjects.containsKey(beanName)) {
+			this.singletonFactories.put(beanName, singletonFactory);
+			this.earlySingletonObjects.remove(beanName);
+			this.registeredSingletons.add(beanName);
 		}
 	}
 
@@ -155,31 +258,61 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * Return the (raw) singleton object registered under the given name.
 	 * <p>Checks already instantiated singletons and also allows for an early
 	 * reference to a currently created singleton (resolving a circular reference).
+	 * Early references are only handed out to the thread that creates the
+	 * singleton; other threads will wait for the fully initialized instance.
 	 * @param beanName the name of the bean to look for
 	 * @param allowEarlyReference whether early references should be created or not
 	 * @return the registered singleton object, or <code>null</code> if none found
 	 */
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
-		if(singletonObject == null) {
-			synchronized (this.singletonObjects) {
+		if(singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+			if(!allowEarlyReference) {
 				singletonObject = this.earlySingletonObjects.get(beanName);
-				if(singletonObject == null && allowEarlyReference) {
-					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
-					if(singletonFactory != null) {
-						singletonObject = singletonFactory.getObject();
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						this.singletonFactories.remove(beanName);
-					}
-				}
+			} else if(isSingletonLockHeldByCurrentThread(beanName)) {
+				singletonObject = getEarlySingletonReference(beanName);
 			}
 		}
 		return (singletonObject != NULL_OBJECT ? singletonObject : null);
 	}
 	
+	/**
+	 * Return the early reference to the given singleton, obtaining it from the
+	 * registered singleton factory if necessary.
+	 * <p>Only to be called while the singleton's creation lock is held, either by
+	 * the current thread or by a thread that waits for the current thread (see
+	 * {@link #getSingletonForCircularReference}), so that no global monitor needs
+	 * to be held while the factory runs.
+	 * @param beanName the name of the bean
+	 * @return the early singleton reference, or <code>null</code> if none exposed
+	 */
+	private Object getEarlySingletonReference(String beanName) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if(singletonObject == null) {
+			ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+			if(singletonFactory != null) {
+				singletonObject = singletonFactory.getObject();
+				Object existingObject = this.earlySingletonObjects.putIfAbsent(beanName, 
+						(singletonObject != null ? singletonObject : NULL_OBJECT));
+				if(existingObject != null) {
+					singletonObject = existingObject;
+				} else {
+					this.singletonFactories.remove(beanName);
+				}
+			}
+		}
+		return singletonObject;
+	}
+	
 	/**
 	 * Return the (raw) singleton object registered under the given name,
 	 * creating and registering a new one if none registered yet.
+	 * <p>Creation is guarded by a lock per bean name: different singletons
+	 * can be created concurrently, while concurrent requests for the same
+	 * singleton wait for the thread that creates it. If two threads turn out to
+	 * wait for each other's singletons (a circular reference across threads),
+	 * one of them proceeds with the early reference to the other's singleton,
+	 * just like a circular reference within a single thread gets resolved.
 	 * @param beanName the name of the bean
 	 * @param singletonFactory the ObjectFactory to lazily create the singleton
 	 * with, if necessary
@@ -187,8 +320,16 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
-		synchronized (this.singletonObjects) {
-			Object singletonObject = this.singletonObjects.get(beanName);
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if(singletonObject != null) {
+			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+		}
+		SingletonLock lock = getSingletonLock(beanName);
+		if(!acquireSingletonLock(lock)) {
+			return getSingletonForCircularReference(beanName);
+		}
+		try {
+			singletonObject = this.singletonObjects.get(beanName);
 			if(singletonObject == null) {
 				if(this.singletonsCurrentlyInDestruction) {
 					throw new BeanCreationNotAllowedException(beanName,
@@ -199,29 +340,178 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
 				}
 				beforeSingletonCreation(beanName);
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
+				boolean recordSuppressedExceptions = (this.suppressedExceptions.get() == null);
 				if(recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<Exception>();
+					this.suppressedExceptions.set(new LinkedHashSet<Exception>());
 				}
 				try {
 					singletonObject = singletonFactory.getObject();
 				} catch(BeanCreationException ex) {
 					if(recordSuppressedExceptions) {
-						for(Exception suppressedException : suppressedExceptions) {
+						for(Exception suppressedException : this.suppressedExceptions.get()) {
 							ex.addRelatedCause(suppressedException);
 						}
 					}
 					throw ex;
 				} finally {
 					if(recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+						this.suppressedExceptions.remove();
 					}
 					afterSingletonCreation(beanName);
 				}
 				addSingleton(beanName, singletonObject);
 			} 
 			return singletonObject != NULL_OBJECT ? singletonObject : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Resolve a circular reference across threads: the given singleton is being
+	 * created by a thread which in turn waits for a singleton that the current
+	 * thread is creating.
+	 * @param beanName the name of the bean
+	 * @return the singleton object, or its early reference
+	 * @throws BeanCurrentlyInCreationException if no early reference has been exposed
+	 */
+	private Object getSingletonForCircularReference(String beanName) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if(singletonObject == null) {
+			singletonObject = getEarlySingletonReference(beanName);
+		}
+		if(singletonObject == null) {
+			throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+					"by another thread which waits for a bean created by the current thread: " +
+					"Is there an unresolvable circular reference?");
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("Returning early reference to singleton bean '" + beanName + 
+					"' created by another thread - a consequence of a circular reference");
+		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+	
+	/**
+	 * Return the creation lock for the given singleton, creating it if necessary.
+	 * @param beanName the name of the bean
+	 */
+	private SingletonLock getSingletonLock(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		if(lock == null) {
+			lock = new SingletonLock();
+			SingletonLock existingLock = this.singletonLocks.putIfAbsent(beanName, lock);
+			if(existingLock != null) {
+				lock = existingLock;
+			}
+		}
+		return lock;
+	}
+	
+	/**
+	 * Acquire the given singleton creation lock, waiting for the owning thread
+	 * to release it. Interrupts are deferred until the lock has been acquired.
+	 * @param lock the lock to acquire
+	 * @return <code>true</code> if the lock has been acquired, <code>false</code>
+	 * if the owning thread (directly or indirectly) waits for the current thread
+	 * @see #isWaitingInCycle
+	 */
+	private boolean acquireSingletonLock(SingletonLock lock) {
+		if(lock.tryLock()) {
+			return true;
+		}
+		Thread currentThread = Thread.currentThread();
+		boolean interrupted = false;
+		this.singletonLockWaiters.put(currentThread, lock);
+		try {
+			while(true) {
+				if(isWaitingInCycle(currentThread, lock)) {
+					return false;
+				}
+				try {
+					if(lock.tryLock(SINGLETON_LOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				} catch(InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			this.singletonLockWaiters.remove(currentThread);
+			if(interrupted) {
+				currentThread.interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Check whether the owner of the given lock waits, directly or through
+	 * further threads, for a lock held by the given thread. Only the thread
+	 * with the highest id within such a cycle reports it, so that exactly
+	 * one thread of the cycle backs off.
+	 * @param currentThread the thread about to wait for the lock
+	 * @param lock the awaited lock
+	 */
+	private boolean isWaitingInCycle(Thread currentThread, SingletonLock lock) {
+		Thread owner = lock.getOwner();
+		long maxThreadId = currentThread.getId();
+		int remainingSteps = this.singletonLockWaiters.size();
+		while(owner != null && remainingSteps-- >= 0) {
+			if(owner == currentThread) {
+				return (maxThreadId == currentThread.getId());
+			}
+			maxThreadId = Math.max(maxThreadId, owner.getId());
+			SingletonLock awaitedLock = this.singletonLockWaiters.get(owner);
+			if(awaitedLock == null) {
+				return false;
+			}
+			owner = awaitedLock.getOwner();
 		}
+		return false;
+	}
+	
+	/**
+	 * Return whether the creation lock of the given singleton is held by the
+	 * current thread, i.e. whether the current thread is creating that singleton.
+	 * @param beanName the name of the bean
+	 */
+	protected final boolean isSingletonLockHeldByCurrentThread(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		return (lock != null && lock.isHeldByCurrentThread());
+	}
+	
+	/**
+	 * Try to acquire the creation lock for the given singleton without waiting.
+	 * Must be followed by {@link #unlockSingleton} if successful.
+	 * @param beanName the name of the bean
+	 * @return whether the lock has been acquired (which fails if another thread
+	 * is currently creating the singleton)
+	 */
+	protected final boolean tryLockSingleton(String beanName) {
+		return getSingletonLock(beanName).tryLock();
+	}
+	
+	/**
+	 * Acquire the creation lock for the given singleton, waiting for another
+	 * thread that is currently creating the singleton. Must be followed by
+	 * {@link #unlockSingleton} if successful.
+	 * @param beanName the name of the bean
+	 * @return <code>true</code> if the lock has been acquired, <code>false</code>
+	 * if waiting would deadlock since the creating thread waits for a singleton
+	 * that the current thread is creating
+	 */
+	protected final boolean lockSingleton(String beanName) {
+		return acquireSingletonLock(getSingletonLock(beanName));
+	}
+	
+	/**
+	 * Release the creation lock for the given singleton.
+	 * @param beanName the name of the bean
+	 * @see #tryLockSingleton
+	 * @see #lockSingleton
+	 */
+	protected final void unlockSingleton(String beanName) {
+		this.singletonLocks.get(beanName).unlock();
 	}
 	
 	/**
@@ -230,10 +520,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized(this.singletonObjects) {
-			if(this.suppressedExceptions != null) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if(suppressedExceptions != null) {
+			suppressedExceptions.add(ex);
 		}
 	}
 	
@@ -244,12 +533,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @see #getSingletonMutex()
 	 */
 	protected void removeSingleton(String beanName) {
-		synchronized(this.singletonObjects) {
-			this.singletonObjects.remove(beanName);
-			this.singletonFactories.remove(beanName);
-			this.earlySingletonObjects.remove(beanName);
-			this.registeredSingletons.remove(beanName);
-		}
+		this.singletonObjects.remove(beanName);
+		this.singletonFactories.remove(beanName);
+		this.earlySingletonObjects.remove(beanName);
+		this.registeredSingletons.remove(beanName);
 	}
 
 	public boolean containsSingleton(String beanName) {
@@ -257,15 +544,13 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	}
 
 	public String[] getSingletonNames() {
-		synchronized(this.singletonObjects) {
+		synchronized(this.registeredSingletons) {
 			return StringUtils.toStringArray(this.registeredSingletons);
 		}
 	}
 
 	public int getSingletonCount() {
-		synchronized(this.singletonObjects) {
-			return this.singletonObjects.size();
-		}
+		return this.singletonObjects.size();
 	}
 
 	/**
@@ -412,15 +697,32 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if(logger.isInfoEnabled()) {
 			logger.info("Destroying singletons in " + this);
 		}
-		synchronized(this.singletonObjects) {
-			this.singletonsCurrentlyInDestruction = true;
+		this.singletonsCurrentlyInDestruction = true;
+		long startTime = System.nanoTime();
+		SingletonDestructionReport report = new SingletonDestructionReport();
+		if(this.destructionParallelism > 1) {
+			destroySingletonsInParallel(report);
 		}
+		// Serial destruction of all (remaining) beans: for parallel shutdown, beans in
+		// dependency cycles and beans registered during the shutdown.
 		synchronized(this.disposableBeans) {
 			String[] disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
 			for(int i = disposableBeanNames.length - 1; i >= 0; i--) {
-				destroySingleton(disposableBeanNames[i]);
+				String beanName = disposableBeanNames[i];
+				if(this.disposableBeans.containsKey(beanName)) {
+					long beanStartTime = System.nanoTime();
+					destroySingleton(beanName);
+					report.beanDestroyed(beanName, System.nanoTime() - beanStartTime);
+				}
 			}
 		}
+		report.setTotalNanos(System.nanoTime() - startTime);
+		this.lastDestructionReport = report;
+		if(!report.getTimedOutBeans().isEmpty()) {
+			logger.warn(report);
+		} else if(logger.isInfoEnabled()) {
+			logger.info(report);
+		}
 		
 		this.containedBeanMap.clear();
 		this.dependentBeanMap.clear();
@@ -435,6 +737,144 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Destroy the disposable singletons in reverse-dependency waves, destroying
+	 * the beans of each wave concurrently.
+	 * @param report the report to record the destroyed beans in
+	 * @see #setDestructionParallelism
+	 */
+	private void destroySingletonsInParallel(SingletonDestructionReport report) {
+		// Contained beans get destroyed along with their containing bean:
+		// map each of them to its outermost containing bean.
+		Map<String, String> containingBeans = new HashMap<String, String>();
+		synchronized(this.containedBeanMap) {
+			for(Map.Entry<String, Set<String>> entry : this.containedBeanMap.entrySet()) {
+				for(String containedBeanName : entry.getValue()) {
+					containingBeans.put(containedBeanName, entry.getKey());
+				}
+			}
+		}
+		// A bean "depends" on its dependent beans here: they need to be destroyed first.
+		BeanDependencyGraph graph = new BeanDependencyGraph();
+		synchronized(this.disposableBeans) {
+			String[] disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
+			for(int i = disposableBeanNames.length - 1; i >= 0; i--) {
+				if(!containingBeans.containsKey(disposableBeanNames[i])) {
+					graph.addBean(disposableBeanNames[i]);
+				}
+			}
+		}
+		synchronized(this.dependentBeanMap) {
+			// Beans without destruction callbacks are nodes as well, keeping their
+			// dependents and dependencies in order.
+			for(Map.Entry<String, Set<String>> entry : this.dependentBeanMap.entrySet()) {
+				graph.addBean(getOutermostContainingBean(entry.getKey(), containingBeans));
+				for(String dependentBeanName : entry.getValue()) {
+					graph.addBean(getOutermostContainingBean(dependentBeanName, containingBeans));
+				}
+			}
+			for(Map.Entry<String, Set<String>> entry : this.dependentBeanMap.entrySet()) {
+				String beanName = getOutermostContainingBean(entry.getKey(), containingBeans);
+				for(String dependentBeanName : entry.getValue()) {
+					dependentBeanName = getOutermostContainingBean(dependentBeanName, containingBeans);
+					if(!beanName.equals(dependentBeanName)) {
+						graph.addDependency(beanName, dependentBeanName);
+					}
+				}
+			}
+		}
+		report.setWaveCount(graph.getWaves().size());
+		if(logger.isDebugEnabled()) {
+			logger.debug("Destroying singletons in " + graph.getWaves().size() + " waves with parallelism " +
+					this.destructionParallelism + " (" + graph.getCyclicBeans().size() + " beans with circular references deferred)");
+		}
+		
+		final Map<String, Long> startTimes = new ConcurrentHashMap<String, Long>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(this.destructionParallelism, this.destructionParallelism,
+				0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new DestructionThreadFactory(Thread.currentThread().getContextClassLoader()));
+		try {
+			for(List<String> wave : graph.getWaves()) {
+				Map<String, Future<Long>> futures = new LinkedHashMap<String, Future<Long>>(wave.size());
+				for(final String beanName : wave) {
+					futures.put(beanName, executor.submit(new Callable<Long>() {
+						public Long call() {
+							long startTime = System.nanoTime();
+							startTimes.put(beanName, startTime);
+							destroySingleton(beanName);
+							return System.nanoTime() - startTime;
+						}
+					}));
+				}
+				for(Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+					awaitDestruction(entry.getKey(), entry.getValue(), startTimes, executor, report);
+				}
+			}
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while destroying singletons in parallel: destroying remaining beans serially");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Return the outermost bean that (transitively) contains the given bean,
+	 * or the bean itself if it is not contained in another bean.
+	 */
+	private String getOutermostContainingBean(String beanName, Map<String, String> containingBeans) {
+		String outermostBeanName = beanName;
+		Set<String> visited = null;
+		String containingBeanName;
+		while((containingBeanName = containingBeans.get(outermostBeanName)) != null) {
+			if(visited == null) {
+				visited = new HashSet<String>();
+			}
+			if(!visited.add(outermostBeanName)) {
+				break;
+			}
+			outermostBeanName = containingBeanName;
+		}
+		return outermostBeanName;
+	}
+
+	/**
+	 * Wait for the given destruction task, applying the destruction timeout if any.
+	 * Timed-out tasks get cancelled, with the pool growing by one thread to make up
+	 * for the thread that is still stuck in the bean's destruction.
+	 */
+	private void awaitDestruction(String beanName, Future<Long> future, Map<String, Long> startTimes,
+			ThreadPoolExecutor executor, SingletonDestructionReport report) throws InterruptedException {
+		long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.destructionTimeout);
+		try {
+			if(timeoutNanos == 0) {
+				report.beanDestroyed(beanName, future.get());
+				return;
+			}
+			while(true) {
+				Long startTime = startTimes.get(beanName);
+				long waitNanos = (startTime != null ? startTime + timeoutNanos - System.nanoTime() :
+						TimeUnit.MILLISECONDS.toNanos(DESTRUCTION_START_CHECK_INTERVAL));
+				try {
+					report.beanDestroyed(beanName, future.get(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS));
+					return;
+				} catch(TimeoutException ex) {
+					if(startTime != null) {
+						future.cancel(true);
+						report.beanTimedOut(beanName);
+						executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+						executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+						logger.warn("Destruction of bean with name '" + beanName + "' did not complete within " +
+								this.destructionTimeout + " ms: proceeding with shutdown");
+						return;
+					}
+				}
+			}
+		} catch(ExecutionException ex) {
+			logger.error("Destruction of bean with name '" + beanName + "' failed", ex.getCause());
+		}
+	}
+
 	/**
 	 * Destroy the given bean. Delegates to <code>destroyBean</code>
 	 * if a corresponding disposable bean instance is found.
@@ -506,13 +946,50 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	
 	/**
 	 * Expose the singleton mutex to subclasses.
-	 * <p>Subclasses should synchronize on the given Object if they perform
-	 * any sort of extended singleton creation phase. In particular, subclasses
-	 * should <i>not</i> have their own mutexes involved in singleton creation,
-	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>Guards bulk modifications of the singleton cache. Note that singleton
+	 * creation itself is guarded by a lock per bean name rather than by this
+	 * mutex: subclasses performing an extended singleton creation phase should
+	 * use {@link #lockSingleton}/{@link #unlockSingleton} instead, and should
+	 * <i>not</i> wait for other threads while holding this mutex, to avoid the
+	 * potential for deadlocks in lazy-init situations.
 	 */
 	protected final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
+	
+	/**
+	 * Thread factory for the parallel shutdown pool: daemon threads, so that beans
+	 * stuck in their destruction beyond the timeout do not keep the JVM alive.
+	 */
+	private static class DestructionThreadFactory implements ThreadFactory {
+
+		private final ClassLoader contextClassLoader;
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public DestructionThreadFactory(ClassLoader contextClassLoader) {
+			this.contextClassLoader = contextClassLoader;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "destroy-" + this.threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			thread.setContextClassLoader(this.contextClassLoader);
+			return thread;
+		}
+	}
+
+	/**
+	 * Reentrant creation lock for a single bean, exposing its owner thread
+	 * for the detection of circular references across threads.
+	 */
+	@SuppressWarnings("serial")
+	private static class SingletonLock extends ReentrantLock {
+
+		@Override
+		public Thread getOwner() {
+			return super.getOwner();
+		}
+	}
 
 }
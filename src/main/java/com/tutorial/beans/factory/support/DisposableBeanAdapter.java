@@ -84,7 +84,11 @@ public class DisposableBeanAdapter implements Runnable, Serializable, Disposable
 		if(destroyMethodName != null && !(this.invokeDisposableBean && "destroy".equals(destroyMethodName)) &&
 				!beanDefinition.isExternallyManagedDestroyMethod(destroyMethodName)) {
 			this.destroyMethodName = destroyMethodName;
-			this.destroyMethod = determineDestroyMethod();
+			PrototypeCreationPlan plan = beanDefinition.prototypeCreationPlan;
+			this.destroyMethod = (plan != null ? plan.getDestroyMethod(bean.getClass(), destroyMethodName) : null);
+			if(this.destroyMethod == null) {
+				this.destroyMethod = determineDestroyMethod();
+			}
 			if(this.destroyMethod == null) {
 				if(beanDefinition.isEnforceDestroyMethod()) {
 					throw new BeanDefinitionValidationException("Couldn't find a destroy method named '" + 
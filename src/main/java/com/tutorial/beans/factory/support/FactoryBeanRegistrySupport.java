@@ -76,14 +76,25 @@ public class FactoryBeanRegistrySupport extends DefaultSingletonBeanRegistry {
 	 */
 	protected Object getObjectFromFactoryBean(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
 		if(factory.isSingleton() && containsSingleton(beanName)) {
-			synchronized(getSingletonMutex()) {
-				Object object = this.factoryBeanObjectCache.get(beanName);
+			Object object = this.factoryBeanObjectCache.get(beanName);
+			if(object != null) {
+				return object;
+			}
+			if(!lockSingleton(beanName)) {
+				throw new BeanCurrentlyInCreationException(beanName, "FactoryBean object is currently in creation " +
+						"by another thread which waits for a bean created by the current thread: " +
+						"Is there an unresolvable circular reference?");
+			}
+			try {
+				object = this.factoryBeanObjectCache.get(beanName);
 				if(object == null) {
 					object = doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
 					this.factoryBeanObjectCache.put(beanName, (object != null ? object : NULL_OBJECT));
 				}
 				return (object != null ? object : NULL_OBJECT);
-			} 
+			} finally {
+				unlockSingleton(beanName);
+			}
 		} else {
 			return doGetObjectFromFactoryBean(factory, beanName, shouldPostProcess);
 		}
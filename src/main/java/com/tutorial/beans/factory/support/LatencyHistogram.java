@@ -0,0 +1,163 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, with a fixed set of
+ * log-linear buckets in the style of an HDR histogram.
+ *
+ * <p>Every power-of-two range is split into eight linear sub-buckets, so
+ * recorded values are accurate to within 12.5%. Values up to 2^40 ns (about
+ * 18 minutes) are distinguished; larger values are counted in the last
+ * bucket. The bucket array is allocated up front and never resized, so
+ * recording neither locks nor allocates.
+ *
+ * @see DefaultBeanFactoryMetrics
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_MAGNITUDE = 40;
+
+	private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Record the given latency.
+	 * @param nanos the latency in nanoseconds (negative values count as 0)
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		this.buckets.incrementAndGet(bucketIndex(value));
+		this.count.increment();
+		this.totalNanos.add(value);
+		long max = this.maxNanos.get();
+		while(value > max && !this.maxNanos.compareAndSet(max, value)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Return the number of recorded values.
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * Return the sum of all recorded values, in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos.sum();
+	}
+
+	/**
+	 * Return the mean of all recorded values, in nanoseconds,
+	 * or <code>0</code> if no values have been recorded.
+	 */
+	public long getMeanNanos() {
+		long count = getCount();
+		return (count > 0 ? getTotalNanos() / count : 0);
+	}
+
+	/**
+	 * Return the largest recorded value, in nanoseconds.
+	 */
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+
+	/**
+	 * Return the given percentile of the recorded values, as the upper bound
+	 * of the bucket that the percentile falls into (capped at the maximum).
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the value in nanoseconds, or <code>0</code> if no values have been recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		if(percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+		}
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = this.buckets.get(i);
+			total += counts[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long threshold = Math.max((long) Math.ceil(total * percentile / 100), 1);
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if(seen >= threshold) {
+				return Math.min(bucketUpperBound(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * Return the bucket counts, for rendering the full distribution.
+	 * Bucket <code>i</code> covers values up to {@link #getBucketUpperBound(int)}.
+	 */
+	public long[] getBucketCounts() {
+		long[] counts = new long[BUCKET_COUNT];
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = this.buckets.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * Return the largest value, in nanoseconds, that falls into the given bucket.
+	 */
+	public long getBucketUpperBound(int bucketIndex) {
+		return bucketUpperBound(bucketIndex);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50) +
+				"ns, p99=" + getPercentileNanos(99) + "ns, max=" + getMaxNanos() + "ns";
+	}
+
+
+	private static int bucketIndex(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if(magnitude > MAX_MAGNITUDE) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	private static long bucketUpperBound(int bucketIndex) {
+		if(bucketIndex < SUB_BUCKET_COUNT) {
+			return bucketIndex;
+		}
+		if(bucketIndex == BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+		int subBucket = bucketIndex % SUB_BUCKET_COUNT;
+		return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+}
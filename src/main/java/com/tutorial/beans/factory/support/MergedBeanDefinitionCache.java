@@ -0,0 +1,68 @@
+package com.tutorial.beans.factory.support;
+
+/**
+ * Strategy interface for the cache of merged bean definitions held by an
+ * {@link AbstractBeanFactory}, keyed by bean name.
+ *
+ * <p>A merged bean definition can always be recreated from the registered
+ * bean definitions, so implementations are free to drop entries at any time:
+ * the factory simply merges again on the next access. Implementations need to
+ * be thread-safe; {@link #get} is called on every bean lookup and should not block.
+ *
+ * @see AbstractBeanFactory#setMergedBeanDefinitionCache
+ * @see DefaultMergedBeanDefinitionCache
+ * @see BoundedMergedBeanDefinitionCache
+ */
+public interface MergedBeanDefinitionCache {
+
+	/**
+	 * Return the cached merged bean definition for the given bean.
+	 * @param beanName the name of the bean
+	 * @return the merged bean definition, or <code>null</code> if none cached
+	 */
+	RootBeanDefinition get(String beanName);
+
+	/**
+	 * Return the cached merged bean definition for the given bean, like
+	 * {@link #get}, but without counting the lookup as hit or miss, nor
+	 * marking the entry as recently used.
+	 * <p>Used for re-checking a lookup that has already been counted.
+	 * @param beanName the name of the bean
+	 * @return the merged bean definition, or <code>null</code> if none cached
+	 */
+	RootBeanDefinition peek(String beanName);
+
+	/**
+	 * Cache the given merged bean definition, replacing any existing one.
+	 * @param beanName the name of the bean
+	 * @param mbd the merged bean definition
+	 */
+	void put(String beanName, RootBeanDefinition mbd);
+
+	/**
+	 * Remove the cached merged bean definition for the given bean, if any.
+	 * @param beanName the name of the bean
+	 */
+	void remove(String beanName);
+
+	/**
+	 * Return the number of merged bean definitions currently cached.
+	 */
+	int size();
+
+	/**
+	 * Return the number of lookups that found a cached merged bean definition.
+	 */
+	long getHitCount();
+
+	/**
+	 * Return the number of lookups that did not find a cached merged bean definition.
+	 */
+	long getMissCount();
+
+	/**
+	 * Return the number of merged bean definitions dropped to make room for others.
+	 */
+	long getEvictionCount();
+
+}
@@ -5,16 +5,20 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import com.tutorial.beans.BeansException;
 import com.tutorial.beans.MutablePropertyValues;
 import com.tutorial.beans.PropertyAccessor;
 import com.tutorial.beans.factory.BeanDefinitionStoreException;
 import com.tutorial.beans.factory.CannotLoadBeanClassException;
+import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.beans.factory.config.ConstructorArgumentValues;
 import com.tutorial.beans.factory.config.RuntimeBeanReference;
 import com.tutorial.core.io.Resource;
@@ -355,12 +359,18 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 		if(prefix == null) {
 			prefix = "";
 		}
-		int beanCount = 0;
-		for(Object key : map.keySet()) {
+		// Group all entries in a single pass over the map, under each bean name they
+		// may belong to: "tb.spouse.name" is property "name" of bean "tb.spouse", 
+		// but also property "spouse.name" of bean "tb", if there is such a bean.
+		Set<String> beanNames = new LinkedHashSet<String>();
+		Map<String, Map<String, Object>> beanProperties = new HashMap<String, Map<String, Object>>();
+		for(Object entryObject : map.entrySet()) {
+			Entry<?, ?> entry = (Entry<?, ?>) entryObject;
+			Object key = entry.getKey();
 			if(!(key instanceof String)) {
 				throw new IllegalArgumentException("Illegal key [" + key + "]: only Strings allowed");
 			}
-			String keyString = (String) key;
+			String keyString = StringUtils.trimWhitespace((String) key);
 			if(keyString.startsWith(prefix)) {
 				// key is of form : prefix<name>.property
 				String nameAndProperty = keyString.substring(prefix.length());
@@ -374,14 +384,9 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 				} 
 				if(sepIdx != -1) {
 					String beanName = nameAndProperty.substring(0, sepIdx);
-					if(logger.isDebugEnabled()) {
+					if(beanNames.add(beanName) && logger.isDebugEnabled()) {
 						logger.debug("Found bean name '" + beanName + "'");
 					}
-					if(!getRegistry().containsBeanDefinition(beanName)) {
-						// if we haven't already registered it...
-						registerBeanDefinition(beanName, map, prefix + beanName, resourceDescription);
-						++beanCount;
-					}
 				} else {
 					// Ignore it : It wasn't a valid bean name and property,
 					// although it did start with the required prefix.
@@ -389,9 +394,30 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 						logger.debug("Invalid bean name and property [" + nameAndProperty + "]");
 					}
 				}
+				int idx = nameAndProperty.indexOf(SEPARATOR);
+				while(idx != -1) {
+					String name = nameAndProperty.substring(0, idx);
+					Map<String, Object> properties = beanProperties.get(name);
+					if(properties == null) {
+						properties = new LinkedHashMap<String, Object>();
+						beanProperties.put(name, properties);
+					}
+					properties.put(nameAndProperty.substring(idx + SEPARATOR.length()), entry.getValue());
+					idx = nameAndProperty.indexOf(SEPARATOR, idx + SEPARATOR.length());
+				}
 			}
 		}
-		return beanCount;
+		
+		Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+		for(String beanName : beanNames) {
+			if(!getRegistry().containsBeanDefinition(beanName)) {
+				// if we haven't already registered it...
+				beanDefinitions.put(beanName, createBeanDefinition(beanName, beanProperties.get(beanName), resourceDescription));
+			}
+		}
+		// Register all beans at once, rather than locking the registry per bean.
+		getRegistry().registerBeanDefinitions(beanDefinitions);
+		return beanDefinitions.size();
 	}
 
 	/**
@@ -403,9 +429,32 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 	 * @param resourceDescription description of the resource that the
 	 * Map came from (for logging purposes)
 	 * @throws BeansException if the bean definition could not be parsed or registered
+	 * @see #createBeanDefinition
 	 */
 	protected void registerBeanDefinition(String beanName, Map<?, ?> map, String prefix, String resourceDescription) 
 					throws BeansException {
+		Map<String, Object> properties = new LinkedHashMap<String, Object>();
+		for(Entry<?, ?> entry : map.entrySet()) {
+			String key = StringUtils.trimWhitespace((String) entry.getKey());
+			if(key.startsWith(prefix + SEPARATOR)) {
+				properties.put(key.substring(prefix.length() + SEPARATOR.length()), entry.getValue());
+			}
+		}
+		getRegistry().registerBeanDefinition(beanName, createBeanDefinition(beanName, properties, resourceDescription));
+	}
+
+	/**
+	 * Create the bean definition for the given bean name from its own entries.
+	 * @param beanName name of the bean to define
+	 * @param properties the bean's entries: property (with the bean name and
+	 * separator stripped, e.g. "(class)" or "dog(ref)") -> value
+	 * @param resourceDescription description of the resource that the
+	 * entries came from (for logging purposes)
+	 * @return the bean definition (not registered yet)
+	 * @throws BeansException if the bean definition could not be parsed
+	 */
+	protected AbstractBeanDefinition createBeanDefinition(String beanName, Map<String, ?> properties, 
+				String resourceDescription) throws BeansException {
 		String className = null;
 		String parent = null;
 		boolean isAbstract = false;
@@ -414,55 +463,52 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 		ConstructorArgumentValues cas = new ConstructorArgumentValues();
 		MutablePropertyValues pvs = new MutablePropertyValues();
 		
-		for(Entry<?, ?> entry : map.entrySet()) {
-			String key = StringUtils.trimWhitespace((String) entry.getKey());
-			if(key.startsWith(prefix + SEPARATOR)) {
-				String property = key.substring(prefix.length() + SEPARATOR.length());
-				if(CLASS_KEY.equals(property)) {
-					className = StringUtils.trimWhitespace((String) entry.getValue());
-				} else if(PARENT_KEY.equals(property)) {
-					parent = StringUtils.trimWhitespace((String) entry.getValue());
-				} else if(ABSTRACT_KEY.equals(property)) {
-					String val = StringUtils.trimWhitespace((String) entry.getValue());
-					isAbstract = TRUE_VALUE.equals(val);
-				} else if(SCOPE_KEY.equals(property)) {
-					// Spring 2.0 style
-					scope = StringUtils.trimWhitespace((String) entry.getValue());
-				} else if(SINGLETON_KEY.equals(property)) {
-					//Spring 1.2 style
-					String val = StringUtils.trimWhitespace((String) entry.getValue());
-					scope = ((val == null || TRUE_VALUE.equals(val) ? GenericBeanDefinition.SCOPE_SINGLETON : 
-						GenericBeanDefinition.SCOPE_PROTOTYPE));
-				} else if(LAZY_INIT_KEY.equals(property)) {
-					String val = StringUtils.trimWhitespace((String) entry.getValue());
-					lazyInit = TRUE_VALUE.equals(val);
-				} else if(property.startsWith(CONSTRUCTOR_ARG_PREFIX)) {
-					if(property.endsWith(REF_SUFFIX)) {
-						int index = Integer.parseInt(property.substring(1, property.length() - REF_SUFFIX.length()));
-						cas.addIndexedArgumentValue(index, new RuntimeBeanReference(entry.getValue().toString()));
-					} else {
-						int index = Integer.parseInt(property.substring(1));
-						cas.addIndexedArgumentValue(index, readValue(entry));
-					}
-				} else if(property.endsWith(REF_SUFFIX)) {
-					// This isn't a real property, but a reference to another prototypes.
-					// Extract property name : property is of form dog(ref).
-					property = property.substring(0, property.length() - REF_SUFFIX.length());
-					String ref = StringUtils.trimWhitespace((String) entry.getValue());
-					
-					// It doesn't matter if the referenced bean hasn't yet been registered:
-					// this will ensure that the reference is resolved at runtime.
-					Object val = new RuntimeBeanReference(ref);
-					pvs.add(property, val);
+		for(Entry<String, ?> entry : properties.entrySet()) {
+			String property = entry.getKey();
+			if(CLASS_KEY.equals(property)) {
+				className = StringUtils.trimWhitespace((String) entry.getValue());
+			} else if(PARENT_KEY.equals(property)) {
+				parent = StringUtils.trimWhitespace((String) entry.getValue());
+			} else if(ABSTRACT_KEY.equals(property)) {
+				String val = StringUtils.trimWhitespace((String) entry.getValue());
+				isAbstract = TRUE_VALUE.equals(val);
+			} else if(SCOPE_KEY.equals(property)) {
+				// Spring 2.0 style
+				scope = StringUtils.trimWhitespace((String) entry.getValue());
+			} else if(SINGLETON_KEY.equals(property)) {
+				//Spring 1.2 style
+				String val = StringUtils.trimWhitespace((String) entry.getValue());
+				scope = ((val == null || TRUE_VALUE.equals(val) ? GenericBeanDefinition.SCOPE_SINGLETON : 
+					GenericBeanDefinition.SCOPE_PROTOTYPE));
+			} else if(LAZY_INIT_KEY.equals(property)) {
+				String val = StringUtils.trimWhitespace((String) entry.getValue());
+				lazyInit = TRUE_VALUE.equals(val);
+			} else if(property.startsWith(CONSTRUCTOR_ARG_PREFIX)) {
+				if(property.endsWith(REF_SUFFIX)) {
+					int index = Integer.parseInt(property.substring(1, property.length() - REF_SUFFIX.length()));
+					cas.addIndexedArgumentValue(index, new RuntimeBeanReference(entry.getValue().toString()));
 				} else {
-					// It's a normal bean property.
-					pvs.add(property, readValue(entry));
+					int index = Integer.parseInt(property.substring(1));
+					cas.addIndexedArgumentValue(index, readValue(entry));
 				}
+			} else if(property.endsWith(REF_SUFFIX)) {
+				// This isn't a real property, but a reference to another prototypes.
+				// Extract property name : property is of form dog(ref).
+				property = property.substring(0, property.length() - REF_SUFFIX.length());
+				String ref = StringUtils.trimWhitespace((String) entry.getValue());
+				
+				// It doesn't matter if the referenced bean hasn't yet been registered:
+				// this will ensure that the reference is resolved at runtime.
+				Object val = new RuntimeBeanReference(ref);
+				pvs.add(property, val);
+			} else {
+				// It's a normal bean property.
+				pvs.add(property, readValue(entry));
 			}
 		}
 		
 		if(logger.isDebugEnabled()) {
-			logger.debug("Registering bean definition for bean name '" + beanName + "' with " + pvs);
+			logger.debug("Creating bean definition for bean name '" + beanName + "' with " + pvs);
 		}
 		
 		// Just use default parent if we're not dealing with the parent itself,
@@ -478,7 +524,7 @@ public class PropertiesBeanDefinitionReader extends AbstractBeanDefinitionReader
 			bd.setLazyInit(lazyInit);
 			bd.setConstructorArgumentValues(cas);
 			bd.setPropertyValues(pvs);
-			getRegistry().registerBeanDefinition(beanName, bd);
+			return bd;
 		} catch (ClassNotFoundException e) {
 			throw new CannotLoadBeanClassException(resourceDescription, beanName, className, e);
 		} catch(LinkageError err) {
@@ -0,0 +1,206 @@
+package com.tutorial.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.tutorial.beans.PropertyValue;
+import com.tutorial.util.ClassUtils;
+import com.tutorial.util.ReflectionUtils;
+
+/**
+ * Precompiled recipe for creating further instances of a prototype bean,
+ * captured after the first instance has been created the regular way.
+ *
+ * <p>Holds the resolved constructor (plus its arguments, if those do not
+ * need to be resolved for every instance), a pre-bound setter for every
+ * property value (invoked through a generated {@link BeanAccessor} if the
+ * factory uses a {@link BytecodeInstantiationStrategy}), and the resolved
+ * init and destroy methods. Property values which have been fully converted
+ * during the first creation are applied as-is; all others (bean references,
+ * inner beans, collections) keep their original value for per-instance
+ * resolution.
+ *
+ * <p>Immutable once built, hence safe to publish through the volatile
+ * {@link RootBeanDefinition#prototypeCreationPlan} field.
+ *
+ * @see AbstractAutowireCapableBeanFactory#doCreateBean
+ */
+final class PrototypeCreationPlan {
+
+	private final Class<?> beanClass;
+
+	private final Constructor<?> constructor;
+
+	private final Object[] constructorArguments;
+
+	private final PropertySetter[] propertySetters;
+
+	private final boolean resolveNecessary;
+
+	private final Method initMethod;
+
+	private final String destroyMethodName;
+
+	private final Method destroyMethod;
+
+	/**
+	 * Create a new PrototypeCreationPlan.
+	 * @param beanClass the class of the instances created through this plan
+	 * @param constructor the resolved constructor
+	 * @param constructorArguments the fully resolved constructor arguments,
+	 * or <code>null</code> if they need to be resolved for every instance
+	 * @param propertySetters the setters for all property values, in definition order
+	 * @param initMethod the resolved custom init method, if any
+	 * @param destroyMethodName the name of the custom destroy method, if any
+	 * @param destroyMethod the resolved custom destroy method, if any
+	 */
+	PrototypeCreationPlan(Class<?> beanClass, Constructor<?> constructor, Object[] constructorArguments,
+			List<PropertySetter> propertySetters, Method initMethod, String destroyMethodName, Method destroyMethod) {
+		this.beanClass = beanClass;
+		this.constructor = constructor;
+		this.constructorArguments = constructorArguments;
+		this.propertySetters = propertySetters.toArray(new PropertySetter[propertySetters.size()]);
+		boolean resolveNecessary = false;
+		for(PropertySetter setter : this.propertySetters) {
+			resolveNecessary |= setter.isResolveNecessary();
+		}
+		this.resolveNecessary = resolveNecessary;
+		this.initMethod = initMethod;
+		this.destroyMethodName = destroyMethodName;
+		this.destroyMethod = destroyMethod;
+	}
+
+	public Class<?> getBeanClass() {
+		return this.beanClass;
+	}
+
+	public Constructor<?> getConstructor() {
+		return this.constructor;
+	}
+
+	/**
+	 * Return the fully resolved constructor arguments, or <code>null</code>
+	 * if the arguments need to be resolved for every instance.
+	 */
+	public Object[] getConstructorArguments() {
+		return this.constructorArguments;
+	}
+
+	public PropertySetter[] getPropertySetters() {
+		return this.propertySetters;
+	}
+
+	/**
+	 * Return whether any of the property values needs to be resolved
+	 * for every instance.
+	 */
+	public boolean isResolveNecessary() {
+		return this.resolveNecessary;
+	}
+
+	/**
+	 * Return the resolved init method for the given bean class, or
+	 * <code>null</code> if it has not been resolved for that class.
+	 */
+	public Method getInitMethod(Class<?> beanClass) {
+		return (this.beanClass == beanClass ? this.initMethod : null);
+	}
+
+	/**
+	 * Return the resolved destroy method with the given name for the given
+	 * bean class, or <code>null</code> if it has not been resolved for that class.
+	 */
+	public Method getDestroyMethod(Class<?> beanClass, String destroyMethodName) {
+		return (this.beanClass == beanClass && destroyMethodName != null &&
+				destroyMethodName.equals(this.destroyMethodName) ? this.destroyMethod : null);
+	}
+
+
+	/**
+	 * Pre-bound setter for a single property value.
+	 */
+	static final class PropertySetter {
+
+		private final PropertyValue propertyValue;
+
+		private final Method writeMethod;
+
+		private final BeanAccessor beanAccessor;
+
+		private final int writeMethodIndex;
+
+		private final boolean resolveNecessary;
+
+		private final Object convertedValue;
+
+		/**
+		 * Create a new PropertySetter for the given property value.
+		 * @param propertyValue the original property value from the bean definition
+		 * @param writeMethod the write method of the property
+		 * @param beanAccessor the generated accessor for the bean class,
+		 * or <code>null</code> to invoke the write method reflectively
+		 */
+		public PropertySetter(PropertyValue propertyValue, Method writeMethod, BeanAccessor beanAccessor) {
+			this.propertyValue = propertyValue;
+			this.writeMethod = writeMethod;
+			this.writeMethodIndex = (beanAccessor != null ? beanAccessor.getWriteMethodIndex(writeMethod) : -1);
+			this.beanAccessor = (this.writeMethodIndex >= 0 ? beanAccessor : null);
+			ReflectionUtils.makeAccessible(writeMethod);
+			synchronized(propertyValue) {
+				this.resolveNecessary = !propertyValue.isConverted();
+				this.convertedValue = (this.resolveNecessary ? null : propertyValue.getConvertedValue());
+			}
+		}
+
+		public String getPropertyName() {
+			return this.propertyValue.getName();
+		}
+
+		public Class<?> getPropertyType() {
+			return this.writeMethod.getParameterTypes()[0];
+		}
+
+		/**
+		 * Return the original property value, to be resolved for every
+		 * instance if {@link #isResolveNecessary()} returns <code>true</code>.
+		 */
+		public PropertyValue getPropertyValue() {
+			return this.propertyValue;
+		}
+
+		/**
+		 * Return whether the value needs to be resolved for every instance.
+		 */
+		public boolean isResolveNecessary() {
+			return this.resolveNecessary;
+		}
+
+		/**
+		 * Return the pre-converted value, for a property which does not
+		 * need to be resolved for every instance.
+		 */
+		public Object getConvertedValue() {
+			return this.convertedValue;
+		}
+
+		/**
+		 * Invoke the write method on the given bean.
+		 * @param bean the target bean
+		 * @param value the value to set
+		 */
+		public void setValue(Object bean, Object value) throws IllegalAccessException, InvocationTargetException {
+			if(this.beanAccessor != null && ClassUtils.isAssignableValue(getPropertyType(), value)) {
+				try {
+					this.beanAccessor.setPropertyValue(this.writeMethodIndex, bean, value);
+				} catch (Throwable ex) {
+					throw new InvocationTargetException(ex);
+				}
+			} else {
+				this.writeMethod.invoke(bean, value);
+			}
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.tutorial.beans.factory.support;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -50,6 +51,13 @@ public class ReplaceOverride extends MethodOverride {
 	public void addTypeIdentifier(String identifier) {
 		this.typeIdentifiers.add(identifier);
 	}
+	
+	/**
+	 * Return the type identifiers added so far.
+	 */
+	public List<String> getTypeIdentifiers() {
+		return Collections.unmodifiableList(this.typeIdentifiers);
+	}
 
 	@Override
 	public boolean matches(Method method) {
@@ -35,27 +35,25 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 
 	private static final long serialVersionUID = 1L;
 	
-	private final Set<Member> externallyManagedConfigMembers = Collections.synchronizedSet(new HashSet<Member>(0));
+	// Allocated on first registration: most bean definitions never get any.
+	private volatile Set<Member> externallyManagedConfigMembers;
 	
-	private final Set<String> externallyManagedInitMethods = Collections.synchronizedSet(new HashSet<String>(0));
+	private volatile Set<String> externallyManagedInitMethods;
 	
-	private final Set<String> externallyManagedDestroyMethods = Collections.synchronizedSet(new HashSet<String>(0));
+	private volatile Set<String> externallyManagedDestroyMethods;
 	
 	private BeanDefinitionHolder decoratedDefinition;
 	
 	private boolean isFactoryMethodUnique;
 	
-	/** Package-visible field for caching the resolved constructor or factory method */
-	Object resolvedConstructorOrFactoryMethod;
-	
-	/** Package-visible field that marks the constructor arguments as resolved */
-	boolean constructorArgumentsResolved = false;
-	
-	/** Package-visible field for caching fully resolved constructor arguments */
-	Object[] resolvedConstructorArgument;
+	/**
+	 * Package-visible field for caching the resolved constructor or factory method
+	 * and its arguments: read without locking, replaced under constructorArgumentLock
+	 */
+	volatile ConstructorResolution constructorResolution;
 	
-	/** Package-visible field for caching partly prepared constructor arguments */
-	Object[] preparedConstructorArguments;
+	/** Package-visible field for caching the generated accessor constructor, if any */
+	volatile BytecodeInstantiationStrategy.AccessorConstructor accessorConstructor;
 	
 	/** Package-visible field that indicates a before-instantiation post-processor having kicked in */
 	volatile Boolean beforeInstantiationResolved;
@@ -63,6 +61,9 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 	/** Package-visible field that indicates MergedBeanDefinitionPostProcessor having been applied */
 	boolean postProcessed = false;
 	
+	/** Package-visible field for caching the creation plan of a prototype bean */
+	volatile PrototypeCreationPlan prototypeCreationPlan;
+	
 	final Object constructorArgumentLock = new Object();
 	
 	final Object postProcessingLock = new Object();
@@ -229,34 +230,51 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 	 * @return the factory method, or <code>null</code> if not found or not resolved yet
 	 */
 	public Method getResolvedFactoryMethod() {
-		synchronized (this.constructorArgumentLock) {
-			Object candidate = this.resolvedConstructorOrFactoryMethod;
-			return (candidate instanceof Method ? (Method) candidate : null);
-		}
+		ConstructorResolution resolution = this.constructorResolution;
+		Object candidate = (resolution != null ? resolution.getConstructorOrFactoryMethod() : null);
+		return (candidate instanceof Method ? (Method) candidate : null);
 	}
 	
 	public void registerExternallyManagedConfigMember(Member configMember) {
-		this.externallyManagedConfigMembers.add(configMember);
+		synchronized(this.postProcessingLock) {
+			if(this.externallyManagedConfigMembers == null) {
+				this.externallyManagedConfigMembers = Collections.synchronizedSet(new HashSet<Member>(4));
+			}
+			this.externallyManagedConfigMembers.add(configMember);
+		}
 	}
 	
 	public boolean isExternallyManagedConfigMember(Member configMember) {
-		return this.externallyManagedConfigMembers.contains(configMember);
+		Set<Member> members = this.externallyManagedConfigMembers;
+		return (members != null && members.contains(configMember));
 	}
 	
 	public void registerExternallyManagedInitMethod(String initMethod) {
-		this.externallyManagedInitMethods.add(initMethod);
+		synchronized(this.postProcessingLock) {
+			if(this.externallyManagedInitMethods == null) {
+				this.externallyManagedInitMethods = Collections.synchronizedSet(new HashSet<String>(4));
+			}
+			this.externallyManagedInitMethods.add(initMethod);
+		}
 	}
 
 	public boolean isExternallyManagedInitMethod(String initMethod) {
-		return this.externallyManagedInitMethods.contains(initMethod);
+		Set<String> initMethods = this.externallyManagedInitMethods;
+		return (initMethods != null && initMethods.contains(initMethod));
 	}
 
 	public void registerExternallyManagedDestroyMethod(String destroyMethod) {
-		this.externallyManagedDestroyMethods.add(destroyMethod);
+		synchronized(this.postProcessingLock) {
+			if(this.externallyManagedDestroyMethods == null) {
+				this.externallyManagedDestroyMethods = Collections.synchronizedSet(new HashSet<String>(4));
+			}
+			this.externallyManagedDestroyMethods.add(destroyMethod);
+		}
 	}
 
 	public boolean isExternallyManagedDestroyMethod(String destroyMethod) {
-		return this.externallyManagedDestroyMethods.contains(destroyMethod);
+		Set<String> destroyMethods = this.externallyManagedDestroyMethods;
+		return (destroyMethods != null && destroyMethods.contains(destroyMethod));
 	}
 
 	public String getParentName() {
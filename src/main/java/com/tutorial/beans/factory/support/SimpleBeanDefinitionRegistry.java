@@ -43,6 +43,15 @@ public class SimpleBeanDefinitionRegistry extends SimpleAliasRegistry implements
 		this.beanDefinitionMap.put(beanName, beanDefinition);
 	}
 
+	public void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions)
+			throws BeanDefinitionStoreException {
+		
+		Assert.notNull(beanDefinitions, "BeanDefinition Map must not be null");
+		for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+			registerBeanDefinition(entry.getKey(), entry.getValue());
+		}
+	}
+
 	public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
 		if(this.beanDefinitionMap.remove(beanName) == null) {
 			throw new NoSuchBeanDefinitionException(beanName);
@@ -32,31 +32,39 @@ public abstract class SimpleInstantiationStrategy implements InstantiationStrate
 	public Object instantiate(RootBeanDefinition beanDefinition, String beanName, BeanFactory owner)
 			throws BeansException {
 		// Don't override the class with CGLIB if no overrides.
-		if(beanDefinition.getMethodOverrides().isEmpty()) {
-			Constructor<?> constructorToUse = null;
-			synchronized(beanDefinition.constructorArgumentLock) {
-				constructorToUse = (Constructor<?>) beanDefinition.resolvedConstructorOrFactoryMethod;
-				if(constructorToUse == null) {
-					final Class<?> clazz = beanDefinition.getBeanClass();
-					if(clazz.isInterface()) {
-						throw new BeanInstantiationException(clazz, "Specified class is an interface");
-					}
-					try {
-						if(System.getSecurityManager() != null) {
-							constructorToUse = AccessController.doPrivileged(new PrivilegedExceptionAction<Constructor<?>>() {
-								public Constructor<?> run() throws Exception {
-									return clazz.getDeclaredConstructor((Class<?>[]) null);
-								}
-							});
-						} else {
-							constructorToUse = clazz.getDeclaredConstructor((Class<?>[]) null);
+		if(!beanDefinition.hasMethodOverrides()) {
+			ConstructorResolution resolution = beanDefinition.constructorResolution;
+			Constructor<?> constructorToUse = 
+					(resolution != null ? (Constructor<?>) resolution.getConstructorOrFactoryMethod() : null);
+			if(constructorToUse == null) {
+				synchronized(beanDefinition.constructorArgumentLock) {
+					resolution = beanDefinition.constructorResolution;
+					constructorToUse = 
+							(resolution != null ? (Constructor<?>) resolution.getConstructorOrFactoryMethod() : null);
+					if(constructorToUse == null) {
+						final Class<?> clazz = beanDefinition.getBeanClass();
+						if(clazz.isInterface()) {
+							throw new BeanInstantiationException(clazz, "Specified class is an interface");
+						}
+						try {
+							if(System.getSecurityManager() != null) {
+								constructorToUse = AccessController.doPrivileged(new PrivilegedExceptionAction<Constructor<?>>() {
+									public Constructor<?> run() throws Exception {
+										return clazz.getDeclaredConstructor((Class<?>[]) null);
+									}
+								});
+							} else {
+								constructorToUse = clazz.getDeclaredConstructor((Class<?>[]) null);
+							}
+							beanDefinition.constructorResolution = (resolution != null ?
+									resolution.withConstructorOrFactoryMethod(constructorToUse) :
+									new ConstructorResolution(constructorToUse));
+						} catch (Exception ex) {
+							throw new BeanInstantiationException(clazz, "No default constructor found", ex);
 						}
-						beanDefinition.resolvedConstructorOrFactoryMethod = constructorToUse;
-					} catch (Exception ex) {
-						throw new BeanInstantiationException(clazz, "No default constructor found", ex);
 					}
 				}
-			} 
+			}
 			return BeanUtils.instantiateClass(constructorToUse);
 		} else {
 			// must generate CGLIB subclass.
@@ -104,7 +112,7 @@ public abstract class SimpleInstantiationStrategy implements InstantiationStrate
 
 	public Object instantiate(RootBeanDefinition beanDefinition, String beanName, BeanFactory owner,
 			final Constructor<?> ctor, Object[] args) throws BeansException {
-		if(beanDefinition.getMethodOverrides().isEmpty()) {
+		if(!beanDefinition.hasMethodOverrides()) {
 			if(System.getSecurityManager() != null) {
 				// use own privileged to change accessibility (when security is on)
 				AccessController.doPrivileged(new PrivilegedAction<Object>() {
@@ -0,0 +1,139 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a {@link DefaultSingletonBeanRegistry#destroySingletons()} run:
+ * the time taken to destroy each singleton, the singletons whose destruction
+ * timed out, and the overall shutdown time.
+ *
+ * <p>The destruction time of a bean includes the destruction of any beans
+ * that had to be destroyed along with it, e.g. beans it contains.
+ *
+ * @see DefaultSingletonBeanRegistry#getLastDestructionReport()
+ * @see DefaultSingletonBeanRegistry#setDestructionParallelism
+ */
+public class SingletonDestructionReport {
+
+	/** Number of slowest beans listed by {@link #toString()} */
+	private static final int SLOWEST_BEANS_IN_SUMMARY = 5;
+
+	private final Map<String, Long> destructionTimes = new LinkedHashMap<String, Long>();
+
+	private final List<String> timedOutBeans = new ArrayList<String>();
+
+	private int waveCount = 0;
+
+	private long totalNanos;
+
+	SingletonDestructionReport() {
+	}
+
+
+	void beanDestroyed(String beanName, long durationNanos) {
+		this.destructionTimes.put(beanName, durationNanos);
+	}
+
+	void beanTimedOut(String beanName) {
+		this.timedOutBeans.add(beanName);
+	}
+
+	void setWaveCount(int waveCount) {
+		this.waveCount = waveCount;
+	}
+
+	void setTotalNanos(long totalNanos) {
+		this.totalNanos = totalNanos;
+	}
+
+
+	/**
+	 * Return the time taken to destroy each bean, in nanoseconds, in the order
+	 * in which the beans have been destroyed. Beans that timed out are not included.
+	 */
+	public Map<String, Long> getDestructionTimes() {
+		return Collections.unmodifiableMap(this.destructionTimes);
+	}
+
+	/**
+	 * Return the time taken to destroy the given bean.
+	 * @param beanName the name of the bean
+	 * @return the destruction time in nanoseconds, or -1 if the bean has not
+	 * been destroyed in this run or its destruction timed out
+	 */
+	public long getDestructionTimeNanos(String beanName) {
+		Long destructionTime = this.destructionTimes.get(beanName);
+		return (destructionTime != null ? destructionTime : -1);
+	}
+
+	/**
+	 * Return the beans whose destruction did not complete within the
+	 * {@link DefaultSingletonBeanRegistry#setDestructionTimeout destruction timeout}.
+	 */
+	public List<String> getTimedOutBeans() {
+		return Collections.unmodifiableList(this.timedOutBeans);
+	}
+
+	/**
+	 * Return the names of the beans that took longest to destroy, slowest first.
+	 * @param maxBeans the maximum number of beans to return
+	 */
+	public List<String> getSlowestBeans(int maxBeans) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(this.destructionTimes.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+		List<String> result = new ArrayList<String>(Math.min(maxBeans, entries.size()));
+		for(int i = 0; i < entries.size() && i < maxBeans; i++) {
+			result.add(entries.get(i).getKey());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of dependency waves the beans have been destroyed in,
+	 * or 0 if they have been destroyed serially.
+	 */
+	public int getWaveCount() {
+		return this.waveCount;
+	}
+
+	/**
+	 * Return the overall time taken by <code>destroySingletons</code>, in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Destroyed ").append(this.destructionTimes.size()).append(" singletons");
+		if(this.waveCount > 0) {
+			sb.append(" in ").append(this.waveCount).append(" waves");
+		}
+		sb.append(" in ").append(this.totalNanos / 1000000).append(" ms");
+		List<String> slowestBeans = getSlowestBeans(SLOWEST_BEANS_IN_SUMMARY);
+		if(!slowestBeans.isEmpty()) {
+			sb.append("; slowest: ");
+			for(int i = 0; i < slowestBeans.size(); i++) {
+				if(i > 0) {
+					sb.append(", ");
+				}
+				String beanName = slowestBeans.get(i);
+				sb.append(beanName).append(" (").append(this.destructionTimes.get(beanName) / 1000000).append(" ms)");
+			}
+		}
+		if(!this.timedOutBeans.isEmpty()) {
+			sb.append("; timed out: ").append(this.timedOutBeans);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,359 @@
+package com.tutorial.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.tutorial.beans.MutablePropertyValues;
+import com.tutorial.beans.PropertyValue;
+import com.tutorial.beans.factory.BeanDefinitionStoreException;
+import com.tutorial.beans.factory.NoSuchBeanDefinitionException;
+import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.config.BeanDefinitionHolder;
+import com.tutorial.beans.factory.config.ConstructorArgumentValues;
+import com.tutorial.beans.factory.config.RuntimeBeanNameReference;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
+import com.tutorial.core.SimpleAliasRegistry;
+import com.tutorial.util.Assert;
+import com.tutorial.util.StringUtils;
+
+/**
+ * Registry that a bean definition reader parses a single resource into while
+ * other resources are parsed concurrently, recording every registration so
+ * that it can be replayed into the target registry later, in resource order.
+ *
+ * <p>Lookups see the staged bean definitions and aliases on top of the target
+ * registry's current content. Bean names generated while staging are generated
+ * again against the target registry when replaying, so that generated names
+ * come out exactly as with serial loading. References to such beans from the
+ * staged bean definitions (bean references, parent, factory bean and depends-on
+ * names) as well as staged alias operations get remapped accordingly.
+ *
+ * @see AbstractBeanDefinitionReader#setParallelism
+ */
+class StagingBeanDefinitionRegistry extends SimpleAliasRegistry implements BeanDefinitionRegistry {
+
+	private final BeanDefinitionRegistry target;
+
+	private final Map<String, BeanDefinition> beanDefinitionMap = new LinkedHashMap<String, BeanDefinition>();
+
+	private final Set<String> removedBeanNames = new HashSet<String>();
+
+	private final List<Registration> registrations = new ArrayList<Registration>();
+
+	private final Set<String> generatedBeanNames = new HashSet<String>();
+
+	public StagingBeanDefinitionRegistry(BeanDefinitionRegistry target) {
+		Assert.notNull(target, "Target BeanDefinitionRegistry must not be null");
+		this.target = target;
+	}
+
+
+	public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition)
+			throws BeanDefinitionStoreException {
+		Assert.hasText(beanName, "'beanName' must not be empty");
+		Assert.notNull(beanDefinition, "BeanDefinition must not be null");
+		this.beanDefinitionMap.put(beanName, beanDefinition);
+		this.removedBeanNames.remove(beanName);
+		this.registrations.add(new Registration(Registration.REGISTER_BEAN_DEFINITION, beanName, beanDefinition));
+	}
+
+	public void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions)
+			throws BeanDefinitionStoreException {
+		for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+			registerBeanDefinition(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+		if(!containsBeanDefinition(beanName)) {
+			throw new NoSuchBeanDefinitionException(beanName);
+		}
+		this.beanDefinitionMap.remove(beanName);
+		this.removedBeanNames.add(beanName);
+		this.registrations.add(new Registration(Registration.REMOVE_BEAN_DEFINITION, beanName, null));
+	}
+
+	public BeanDefinition getBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+		BeanDefinition bd = this.beanDefinitionMap.get(beanName);
+		if(bd != null) {
+			return bd;
+		}
+		if(this.removedBeanNames.contains(beanName)) {
+			throw new NoSuchBeanDefinitionException(beanName);
+		}
+		return this.target.getBeanDefinition(beanName);
+	}
+
+	public boolean containsBeanDefinition(String beanName) {
+		return this.beanDefinitionMap.containsKey(beanName) ||
+				(!this.removedBeanNames.contains(beanName) && this.target.containsBeanDefinition(beanName));
+	}
+
+	public String[] getBeanDefinitionNames() {
+		Set<String> beanNames = new LinkedHashSet<String>();
+		for(String beanName : this.target.getBeanDefinitionNames()) {
+			if(!this.removedBeanNames.contains(beanName)) {
+				beanNames.add(beanName);
+			}
+		}
+		beanNames.addAll(this.beanDefinitionMap.keySet());
+		return StringUtils.toStringArray(beanNames);
+	}
+
+	public int getBeanDefinitionCount() {
+		return getBeanDefinitionNames().length;
+	}
+
+	public boolean isBeanNameInUse(String beanName) {
+		return isAlias(beanName) || containsBeanDefinition(beanName);
+	}
+
+	@Override
+	public void registerAlias(String name, String alias) {
+		super.registerAlias(name, alias);
+		this.registrations.add(new Registration(Registration.REGISTER_ALIAS, name, alias));
+	}
+
+	@Override
+	public void removeAlias(String alias) {
+		if(super.isAlias(alias)) {
+			super.removeAlias(alias);
+		} else if(!this.target.isAlias(alias)) {
+			throw new IllegalStateException("No alias '" + alias + "' registered");
+		}
+		this.registrations.add(new Registration(Registration.REMOVE_ALIAS, alias, null));
+	}
+
+	@Override
+	public boolean isAlias(String beanName) {
+		return super.isAlias(beanName) || this.target.isAlias(beanName);
+	}
+
+	@Override
+	public String[] getAliases(String name) {
+		Set<String> aliases = new LinkedHashSet<String>();
+		Collections.addAll(aliases, this.target.getAliases(name));
+		Collections.addAll(aliases, super.getAliases(name));
+		return StringUtils.toStringArray(aliases);
+	}
+
+
+	/**
+	 * Wrap the given generator so that the bean names it generates for this
+	 * registry get recorded, in order to be generated again when replaying.
+	 */
+	public BeanNameGenerator recordingBeanNameGenerator(final BeanNameGenerator beanNameGenerator) {
+		return new BeanNameGenerator() {
+			public String generateBeanName(BeanDefinition definition, BeanDefinitionRegistry registry) {
+				String beanName = beanNameGenerator.generateBeanName(definition, registry);
+				generatedBeanNames.add(beanName);
+				return beanName;
+			}
+		};
+	}
+
+	/**
+	 * Replay all recorded registrations into the target registry, in the
+	 * order they were made.
+	 * <p>If any generated bean name came out differently, the replayed bean
+	 * definitions get their references remapped in place once all of them have
+	 * been registered, since a reference may precede the registration of the
+	 * bean it refers to.
+	 * @param beanNameGenerator the generator to generate bean names with,
+	 * for beans that did not specify a name
+	 * @param failureHandler handler for failed bean definition registrations
+	 * (may rethrow the given exception)
+	 */
+	public void replay(BeanNameGenerator beanNameGenerator, RegistrationFailureHandler failureHandler) {
+		Map<String, String> actualNames = new HashMap<String, String>();
+		for(Registration registration : this.registrations) {
+			switch(registration.type) {
+				case Registration.REGISTER_BEAN_DEFINITION: {
+					String beanName = registration.name;
+					BeanDefinition bd = (BeanDefinition) registration.value;
+					if(this.generatedBeanNames.contains(beanName)) {
+						String actualName = beanNameGenerator.generateBeanName(bd, this.target);
+						if(!actualName.equals(beanName)) {
+							actualNames.put(beanName, actualName);
+						}
+						beanName = actualName;
+					}
+					try {
+						this.target.registerBeanDefinition(beanName, bd);
+					} catch (BeanDefinitionStoreException ex) {
+						failureHandler.registrationFailed(beanName, ex);
+					}
+					break;
+				}
+				case Registration.REMOVE_BEAN_DEFINITION:
+					this.target.removeBeanDefinition(actualName(registration.name, actualNames));
+					break;
+				case Registration.REGISTER_ALIAS: {
+					String name = actualName(registration.name, actualNames);
+					String alias = (String) registration.value;
+					if(this.generatedBeanNames.contains(registration.name) && this.target.isBeanNameInUse(alias) &&
+							this.target.containsBeanDefinition(name) &&
+							alias.equals(this.target.getBeanDefinition(name).getBeanClassName())) {
+						// Plain class name alias for a generated bean name: only if still available.
+						break;
+					}
+					this.target.registerAlias(name, alias);
+					break;
+				}
+				case Registration.REMOVE_ALIAS:
+					this.target.removeAlias(actualName(registration.name, actualNames));
+					break;
+			}
+		}
+		if(!actualNames.isEmpty()) {
+			for(Registration registration : this.registrations) {
+				if(registration.type == Registration.REGISTER_BEAN_DEFINITION) {
+					remapBeanNames((BeanDefinition) registration.value, actualNames);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replace the bean names that the given bean definition refers to, including
+	 * the ones referred to by inner bean definitions and collection elements.
+	 */
+	private static void remapBeanNames(BeanDefinition bd, Map<String, String> actualNames) {
+		if(bd.getParentName() != null) {
+			bd.setParentName(actualName(bd.getParentName(), actualNames));
+		}
+		if(bd.getFactoryBeanName() != null) {
+			bd.setFactoryBeanName(actualName(bd.getFactoryBeanName(), actualNames));
+		}
+		String[] dependsOn = bd.getDependsOn();
+		if(dependsOn != null) {
+			for(int i = 0; i < dependsOn.length; i++) {
+				dependsOn[i] = actualName(dependsOn[i], actualNames);
+			}
+			bd.setDependsOn(dependsOn);
+		}
+		MutablePropertyValues pvs = bd.getPropertyValues();
+		for(int i = 0; i < pvs.getPropertyValueList().size(); i++) {
+			PropertyValue pv = pvs.getPropertyValueList().get(i);
+			Object value = remapValue(pv.getValue(), actualNames);
+			if(value != pv.getValue()) {
+				pvs.setPropertyValueAt(new PropertyValue(pv, value), i);
+			}
+		}
+		ConstructorArgumentValues cas = bd.getConstructorArgumentValues();
+		for(ConstructorArgumentValues.ValueHolder valueHolder : cas.getIndexedArgumentValues().values()) {
+			valueHolder.setValue(remapValue(valueHolder.getValue(), actualNames));
+		}
+		for(ConstructorArgumentValues.ValueHolder valueHolder : cas.getGenericArgumentValues()) {
+			valueHolder.setValue(remapValue(valueHolder.getValue(), actualNames));
+		}
+	}
+
+	/**
+	 * Remap the bean names that the given property or constructor argument value
+	 * refers to, returning a new bean reference or the given value itself.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Object remapValue(Object value, Map<String, String> actualNames) {
+		if(value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			String actualName = actualNames.get(ref.getBeanName());
+			if(actualName != null && !ref.isToParent()) {
+				RuntimeBeanReference actualRef = new RuntimeBeanReference(actualName);
+				actualRef.setSource(ref.getSource());
+				return actualRef;
+			}
+		} else if(value instanceof RuntimeBeanNameReference) {
+			RuntimeBeanNameReference ref = (RuntimeBeanNameReference) value;
+			String actualName = actualNames.get(ref.getBeanName());
+			if(actualName != null) {
+				RuntimeBeanNameReference actualRef = new RuntimeBeanNameReference(actualName);
+				actualRef.setSource(ref.getSource());
+				return actualRef;
+			}
+		} else if(value instanceof BeanDefinitionHolder) {
+			remapBeanNames(((BeanDefinitionHolder) value).getBeanDefinition(), actualNames);
+		} else if(value instanceof BeanDefinition) {
+			remapBeanNames((BeanDefinition) value, actualNames);
+		} else if(value instanceof Object[]) {
+			Object[] array = (Object[]) value;
+			for(int i = 0; i < array.length; i++) {
+				array[i] = remapValue(array[i], actualNames);
+			}
+		} else if(value instanceof List) {
+			List list = (List) value;
+			for(int i = 0; i < list.size(); i++) {
+				Object element = list.get(i);
+				Object actualElement = remapValue(element, actualNames);
+				if(actualElement != element) {
+					list.set(i, actualElement);
+				}
+			}
+		} else if(value instanceof Set) {
+			Set set = (Set) value;
+			List elements = new ArrayList(set);
+			set.clear();
+			for(Object element : elements) {
+				set.add(remapValue(element, actualNames));
+			}
+		} else if(value instanceof Map) {
+			Map map = (Map) value;
+			Map entries = new LinkedHashMap(map);
+			map.clear();
+			for(Object entry : entries.entrySet()) {
+				Map.Entry mapEntry = (Map.Entry) entry;
+				map.put(remapValue(mapEntry.getKey(), actualNames), remapValue(mapEntry.getValue(), actualNames));
+			}
+		}
+		return value;
+	}
+
+	private static String actualName(String name, Map<String, String> actualNames) {
+		String actualName = actualNames.get(name);
+		return (actualName != null ? actualName : name);
+	}
+
+
+	/**
+	 * Callback for bean definitions that the target registry refused while replaying.
+	 */
+	public interface RegistrationFailureHandler {
+
+		void registrationFailed(String beanName, BeanDefinitionStoreException ex);
+	}
+
+
+	/**
+	 * A single recorded registry operation.
+	 */
+	private static class Registration {
+
+		static final int REGISTER_BEAN_DEFINITION = 0;
+
+		static final int REMOVE_BEAN_DEFINITION = 1;
+
+		static final int REGISTER_ALIAS = 2;
+
+		static final int REMOVE_ALIAS = 3;
+
+		final int type;
+
+		final String name;
+
+		final Object value;
+
+		Registration(int type, String name, Object value) {
+			this.type = type;
+			this.name = name;
+			this.value = value;
+		}
+	}
+
+}
@@ -84,7 +84,7 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 	 */
 	public void registerBeanDefinitions(Document doc, XmlReaderContext readerContext)
 			throws BeanDefinitionStoreException {
-		this.readerContext = readerContext;
+		setReaderContext(readerContext);
 		
 		logger.debug("Loading bean definitions");
 		Element root = doc.getDocumentElement();
@@ -92,6 +92,14 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 		doRegisterBeanDefinitions(root); 
 	}
 	
+	/**
+	 * Set the descriptor for the XML resource that this parser works on.
+	 * Called at the start of each <code>registerBeanDefinitions</code> run.
+	 */
+	protected final void setReaderContext(XmlReaderContext readerContext) {
+		this.readerContext = readerContext;
+	}
+	
 	/**
 	 * Return the descriptor for the XML resource that this parser works on.
 	 */
@@ -106,14 +114,8 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 	 * @see #setEnvironment
 	 */
 	protected void doRegisterBeanDefinitions(Element root) {
-		String profileSpec = root.getAttribute(PROFILE_ATTRIBUTE);
-		if(StringUtils.hasText(profileSpec)) {
-			Assert.state(this.environment != null, "environment property must not be null");
-			String[] specifiedProfiles = StringUtils.tokenizeToStringArray(profileSpec, 
-					BeanDefinitionParserDelegate.MULTI_VALUE_ATTRIBUTE_DELIMITERS);
-			if(!this.environment.acceptsProfiles(specifiedProfiles)) {
-				return;
-			}
+		if(!isProfileAccepted(root)) {
+			return;
 		}
 		
 		// any nested <beans> elements will cause recursion in this method. In order to 
@@ -131,6 +133,23 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 		this.delegate = parent;
  	}
 
+	/**
+	 * Check whether the given {@code <beans/>} element is to be included,
+	 * according to its {@code profile} attribute (if any).
+	 * @throws IllegalStateException if {@code <beans profile="..."} attribute is present
+	 * and Environment property has not been set
+	 */
+	protected boolean isProfileAccepted(Element root) {
+		String profileSpec = root.getAttribute(PROFILE_ATTRIBUTE);
+		if(StringUtils.hasText(profileSpec)) {
+			Assert.state(this.environment != null, "environment property must not be null");
+			String[] specifiedProfiles = StringUtils.tokenizeToStringArray(profileSpec, 
+					BeanDefinitionParserDelegate.MULTI_VALUE_ATTRIBUTE_DELIMITERS);
+			return this.environment.acceptsProfiles(specifiedProfiles);
+		}
+		return true;
+	}
+
 	/**
 	 * Parse the elements at the root level in the document:
 	 * "import", "alias", "bean".
@@ -155,7 +174,11 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 		}
 	}
 
-	private void parseDefaultElement(Element ele, BeanDefinitionParserDelegate delegate) {
+	/**
+	 * Parse the given root-level element of the default namespace:
+	 * "import", "alias", "bean" or nested "beans".
+	 */
+	protected void parseDefaultElement(Element ele, BeanDefinitionParserDelegate delegate) {
 		if(delegate.nodeNameEquals(ele, IMPORT_ELEMENT)) {
 			importBeanDefinitionResource(ele);
 		} else if(delegate.nodeNameEquals(ele, ALIAS_ELEMENT)) {
@@ -1,16 +1,45 @@
 package com.tutorial.beans.factory.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
+import com.tutorial.core.NamedThreadLocal;
+import com.tutorial.util.FileCopyUtils;
+import com.tutorial.util.ObjectUtils;
+import com.tutorial.util.StringUtils;
 import com.tutorial.util.xml.XmlValidationModeDetector;
 
 /**
@@ -24,6 +53,28 @@ import com.tutorial.util.xml.XmlValidationModeDetector;
  *
  * <pre code="class">java -Djavax.xml.parsers.DocumentBuilderFactory=oracle.xml.jaxp.JXDocumentBuilderFactory MyMainClass</pre>
  *
+ * <p>Since loading many documents is dominated by parser setup and grammar
+ * processing rather than by the documents themselves, this loader reuses its
+ * parsing infrastructure across documents:
+ * <ul>
+ * <li>{@link DocumentBuilder DocumentBuilders} are pooled per thread and
+ * configuration, and {@link DocumentBuilder#reset() reset} for reuse;
+ * <li>DTDs and XML schemas resolved through the {@link EntityResolver} are
+ * cached by system id, so they get read from the class path only once;
+ * <li>for XSD validation, the schemas declared by the root element's
+ * <code>xsi:schemaLocation</code> are compiled once into a
+ * {@link Schema} that all documents declaring the same locations share.
+ * The root element is detected within the first 16 KB of the document, which
+ * get scanned with a StAX reader ahead of the actual parsing; if any element
+ * within those 16 KB declares further schema locations, the document is left
+ * to the parser's own schema processing instead. Schema locations declared
+ * further down in larger documents are not detected, so such documents need
+ * to declare all their schemas at the root element or within the first 16 KB,
+ * or to be loaded with grammar caching switched off.
+ * </ul>
+ * The caches assume that a system id always resolves to the same grammar.
+ * Either kind of reuse can be switched off.
+ *
  * @author Rob Harrop
  * @author Juergen Hoeller
  * @since 2.0
@@ -40,7 +91,55 @@ public class DefaultDocumentLoader implements DocumentLoader {
 	 */
 	private static final String XSD_SCHEMA_LANGUAGE = "http://www.w3.org/2001/XMLSchema";
 	
+	/**
+	 * Number of bytes to look ahead for the schema locations declared by a document.
+	 */
+	private static final int SCHEMA_LOCATION_LOOKAHEAD = 16384;
+	
 	protected static final Log logger = LogFactory.getLog(DefaultDocumentLoader.class); 
+	
+	private boolean poolDocumentBuilders = true;
+	
+	private boolean cacheGrammars = true;
+	
+	private final ThreadLocal<Map<BuilderKey, DocumentBuilder>> documentBuilderPool = 
+			new NamedThreadLocal<Map<BuilderKey, DocumentBuilder>>("Pooled DocumentBuilders");
+	
+	/** Grammar (DTD and XSD) content, keyed by system id */
+	private final Map<String, byte[]> grammarCache = new ConcurrentHashMap<String, byte[]>();
+	
+	/** Compiled schemas, keyed by the schema locations they have been compiled from */
+	private final Map<String, Schema> schemaCache = new ConcurrentHashMap<String, Schema>();
+	
+	private volatile XMLInputFactory xmlInputFactory;
+	
+	/**
+	 * Set whether to pool DocumentBuilders per thread for reuse. Default is "true".
+	 * <p>Note that pooled builders get {@link DocumentBuilder#reset() reset} to the
+	 * state they have been created in by their factory before each reuse, so any
+	 * further initialization in {@link #createDocumentBuilder} other than setting
+	 * the EntityResolver and ErrorHandler does not survive their first document.
+	 */
+	public void setPoolDocumentBuilders(boolean poolDocumentBuilders) {
+		this.poolDocumentBuilders = poolDocumentBuilders;
+	}
+	
+	/**
+	 * Set whether to cache resolved DTDs and XML schemas and to share compiled
+	 * XML schemas between documents. Default is "true".
+	 */
+	public void setCacheGrammars(boolean cacheGrammars) {
+		this.cacheGrammars = cacheGrammars;
+	}
+	
+	/**
+	 * Discard all cached grammars and compiled schemas, e.g. after
+	 * schema files have changed.
+	 */
+	public void clearGrammarCache() {
+		this.grammarCache.clear();
+		this.schemaCache.clear();
+	}
 
 	/**
 	 * Load the {@link Document} at the supplied {@link InputSource} using the standard JAXP-configured
@@ -49,12 +148,222 @@ public class DefaultDocumentLoader implements DocumentLoader {
 	public Document loadDocument(InputSource inputSource, EntityResolver entityResolver, ErrorHandler errorHandler,
 			int validationMode, boolean namespaceAware) throws Exception {
 		
-		DocumentBuilderFactory factory = createDocumentBuilderFactory(validationMode, namespaceAware);
-		if(logger.isDebugEnabled()) {
-			logger.debug("Using JAXP provider [" + factory.getClass().getName() + "]");
+		if(this.cacheGrammars) {
+			if(entityResolver != null) {
+				entityResolver = new CachingEntityResolver(entityResolver);
+			}
+			if(validationMode == XmlValidationModeDetector.VALIDATION_XSD && inputSource.getByteStream() != null) {
+				InputStream inputStream = inputSource.getByteStream();
+				byte[] head = readHead(inputStream);
+				InputSource fullSource = new InputSource(
+						new SequenceInputStream(new ByteArrayInputStream(head), inputStream));
+				fullSource.setEncoding(inputSource.getEncoding());
+				fullSource.setPublicId(inputSource.getPublicId());
+				fullSource.setSystemId(inputSource.getSystemId());
+				inputSource = fullSource;
+				
+				String[] schemaLocations = detectSchemaLocations(head, inputSource.getEncoding());
+				if(!ObjectUtils.isEmpty(schemaLocations)) {
+					Schema schema = getSchema(schemaLocations, entityResolver, errorHandler);
+					// Validate against the compiled schema instead of having the parser process it again.
+					return parse(new BuilderKey(XmlValidationModeDetector.VALIDATION_NONE, true, schema), 
+							inputSource, entityResolver, errorHandler);
+				}
+			}
+		}
+		return parse(new BuilderKey(validationMode, namespaceAware, null), inputSource, entityResolver, errorHandler);
+	}
+	
+	/**
+	 * Parse the given document with a DocumentBuilder for the given configuration,
+	 * taken from this thread's pool or newly created.
+	 */
+	private Document parse(BuilderKey key, InputSource inputSource, EntityResolver entityResolver, 
+			ErrorHandler errorHandler) throws Exception {
+		
+		Map<BuilderKey, DocumentBuilder> pool = null;
+		DocumentBuilder builder = null;
+		if(this.poolDocumentBuilders) {
+			pool = this.documentBuilderPool.get();
+			if(pool == null) {
+				pool = new HashMap<BuilderKey, DocumentBuilder>(4);
+				this.documentBuilderPool.set(pool);
+			}
+			// Taken out of the pool while in use, for nested parsing to get a builder of its own.
+			builder = pool.remove(key);
+		}
+		if(builder != null) {
+			if(entityResolver != null) {
+				builder.setEntityResolver(entityResolver);
+			}
+			if(errorHandler != null) {
+				builder.setErrorHandler(errorHandler);
+			}
+		} else {
+			DocumentBuilderFactory factory = createDocumentBuilderFactory(key.validationMode, key.namespaceAware);
+			if(key.schema != null) {
+				factory.setSchema(key.schema);
+			}
+			if(logger.isDebugEnabled()) {
+				logger.debug("Using JAXP provider [" + factory.getClass().getName() + "]");
+			}
+			builder = createDocumentBuilder(factory, entityResolver, errorHandler);
+		}
+		try {
+			return builder.parse(inputSource);
+		} finally {
+			if(pool != null) {
+				try {
+					builder.reset();
+					pool.put(key, builder);
+				} catch (UnsupportedOperationException ex) {
+					// JAXP provider without reset support: do not reuse the builder.
+				}
+			}
 		}
-		DocumentBuilder builder = createDocumentBuilder(factory, entityResolver, errorHandler);
-		return builder.parse(inputSource);
+	}
+	
+	/**
+	 * Read the head of the given stream, for detecting the schema locations declared by the document.
+	 */
+	private byte[] readHead(InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[SCHEMA_LOCATION_LOOKAHEAD];
+		int length = 0;
+		int bytesRead;
+		while(length < buffer.length && (bytesRead = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+			length += bytesRead;
+		}
+		if(length == buffer.length) {
+			return buffer;
+		}
+		byte[] head = new byte[length];
+		System.arraycopy(buffer, 0, head, 0, length);
+		return head;
+	}
+	
+	/**
+	 * Detect the schema locations declared by the root element, i.e. the locations in its
+	 * <code>xsi:schemaLocation</code> and <code>xsi:noNamespaceSchemaLocation</code> attributes.
+	 * @param head the head of the document
+	 * @param encoding the encoding of the document, if known
+	 * @return the schema locations, or <code>null</code> if the root element could not be
+	 * found within the head of the document, or if any further element within the head
+	 * declares schema locations that the root does not, which a schema compiled from the
+	 * root's locations would not cover
+	 */
+	private String[] detectSchemaLocations(byte[] head, String encoding) {
+		XMLInputFactory factory = this.xmlInputFactory;
+		if(factory == null) {
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			this.xmlInputFactory = factory;
+		}
+		try {
+			XMLStreamReader reader = (encoding != null ? 
+					factory.createXMLStreamReader(new ByteArrayInputStream(head), encoding) : 
+					factory.createXMLStreamReader(new ByteArrayInputStream(head)));
+			String[] rootLocations = null;
+			try {
+				Set<String> declaredLocations = null;
+				while(reader.hasNext()) {
+					if(reader.next() == XMLStreamConstants.START_ELEMENT) {
+						String[] locations = getSchemaLocations(reader);
+						if(rootLocations == null) {
+							rootLocations = locations;
+							declaredLocations = new HashSet<String>(Arrays.asList(locations));
+						} else if(!declaredLocations.containsAll(Arrays.asList(locations))) {
+							if(logger.isDebugEnabled()) {
+								logger.debug("Schema locations " + Arrays.asList(locations) + " declared by element <" +
+										reader.getLocalName() + "> below the root element - not using a compiled schema");
+							}
+							return null;
+						}
+					}
+				}
+				return rootLocations;
+			} catch (XMLStreamException ex) {
+				// End of the head within the document, or not well-formed:
+				// use what has been found so far, leaving errors to the regular parser.
+				return rootLocations;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Return the locations in the <code>xsi:schemaLocation</code> and
+	 * <code>xsi:noNamespaceSchemaLocation</code> attributes of the current element.
+	 */
+	private String[] getSchemaLocations(XMLStreamReader reader) {
+		String schemaLocation = reader.getAttributeValue(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation");
+		String noNamespaceSchemaLocation = reader.getAttributeValue(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+		String[] pairs = (schemaLocation != null ? 
+				StringUtils.tokenizeToStringArray(schemaLocation, " \t\r\n") : new String[0]);
+		String[] locations = new String[pairs.length / 2 + (noNamespaceSchemaLocation != null ? 1 : 0)];
+		for(int i = 1; i < pairs.length; i += 2) {
+			locations[i / 2] = pairs[i];
+		}
+		if(noNamespaceSchemaLocation != null) {
+			locations[locations.length - 1] = noNamespaceSchemaLocation.trim();
+		}
+		return locations;
+	}
+	
+	/**
+	 * Return the compiled schema for the given schema locations, compiling it if necessary.
+	 */
+	private Schema getSchema(String[] schemaLocations, EntityResolver entityResolver, ErrorHandler errorHandler) 
+			throws SAXException, IOException {
+		String cacheKey = StringUtils.arrayToDelimitedString(schemaLocations, " ");
+		Schema schema = this.schemaCache.get(cacheKey);
+		if(schema == null) {
+			if(logger.isDebugEnabled()) {
+				logger.debug("Compiling XML schema from locations [" + cacheKey + "]");
+			}
+			schema = createSchema(schemaLocations, entityResolver, errorHandler);
+			this.schemaCache.put(cacheKey, schema);
+		}
+		return schema;
+	}
+	
+	/**
+	 * Compile a {@link Schema} from the given schema locations, resolving
+	 * schemas (including their imports and includes) via the given EntityResolver.
+	 * @param schemaLocations the system ids of the schemas
+	 * @param entityResolver the SAX EntityResolver to use
+	 * @param errorHandler the SAX ErrorHandler to use
+	 * @return the compiled schema
+	 * @throws SAXException if a schema is invalid
+	 * @throws IOException if a schema could not be read
+	 */
+	protected Schema createSchema(String[] schemaLocations, EntityResolver entityResolver, ErrorHandler errorHandler) 
+			throws SAXException, IOException {
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XSD_SCHEMA_LANGUAGE);
+		if(errorHandler != null) {
+			schemaFactory.setErrorHandler(errorHandler);
+		}
+		if(entityResolver != null) {
+			schemaFactory.setResourceResolver(new EntityResolverAdapter(entityResolver));
+		}
+		Source[] sources = new Source[schemaLocations.length];
+		for(int i = 0; i < schemaLocations.length; i++) {
+			InputSource resolved = (entityResolver != null ? entityResolver.resolveEntity(null, schemaLocations[i]) : null);
+			if(resolved != null && resolved.getByteStream() != null) {
+				sources[i] = new StreamSource(resolved.getByteStream(), schemaLocations[i]);
+			} else if(resolved != null && resolved.getCharacterStream() != null) {
+				sources[i] = new StreamSource(resolved.getCharacterStream(), schemaLocations[i]);
+			} else {
+				sources[i] = new StreamSource(schemaLocations[i]);
+			}
+		}
+		return schemaFactory.newSchema(sources);
 	}
 
 	/**
@@ -113,5 +422,192 @@ public class DefaultDocumentLoader implements DocumentLoader {
 		}
 		return docBuilder;
 	}
+	
+	
+	/**
+	 * Configuration that a pooled DocumentBuilder has been created for.
+	 */
+	private static class BuilderKey {
+		
+		private final int validationMode;
+		
+		private final boolean namespaceAware;
+		
+		private final Schema schema;
+		
+		public BuilderKey(int validationMode, boolean namespaceAware, Schema schema) {
+			this.validationMode = validationMode;
+			this.namespaceAware = namespaceAware;
+			this.schema = schema;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if(this == other) {
+				return true;
+			}
+			if(!(other instanceof BuilderKey)) {
+				return false;
+			}
+			BuilderKey otherKey = (BuilderKey) other;
+			return (this.validationMode == otherKey.validationMode && 
+					this.namespaceAware == otherKey.namespaceAware && this.schema == otherKey.schema);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.validationMode * 31 + (this.namespaceAware ? 1 : 0) + 
+					(this.schema != null ? System.identityHashCode(this.schema) * 17 : 0);
+		}
+	}
+	
+	
+	/**
+	 * EntityResolver decorator caching resolved DTDs and XML schemas by system id.
+	 */
+	private class CachingEntityResolver implements EntityResolver {
+		
+		private final EntityResolver targetResolver;
+		
+		public CachingEntityResolver(EntityResolver targetResolver) {
+			this.targetResolver = targetResolver;
+		}
+		
+		public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+			if(systemId == null || !(systemId.endsWith(".dtd") || systemId.endsWith(".xsd"))) {
+				return this.targetResolver.resolveEntity(publicId, systemId);
+			}
+			byte[] content = grammarCache.get(systemId);
+			if(content == null) {
+				InputSource source = this.targetResolver.resolveEntity(publicId, systemId);
+				if(source == null || source.getByteStream() == null) {
+					return source;
+				}
+				content = FileCopyUtils.copyToByteArray(source.getByteStream());
+				grammarCache.put(systemId, content);
+			}
+			InputSource source = new InputSource(new ByteArrayInputStream(content));
+			source.setPublicId(publicId);
+			source.setSystemId(systemId);
+			return source;
+		}
+	}
+	
+	
+	/**
+	 * Adapter exposing an EntityResolver as LSResourceResolver for schema compilation.
+	 */
+	private static class EntityResolverAdapter implements LSResourceResolver {
+		
+		private final EntityResolver entityResolver;
+		
+		public EntityResolverAdapter(EntityResolver entityResolver) {
+			this.entityResolver = entityResolver;
+		}
+		
+		public LSInput resolveResource(String type, String namespaceURI, String publicId, 
+				String systemId, String baseURI) {
+			if(systemId == null) {
+				return null;
+			}
+			try {
+				if(baseURI != null) {
+					systemId = new URI(baseURI).resolve(systemId).toString();
+				}
+				InputSource source = this.entityResolver.resolveEntity(publicId, systemId);
+				return (source != null ? new InputSourceInput(source, publicId, systemId, baseURI) : null);
+			} catch (Exception ex) {
+				if(logger.isDebugEnabled()) {
+					logger.debug("Could not resolve XML schema [" + systemId + "]", ex);
+				}
+				return null;
+			}
+		}
+	}
+	
+	
+	/**
+	 * LSInput backed by a resolved SAX InputSource.
+	 */
+	private static class InputSourceInput implements LSInput {
+		
+		private final InputSource source;
+		
+		private String publicId;
+		
+		private String systemId;
+		
+		private String baseURI;
+		
+		public InputSourceInput(InputSource source, String publicId, String systemId, String baseURI) {
+			this.source = source;
+			this.publicId = publicId;
+			this.systemId = systemId;
+			this.baseURI = baseURI;
+		}
+		
+		public Reader getCharacterStream() {
+			return this.source.getCharacterStream();
+		}
+		
+		public void setCharacterStream(Reader characterStream) {
+			this.source.setCharacterStream(characterStream);
+		}
+		
+		public InputStream getByteStream() {
+			return this.source.getByteStream();
+		}
+		
+		public void setByteStream(InputStream byteStream) {
+			this.source.setByteStream(byteStream);
+		}
+		
+		public String getStringData() {
+			return null;
+		}
+		
+		public void setStringData(String stringData) {
+			throw new UnsupportedOperationException();
+		}
+		
+		public String getSystemId() {
+			return this.systemId;
+		}
+		
+		public void setSystemId(String systemId) {
+			this.systemId = systemId;
+		}
+		
+		public String getPublicId() {
+			return this.publicId;
+		}
+		
+		public void setPublicId(String publicId) {
+			this.publicId = publicId;
+		}
+		
+		public String getBaseURI() {
+			return this.baseURI;
+		}
+		
+		public void setBaseURI(String baseURI) {
+			this.baseURI = baseURI;
+		}
+		
+		public String getEncoding() {
+			return this.source.getEncoding();
+		}
+		
+		public void setEncoding(String encoding) {
+			this.source.setEncoding(encoding);
+		}
+		
+		public boolean getCertifiedText() {
+			return false;
+		}
+		
+		public void setCertifiedText(boolean certifiedText) {
+		}
+	}
 
 }
@@ -0,0 +1,264 @@
+package com.tutorial.beans.factory.xml;
+
+import java.util.LinkedList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.tutorial.beans.factory.BeanDefinitionStoreException;
+import com.tutorial.util.StringUtils;
+
+/**
+ * Streaming variant of {@link DefaultBeanDefinitionDocumentReader}, reading
+ * bean definitions from a StAX {@link XMLStreamReader} instead of a complete
+ * DOM document.
+ *
+ * <p>Only a single root-level element (e.g. a <code>&lt;bean&gt;</code> with
+ * its nested properties, constructor arguments, collections and inner beans)
+ * is held in memory at any time: it is turned into a DOM fragment while being
+ * streamed, handed to the regular {@link BeanDefinitionParserDelegate} once
+ * its end tag has been read, registered right away, and then discarded. Bean
+ * definitions therefore have the very same semantics as with DOM parsing,
+ * including custom namespace elements and decorators, while transient heap
+ * usage no longer grows with the size of the file.
+ *
+ * <p>Streamed documents are not validated. Attribute defaults that the
+ * "spring-beans" DTD and XSD would otherwise supply (such as
+ * <code>lazy-init="default"</code>) are filled in by this reader.
+ *
+ * @see XmlBeanDefinitionReader#setStreaming
+ */
+public class StaxBeanDefinitionDocumentReader extends DefaultBeanDefinitionDocumentReader {
+
+	private static final String BEANS_NAMESPACE_URI = BeanDefinitionParserDelegate.BEANS_NAMESPACE_URI;
+
+	private static final String[] DEFAULT_ATTRIBUTES = {
+			BeanDefinitionParserDelegate.LAZY_INIT_ATTRIBUTE,
+			BeanDefinitionParserDelegate.AUTOWIRE_ATTRIBUTE,
+			BeanDefinitionParserDelegate.DEPENDENCY_CHECK_ATTRIBUTE};
+
+	private static final String[] DEFAULT_BEANS_ATTRIBUTES = {
+			BeanDefinitionParserDelegate.DEFAULT_LAZY_INIT_ATTRIBUTE,
+			BeanDefinitionParserDelegate.DEFAULT_MERGE_ATTRIBUTE,
+			BeanDefinitionParserDelegate.DEFAULT_AUTOWIRE_ATTRIBUTE};
+
+	private static final String[] MERGEABLE_ELEMENTS = {
+			BeanDefinitionParserDelegate.LIST_ELEMENT, BeanDefinitionParserDelegate.SET_ELEMENT,
+			BeanDefinitionParserDelegate.MAP_ELEMENT, BeanDefinitionParserDelegate.PROPS_ELEMENT,
+			BeanDefinitionParserDelegate.ARRAY_ELEMENT};
+
+
+	/**
+	 * Read bean definitions from the given StAX stream, registering each
+	 * bean definition as soon as its element has been read completely.
+	 * @param streamReader the stream to read from, positioned at the start of the document
+	 * @param readerContext the current context of the reader. Includes the resource being parsed
+	 * @throws XMLStreamException if the stream could not be read
+	 * @throws BeanDefinitionStoreException in case of parsing errors
+	 */
+	public void registerBeanDefinitions(XMLStreamReader streamReader, XmlReaderContext readerContext)
+			throws XMLStreamException, BeanDefinitionStoreException {
+
+		setReaderContext(readerContext);
+		logger.debug("Streaming bean definitions");
+
+		Document doc = createDocument();
+		LinkedList<BeansLevel> levels = new LinkedList<BeansLevel>();
+		Element current = null;
+		int skippedDepth = 0;
+
+		while(streamReader.hasNext()) {
+			int event = streamReader.next();
+			if(skippedDepth > 0) {
+				if(event == XMLStreamConstants.START_ELEMENT) {
+					skippedDepth++;
+				} else if(event == XMLStreamConstants.END_ELEMENT) {
+					skippedDepth--;
+				}
+				continue;
+			}
+			switch(event) {
+				case XMLStreamConstants.START_ELEMENT: {
+					Element ele = createElement(doc, streamReader);
+					if(current != null) {
+						current.appendChild(ele);
+						current = ele;
+					} else if(levels.isEmpty() || isNestedBeansElement(ele, levels.getLast())) {
+						// The document root or a nested <beans> element: a new level of defaults.
+						BeansLevel parent = (levels.isEmpty() ? null : levels.getLast());
+						if(!isProfileAccepted(ele)) {
+							skippedDepth = 1;
+						} else {
+							BeansLevel level = new BeansLevel(ele,
+									createHelper(readerContext, ele, (parent != null ? parent.delegate : null)));
+							levels.add(level);
+							preProcessXml(ele);
+							if(!level.delegate.isDefaultNamespace(ele)) {
+								// Custom root element: to be handed to its namespace handler as a whole.
+								current = ele;
+							}
+						}
+					} else {
+						levels.getLast().root.appendChild(ele);
+						current = ele;
+					}
+					break;
+				}
+				case XMLStreamConstants.END_ELEMENT: {
+					if(current == null) {
+						BeansLevel level = levels.removeLast();
+						postProcessXml(level.root);
+						break;
+					}
+					Node parent = current.getParentNode();
+					BeansLevel level = levels.getLast();
+					if(parent == null) {
+						level.delegate.parseCustomElement(current);
+						levels.removeLast();
+						postProcessXml(level.root);
+						current = null;
+					} else if(parent == level.root) {
+						parseRootLevelElement(current, level.delegate);
+						// Done with this element: release it for garbage collection.
+						parent.removeChild(current);
+						current = null;
+					} else {
+						current = (Element) parent;
+					}
+					break;
+				}
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					if(current != null) {
+						current.appendChild(doc.createTextNode(streamReader.getText()));
+					}
+					break;
+				case XMLStreamConstants.CDATA:
+					if(current != null) {
+						current.appendChild(doc.createCDATASection(streamReader.getText()));
+					}
+					break;
+				case XMLStreamConstants.COMMENT:
+					if(current != null) {
+						current.appendChild(doc.createComment(streamReader.getText()));
+					}
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					if(current != null) {
+						current.appendChild(doc.createEntityReference(streamReader.getLocalName()));
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Parse the given completely read root-level element, like
+	 * {@link #parseBeanDefinitions} does for each child of a DOM root element.
+	 */
+	protected void parseRootLevelElement(Element ele, BeanDefinitionParserDelegate delegate) {
+		if(delegate.isDefaultNamespace(ele)) {
+			parseDefaultElement(ele, delegate);
+		} else {
+			delegate.parseCustomElement(ele);
+		}
+	}
+
+	private boolean isNestedBeansElement(Element ele, BeansLevel level) {
+		return (level.delegate.isDefaultNamespace(ele) && level.delegate.nodeNameEquals(ele, NESTED_BEANS_ELEMENT));
+	}
+
+	private Document createDocument() {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		try {
+			return factory.newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException ex) {
+			throw new BeanDefinitionStoreException("Could not create DOM document for streamed elements", ex);
+		}
+	}
+
+	/**
+	 * Create a DOM element for the start tag that the given stream is positioned at,
+	 * including namespace declarations and attributes.
+	 */
+	private Element createElement(Document doc, XMLStreamReader streamReader) {
+		String namespaceUri = streamReader.getNamespaceURI();
+		String localName = streamReader.getLocalName();
+		Element ele = doc.createElementNS(StringUtils.hasLength(namespaceUri) ? namespaceUri : null,
+				qualifiedName(streamReader.getPrefix(), localName));
+		for(int i = 0; i < streamReader.getNamespaceCount(); i++) {
+			String prefix = streamReader.getNamespacePrefix(i);
+			ele.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+					(StringUtils.hasLength(prefix) ? XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix : XMLConstants.XMLNS_ATTRIBUTE),
+					streamReader.getNamespaceURI(i));
+		}
+		for(int i = 0; i < streamReader.getAttributeCount(); i++) {
+			String attributeNamespace = streamReader.getAttributeNamespace(i);
+			ele.setAttributeNS(StringUtils.hasLength(attributeNamespace) ? attributeNamespace : null,
+					qualifiedName(streamReader.getAttributePrefix(i), streamReader.getAttributeLocalName(i)),
+					streamReader.getAttributeValue(i));
+		}
+		if(!StringUtils.hasLength(namespaceUri) || BEANS_NAMESPACE_URI.equals(namespaceUri)) {
+			applyDefaultAttributes(ele, localName);
+		}
+		return ele;
+	}
+
+	/**
+	 * Fill in the attribute defaults declared by the "spring-beans" DTD and XSD,
+	 * which the delegate relies on and which a non-validating stream does not supply.
+	 */
+	private void applyDefaultAttributes(Element ele, String localName) {
+		if(BEAN_ELEMENT.equals(localName)) {
+			applyDefaultAttributes(ele, DEFAULT_ATTRIBUTES);
+		} else if(NESTED_BEANS_ELEMENT.equals(localName)) {
+			applyDefaultAttributes(ele, DEFAULT_BEANS_ATTRIBUTES);
+		} else {
+			for(String mergeableElement : MERGEABLE_ELEMENTS) {
+				if(mergeableElement.equals(localName)) {
+					applyDefaultAttributes(ele, new String[] {BeanDefinitionParserDelegate.MERGE_ATTRIBUTE});
+					return;
+				}
+			}
+		}
+	}
+
+	private void applyDefaultAttributes(Element ele, String[] attributeNames) {
+		for(String attributeName : attributeNames) {
+			if(!ele.hasAttribute(attributeName)) {
+				ele.setAttributeNS(null, attributeName, BeanDefinitionParserDelegate.DEFAULT_VALUE);
+			}
+		}
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		return (StringUtils.hasLength(prefix) ? prefix + ":" + localName : localName);
+	}
+
+
+	/**
+	 * A <code>&lt;beans&gt;</code> element currently being streamed,
+	 * along with the delegate holding its defaults.
+	 */
+	private static class BeansLevel {
+
+		private final Element root;
+
+		private final BeanDefinitionParserDelegate delegate;
+
+		public BeansLevel(Element root, BeanDefinitionParserDelegate delegate) {
+			this.root = root;
+			this.delegate = delegate;
+		}
+	}
+
+}
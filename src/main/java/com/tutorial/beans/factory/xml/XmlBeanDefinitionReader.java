@@ -1,11 +1,27 @@
 package com.tutorial.beans.factory.xml;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.xml.sax.EntityResolver;
@@ -21,8 +37,10 @@ import com.tutorial.beans.factory.parsing.NullSourceExtractor;
 import com.tutorial.beans.factory.parsing.ProblemReporter;
 import com.tutorial.beans.factory.parsing.ReaderEventListener;
 import com.tutorial.beans.factory.parsing.SourceExtractor;
+import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.beans.factory.support.AbstractBeanDefinitionReader;
 import com.tutorial.beans.factory.support.BeanDefinitionRegistry;
+import com.tutorial.beans.factory.support.BeanDefinitionSnapshot;
 import com.tutorial.core.NamedThreadLocal;
 import com.tutorial.core.io.DescriptiveResource;
 import com.tutorial.core.io.Resource;
@@ -79,7 +97,12 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 * Indicates that XSD validation should be used.
 	 */
 	public static final int VALIDATION_XSD = XmlValidationModeDetector.VALIDATION_XSD;
-
+	
+	/**
+	 * Number of bytes to look ahead for detecting the validation mode of a document.
+	 */
+	private static final int VALIDATION_MODE_LOOKAHEAD = 8192;
+	
 	private int validationMode = VALIDATION_AUTO;
 	
 	private boolean namespaceAware = false;
@@ -105,6 +128,18 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	private final ThreadLocal<Set<EncodedResource>> resourcesCurrentlyBeingLoaded = 
 			new NamedThreadLocal<Set<EncodedResource>>("XML bean definition resources currently being loaded");
 	
+	private final ThreadLocal<Set<Resource>> resourcesLoadedForSnapshot =
+			new NamedThreadLocal<Set<Resource>>("XML bean definition resources loaded for snapshot");
+	
+	private final ThreadLocal<Map<String, Set<Resource>>> locationsResolvedForSnapshot =
+			new NamedThreadLocal<Map<String, Set<Resource>>>("Location patterns resolved for snapshot");
+
+	private File snapshotDirectory;
+	
+	private boolean streaming = false;
+	
+	private XMLInputFactory xmlInputFactory;
+	
 	/**
 	 * Create new XmlBeanDefinitionReader for the given bean factory.
 	 * @param registry the BeanFactory to load bean definitions into,
@@ -209,6 +244,50 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 		this.documentReaderClass = documentReaderClass;
 	}
+	
+	/**
+	 * Set whether to stream XML documents through StAX instead of loading them
+	 * into a DOM document first. Default is "false".
+	 * <p>In streaming mode, each root-level element is registered as soon as its
+	 * end tag has been read, so that transient memory usage is bounded by the
+	 * largest single bean definition rather than by the size of the document.
+	 * Bean definitions have the same semantics as in DOM mode; however, streamed
+	 * documents are not validated, and the configured {@link DocumentLoader}
+	 * and document reader class are not used.
+	 * @see StaxBeanDefinitionDocumentReader
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	/**
+	 * Return whether XML documents are streamed through StAX.
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+	
+	/**
+	 * Set a directory to keep {@link BeanDefinitionSnapshot bean definition snapshots} in.
+	 * <p>If set, every top-level XML resource is registered from its snapshot
+	 * whenever the snapshot is up to date with respect to the environment's
+	 * profiles, the resources that its import locations resolve to, that resource and
+	 * all resources it imports, skipping XML parsing altogether. Otherwise the
+	 * resource is parsed as usual and a new snapshot is written for it.
+	 * <p>Note that no {@link ReaderEventListener} callbacks are issued for bean
+	 * definitions registered from a snapshot. Default is none, i.e. always parse.
+	 * @see BeanDefinitionSnapshot
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+	
+	/**
+	 * Return the directory to keep bean definition snapshots in, if any.
+	 */
+	public File getSnapshotDirectory() {
+		return this.snapshotDirectory;
+	}
 
 	/**
 	 * Load bean definitions from the specified XML file.
@@ -229,6 +308,15 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 */
 	public int loadBeanDefinitions(EncodedResource encodedResource) throws BeanDefinitionStoreException {
 		Assert.notNull(encodedResource, "EncodedResource must not be null");
+		Set<Resource> snapshotResources = this.resourcesLoadedForSnapshot.get();
+		if(snapshotResources != null) {
+			snapshotResources.add(encodedResource.getResource());
+		} else if(this.snapshotDirectory != null && this.resourcesCurrentlyBeingLoaded.get() == null) {
+			File snapshotFile = getSnapshotFile(encodedResource.getResource());
+			if(snapshotFile != null) {
+				return loadBeanDefinitions(encodedResource, snapshotFile);
+			}
+		}
 		if(logger.isInfoEnabled()) {
 			logger.info("Loading XML bean definitions from " + encodedResource.getResource());
 		}
@@ -264,6 +352,151 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 	}
 	
+	/**
+	 * Resolves the given location like the superclass does, recording the
+	 * resources it resolves to while a snapshot is being captured, so that the
+	 * snapshot can tell when the location resolves to different resources.
+	 */
+	@Override
+	public int loadBeanDefinitions(String location, Set<Resource> actualResources) throws BeanDefinitionStoreException {
+		Map<String, Set<Resource>> resolvedLocations = this.locationsResolvedForSnapshot.get();
+		if(resolvedLocations == null) {
+			return super.loadBeanDefinitions(location, actualResources);
+		}
+		Set<Resource> resources = new LinkedHashSet<Resource>();
+		int count = super.loadBeanDefinitions(location, resources);
+		resolvedLocations.put(location, resources);
+		if(actualResources != null) {
+			actualResources.addAll(resources);
+		}
+		return count;
+	}
+
+	/**
+	 * Load bean definitions from the given snapshot file if it is up to date,
+	 * or else from the specified XML file, writing a new snapshot afterwards.
+	 */
+	private int loadBeanDefinitions(EncodedResource encodedResource, File snapshotFile)
+			throws BeanDefinitionStoreException {
+
+		BeanDefinitionRegistry registry = getRegistry();
+		if(snapshotFile.isFile()) {
+			BeanDefinitionSnapshot snapshot = null;
+			try {
+				InputStream in = new FileInputStream(snapshotFile);
+				try {
+					snapshot = BeanDefinitionSnapshot.readIfUpToDate(in, getEnvironment(), getResourceLoader());
+				} finally {
+					in.close();
+				}
+			} catch (IOException ex) {
+				logger.warn("Could not read bean definition snapshot [" + snapshotFile + "] - ignoring it", ex);
+			}
+			if(snapshot != null) {
+				if(logger.isInfoEnabled()) {
+					logger.info("Loading bean definitions for " + encodedResource.getResource() +
+							" from snapshot [" + snapshotFile + "]");
+				}
+				return snapshot.registerBeanDefinitions(registry);
+			}
+		}
+
+		// Remember the current registry state, to find out what the XML file contributes.
+		Map<String, BeanDefinition> existingDefinitions = new HashMap<String, BeanDefinition>();
+		Set<String> existingAliases = new HashSet<String>();
+		for(String beanName : registry.getBeanDefinitionNames()) {
+			existingDefinitions.put(beanName, registry.getBeanDefinition(beanName));
+			for(String alias : registry.getAliases(beanName)) {
+				existingAliases.add(alias);
+			}
+		}
+		Set<Resource> loadedResources = new LinkedHashSet<Resource>();
+		Map<String, Set<Resource>> resolvedLocations = new LinkedHashMap<String, Set<Resource>>();
+		this.resourcesLoadedForSnapshot.set(loadedResources);
+		this.locationsResolvedForSnapshot.set(resolvedLocations);
+		int count;
+		try {
+			count = loadBeanDefinitions(encodedResource);
+		} finally {
+			this.resourcesLoadedForSnapshot.remove();
+			this.locationsResolvedForSnapshot.remove();
+		}
+
+		List<String> beanNames = new ArrayList<String>();
+		Map<String, String> aliases = new LinkedHashMap<String, String>();
+		for(String beanName : registry.getBeanDefinitionNames()) {
+			if(existingDefinitions.get(beanName) != registry.getBeanDefinition(beanName)) {
+				beanNames.add(beanName);
+			}
+			for(String alias : registry.getAliases(beanName)) {
+				if(!existingAliases.contains(alias)) {
+					aliases.put(alias, beanName);
+				}
+			}
+		}
+		try {
+			BeanDefinitionSnapshot snapshot =
+					BeanDefinitionSnapshot.capture(registry, beanNames, aliases, loadedResources,
+							getEnvironment(), resolvedLocations);
+			writeSnapshot(snapshot, snapshotFile);
+		} catch (IOException ex) {
+			logger.warn("Could not write bean definition snapshot for " + encodedResource.getResource(), ex);
+		}
+		return count;
+	}
+
+	/**
+	 * Write the given snapshot to a temporary file first and then move it into place,
+	 * so that concurrent readers never see a partially written snapshot.
+	 */
+	private void writeSnapshot(BeanDefinitionSnapshot snapshot, File snapshotFile) throws IOException {
+		File directory = snapshotFile.getParentFile();
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create snapshot directory [" + directory + "]");
+		}
+		File tempFile = File.createTempFile(snapshotFile.getName(), ".tmp", directory);
+		try {
+			OutputStream out = new FileOutputStream(tempFile);
+			try {
+				snapshot.writeTo(out);
+			} finally {
+				out.close();
+			}
+			if(!tempFile.renameTo(snapshotFile)) {
+				snapshotFile.delete();
+				if(!tempFile.renameTo(snapshotFile)) {
+					throw new IOException("Could not rename [" + tempFile + "] to [" + snapshotFile + "]");
+				}
+			}
+		} finally {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Determine the snapshot file for the given top-level resource: a file in the
+	 * snapshot directory named after a hash of the resource's URL.
+	 * @return the snapshot file, or <code>null</code> if the resource does not
+	 * have a URL and can therefore not be checked for changes later
+	 */
+	protected File getSnapshotFile(Resource resource) {
+		String url;
+		try {
+			url = resource.getURL().toExternalForm();
+		} catch (IOException ex) {
+			return null;
+		}
+		StringBuilder name = new StringBuilder(resource.getFileName() != null ? resource.getFileName() : "beans");
+		name.append('-');
+		byte[] hash = BeanDefinitionSnapshot.hash(url.getBytes());
+		for(int i = 0; i < 8; i++) {
+			name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+			name.append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		name.append(".snapshot");
+		return new File(this.snapshotDirectory, name.toString());
+	}
+
 	/**
 	 * Load bean definitions from the specified XML file.
 	 * @param inputSource the SAX InputSource to read from
@@ -296,8 +529,11 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 */
 	protected int doLoadBeanDefinitions(InputSource inputSource, Resource resource) 
 					throws BeanDefinitionStoreException {
+		if(this.streaming) {
+			return doStreamBeanDefinitions(inputSource, resource);
+		}
 		try {
-			int validationMode = getValidationModeForResource(resource);
+			int validationMode = getValidationModeForInputSource(inputSource, resource);
 			Document doc = this.documentLoader.loadDocument(inputSource, getEntityResolver(), 
 					this.errorHandler, validationMode, isNamespaceAware());
 			return registerBeanDefinitions(doc, resource);
@@ -321,6 +557,102 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 	}
 
+	/**
+	 * Actually stream bean definitions from the specified XML file.
+	 * @param inputSource the SAX InputSource to read from
+	 * @param resource the resource descriptor for the XML file
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors
+	 * @see #setStreaming
+	 */
+	protected int doStreamBeanDefinitions(InputSource inputSource, Resource resource)
+					throws BeanDefinitionStoreException {
+		try {
+			XMLStreamReader streamReader = createXMLStreamReader(inputSource);
+			try {
+				return registerBeanDefinitions(streamReader, resource);
+			} finally {
+				streamReader.close();
+			}
+		} catch (BeanDefinitionStoreException ex) {
+			throw ex;
+		} catch (XMLStreamException ex) {
+			String location = (ex.getLocation() != null ? "Line " + ex.getLocation().getLineNumber() + " in " : "");
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					location + "XML document from " + resource + " is invalid", ex);
+		} catch (Throwable ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Unexpected exception streaming XML document from " + resource, ex);
+		}
+	}
+
+	private XMLStreamReader createXMLStreamReader(InputSource inputSource) throws XMLStreamException {
+		XMLInputFactory factory = this.xmlInputFactory;
+		if(factory == null) {
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			// External DTDs are not needed without validation: do not fetch them.
+			factory.setXMLResolver(new XMLResolver() {
+				public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+					return new ByteArrayInputStream(new byte[0]);
+				}
+			});
+			this.xmlInputFactory = factory;
+		}
+		if(inputSource.getCharacterStream() != null) {
+			return factory.createXMLStreamReader(inputSource.getCharacterStream());
+		}
+		if(inputSource.getEncoding() != null) {
+			return factory.createXMLStreamReader(inputSource.getByteStream(), inputSource.getEncoding());
+		}
+		return factory.createXMLStreamReader(inputSource.getByteStream());
+	}
+
+	/**
+	 * Determine the validation mode for the document to be read from the given
+	 * InputSource. In {@link #VALIDATION_AUTO} mode, the mode gets detected from
+	 * the head of the InputSource's byte stream, which is buffered and then passed
+	 * on to the parser, so that the document gets read only once. For an explicit
+	 * validation mode, for InputSources not read from a Resource that is able to
+	 * create fresh streams, and if the head of the document does not give a clear
+	 * indication, this method falls back to {@link #getValidationModeForResource}.
+	 * @param inputSource the SAX InputSource to read from (its byte stream may
+	 * get replaced by a buffered stream)
+	 * @param resource the resource descriptor for the XML file
+	 */
+	protected int getValidationModeForInputSource(InputSource inputSource, Resource resource) throws IOException {
+		InputStream inputStream = inputSource.getByteStream();
+		if(getValidationMode() != VALIDATION_AUTO || inputStream == null || resource.isOpen() ||
+				resource instanceof DescriptiveResource) {
+			// Explicit validation mode, or a document that has not been read from a
+			// resource that is able to create fresh streams.
+			return getValidationModeForResource(resource);
+		}
+		if(!inputStream.markSupported()) {
+			inputStream = new BufferedInputStream(inputStream, VALIDATION_MODE_LOOKAHEAD);
+			inputSource.setByteStream(inputStream);
+		}
+		inputStream.mark(VALIDATION_MODE_LOOKAHEAD);
+		byte[] head = new byte[VALIDATION_MODE_LOOKAHEAD];
+		int length = 0;
+		int bytesRead;
+		while(length < head.length && (bytesRead = inputStream.read(head, length, head.length - length)) != -1) {
+			length += bytesRead;
+		}
+		inputStream.reset();
+		int detectedMode = this.validationModeDetector.detectValidationMode(new ByteArrayInputStream(head, 0, length));
+		if(detectedMode != VALIDATION_AUTO) {
+			return detectedMode;
+		}
+		if(length == head.length) {
+			// Root element not within the head of a long document: read the resource itself.
+			return getValidationModeForResource(resource);
+		}
+		return VALIDATION_XSD;
+	}
+
 	/**
 	 * Gets the validation mode for the specified {@link Resource}. If no explicit
 	 * validation mode has been configured then the validation mode is
@@ -398,6 +730,33 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		return getRegistry().getBeanDefinitionCount() - countBefore;
 	}
 	
+	/**
+	 * Register the bean definitions streamed from the given StAX reader.
+	 * Called by <code>loadBeanDefinitions</code> in streaming mode.
+	 * @param streamReader the StAX reader, positioned at the start of the document
+	 * @param resource the resource descriptor (for context information)
+	 * @return the number of bean definitions found
+	 * @throws XMLStreamException if the document could not be read
+	 * @throws BeanDefinitionStoreException in case of parsing errors
+	 * @see #setStreaming
+	 */
+	public int registerBeanDefinitions(XMLStreamReader streamReader, Resource resource)
+			throws XMLStreamException, BeanDefinitionStoreException {
+		StaxBeanDefinitionDocumentReader documentReader = createStaxBeanDefinitionDocumentReader();
+		documentReader.setEnvironment(this.getEnvironment());
+		int countBefore = getRegistry().getBeanDefinitionCount();
+		documentReader.registerBeanDefinitions(streamReader, createReaderContext(resource));
+		return getRegistry().getBeanDefinitionCount() - countBefore;
+	}
+	
+	/**
+	 * Create the {@link StaxBeanDefinitionDocumentReader} to use for streaming
+	 * bean definitions from an XML document.
+	 */
+	protected StaxBeanDefinitionDocumentReader createStaxBeanDefinitionDocumentReader() {
+		return new StaxBeanDefinitionDocumentReader();
+	}
+	
 	/**
 	 * Create the {@link BeanDefinitionDocumentReader} to use for actually
 	 * reading bean definitions from an XML document.
@@ -427,4 +786,42 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		return new DefaultNamespaceHandlerResolver(getResourceLoader().getClassLoader());
 	}
 
+	/**
+	 * Create a plain XmlBeanDefinitionReader for parsing a resource concurrently
+	 * with others, sharing this reader's configuration (including its
+	 * NamespaceHandlerResolver, ProblemReporter and ReaderEventListener, which
+	 * therefore get called from worker threads as well).
+	 * @see #setParallelism
+	 */
+	@Override
+	protected AbstractBeanDefinitionReader createStagingReader(BeanDefinitionRegistry stagingRegistry) {
+		if(this.namespaceHandlerResolver == null) {
+			this.namespaceHandlerResolver = createDefaultNamespaceHandlerResolver();
+		}
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(stagingRegistry);
+		reader.copyConfigurationFrom(this);
+		reader.validationMode = this.validationMode;
+		reader.namespaceAware = this.namespaceAware;
+		reader.namespaceHandlerResolver = this.namespaceHandlerResolver;
+		reader.problemReporter = this.problemReporter;
+		reader.eventListener = this.eventListener;
+		reader.sourceExtractor = this.sourceExtractor;
+		reader.documentLoader = this.documentLoader;
+		reader.entityResolver = getEntityResolver();
+		reader.documentReaderClass = this.documentReaderClass;
+		reader.errorHandler = this.errorHandler;
+		reader.snapshotDirectory = this.snapshotDirectory;
+		reader.streaming = this.streaming;
+		return reader;
+	}
+	
+	/**
+	 * Reports the refused bean definition like the document reader
+	 * does when registering a parsed bean definition fails.
+	 */
+	@Override
+	protected void stagedRegistrationFailed(Resource resource, String beanName, BeanDefinitionStoreException ex) {
+		createReaderContext(resource).error("Failed to register bean definition with name '" + beanName + "'", null, ex);
+	}
+
 }
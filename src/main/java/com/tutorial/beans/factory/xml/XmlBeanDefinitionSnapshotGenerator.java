@@ -0,0 +1,48 @@
+package com.tutorial.beans.factory.xml;
+
+import java.io.File;
+
+import com.tutorial.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * Command-line tool that generates {@link com.tutorial.beans.factory.support.BeanDefinitionSnapshot
+ * bean definition snapshots} for XML bean definition files ahead of time, e.g. as a
+ * build step, so that the first application startup can already skip XML parsing.
+ *
+ * <p>Usage: <code>XmlBeanDefinitionSnapshotGenerator &lt;snapshotDirectory&gt; &lt;location&gt;...</code>
+ * <br>Locations are resolved like in {@link XmlBeanDefinitionReader#loadBeanDefinitions(String)},
+ * i.e. they may be class path or file locations and may contain wildcards. Snapshots
+ * that are still up to date are left as they are.
+ *
+ * <p>At runtime, point {@link XmlBeanDefinitionReader#setSnapshotDirectory} to the same
+ * directory, with the same locations resolving to the same resource URLs and the
+ * same active and default profiles; the generator uses the profiles of a
+ * {@link com.tutorial.core.env.StandardEnvironment}, i.e. as set through system properties.
+ */
+public class XmlBeanDefinitionSnapshotGenerator {
+
+	/**
+	 * Generate snapshots for the given XML bean definition files in the given directory.
+	 * @param snapshotDirectory the directory to write the snapshots to
+	 * @param locations the resource locations of the XML bean definition files
+	 * @return the number of bean definitions found
+	 */
+	public static int generateSnapshots(File snapshotDirectory, String... locations) {
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(new DefaultListableBeanFactory());
+		reader.setSnapshotDirectory(snapshotDirectory);
+		return reader.loadBeanDefinitions(locations);
+	}
+
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			System.err.println("Usage: " + XmlBeanDefinitionSnapshotGenerator.class.getName() +
+					" <snapshotDirectory> <location>...");
+			System.exit(1);
+		}
+		String[] locations = new String[args.length - 1];
+		System.arraycopy(args, 1, locations, 0, locations.length);
+		int count = generateSnapshots(new File(args[0]), locations);
+		System.out.println("Generated bean definition snapshots for " + count + " bean definitions in " + args[0]);
+	}
+
+}
@@ -4,6 +4,7 @@ import com.tutorial.beans.BeansException;
 import com.tutorial.beans.factory.config.BeanFactoryPostProcessor;
 import com.tutorial.beans.factory.config.ConfigurableListableBeanFactory;
 import com.tutorial.core.env.ConfigurableEnvironment;
+import com.tutorial.core.metrics.StartupRecorder;
 
 /**
  * SPI interface to be implemented by most if not all application contexts.
@@ -88,6 +89,21 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	 */
 	void setEnvironment(ConfigurableEnvironment environment);
 	
+	/**
+	 * Set a StartupRecorder for this application context, recording every phase
+	 * of {@link #refresh()} as well as every bean creation in the bean factory.
+	 * <p>Default is none, in which case nothing is recorded. Needs to be set
+	 * <em>before</em> {@link #refresh()}.
+	 * @param startupRecorder the recorder to use, or <code>null</code> for none
+	 */
+	void setStartupRecorder(StartupRecorder startupRecorder);
+
+	/**
+	 * Return the StartupRecorder for this application context, if any,
+	 * giving access to the recorded startup steps.
+	 */
+	StartupRecorder getStartupRecorder();
+	
 	/**
 	 * Add a new BeanFactoryPostProcessor that will get applied to the internal
 	 * bean factory of this application context on refresh, before any of the
@@ -61,6 +61,8 @@ import com.tutorial.core.io.Resource;
 import com.tutorial.core.io.ResourceLoader;
 import com.tutorial.core.io.support.PathMatchingResourcePatternResolver;
 import com.tutorial.core.io.support.ResourcePatternResolver;
+import com.tutorial.core.metrics.StartupRecorder;
+import com.tutorial.core.metrics.StartupStep;
 import com.tutorial.util.Assert;
 import com.tutorial.util.ObjectUtils;
 
@@ -189,6 +191,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	
 	/** Reference to the JVM shutdown hook, if registered */
 	private Thread shutdownHook;
+
+	/** Recorder for refresh phases and bean creation, if any */
+	private StartupRecorder startupRecorder;
 	
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -497,6 +502,19 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		this.environment = environment;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>The recorder is passed on to the bean factory in
+	 * {@link #prepareBeanFactory}, to record bean creation as well.
+	 */
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	public StartupRecorder getStartupRecorder() {
+		return this.startupRecorder;
+	}
+
 	public void addBeanFactoryPostProcessor(BeanFactoryPostProcessor beanFactoryPostProcessor) {
 		this.beanFactoryPostProcessors.add(beanFactoryPostProcessor);
 	}
@@ -545,55 +563,105 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized(this.startupShutdownMonitor) {
-			// prepare this context for refreshing.
-			prepareRefresh();
-			
-			// Tell the subclass to refresh the internal bean factory.
-			ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
-			
-			// Prepare the bean factory for use in this context.
-			prepareBeanFactory(beanFactory);
-			
+			StartupStep refreshStep = startPhase("refresh");
 			try {
-				// Allow post-processing of the bean factory in context subclasses.
-				postProcessBeanFactory(beanFactory);
-				
-				// Invoke factory processors registered as beans in the context.
-				invokeBeanFactoryPostProcessors(beanFactory);
-				
-				// Register bean processors that intercept bean creation.
-				registerBeanPostProcessors(beanFactory);
-				
-				// Initialize message source for this context.
-				initMessageSource();
-				
-				// Initialize event multicaster for this context.
-				initApplicationEventMulticaster();
+				// prepare this context for refreshing.
+				StartupStep step = startPhase("prepareRefresh");
+				prepareRefresh();
+				endPhase(step);
 				
-				// Initialize other special beans in specific context subclasses.
-				onRefresh();
+				// Tell the subclass to refresh the internal bean factory.
+				step = startPhase("obtainFreshBeanFactory");
+				ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
+				endPhase(step);
 				
-				// Check for listener beans and register them.
-				registerListeners();
+				// Prepare the bean factory for use in this context.
+				step = startPhase("prepareBeanFactory");
+				prepareBeanFactory(beanFactory);
+				endPhase(step);
 				
-				// Instantiate all remaining (non-lazy-init) singletons.
-				finishBeanFactoryInitialization(beanFactory);
-				
-				// Last step: publish corresponding event.
-				finishRefresh();
-			} catch (BeansException ex) {
-				//Destroy already created singletons to avoid dangling resources.
-				destroyBeans();
-				
-				// Reset 'active' flag.
-				cancelRefresh(ex);
-				
-				// Propagate exception to caller.
-				throw ex;
+				try {
+					// Allow post-processing of the bean factory in context subclasses.
+					step = startPhase("postProcessBeanFactory");
+					postProcessBeanFactory(beanFactory);
+					endPhase(step);
+					
+					// Invoke factory processors registered as beans in the context.
+					step = startPhase("invokeBeanFactoryPostProcessors");
+					invokeBeanFactoryPostProcessors(beanFactory);
+					endPhase(step);
+					
+					// Register bean processors that intercept bean creation.
+					step = startPhase("registerBeanPostProcessors");
+					registerBeanPostProcessors(beanFactory);
+					endPhase(step);
+					
+					// Initialize message source for this context.
+					step = startPhase("initMessageSource");
+					initMessageSource();
+					endPhase(step);
+					
+					// Initialize event multicaster for this context.
+					step = startPhase("initApplicationEventMulticaster");
+					initApplicationEventMulticaster();
+					endPhase(step);
+					
+					// Initialize other special beans in specific context subclasses.
+					step = startPhase("onRefresh");
+					onRefresh();
+					endPhase(step);
+					
+					// Check for listener beans and register them.
+					step = startPhase("registerListeners");
+					registerListeners();
+					endPhase(step);
+					
+					// Instantiate all remaining (non-lazy-init) singletons.
+					step = startPhase("finishBeanFactoryInitialization");
+					finishBeanFactoryInitialization(beanFactory);
+					endPhase(step);
+					
+					// Last step: publish corresponding event.
+					step = startPhase("finishRefresh");
+					finishRefresh();
+					endPhase(step);
+				} catch (BeansException ex) {
+					//Destroy already created singletons to avoid dangling resources.
+					destroyBeans();
+					
+					// Reset 'active' flag.
+					cancelRefresh(ex);
+					
+					// Propagate exception to caller.
+					throw ex;
+				}
+			} finally {
+				endPhase(refreshStep);
 			}
 		}
 	}
 
+	/**
+	 * Start recording the given refresh phase, if a
+	 * {@link #setStartupRecorder StartupRecorder} has been set.
+	 * @param phaseName the name of the phase
+	 * @return the started step, or <code>null</code> if not recording
+	 */
+	private StartupStep startPhase(String phaseName) {
+		return (this.startupRecorder != null ?
+				this.startupRecorder.start(StartupRecorder.CATEGORY_PHASE, phaseName) : null);
+	}
+
+	/**
+	 * End recording the given refresh phase, if any.
+	 * @param step the step returned by {@link #startPhase}, or <code>null</code>
+	 */
+	private void endPhase(StartupStep step) {
+		if(step != null) {
+			step.end();
+		}
+	}
+
 	/**
 	 * Prepare this context for refreshing, setting its startup date and
 	 * active flag as well as performing any initialization of property sources.
@@ -651,6 +719,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		beanFactory.setBeanClassLoader(getClassLoader());
 		beanFactory.setBeanExpressionResolver(new StandardBeanExpressionResolver());
 		beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this, this.getEnvironment()));
+		if(this.startupRecorder != null) {
+			beanFactory.setStartupRecorder(this.startupRecorder);
+		}
 		
 		// Configure the bean factory with context callbacks.
 		beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
@@ -0,0 +1,644 @@
+package com.tutorial.context.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.tutorial.beans.factory.BeanDefinitionStoreException;
+import com.tutorial.beans.factory.BeanFactory;
+import com.tutorial.beans.factory.NoSuchBeanDefinitionException;
+import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.support.AbstractBeanDefinition;
+import com.tutorial.beans.factory.support.BeanDefinitionReader;
+import com.tutorial.beans.factory.support.BeanDefinitionRegistry;
+import com.tutorial.beans.factory.support.DefaultListableBeanFactory;
+import com.tutorial.beans.factory.xml.XmlBeanDefinitionReader;
+import com.tutorial.context.Lifecycle;
+import com.tutorial.core.SimpleAliasRegistry;
+import com.tutorial.core.io.Resource;
+import com.tutorial.util.Assert;
+import com.tutorial.util.StringUtils;
+
+/**
+ * Loads bean definition resources into a {@link GenericApplicationContext} and
+ * reloads them incrementally once they change, instead of requiring a full
+ * refresh of the context.
+ *
+ * <p>For every resource, the bean definitions and aliases it contributed are
+ * remembered. On reload, only the changed resource gets parsed again, and the
+ * result is diffed against what that resource contributed before: removed and
+ * changed bean definitions get removed or replaced, and only their singletons,
+ * the singletons of beans derived from them, and the singletons of their
+ * transitive dependents (as tracked by the bean factory's dependent bean map)
+ * get destroyed. Those singletons are then created again, along with new
+ * non-lazy singletons, so reload cost scales with the size of the change
+ * rather than with the size of the context.
+ *
+ * <p>{@link #start() Starting} this reloader watches the directories of all
+ * file-based resources with a {@link WatchService}, reloading any resource
+ * that changes. Resources imported by a resource are reloaded along with it,
+ * but are not watched themselves; call {@link #reload(Resource)} explicitly
+ * for such cases.
+ *
+ * <p>Note that reloaded bean definitions are registered as parsed:
+ * BeanFactoryPostProcessors are not applied to them again. Concurrent
+ * <code>getBean</code> calls during a reload may see beans that are just
+ * being replaced.
+ *
+ * <pre class="code">
+ * GenericApplicationContext ctx = new GenericApplicationContext();
+ * BeanDefinitionReloader reloader = new BeanDefinitionReloader(ctx);
+ * reloader.loadBeanDefinitions(new FileSystemResource("conf/beans.xml"));
+ * ctx.refresh();
+ * reloader.start();</pre>
+ */
+public class BeanDefinitionReloader implements Lifecycle {
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final GenericApplicationContext applicationContext;
+
+	private final Map<Resource, ResourceDefinitions> resourceDefinitions =
+			new LinkedHashMap<Resource, ResourceDefinitions>();
+
+	private long quietPeriod = 100;
+
+	private WatchService watchService;
+
+	private Thread watchThread;
+
+	/**
+	 * Create a new BeanDefinitionReloader for the given context.
+	 * @param applicationContext the context to load bean definitions into
+	 */
+	public BeanDefinitionReloader(GenericApplicationContext applicationContext) {
+		Assert.notNull(applicationContext, "ApplicationContext must not be null");
+		this.applicationContext = applicationContext;
+	}
+
+	/**
+	 * Set the time in milliseconds to wait for further file changes after a change
+	 * has been detected, before reloading. Default is 100 ms, letting editors
+	 * finish writing a file before it gets parsed.
+	 */
+	public void setQuietPeriod(long quietPeriod) {
+		this.quietPeriod = quietPeriod;
+	}
+
+	/**
+	 * Load the bean definitions from the given resources, remembering
+	 * them for being reloaded later.
+	 * @param resources the resources to load
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors
+	 */
+	public int loadBeanDefinitions(Resource... resources) throws BeanDefinitionStoreException {
+		int counter = 0;
+		for(Resource resource : resources) {
+			reload(resource);
+			counter += this.resourceDefinitions.get(resource).beanDefinitions.size();
+		}
+		return counter;
+	}
+
+	/**
+	 * Return the resources loaded through this reloader.
+	 */
+	public synchronized Set<Resource> getResources() {
+		return Collections.unmodifiableSet(new LinkedHashSet<Resource>(this.resourceDefinitions.keySet()));
+	}
+
+	/**
+	 * Parse the given resource again and apply the differences to the context,
+	 * destroying and recreating the affected singletons.
+	 * @param resource the resource to reload (or to load for the first time)
+	 * @return the names of the beans whose definitions or singletons have been
+	 * affected, in registration order
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors,
+	 * leaving the context untouched
+	 */
+	public synchronized Set<String> reload(Resource resource) throws BeanDefinitionStoreException {
+		DefaultListableBeanFactory beanFactory = this.applicationContext.getDefaultListableBeanFactory();
+		ResourceDefinitions previous = this.resourceDefinitions.get(resource);
+		if(previous == null) {
+			previous = new ResourceDefinitions(-1, -1, -1);
+		}
+		ResourceDefinitions current =
+				new ResourceDefinitions(lastModified(resource), contentLength(resource), checksum(resource));
+		RecordingRegistry registry = new RecordingRegistry(beanFactory, previous);
+		createBeanDefinitionReader(registry).loadBeanDefinitions(resource);
+		current.beanDefinitions.putAll(registry.beanDefinitions);
+		current.aliases.putAll(registry.aliases);
+
+		// Diff against the previous state of this resource.
+		Set<String> removed = new LinkedHashSet<String>();
+		Set<String> changed = new LinkedHashSet<String>();
+		Set<String> added = new LinkedHashSet<String>();
+		for(String beanName : previous.beanDefinitions.keySet()) {
+			if(!current.beanDefinitions.containsKey(beanName)) {
+				removed.add(beanName);
+			}
+		}
+		for(Map.Entry<String, BeanDefinition> entry : current.beanDefinitions.entrySet()) {
+			BeanDefinition previousBd = previous.beanDefinitions.get(entry.getKey());
+			if(previousBd == null) {
+				added.add(entry.getKey());
+			} else if(!previousBd.equals(entry.getValue())) {
+				changed.add(entry.getKey());
+			}
+		}
+		Set<String> removedAliases = new LinkedHashSet<String>();
+		for(Map.Entry<String, String> entry : previous.aliases.entrySet()) {
+			if(!entry.getValue().equals(current.aliases.get(entry.getKey()))) {
+				removedAliases.add(entry.getKey());
+			}
+		}
+
+		// Determine the affected beans: the changed ones plus derived and dependent beans.
+		Set<String> affected = new LinkedHashSet<String>();
+		if(!removed.isEmpty() || !changed.isEmpty() || !removedAliases.isEmpty()) {
+			Map<String, List<String>> childDefinitions = getChildDefinitions(beanFactory);
+			for(String beanName : removed) {
+				collectAffectedBeans(beanName, beanFactory, childDefinitions, affected);
+			}
+			for(String beanName : changed) {
+				collectAffectedBeans(beanName, beanFactory, childDefinitions, affected);
+			}
+			for(String alias : removedAliases) {
+				// Beans referring to the alias depend on its previous target bean.
+				for(String dependentBean : beanFactory.getDependentBeans(previous.aliases.get(alias))) {
+					collectAffectedBeans(dependentBean, beanFactory, childDefinitions, affected);
+				}
+			}
+		}
+		Set<String> instantiated = new HashSet<String>();
+		for(String beanName : affected) {
+			if(beanFactory.containsSingleton(beanName)) {
+				instantiated.add(beanName);
+			}
+		}
+		if(logger.isInfoEnabled()) {
+			logger.info("Reloading " + resource + ": " + added.size() + " bean definitions added, " +
+					changed.size() + " changed, " + removed.size() + " removed, " +
+					instantiated.size() + " singletons to recreate");
+		}
+
+		// Apply the differences.
+		for(String beanName : affected) {
+			beanFactory.destroySingleton(beanName);
+		}
+		for(String alias : removedAliases) {
+			if(beanFactory.isAlias(alias)) {
+				beanFactory.removeAlias(alias);
+			}
+		}
+		for(String beanName : removed) {
+			// Only if not overridden by another resource in the meantime.
+			if(beanFactory.containsBeanDefinition(beanName) &&
+					beanFactory.getBeanDefinition(beanName) == previous.registeredDefinitions.get(beanName)) {
+				beanFactory.removeBeanDefinition(beanName);
+			}
+		}
+		for(Map.Entry<String, BeanDefinition> entry : current.beanDefinitions.entrySet()) {
+			String beanName = entry.getKey();
+			BeanDefinition registered = previous.registeredDefinitions.get(beanName);
+			if(registered == null || changed.contains(beanName)) {
+				registered = copyBeanDefinition(entry.getValue());
+				beanFactory.registerBeanDefinition(beanName, registered);
+			}
+			current.registeredDefinitions.put(beanName, registered);
+		}
+		for(Map.Entry<String, String> entry : current.aliases.entrySet()) {
+			if(!entry.getValue().equals(previous.aliases.get(entry.getKey()))) {
+				beanFactory.registerAlias(entry.getValue(), entry.getKey());
+			}
+		}
+		this.resourceDefinitions.put(resource, current);
+
+		// Recreate destroyed singletons, plus new non-lazy singletons once the context is active.
+		if(this.applicationContext.isActive()) {
+			for(String beanName : beanFactory.getBeanDefinitionNames()) {
+				if(instantiated.contains(beanName) || (added.contains(beanName) && isEagerSingleton(beanName, beanFactory))) {
+					instantiateSingleton(beanName, beanFactory);
+				}
+			}
+		}
+		affected.addAll(added);
+		return affected;
+	}
+
+	/**
+	 * Return the names of the child bean definitions per parent bean name.
+	 */
+	private Map<String, List<String>> getChildDefinitions(DefaultListableBeanFactory beanFactory) {
+		Map<String, List<String>> childDefinitions = new HashMap<String, List<String>>();
+		for(String beanName : beanFactory.getBeanDefinitionNames()) {
+			String parentName = beanFactory.getBeanDefinition(beanName).getParentName();
+			if(parentName != null) {
+				List<String> children = childDefinitions.get(parentName);
+				if(children == null) {
+					children = new ArrayList<String>(2);
+					childDefinitions.put(parentName, children);
+				}
+				children.add(beanName);
+			}
+		}
+		return childDefinitions;
+	}
+
+	/**
+	 * Collect the given bean, the beans derived from it and its dependent beans, transitively.
+	 */
+	private void collectAffectedBeans(String beanName, DefaultListableBeanFactory beanFactory,
+			Map<String, List<String>> childDefinitions, Set<String> result) {
+		if(!result.add(beanName)) {
+			return;
+		}
+		for(String dependentBean : beanFactory.getDependentBeans(beanName)) {
+			collectAffectedBeans(dependentBean, beanFactory, childDefinitions, result);
+		}
+		List<String> children = childDefinitions.get(beanName);
+		if(children != null) {
+			for(String child : children) {
+				collectAffectedBeans(child, beanFactory, childDefinitions, result);
+			}
+		}
+	}
+
+	private boolean isEagerSingleton(String beanName, DefaultListableBeanFactory beanFactory) {
+		BeanDefinition bd = beanFactory.getMergedBeanDefinition(beanName);
+		return (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit());
+	}
+
+	private void instantiateSingleton(String beanName, DefaultListableBeanFactory beanFactory) {
+		if(!beanFactory.containsBeanDefinition(beanName) || !isSingletonDefinition(beanName, beanFactory)) {
+			return;
+		}
+		if(beanFactory.isFactoryBean(beanName)) {
+			beanFactory.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName);
+		} else {
+			beanFactory.getBean(beanName);
+		}
+	}
+
+	private boolean isSingletonDefinition(String beanName, DefaultListableBeanFactory beanFactory) {
+		BeanDefinition bd = beanFactory.getMergedBeanDefinition(beanName);
+		return (!bd.isAbstract() && bd.isSingleton());
+	}
+
+	/**
+	 * Create the reader to parse a resource with. The default implementation
+	 * creates an {@link XmlBeanDefinitionReader} using the context's environment
+	 * and resource loading.
+	 * @param registry the registry for the reader to load bean definitions into
+	 */
+	protected BeanDefinitionReader createBeanDefinitionReader(BeanDefinitionRegistry registry) {
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
+		reader.setEnvironment(this.applicationContext.getEnvironment());
+		reader.setResourceLoader(this.applicationContext);
+		return reader;
+	}
+
+	/**
+	 * Copy the given parsed bean definition for registration, keeping the parsed
+	 * definition unaffected by any modifications at runtime, for comparison later.
+	 */
+	private BeanDefinition copyBeanDefinition(BeanDefinition bd) {
+		return (bd instanceof AbstractBeanDefinition ? ((AbstractBeanDefinition) bd).cloneBeanDefinition() : bd);
+	}
+
+	private static long lastModified(Resource resource) {
+		try {
+			return resource.lastModified();
+		} catch (IOException ex) {
+			return -1;
+		}
+	}
+
+	private static long contentLength(Resource resource) {
+		try {
+			return resource.contentLength();
+		} catch (IOException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Compute a CRC-32 checksum of the content of the given resource,
+	 * or -1 if the resource cannot be read.
+	 */
+	private static long checksum(Resource resource) {
+		try {
+			InputStream in = resource.getInputStream();
+			try {
+				CRC32 crc = new CRC32();
+				byte[] buffer = new byte[4096];
+				int bytesRead;
+				while((bytesRead = in.read(buffer)) != -1) {
+					crc.update(buffer, 0, bytesRead);
+				}
+				return crc.getValue();
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			return -1;
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Implementation of Lifecycle interface
+	//---------------------------------------------------------------------
+
+	/**
+	 * Start watching all file-based resources for changes.
+	 */
+	public synchronized void start() {
+		if(this.watchService != null) {
+			return;
+		}
+		final Map<Path, Set<Resource>> watchedFiles = new HashMap<Path, Set<Resource>>();
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			Set<Path> directories = new HashSet<Path>();
+			for(Resource resource : this.resourceDefinitions.keySet()) {
+				File file;
+				try {
+					file = resource.getFile().getAbsoluteFile();
+				} catch (IOException ex) {
+					if(logger.isDebugEnabled()) {
+						logger.debug("Not watching " + resource + ": not available in the file system");
+					}
+					continue;
+				}
+				Path path = file.toPath();
+				Set<Resource> resources = watchedFiles.get(path);
+				if(resources == null) {
+					resources = new LinkedHashSet<Resource>();
+					watchedFiles.put(path, resources);
+				}
+				resources.add(resource);
+				if(directories.add(path.getParent())) {
+					path.getParent().register(this.watchService,
+							StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				}
+			}
+		} catch (IOException ex) {
+			stop();
+			throw new IllegalStateException("Could not watch bean definition resources", ex);
+		}
+
+		final WatchService watchService = this.watchService;
+		this.watchThread = new Thread("bean-definition-reloader") {
+			@Override
+			public void run() {
+				watch(watchService, watchedFiles);
+			}
+		};
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+		if(logger.isInfoEnabled()) {
+			logger.info("Watching " + watchedFiles.size() + " bean definition files for changes");
+		}
+	}
+
+	/**
+	 * Stop watching resources for changes.
+	 */
+	public void stop() {
+		Thread watchThread;
+		synchronized(this) {
+			if(this.watchService == null) {
+				return;
+			}
+			try {
+				this.watchService.close();
+			} catch (IOException ex) {
+				logger.debug("Could not close WatchService", ex);
+			}
+			this.watchService = null;
+			watchThread = this.watchThread;
+			this.watchThread = null;
+		}
+		if(watchThread != null && watchThread != Thread.currentThread()) {
+			try {
+				watchThread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public synchronized boolean isRunning() {
+		return (this.watchService != null);
+	}
+
+	/**
+	 * Reload watched resources whenever their files change, until the WatchService gets closed.
+	 */
+	private void watch(WatchService watchService, Map<Path, Set<Resource>> watchedFiles) {
+		try {
+			while(true) {
+				WatchKey key = watchService.take();
+				Set<Resource> changedResources = new LinkedHashSet<Resource>();
+				while(key != null) {
+					Path directory = (Path) key.watchable();
+					for(WatchEvent<?> event : key.pollEvents()) {
+						if(event.context() instanceof Path) {
+							Set<Resource> resources = watchedFiles.get(directory.resolve((Path) event.context()));
+							if(resources != null) {
+								changedResources.addAll(resources);
+							}
+						}
+					}
+					key.reset();
+					// Collect further changes within the quiet period, e.g. while a file is being written.
+					key = (changedResources.isEmpty() ? null :
+							watchService.poll(this.quietPeriod, TimeUnit.MILLISECONDS));
+				}
+				for(Resource resource : changedResources) {
+					reloadIfModified(resource);
+				}
+			}
+		} catch (ClosedWatchServiceException ex) {
+			// Stopped.
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reload the given resource unless it is unchanged since it has been loaded.
+	 * <p>A resource only counts as unchanged if its timestamp, its content length
+	 * and the checksum of its content are all the same, since a file may get
+	 * rewritten within the resolution of its timestamp. The checksum only gets
+	 * computed if the timestamp and the content length match.
+	 */
+	void reloadIfModified(Resource resource) {
+		synchronized(this) {
+			ResourceDefinitions definitions = this.resourceDefinitions.get(resource);
+			if(definitions != null && definitions.lastModified == lastModified(resource) &&
+					definitions.contentLength == contentLength(resource) &&
+					definitions.checksum == checksum(resource)) {
+				return;
+			}
+		}
+		try {
+			Set<String> affected = reload(resource);
+			if(logger.isDebugEnabled()) {
+				logger.debug("Reloaded " + resource + ", affected beans: " + affected);
+			}
+		} catch (RuntimeException ex) {
+			logger.error("Could not reload bean definitions from " + resource, ex);
+		}
+	}
+
+
+	/**
+	 * Bean definitions and aliases contributed by a single resource.
+	 */
+	private static class ResourceDefinitions {
+
+		private final long lastModified;
+
+		private final long contentLength;
+
+		private final long checksum;
+
+		/** Bean definitions as parsed */
+		private final Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+
+		/** Copies of the parsed bean definitions, as registered with the bean factory */
+		private final Map<String, BeanDefinition> registeredDefinitions = new HashMap<String, BeanDefinition>();
+
+		/** Alias to bean name */
+		private final Map<String, String> aliases = new LinkedHashMap<String, String>();
+
+		public ResourceDefinitions(long lastModified, long contentLength, long checksum) {
+			this.lastModified = lastModified;
+			this.contentLength = contentLength;
+			this.checksum = checksum;
+		}
+	}
+
+
+	/**
+	 * Registry recording the bean definitions and aliases parsed from a resource,
+	 * exposing the bean factory's content except for the definitions that the same
+	 * resource contributed before, so that generated bean names come out the same.
+	 */
+	private static class RecordingRegistry extends SimpleAliasRegistry implements BeanDefinitionRegistry {
+
+		private final DefaultListableBeanFactory beanFactory;
+
+		private final ResourceDefinitions previous;
+
+		private final Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+
+		private final Map<String, String> aliases = new LinkedHashMap<String, String>();
+
+		public RecordingRegistry(DefaultListableBeanFactory beanFactory, ResourceDefinitions previous) {
+			this.beanFactory = beanFactory;
+			this.previous = previous;
+		}
+
+		private boolean isVisible(String name) {
+			return !this.previous.beanDefinitions.containsKey(name) && !this.previous.aliases.containsKey(name);
+		}
+
+		public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) {
+			Assert.hasText(beanName, "'beanName' must not be empty");
+			Assert.notNull(beanDefinition, "BeanDefinition must not be null");
+			this.beanDefinitions.put(beanName, beanDefinition);
+		}
+
+		public void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions) {
+			for(Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+				registerBeanDefinition(entry.getKey(), entry.getValue());
+			}
+		}
+
+		public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+			if(this.beanDefinitions.remove(beanName) == null) {
+				throw new NoSuchBeanDefinitionException(beanName);
+			}
+		}
+
+		public BeanDefinition getBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+			BeanDefinition bd = this.beanDefinitions.get(beanName);
+			if(bd != null) {
+				return bd;
+			}
+			if(!isVisible(beanName)) {
+				throw new NoSuchBeanDefinitionException(beanName);
+			}
+			return this.beanFactory.getBeanDefinition(beanName);
+		}
+
+		public boolean containsBeanDefinition(String beanName) {
+			return this.beanDefinitions.containsKey(beanName) ||
+					(isVisible(beanName) && this.beanFactory.containsBeanDefinition(beanName));
+		}
+
+		public String[] getBeanDefinitionNames() {
+			Set<String> beanNames = new LinkedHashSet<String>();
+			for(String beanName : this.beanFactory.getBeanDefinitionNames()) {
+				if(isVisible(beanName)) {
+					beanNames.add(beanName);
+				}
+			}
+			beanNames.addAll(this.beanDefinitions.keySet());
+			return StringUtils.toStringArray(beanNames);
+		}
+
+		public int getBeanDefinitionCount() {
+			return getBeanDefinitionNames().length;
+		}
+
+		public boolean isBeanNameInUse(String beanName) {
+			return isAlias(beanName) || containsBeanDefinition(beanName);
+		}
+
+		@Override
+		public void registerAlias(String name, String alias) {
+			super.registerAlias(name, alias);
+			if(!name.equals(alias)) {
+				this.aliases.put(alias, name);
+			}
+		}
+
+		@Override
+		public void removeAlias(String alias) {
+			super.removeAlias(alias);
+			this.aliases.remove(alias);
+		}
+
+		@Override
+		public boolean isAlias(String name) {
+			return super.isAlias(name) || (isVisible(name) && this.beanFactory.isAlias(name));
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.tutorial.context.support;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.tutorial.beans.factory.support.BeanDependencyReport;
+import com.tutorial.beans.factory.xml.XmlBeanDefinitionReader;
+import com.tutorial.core.metrics.StartupRecorder;
+
+/**
+ * Command-line tool that starts an application context from XML bean
+ * definition files, recording the creation of every bean, and writes the
+ * resulting {@link BeanDependencyReport} (bean dependency graph, creation
+ * times and critical path) to standard output.
+ *
+ * <p>Usage: <code>BeanDependencyReportGenerator &lt;dot|json&gt; &lt;location&gt;...</code>
+ * <br>Locations are resolved like in {@link XmlBeanDefinitionReader#loadBeanDefinitions(String)},
+ * i.e. they may be class path or file locations and may contain wildcards.
+ * The DOT output can be rendered with GraphViz, e.g. <code>dot -Tsvg</code>.
+ */
+public class BeanDependencyReportGenerator {
+
+	/** Format for a GraphViz DOT graph */
+	public static final String FORMAT_DOT = "dot";
+
+	/** Format for a JSON document */
+	public static final String FORMAT_JSON = "json";
+
+
+	/**
+	 * Refresh an application context for the given XML bean definition files,
+	 * and create a dependency report for it.
+	 * @param locations the resource locations of the XML bean definition files
+	 * @return the report, taken right after the context has been refreshed
+	 */
+	public static BeanDependencyReport generateReport(String... locations) {
+		GenericApplicationContext context = new GenericApplicationContext();
+		try {
+			context.setStartupRecorder(new StartupRecorder());
+			new XmlBeanDefinitionReader(context).loadBeanDefinitions(locations);
+			context.refresh();
+			return new BeanDependencyReport(context.getBeanFactory());
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Write the given report in the given format.
+	 * @param report the report to write
+	 * @param format either {@link #FORMAT_DOT} or {@link #FORMAT_JSON}
+	 * @param writer the Writer to write to (not closed afterwards)
+	 * @throws IOException if writing failed
+	 */
+	public static void writeReport(BeanDependencyReport report, String format, Writer writer) throws IOException {
+		if(FORMAT_DOT.equals(format)) {
+			report.writeDot(writer);
+		} else if(FORMAT_JSON.equals(format)) {
+			report.writeJson(writer);
+		} else {
+			throw new IllegalArgumentException("Unknown report format '" + format + "': expected '" +
+					FORMAT_DOT + "' or '" + FORMAT_JSON + "'");
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2 || !(FORMAT_DOT.equals(args[0]) || FORMAT_JSON.equals(args[0]))) {
+			System.err.println("Usage: " + BeanDependencyReportGenerator.class.getName() +
+					" <" + FORMAT_DOT + "|" + FORMAT_JSON + "> <location>...");
+			System.exit(1);
+		}
+		String[] locations = new String[args.length - 1];
+		System.arraycopy(args, 1, locations, 0, locations.length);
+		BeanDependencyReport report = generateReport(locations);
+		writeReport(report, args[0], new OutputStreamWriter(System.out, "UTF-8"));
+		System.err.println("Critical path (" + report.getCriticalPathNanos() / 1000000 + " ms): " +
+				report.getCriticalPath());
+	}
+
+}
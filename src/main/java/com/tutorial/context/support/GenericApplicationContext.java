@@ -1,6 +1,7 @@
 package com.tutorial.context.support;
 
 import java.io.IOException;
+import java.util.Map;
 
 import com.tutorial.beans.BeansException;
 import com.tutorial.beans.factory.BeanDefinitionStoreException;
@@ -187,6 +188,11 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.beanFactory.registerBeanDefinition(beanName, beanDefinition);
 	}
 
+	public void registerBeanDefinitions(Map<String, BeanDefinition> beanDefinitions) 
+				throws BeanDefinitionStoreException {
+		this.beanFactory.registerBeanDefinitions(beanDefinitions);
+	}
+
 	public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
 		this.beanFactory.removeBeanDefinition(beanName);
 	}
@@ -1,6 +1,7 @@
 package com.tutorial.core;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -20,36 +21,43 @@ public abstract class AttributeAccessorSupport implements AttributeAccessor, Ser
 
 	private static final long serialVersionUID = 1L;
 	
-	private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+	/** Allocated on first attribute: most accessors never carry any */
+	private Map<String, Object> attributes;
 	
 
 	public void setAttribute(String name, Object value) {
 		Assert.notNull(name, "Name must not be null");
 		if(value != null){
+			if(this.attributes == null) {
+				this.attributes = new LinkedHashMap<String, Object>(4);
+			}
 			this.attributes.put(name, value);
 		}
 		else {
-			this.attributes.remove(name);
+			removeAttribute(name);
 		}
 	}
 
 	public Object getAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.get(name);
+		return (this.attributes != null ? this.attributes.get(name) : null);
 	}
 
 	public Object removeAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.remove(name);
+		return (this.attributes != null ? this.attributes.remove(name) : null);
 	}
 
 	public boolean hasAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.containsKey(name);
+		return (this.attributes != null && this.attributes.containsKey(name));
 	}
 
 	public String[] attributeNames() {
-		return this.attributes.keySet().toArray(new String[attributes.size()]);
+		if(this.attributes == null) {
+			return new String[0];
+		}
+		return this.attributes.keySet().toArray(new String[this.attributes.size()]);
 	}
 	
 	/**
@@ -73,12 +81,16 @@ public abstract class AttributeAccessorSupport implements AttributeAccessor, Ser
 			return false;
 		}
 		AttributeAccessorSupport that = (AttributeAccessorSupport) other;
-		return this.attributes.equals(that.attributes);
+		return attributes().equals(that.attributes());
 	}
 
 	@Override
 	public int hashCode() {
-		return this.attributes.hashCode();
+		return attributes().hashCode();
+	}
+
+	private Map<String, Object> attributes() {
+		return (this.attributes != null ? this.attributes : Collections.<String, Object>emptyMap());
 	}
 
 }
@@ -0,0 +1,345 @@
+package com.tutorial.core.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.tutorial.core.NamedThreadLocal;
+import com.tutorial.util.ClassUtils;
+import com.tutorial.util.ReflectionUtils;
+
+/**
+ * Records the steps of an application startup as a tree of
+ * {@link StartupStep StartupSteps}, measuring wall time, CPU time and
+ * allocated bytes for every step.
+ *
+ * <p>Application contexts record each phase of their refresh, and bean
+ * factories record every bean creation, once a recorder has been set through
+ * {@link com.tutorial.context.support.AbstractApplicationContext#setStartupRecorder}
+ * or {@link com.tutorial.beans.factory.config.ConfigurableBeanFactory#setStartupRecorder}.
+ * Without a recorder, nothing is measured.
+ *
+ * <p>Steps started while another step is active on the same thread become
+ * children of that step, so a bean step's parent is either the bean that
+ * triggered its creation or the refresh phase that it was created in. Beans
+ * created on other threads (e.g. during parallel pre-instantiation) are
+ * attached to the currently active refresh phase.
+ *
+ * <p>CPU time and allocated bytes are taken from the {@link ThreadMXBean};
+ * they are reported as <code>-1</code> where the JVM does not support them.
+ * The recorded tree can be queried via {@link #getRootSteps()},
+ * {@link #findStep} and {@link #getSteps}, or dumped as JSON via {@link #toJson()}.
+ *
+ * @see StartupStep
+ */
+public class StartupRecorder {
+
+	/** Category of steps that represent an application context refresh phase */
+	public static final String CATEGORY_PHASE = "phase";
+
+	/** Category of steps that represent the creation of a bean */
+	public static final String CATEGORY_BEAN = "bean";
+
+	private static final String SUN_THREAD_MX_BEAN_CLASS_NAME = "com.sun.management.ThreadMXBean";
+
+
+	private final ThreadMXBean threadMXBean;
+
+	private final boolean cpuTimeSupported;
+
+	private final Method allocatedBytesMethod;
+
+	private final List<StartupStep> rootSteps = new ArrayList<StartupStep>();
+
+	private final ThreadLocal<LinkedList<StartupStep>> activeSteps =
+			new NamedThreadLocal<LinkedList<StartupStep>>("Active startup steps");
+
+	private volatile StartupStep activePhase;
+
+	/**
+	 * Create a new StartupRecorder, measuring CPU time and allocated bytes
+	 * where supported by the JVM.
+	 */
+	public StartupRecorder() {
+		this.threadMXBean = ManagementFactory.getThreadMXBean();
+		this.cpuTimeSupported = this.threadMXBean.isCurrentThreadCpuTimeSupported() &&
+				this.threadMXBean.isThreadCpuTimeEnabled();
+		this.allocatedBytesMethod = determineAllocatedBytesMethod(this.threadMXBean);
+	}
+
+	private static Method determineAllocatedBytesMethod(ThreadMXBean threadMXBean) {
+		ClassLoader classLoader = StartupRecorder.class.getClassLoader();
+		if(!ClassUtils.isPresent(SUN_THREAD_MX_BEAN_CLASS_NAME, classLoader)) {
+			return null;
+		}
+		try {
+			Class<?> sunThreadMXBeanClass = ClassUtils.forName(SUN_THREAD_MX_BEAN_CLASS_NAME, classLoader);
+			if(!sunThreadMXBeanClass.isInstance(threadMXBean)) {
+				return null;
+			}
+			Method supportedMethod = sunThreadMXBeanClass.getMethod("isThreadAllocatedMemorySupported");
+			Method enabledMethod = sunThreadMXBeanClass.getMethod("isThreadAllocatedMemoryEnabled");
+			if(!Boolean.TRUE.equals(supportedMethod.invoke(threadMXBean)) ||
+					!Boolean.TRUE.equals(enabledMethod.invoke(threadMXBean))) {
+				return null;
+			}
+			return sunThreadMXBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (Throwable ex) {
+			// Not accessible on this JVM: do not record allocated bytes.
+			return null;
+		}
+	}
+
+
+	/**
+	 * Start a new step on the current thread. The step becomes a child of
+	 * the step currently active on this thread, if any, or of the currently
+	 * active refresh phase otherwise.
+	 * @param category the category of the step, e.g. {@link #CATEGORY_BEAN}
+	 * @param name the name of the step, e.g. the bean name
+	 * @return the started step, to be {@link StartupStep#end() ended} on the same thread
+	 */
+	public StartupStep start(String category, String name) {
+		LinkedList<StartupStep> steps = this.activeSteps.get();
+		if(steps == null) {
+			steps = new LinkedList<StartupStep>();
+			this.activeSteps.set(steps);
+		}
+		StartupStep parent = (!steps.isEmpty() ? steps.getLast() : this.activePhase);
+		StartupStep step = new StartupStep(this, category, name, parent);
+		if(parent != null) {
+			parent.addChild(step);
+		} else {
+			synchronized(this.rootSteps) {
+				this.rootSteps.add(step);
+			}
+		}
+		steps.add(step);
+		if(CATEGORY_PHASE.equals(category)) {
+			this.activePhase = step;
+		}
+		return step;
+	}
+
+	/**
+	 * Called by a step once it has ended.
+	 */
+	void stepEnded(StartupStep step) {
+		LinkedList<StartupStep> steps = this.activeSteps.get();
+		if(steps != null) {
+			// Drop the step along with any nested steps that have been
+			// abandoned without being ended, e.g. due to an exception.
+			int index = steps.lastIndexOf(step);
+			while(index >= 0 && steps.size() > index) {
+				steps.removeLast();
+			}
+			if(steps.isEmpty()) {
+				this.activeSteps.remove();
+			}
+		}
+		StartupStep activePhase = this.activePhase;
+		if(activePhase != null && (activePhase == step || isAncestor(step, activePhase))) {
+			StartupStep phase = step.getParent();
+			while(phase != null && (phase.isEnded() || !CATEGORY_PHASE.equals(phase.getCategory()))) {
+				phase = phase.getParent();
+			}
+			this.activePhase = phase;
+		}
+	}
+
+	private static boolean isAncestor(StartupStep candidate, StartupStep step) {
+		for(StartupStep parent = step.getParent(); parent != null; parent = parent.getParent()) {
+			if(parent == candidate) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	long currentThreadCpuTime() {
+		return (this.cpuTimeSupported ? this.threadMXBean.getCurrentThreadCpuTime() : -1);
+	}
+
+	long currentThreadAllocatedBytes() {
+		if(this.allocatedBytesMethod == null) {
+			return -1;
+		}
+		Object allocatedBytes = ReflectionUtils.invokeMethod(
+				this.allocatedBytesMethod, this.threadMXBean, Thread.currentThread().getId());
+		return (Long) allocatedBytes;
+	}
+
+
+	/**
+	 * Return a snapshot of the recorded root steps, in the order they were started.
+	 */
+	public List<StartupStep> getRootSteps() {
+		synchronized(this.rootSteps) {
+			return new ArrayList<StartupStep>(this.rootSteps);
+		}
+	}
+
+	/**
+	 * Find the first recorded step with the given name, in depth-first order.
+	 * @param name the name of the step, e.g. a bean name or
+	 * <code>"finishBeanFactoryInitialization"</code>
+	 * @return the step, or <code>null</code> if none found
+	 */
+	public StartupStep findStep(String name) {
+		for(StartupStep root : getRootSteps()) {
+			StartupStep found = root.findStep(name);
+			if(found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return all recorded steps of the given category, in depth-first order.
+	 * @param category the category, e.g. {@link #CATEGORY_BEAN},
+	 * or <code>null</code> for all steps
+	 */
+	public List<StartupStep> getSteps(String category) {
+		List<StartupStep> result = new ArrayList<StartupStep>();
+		for(StartupStep root : getRootSteps()) {
+			collectSteps(root, category, result);
+		}
+		return result;
+	}
+
+	private void collectSteps(StartupStep step, String category, List<StartupStep> result) {
+		if(category == null || category.equals(step.getCategory())) {
+			result.add(step);
+		}
+		for(StartupStep child : step.getChildren()) {
+			collectSteps(child, category, result);
+		}
+	}
+
+	/**
+	 * Return the ended steps of the given category with the highest wall time.
+	 * @param category the category, e.g. {@link #CATEGORY_BEAN},
+	 * or <code>null</code> for all steps
+	 * @param maxSteps the maximum number of steps to return
+	 */
+	public List<StartupStep> getSlowestSteps(String category, int maxSteps) {
+		List<StartupStep> steps = new ArrayList<StartupStep>();
+		for(StartupStep step : getSteps(category)) {
+			if(step.isEnded()) {
+				steps.add(step);
+			}
+		}
+		Collections.sort(steps, new Comparator<StartupStep>() {
+			public int compare(StartupStep o1, StartupStep o2) {
+				long t1 = o1.getWallTimeNanos();
+				long t2 = o2.getWallTimeNanos();
+				return (t1 > t2 ? -1 : (t1 < t2 ? 1 : 0));
+			}
+		});
+		return (steps.size() > maxSteps ? steps.subList(0, maxSteps) : steps);
+	}
+
+	/**
+	 * Discard all recorded steps.
+	 */
+	public void clear() {
+		synchronized(this.rootSteps) {
+			this.rootSteps.clear();
+		}
+	}
+
+
+	/**
+	 * Return the recorded step tree as a JSON document.
+	 * @see #writeJson(Writer)
+	 */
+	public String toJson() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeJson(writer);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unexpected IOException from StringWriter", ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Write the recorded step tree as a JSON document to the given Writer:
+	 * an object with a <code>"steps"</code> array holding the root steps, each
+	 * with its category, name, thread, triggering bean, wall time, CPU time,
+	 * allocated bytes and nested <code>"children"</code>.
+	 * @param writer the Writer to write to (not closed afterwards)
+	 * @throws IOException if writing failed
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\"steps\":");
+		writeJsonSteps(getRootSteps(), writer);
+		writer.write("}");
+		writer.flush();
+	}
+
+	private void writeJsonSteps(List<StartupStep> steps, Writer writer) throws IOException {
+		writer.write("[");
+		for(int i = 0; i < steps.size(); i++) {
+			if(i > 0) {
+				writer.write(",");
+			}
+			StartupStep step = steps.get(i);
+			writer.write("{\"category\":");
+			writeJsonString(step.getCategory(), writer);
+			writer.write(",\"name\":");
+			writeJsonString(step.getName(), writer);
+			writer.write(",\"thread\":");
+			writeJsonString(step.getThreadName(), writer);
+			writer.write(",\"triggeredBy\":");
+			writeJsonString(step.getTriggeringBeanName(), writer);
+			writer.write(",\"wallTimeNanos\":" + step.getWallTimeNanos());
+			writer.write(",\"cpuTimeNanos\":" + step.getCpuTimeNanos());
+			writer.write(",\"allocatedBytes\":" + step.getAllocatedBytes());
+			writer.write(",\"children\":");
+			writeJsonSteps(step.getChildren(), writer);
+			writer.write("}");
+		}
+		writer.write("]");
+	}
+
+	private void writeJsonString(String value, Writer writer) throws IOException {
+		if(value == null) {
+			writer.write("null");
+			return;
+		}
+		writer.write('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"': writer.write("\\\""); break;
+				case '\\': writer.write("\\\\"); break;
+				case '\n': writer.write("\\n"); break;
+				case '\r': writer.write("\\r"); break;
+				case '\t': writer.write("\\t"); break;
+				default:
+					if(c < 0x20) {
+						writer.write(String.format("\\u%04x", (int) c));
+					} else {
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + getRootSteps();
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.tutorial.core.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single recorded step of the application startup, such as a phase of
+ * the application context refresh or the creation of a bean.
+ *
+ * <p>Steps form a tree: every step started while another step is active on
+ * the same thread becomes a child of that step. Wall time, CPU time and
+ * allocated bytes are measured on the thread that started the step and
+ * include the time and allocations of all children on that thread.
+ *
+ * <p>Obtained from {@link StartupRecorder#start}; {@link #end()} must be
+ * called on the same thread once the step is complete.
+ *
+ * @see StartupRecorder
+ */
+public class StartupStep {
+
+	private final StartupRecorder recorder;
+
+	private final String category;
+
+	private final String name;
+
+	private final StartupStep parent;
+
+	private final String threadName;
+
+	private final List<StartupStep> children = new ArrayList<StartupStep>(4);
+
+	private final long startNanos;
+
+	private final long startCpuNanos;
+
+	private final long startAllocatedBytes;
+
+	private volatile boolean ended;
+
+	private long wallTimeNanos = -1;
+
+	private long cpuTimeNanos = -1;
+
+	private long allocatedBytes = -1;
+
+	StartupStep(StartupRecorder recorder, String category, String name, StartupStep parent) {
+		this.recorder = recorder;
+		this.category = category;
+		this.name = name;
+		this.parent = parent;
+		this.threadName = Thread.currentThread().getName();
+		this.startAllocatedBytes = recorder.currentThreadAllocatedBytes();
+		this.startCpuNanos = recorder.currentThreadCpuTime();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Return the category of this step, e.g. {@link StartupRecorder#CATEGORY_PHASE}
+	 * or {@link StartupRecorder#CATEGORY_BEAN}.
+	 */
+	public String getCategory() {
+		return this.category;
+	}
+
+	/**
+	 * Return the name of this step: the name of the refresh phase or of the bean.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return the enclosing step, or <code>null</code> for a root step.
+	 */
+	public StartupStep getParent() {
+		return this.parent;
+	}
+
+	/**
+	 * Return the name of the bean whose creation triggered this step, that is,
+	 * the name of the parent step if that is a bean step.
+	 * @return the triggering bean name, or <code>null</code> if none
+	 */
+	public String getTriggeringBeanName() {
+		return (this.parent != null && StartupRecorder.CATEGORY_BEAN.equals(this.parent.category) ?
+				this.parent.name : null);
+	}
+
+	/**
+	 * Return the name of the thread that this step ran on.
+	 */
+	public String getThreadName() {
+		return this.threadName;
+	}
+
+	/**
+	 * Return a snapshot of the child steps, in the order they were started.
+	 */
+	public List<StartupStep> getChildren() {
+		synchronized(this.children) {
+			return new ArrayList<StartupStep>(this.children);
+		}
+	}
+
+	/**
+	 * Return whether this step has ended yet.
+	 */
+	public boolean isEnded() {
+		return this.ended;
+	}
+
+	/**
+	 * Return the elapsed wall time in nanoseconds,
+	 * or <code>-1</code> if this step has not ended yet.
+	 */
+	public long getWallTimeNanos() {
+		return (this.ended ? this.wallTimeNanos : -1);
+	}
+
+	/**
+	 * Return the CPU time consumed by the thread in nanoseconds, or
+	 * <code>-1</code> if not supported by the JVM or if this step has not ended yet.
+	 */
+	public long getCpuTimeNanos() {
+		return (this.ended ? this.cpuTimeNanos : -1);
+	}
+
+	/**
+	 * Return the number of bytes allocated by the thread, or <code>-1</code>
+	 * if not supported by the JVM or if this step has not ended yet.
+	 */
+	public long getAllocatedBytes() {
+		return (this.ended ? this.allocatedBytes : -1);
+	}
+
+	/**
+	 * Find the first step with the given name in the subtree rooted at
+	 * this step, in depth-first order.
+	 * @param name the name of the step
+	 * @return the step, or <code>null</code> if none found
+	 */
+	public StartupStep findStep(String name) {
+		if(this.name.equals(name)) {
+			return this;
+		}
+		for(StartupStep child : getChildren()) {
+			StartupStep found = child.findStep(name);
+			if(found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * End this step, recording its measurements. Needs to be called on
+	 * the thread that started the step; subsequent calls are ignored.
+	 */
+	public void end() {
+		if(this.ended) {
+			return;
+		}
+		long endNanos = System.nanoTime();
+		long endCpuNanos = this.recorder.currentThreadCpuTime();
+		long endAllocatedBytes = this.recorder.currentThreadAllocatedBytes();
+		this.wallTimeNanos = endNanos - this.startNanos;
+		this.cpuTimeNanos = (this.startCpuNanos >= 0 && endCpuNanos >= 0 ? endCpuNanos - this.startCpuNanos : -1);
+		this.allocatedBytes = (this.startAllocatedBytes >= 0 && endAllocatedBytes >= 0 ?
+				endAllocatedBytes - this.startAllocatedBytes : -1);
+		this.ended = true;
+		this.recorder.stepEnded(this);
+	}
+
+	void addChild(StartupStep child) {
+		synchronized(this.children) {
+			this.children.add(child);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(this.category).append(" '").append(this.name).append("'");
+		if(this.ended) {
+			sb.append(": ").append(this.wallTimeNanos / 1000).append(" us");
+		}
+		return sb.toString();
+	}
+
+}
@@ -1489,11 +1489,186 @@ public class BeanWrapperTests {
 		bw.setPropertyValue("enumValue", TestEnum.class.getName() + ".TEST_VALUE");
 		assertEquals(TestEnum.TEST_VALUE, consumer.getEnumValue());
 	}
-	
+
+	@Test
+	public void testCompiledPropertyPathAcrossTargets() {
+		CompiledPropertyPath spouseName = CompiledPropertyPath.forPath("spouse.name");
+		CompiledPropertyPath mapName = CompiledPropertyPath.forPath("map['key.3'].name");
+		assertSame(spouseName, CompiledPropertyPath.forPath("spouse.name"));
+		assertTrue(spouseName.isNested());
+		assertFalse(CompiledPropertyPath.forPath("age").isNested());
+
+		BeanWrapperImpl bw = new BeanWrapperImpl();
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = new TestBean();
+			tb.setSpouse(new TestBean("kerry" + i, 0));
+			bw.setWrappedInstance(tb);
+			assertEquals("kerry" + i, bw.getPropertyValue(spouseName));
+			bw.setPropertyValue(spouseName, "rod" + i);
+			assertEquals("rod" + i, tb.getSpouse().getName());
+		}
+		for (int i = 0; i < 3; i++) {
+			IndexedTestBean itb = new IndexedTestBean();
+			bw.setWrappedInstance(itb);
+			bw.setPropertyValue(mapName, "name" + i);
+			assertEquals("name" + i, ((TestBean) itb.getMap().get("key.3")).getName());
+			assertEquals("name" + i, bw.getPropertyValue(mapName));
+		}
+	}
+
+	@Test
+	public void testCompiledPropertyPathCacheLimit() {
+		CompiledPropertyPath.clearCache();
+		CompiledPropertyPath.setCacheLimit(2);
+		try {
+			CompiledPropertyPath.forPath("name");
+			CompiledPropertyPath.forPath("age");
+			assertEquals(2, CompiledPropertyPath.getCacheSize());
+			CompiledPropertyPath.forPath("spouse.name");
+			assertEquals(1, CompiledPropertyPath.getCacheSize());
+		}
+		finally {
+			CompiledPropertyPath.setCacheLimit(CompiledPropertyPath.DEFAULT_CACHE_LIMIT);
+		}
+	}
+
+	@Test
+	public void testDefaultStringConversions() {
+		SimpleTypeConverter converter = new SimpleTypeConverter();
+		assertEquals(new Integer(42), converter.convertIfNecessary(" 42 ", int.class));
+		assertEquals(new Long(255), converter.convertIfNecessary("0xFF", Long.class));
+		assertEquals(null, converter.convertIfNecessary("", Integer.class));
+		assertEquals(Boolean.TRUE, converter.convertIfNecessary("yes", boolean.class));
+		assertEquals(Boolean.FALSE, converter.convertIfNecessary(" Off", Boolean.class));
+		assertEquals(TestBean.class, converter.convertIfNecessary(TestBean.class.getName(), Class.class));
+		assertEquals(TestEnum.TEST_VALUE, converter.convertIfNecessary(" TEST_VALUE ", TestEnum.class));
+		try {
+			converter.convertIfNecessary("x", int.class);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMisMatchException ex) {
+			// expected
+		}
+		try {
+			converter.convertIfNecessary("maybe", boolean.class);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMisMatchException ex) {
+			// expected
+		}
+
+		converter.overrideDefaultEditor(int.class, new PropertyEditorSupport() {
+			@Override
+			public void setAsText(String text) {
+				setValue(text.length());
+			}
+		});
+		assertEquals(new Integer(3), converter.convertIfNecessary("abc", int.class));
+
+		assertTrue(DefaultStringConverters.getConverter(int.class).isConvertible(" -42 "));
+		assertTrue(DefaultStringConverters.getConverter(long.class).isConvertible("#ff"));
+		assertTrue(DefaultStringConverters.getConverter(Integer.class).isConvertible(""));
+		assertFalse(DefaultStringConverters.getConverter(int.class).isConvertible(""));
+		assertFalse(DefaultStringConverters.getConverter(int.class).isConvertible("4x2"));
+		assertFalse(DefaultStringConverters.getConverter(int.class).isConvertible("0x"));
+		assertTrue(DefaultStringConverters.getConverter(boolean.class).isConvertible(" on"));
+		assertFalse(DefaultStringConverters.getConverter(boolean.class).isConvertible("maybe"));
+	}
+
+	@Test
+	public void testEnumConversionWithEditorByConvention() {
+		SimpleTypeConverter converter = new SimpleTypeConverter();
+		assertEquals(ConventionEnum.SECOND, converter.convertIfNecessary("2", ConventionEnum.class));
+		assertEquals(ConventionEnum.FIRST, converter.convertIfNecessary("1", ConventionEnum.class));
+	}
+
+	@Test
+	public void testBatchBindingWithPlan() {
+		List<TestBean> targets = new ArrayList<TestBean>();
+		for (int i = 0; i < 3; i++) {
+			targets.add(new TestBean());
+		}
+		targets.get(0).setSpouse(new TestBean());
+		targets.get(2).setSpouse(new TestBean());
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] {"rod", "31", "x", "kerry"});
+		rows.add(new Object[] {"juergen", "thirty", "y", "sabine"});
+		rows.add(new Object[] {"mark", "29", "z", "anne"});
+
+		BeanWrapperImpl bw = new BeanWrapperImpl();
+		try {
+			bw.createBindingPlan(targets.get(0), false, "name", "age", "noSuchProperty", "spouse.name");
+			fail("Should have thrown NotWritablePropertyException");
+		}
+		catch (NotWritablePropertyException ex) {
+			assertEquals("noSuchProperty", ex.getPropertyName());
+		}
+		PropertyBindingPlan plan = bw.createBindingPlan(targets.get(0), true, "name", "age", "noSuchProperty", "spouse.name");
+		assertEquals(4, plan.getPropertyCount());
+		assertEquals(Collections.singletonList("noSuchProperty"), plan.getSkippedProperties());
+
+		List<PropertyBindingError> errors = bw.setPropertyValues(plan, targets, rows);
+		assertEquals("rod", targets.get(0).getName());
+		assertEquals(31, targets.get(0).getAge());
+		assertEquals("kerry", targets.get(0).getSpouse().getName());
+		assertEquals("juergen", targets.get(1).getName());
+		assertEquals("mark", targets.get(2).getName());
+		assertEquals(29, targets.get(2).getAge());
+		assertEquals("anne", targets.get(2).getSpouse().getName());
+		assertSame(targets.get(2), bw.getWrappedInstance());
+
+		assertEquals(2, errors.size());
+		assertEquals(1, errors.get(0).getTargetIndex());
+		assertEquals("age", errors.get(0).getPropertyName());
+		assertEquals("thirty", errors.get(0).getValue());
+		assertEquals(TypeMisMatchException.ERROR_CODE, errors.get(0).getErrorCode());
+		assertEquals(TypeMisMatchException.class, errors.get(0).getExceptionType());
+		assertTrue(errors.get(0).getMessage().contains("'int'"));
+		assertEquals(1, errors.get(1).getTargetIndex());
+		assertEquals("spouse.name", errors.get(1).getPropertyName());
+		assertEquals(NullValueInNestedPathException.class, errors.get(1).getExceptionType());
+
+		// Values are not checked upfront when converted through a custom editor.
+		bw.registerCustomEditor(int.class, "age", new PropertyEditorSupport() {
+			@Override
+			public void setAsText(String text) {
+				setValue("thirty".equals(text) ? 30 : Integer.parseInt(text));
+			}
+		});
+		errors = bw.setPropertyValues(plan, targets.subList(1, 2), rows.subList(1, 2));
+		assertEquals(30, targets.get(1).getAge());
+		assertEquals(1, errors.size());
+		assertEquals("spouse.name", errors.get(0).getPropertyName());
+
+		try {
+			bw.setPropertyValues(plan, Collections.singletonList(new NumberTestBean()), rows.subList(0, 1));
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
 	public enum TestEnum {
 
 		TEST_VALUE
 	}
+
+	public enum ConventionEnum {
+
+		FIRST, SECOND
+	}
+
+	/**
+	 * Found for {@link ConventionEnum} through the "Editor" suffix convention.
+	 */
+	public static class ConventionEnumEditor extends PropertyEditorSupport {
+
+		@Override
+		public void setAsText(String text) {
+			setValue(ConventionEnum.values()[Integer.parseInt(text) - 1]);
+		}
+	}
 	
 	public static class EnumConsumer {
 
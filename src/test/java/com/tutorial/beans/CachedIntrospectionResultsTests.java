@@ -0,0 +1,149 @@
+package com.tutorial.beans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+import com.tutorial.util.FileCopyUtils;
+import com.tutorial.util.StopWatch;
+
+import test.beans.TestBean;
+
+public class CachedIntrospectionResultsTests {
+
+	private static final Log logger = LogFactory.getLog(CachedIntrospectionResultsTests.class);
+
+	@Test
+	public void testLenientPropertyNameLookup() {
+		CachedIntrospectionResults results = CachedIntrospectionResults.forClass(TestBean.class);
+		assertSame(results, CachedIntrospectionResults.forClass(TestBean.class));
+		assertEquals("name", results.getPropertyDescriptor("name").getName());
+		assertEquals("name", results.getPropertyDescriptor("Name").getName());
+		assertEquals("age", results.getPropertyDescriptor("Age").getName());
+		assertNull(results.getPropertyDescriptor("NAME"));
+		assertNull(results.getPropertyDescriptor(""));
+	}
+
+	@Test
+	public void testConcurrentIntrospection() throws Exception {
+		final int threadCount = 32;
+		final int classCount = 1000;
+
+		// Load the same bean class through separate ClassLoaders, yielding distinct classes.
+		InputStream is = getClass().getResourceAsStream("CachedIntrospectionResultsTests$BenchmarkBean.class");
+		final byte[] classBytes = FileCopyUtils.copyToByteArray(is);
+		URLClassLoader acceptedLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		final Class<?>[] classes = new Class<?>[classCount];
+		for (int i = 0; i < classCount; i++) {
+			classes[i] = new BenchmarkClassLoader(acceptedLoader, classBytes).loadClass(BenchmarkBean.class.getName());
+		}
+		CachedIntrospectionResults.acceptClassLoader(acceptedLoader);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			final CountDownLatch startSignal = new CountDownLatch(1);
+			Future<?>[] futures = new Future<?>[threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				final int offset = t;
+				futures[t] = executor.submit(new Callable<CachedIntrospectionResults[]>() {
+					public CachedIntrospectionResults[] call() throws Exception {
+						startSignal.await();
+						CachedIntrospectionResults[] results = new CachedIntrospectionResults[classCount];
+						for (int i = 0; i < classCount; i++) {
+							int index = (i + offset) % classCount;
+							results[index] = CachedIntrospectionResults.forClass(classes[index]);
+							assertNotNull(results[index].getPropertyDescriptor("Value"));
+						}
+						return results;
+					}
+				});
+			}
+			StopWatch sw = new StopWatch();
+			sw.start("introspect");
+			startSignal.countDown();
+			CachedIntrospectionResults[] first = (CachedIntrospectionResults[]) futures[0].get();
+			for (int t = 1; t < threadCount; t++) {
+				CachedIntrospectionResults[] other = (CachedIntrospectionResults[]) futures[t].get();
+				for (int i = 0; i < classCount; i++) {
+					// every class introspected exactly once
+					assertSame(first[i], other[i]);
+				}
+			}
+			sw.stop();
+			logger.info(threadCount + " threads introspecting " + classCount + " classes took " +
+					sw.getLastTaskTimeMillis() + " ms");
+			for (int i = 0; i < classCount; i++) {
+				assertSame(classes[i], first[i].getBeanClass());
+			}
+		}
+		finally {
+			executor.shutdown();
+			CachedIntrospectionResults.clearClassLoader(acceptedLoader);
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+
+	private static class BenchmarkClassLoader extends ClassLoader {
+
+		private final byte[] classBytes;
+
+		public BenchmarkClassLoader(ClassLoader parent, byte[] classBytes) {
+			super(parent);
+			this.classBytes = classBytes;
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (BenchmarkBean.class.getName().equals(name)) {
+				Class<?> clazz = findLoadedClass(name);
+				if (clazz == null) {
+					clazz = defineClass(name, this.classBytes, 0, this.classBytes.length);
+				}
+				return clazz;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+
+	public static class BenchmarkBean {
+
+		private String value;
+
+		private int count;
+
+		public String getValue() {
+			return value;
+		}
+
+		public void setValue(String value) {
+			this.value = value;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+	}
+
+}
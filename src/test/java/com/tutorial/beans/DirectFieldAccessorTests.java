@@ -0,0 +1,53 @@
+package com.tutorial.beans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import test.beans.TestBean;
+
+public class DirectFieldAccessorTests {
+
+	@Test
+	public void testRetargetedAccessor() {
+		TestBean tb1 = new TestBean("rod", 31);
+		TestBean tb2 = new TestBean("juergen", 30);
+		DirectFieldAccessor accessor = new DirectFieldAccessor(tb1);
+		assertEquals("rod", accessor.getPropertyValue("name"));
+		accessor.setPropertyValue("age", "32");
+		assertEquals(32, tb1.getAge());
+
+		accessor.setWrappedInstance(tb2);
+		assertSame(tb2, accessor.getWrappedInstance());
+		assertEquals("juergen", accessor.getPropertyValue("name"));
+		accessor.setPropertyValue("age", "33");
+		assertEquals(33, tb2.getAge());
+		assertEquals(32, tb1.getAge());
+
+		accessor.setWrappedInstance(new Holder());
+		assertTrue(accessor.isWritableProperty("value"));
+		assertFalse(accessor.isReadableProperty("age"));
+		accessor.setPropertyValue("value", "7");
+		assertEquals(7, ((Holder) accessor.getWrappedInstance()).value);
+	}
+
+	@Test
+	public void testFieldMetadataSharedPerClass() {
+		CachedFieldResults results = CachedFieldResults.forClass(Holder.class);
+		assertSame(results, CachedFieldResults.forClass(Holder.class));
+		assertEquals(long.class, results.getField("value").getTypeDescriptor().getType());
+		DirectFieldAccessor accessor1 = new DirectFieldAccessor(new Holder());
+		DirectFieldAccessor accessor2 = new DirectFieldAccessor(new Holder());
+		assertSame(accessor1.getPropertyTypeDescriptor("value"), accessor2.getPropertyTypeDescriptor("value"));
+	}
+
+
+	private static class Holder {
+
+		private long value;
+	}
+
+}
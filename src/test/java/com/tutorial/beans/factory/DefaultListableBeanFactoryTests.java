@@ -11,6 +11,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
 import java.security.AccessControlContext;
@@ -19,13 +21,19 @@ import java.security.Principal;
 import java.security.PrivilegedAction;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
 
@@ -39,24 +47,36 @@ import com.tutorial.beans.NotWritablePropertyException;
 import com.tutorial.beans.PropertyEditorRegistrar;
 import com.tutorial.beans.PropertyEditorRegistry;
 import com.tutorial.beans.PropertyValue;
+import com.tutorial.beans.PropertyValues;
 import com.tutorial.beans.TypeConverter;
 import com.tutorial.beans.TypeMisMatchException;
 import com.tutorial.beans.factory.config.AutowireCapableBeanFactory;
 import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.beans.factory.config.BeanPostProcessor;
+import com.tutorial.beans.factory.config.BeanPostProcessorProfiler;
 import com.tutorial.beans.factory.config.ConfigurableBeanFactory;
 import com.tutorial.beans.factory.config.ConstructorArgumentValues;
+import com.tutorial.beans.factory.config.DestructionAwareBeanPostProcessor;
 import com.tutorial.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
 import com.tutorial.beans.factory.config.RuntimeBeanReference;
+import com.tutorial.beans.factory.config.SelectiveBeanPostProcessor;
 import com.tutorial.beans.factory.config.TypedStringValue;
 import com.tutorial.beans.factory.support.AbstractBeanDefinition;
 import com.tutorial.beans.factory.support.AbstractBeanFactory;
 import com.tutorial.beans.factory.support.BeanDefinitionBuilder;
+import com.tutorial.beans.factory.support.BoundedMergedBeanDefinitionCache;
 import com.tutorial.beans.factory.support.ChildBeanDefinition;
+import com.tutorial.beans.factory.support.DefaultBeanFactoryMetrics;
+import com.tutorial.beans.factory.support.DefaultBeanPostProcessorProfiler;
 import com.tutorial.beans.factory.support.DefaultListableBeanFactory;
+import com.tutorial.beans.factory.support.DefaultMergedBeanDefinitionCache;
+import com.tutorial.beans.factory.support.GenericBeanDefinition;
+import com.tutorial.beans.factory.support.LatencyHistogram;
 import com.tutorial.beans.factory.support.ManagedList;
+import com.tutorial.beans.factory.support.MethodOverrides;
 import com.tutorial.beans.factory.support.PropertiesBeanDefinitionReader;
 import com.tutorial.beans.factory.support.RootBeanDefinition;
+import com.tutorial.beans.factory.support.SingletonDestructionReport;
 import com.tutorial.beans.factory.xml.ConstructorDependenciesBean;
 import com.tutorial.beans.factory.xml.DependenciesBean;
 import com.tutorial.beans.propertyeditors.CustomNumberEditor;
@@ -1648,6 +1668,51 @@ public class DefaultListableBeanFactoryTests {
 		assertTrue("Prototype creation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
 	}
 	
+	@Test
+	public void testConcurrentPrototypeCreationWithResolvedConstructorArguments() throws Exception {
+		final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("spouse"));
+		lbf.registerBeanDefinition("test", rbd);
+		RootBeanDefinition factoryMethodRbd = new RootBeanDefinition(TestBeanFactory.class);
+		factoryMethodRbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		factoryMethodRbd.setFactoryMethodName("createTestBean");
+		lbf.registerBeanDefinition("factoryMethod", factoryMethodRbd);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		final TestBean spouse = (TestBean) lbf.getBean("spouse");
+		final int threadCount = 16;
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final Throwable[] failures = new Throwable[threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for(int i = 0; i < threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						startSignal.await();
+						for(int j = 0; j < 5000; j++) {
+							TestBean tb = (TestBean) lbf.getBean("test");
+							assertSame(spouse, tb.getSpouse());
+							assertNotNull(lbf.getBean("factoryMethod"));
+						}
+					} catch(Throwable ex) {
+						failures[index] = ex;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		startSignal.countDown();
+		for(Thread thread : threads) {
+			thread.join(10000);
+		}
+		for(Throwable failure : failures) {
+			assertNull(failure);
+		}
+	}
+	
 	@Test
 	public void testPrototypeCreationWithPropertiesIsFastEnough() {
 		if (factoryLog.isTraceEnabled() || factoryLog.isDebugEnabled()) {
@@ -1696,6 +1761,92 @@ public class DefaultListableBeanFactoryTests {
 		assertTrue("Prototype creation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
 	}
 
+	@Test
+	public void testPrototypeCreationPlanIsReused() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<Object> registrations = new ArrayList<Object>();
+		lbf.addPropertyEditorRegistrar(new PropertyEditorRegistrar() {
+			public void registerCustomEditors(PropertyEditorRegistry registry) {
+				registrations.add(registry);
+			}
+		});
+		lbf.registerBeanDefinition("test", lifecycleMethodsPrototypeDefinition("99"));
+		LifecycleMethodsTestBean previous = null;
+		for(int i = 0; i < 5; i++) {
+			LifecycleMethodsTestBean tb = (LifecycleMethodsTestBean) lbf.getBean("test");
+			assertNotSame(previous, tb);
+			assertEquals("juergen", tb.getName());
+			assertEquals(99, tb.getAge());
+			assertTrue(tb.initialized);
+			previous = tb;
+		}
+		// Only the first instance has been populated through a BeanWrapper,
+		// further instances got the values converted for the first one.
+		assertEquals(1, registrations.size());
+		lbf.destroyBean("test", previous);
+		assertTrue(previous.closed);
+	}
+
+	@Test
+	public void testPrototypeCreationPlanAppliesPostProcessorsToEveryInstance() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<String> processedBeans = new ArrayList<String>();
+		lbf.addBeanPostProcessor(new BeanPostProcessor() {
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				assertFalse(((LifecycleMethodsTestBean) bean).initialized);
+				processedBeans.add(beanName);
+				return bean;
+			}
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				assertTrue(((LifecycleMethodsTestBean) bean).initialized);
+				return bean;
+			}
+		});
+		lbf.registerBeanDefinition("test", lifecycleMethodsPrototypeDefinition("99"));
+		for(int i = 0; i < 3; i++) {
+			assertTrue(((LifecycleMethodsTestBean) lbf.getBean("test")).initialized);
+		}
+		assertEquals(Arrays.asList("test", "test", "test"), processedBeans);
+	}
+
+	@Test
+	public void testPrototypeCreationPlanIsInvalidated() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("test", lifecycleMethodsPrototypeDefinition("99"));
+		lbf.getBean("test");
+		assertEquals(99, ((TestBean) lbf.getBean("test")).getAge());
+
+		// A re-registered bean definition gets a new plan.
+		lbf.registerBeanDefinition("test", lifecycleMethodsPrototypeDefinition("42"));
+		assertEquals(42, ((TestBean) lbf.getBean("test")).getAge());
+		assertEquals(42, ((TestBean) lbf.getBean("test")).getAge());
+
+		// An InstantiationAwareBeanPostProcessor added later sees every further instance.
+		final List<Object> processedBeans = new ArrayList<Object>();
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public PropertyValues postProcessPropertyValues(PropertyValues pvs, PropertyDescriptor[] pds,
+					Object bean, String beanName) {
+				processedBeans.add(bean);
+				return pvs;
+			}
+		});
+		Object tb1 = lbf.getBean("test");
+		Object tb2 = lbf.getBean("test");
+		assertEquals(Arrays.asList(tb1, tb2), processedBeans);
+		assertEquals(42, ((TestBean) tb2).getAge());
+	}
+
+	private RootBeanDefinition lifecycleMethodsPrototypeDefinition(String age) {
+		RootBeanDefinition rbd = new RootBeanDefinition(LifecycleMethodsTestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.setInitMethodName("init");
+		rbd.setDestroyMethodName("close");
+		rbd.getPropertyValues().add("name", "juergen");
+		rbd.getPropertyValues().add("age", age);
+		return rbd;
+	}
+
 	@Test
 	public void testBeanPostProcessorWithWrappedObjectAndDisposableBean() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
@@ -1938,7 +2089,608 @@ public class DefaultListableBeanFactoryTests {
 		assertThat(bf.containsBean("abs"), is(true));
 		assertThat(bf.containsBean("bogus"), is(false));
 	}
-	
+
+	@Test
+	public void testBeanNamesForTypeCacheResetOnRegistration() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("tb1", new RootBeanDefinition(TestBean.class));
+		lbf.freezeConfiguration();
+		String[] beanNames = lbf.getBeanNamesForType(TestBean.class);
+		assertEquals(1, beanNames.length);
+		assertSame(beanNames, lbf.getBeanNamesForType(TestBean.class));
+
+		lbf.registerBeanDefinition("tb2", new RootBeanDefinition(TestBean.class));
+		assertEquals(2, lbf.getBeanNamesForType(TestBean.class).length);
+		lbf.registerSingleton("tb3", new TestBean());
+		assertEquals(3, lbf.getBeanNamesForType(TestBean.class).length);
+		lbf.removeBeanDefinition("tb1");
+		assertEquals(Arrays.asList("tb2", "tb3"), Arrays.asList(lbf.getBeanNamesForType(TestBean.class)));
+		assertEquals(2, lbf.getBeanNamesForType(TestBean.class, true, false).length);
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithReferencesAndCycle() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setPreInstantiationParallelism(4);
+		for(int i = 0; i < 20; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.getPropertyValues().add("name", "tb" + i);
+			if(i > 0) {
+				bd.getPropertyValues().add("spouse", new RuntimeBeanReference("tb" + (i - 1)));
+			}
+			lbf.registerBeanDefinition("tb" + i, bd);
+		}
+		RootBeanDefinition cyclic1 = new RootBeanDefinition(TestBean.class);
+		cyclic1.getPropertyValues().add("spouse", new RuntimeBeanReference("cyclic2"));
+		lbf.registerBeanDefinition("cyclic1", cyclic1);
+		RootBeanDefinition cyclic2 = new RootBeanDefinition(TestBean.class);
+		cyclic2.getPropertyValues().add("spouse", new RuntimeBeanReference("cyclic1"));
+		lbf.registerBeanDefinition("cyclic2", cyclic2);
+		RootBeanDefinition lazy = new RootBeanDefinition(TestBean.class);
+		lazy.setLazyInit(true);
+		lbf.registerBeanDefinition("lazy", lazy);
+		lbf.preInstantiateSingletons();
+
+		assertEquals(22, lbf.getSingletonCount());
+		assertFalse(lbf.containsSingleton("lazy"));
+		TestBean tb19 = (TestBean) lbf.getBean("tb19");
+		assertSame(lbf.getBean("tb18"), tb19.getSpouse());
+		TestBean c1 = (TestBean) lbf.getBean("cyclic1");
+		TestBean c2 = (TestBean) lbf.getBean("cyclic2");
+		assertSame(c2, c1.getSpouse());
+		assertSame(c1, c2.getSpouse());
+	}
+
+	@Test
+	public void testConcurrentLazySingletonCreationIsFastEnough() throws Exception {
+		if (factoryLog.isTraceEnabled() || factoryLog.isDebugEnabled()) {
+			// Skip this test: Trace logging blows the time limit.
+			return;
+		}
+		final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final int threadCount = 64;
+		for(int i = 0; i < threadCount; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(SlowInitTestBean.class);
+			bd.setLazyInit(true);
+			bd.setInitMethodName("init");
+			lbf.registerBeanDefinition("lazy" + i, bd);
+		}
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final Object[] resolved = new Object[threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for(int i = 0; i < threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						startSignal.await();
+						resolved[index] = lbf.getBean("lazy" + index);
+					} catch(InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		StopWatch sw = new StopWatch();
+		sw.start("lazy singletons");
+		startSignal.countDown();
+		for(Thread thread : threads) {
+			thread.join(10000);
+		}
+		sw.stop();
+		// System.out.println(sw.getTotalTimeMillis());
+		for(int i = 0; i < threadCount; i++) {
+			assertSame(lbf.getBean("lazy" + i), resolved[i]);
+		}
+		// Serialized creation would take at least threadCount * SlowInitTestBean.INIT_MILLIS.
+		assertTrue("Concurrent singleton creation took too long: " + sw.getTotalTimeMillis(), 
+				sw.getTotalTimeMillis() < 1500);
+	}
+
+	@Test
+	public void testCircularReferenceAcrossThreads() throws Exception {
+		final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd1 = new RootBeanDefinition(SlowConstructorTestBean.class);
+		bd1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+		lbf.registerBeanDefinition("tb1", bd1);
+		RootBeanDefinition bd2 = new RootBeanDefinition(SlowConstructorTestBean.class);
+		bd2.getPropertyValues().add("spouse", new RuntimeBeanReference("tb1"));
+		lbf.registerBeanDefinition("tb2", bd2);
+		Thread t1 = new Thread() {
+			@Override
+			public void run() {
+				lbf.getBean("tb1");
+			}
+		};
+		Thread t2 = new Thread() {
+			@Override
+			public void run() {
+				lbf.getBean("tb2");
+			}
+		};
+		t1.start();
+		t2.start();
+		t1.join(5000);
+		t2.join(5000);
+		assertFalse("Deadlock between singleton creation threads", t1.isAlive() || t2.isAlive());
+		TestBean tb1 = (TestBean) lbf.getBean("tb1");
+		TestBean tb2 = (TestBean) lbf.getBean("tb2");
+		assertSame(tb2, tb1.getSpouse());
+		assertSame(tb1, tb2.getSpouse());
+	}
+
+	@Test
+	public void testEarlySingletonReferencesObtainedConcurrently() throws Exception {
+		final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		lbf.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public Object getEarlyBeanReference(Object bean, String beanName) {
+				// Both threads have to be obtaining an early reference at the same time.
+				try {
+					barrier.await(5, TimeUnit.SECONDS);
+				} catch(Exception ex) {
+					throw new IllegalStateException("Early reference of bean '" + beanName + "' not obtained concurrently", ex);
+				}
+				return bean;
+			}
+		});
+		for(String prefix : new String[] {"a", "b"}) {
+			RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class);
+			bd1.getPropertyValues().add("spouse", new RuntimeBeanReference(prefix + "2"));
+			lbf.registerBeanDefinition(prefix + "1", bd1);
+			RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class);
+			bd2.getPropertyValues().add("spouse", new RuntimeBeanReference(prefix + "1"));
+			lbf.registerBeanDefinition(prefix + "2", bd2);
+		}
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[2];
+		for(int i = 0; i < threads.length; i++) {
+			final String beanName = (i == 0 ? "a1" : "b1");
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						lbf.getBean(beanName);
+					} catch(Throwable ex) {
+						failures.add(ex);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join(10000);
+			assertFalse("Deadlock between singleton creation threads", thread.isAlive());
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertSame(lbf.getBean("a1"), ((TestBean) lbf.getBean("a2")).getSpouse());
+		assertSame(lbf.getBean("b1"), ((TestBean) lbf.getBean("b2")).getSpouse());
+	}
+
+	@Test
+	public void testBeanFactoryMetrics() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		DefaultBeanFactoryMetrics metrics = new DefaultBeanFactoryMetrics();
+		lbf.setBeanFactoryMetrics(metrics);
+		lbf.registerBeanDefinition("singleton", new RootBeanDefinition(BeanWithDisposableBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(BeanWithDestroyMethod.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bd.setDestroyMethodName("close");
+		lbf.registerBeanDefinition("prototype", bd);
+
+		for(int i = 0; i < 3; i++) {
+			lbf.getBean("singleton");
+		}
+		Object prototype = null;
+		for(int i = 0; i < 5; i++) {
+			prototype = lbf.getBean("prototype");
+		}
+		lbf.destroyBean("prototype", prototype);
+		lbf.destroySingletons();
+
+		DefaultBeanFactoryMetrics.BeanMetrics singletonMetrics = metrics.getBeanMetrics("singleton");
+		assertEquals(BeanDefinition.SCOPE_SINGLETON, singletonMetrics.getScope());
+		assertEquals(3, singletonMetrics.getRequestCount());
+		assertEquals(2, singletonMetrics.getSingletonCacheHitCount());
+		assertEquals(1, singletonMetrics.getCreationCount());
+		assertEquals(1, singletonMetrics.getDestructionCount());
+		DefaultBeanFactoryMetrics.BeanMetrics prototypeMetrics = metrics.getBeanMetrics("prototype");
+		assertEquals(BeanDefinition.SCOPE_PROTOTYPE, prototypeMetrics.getScope());
+		assertEquals(5, prototypeMetrics.getRequestCount());
+		assertEquals(0, prototypeMetrics.getSingletonCacheHitCount());
+		assertEquals(5, prototypeMetrics.getCreationCount());
+		assertEquals(1, prototypeMetrics.getDestructionCount());
+		assertEquals(prototypeMetrics.getCreationTimes().getMaxNanos(),
+				prototypeMetrics.getCreationTimes().getPercentileNanos(100));
+
+		assertEquals(8, metrics.getRequestCount());
+		assertEquals(0.25, metrics.getSingletonCacheHitRatio(), 0.0001);
+		assertEquals(2, metrics.getMostExpensiveBeans(10).size());
+		assertEquals(1, metrics.getMostExpensiveBeans(1).size());
+	}
+
+	@Test
+	public void testLatencyHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileNanos(50));
+		for(int i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000, histogram.getMaxNanos());
+		assertEquals(50000, histogram.getMeanNanos());
+		long p50 = histogram.getPercentileNanos(50);
+		assertTrue("p50 was " + p50, p50 >= 50000 && p50 <= 50000 * 1.125);
+		long p99 = histogram.getPercentileNanos(99);
+		assertTrue("p99 was " + p99, p99 >= 99000 && p99 <= 100000);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+	}
+
+	@Test
+	public void testCompactBeanDefinitions() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setCompactBeanDefinitions(true);
+		GenericBeanDefinition bd = new GenericBeanDefinition();
+		bd.setBeanClassName(new String(TestBean.class.getName()));
+		bd.setScope(new String(BeanDefinition.SCOPE_PROTOTYPE));
+		bd.setConstructorArgumentValues(new ConstructorArgumentValues());
+		bd.setPropertyValues(new MutablePropertyValues().add(new String("name"), "tb"));
+		bd.getMethodOverrides();
+		lbf.registerBeanDefinition("tb", bd);
+
+		assertSame(TestBean.class.getName(), bd.getBeanClassName());
+		assertSame(BeanDefinition.SCOPE_PROTOTYPE, bd.getScope());
+		assertSame("name", bd.getPropertyValues().getPropertyValues()[0].getName());
+		assertFalse(bd.hasConstructorArgumentValues());
+		assertFalse(bd.hasMethodOverrides());
+		assertTrue(bd.getConstructorArgumentValues().isEmpty());
+		assertEquals("tb", ((TestBean) lbf.getBean("tb")).getName());
+		assertNotSame(lbf.getBean("tb"), lbf.getBean("tb"));
+	}
+
+	@Test
+	public void testCompactBeanDefinitionFootprint() throws Exception {
+		int count = 20000;
+		long standardBytes = bytesPerBeanDefinition(false, count);
+		long compactBytes = bytesPerBeanDefinition(true, count);
+		// Log only: heap measurements around System.gc() are too noisy to assert on.
+		factoryLog.info("Bytes per bean definition: " + standardBytes + " standard, " + compactBytes + " compact");
+	}
+
+	/**
+	 * Measure the retained heap per registered bean definition, for definitions
+	 * shaped like the ones that bean definition readers produce.
+	 */
+	private static long bytesPerBeanDefinition(boolean compact, int count) throws InterruptedException {
+		long before = usedHeap();
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setCompactBeanDefinitions(compact);
+		for(int i = 0; i < count; i++) {
+			GenericBeanDefinition bd = new GenericBeanDefinition();
+			bd.setBeanClassName(new String(TestBean.class.getName()));
+			bd.setScope(new String(BeanDefinition.SCOPE_SINGLETON));
+			bd.setConstructorArgumentValues(new ConstructorArgumentValues());
+			bd.setPropertyValues(new MutablePropertyValues().add(new String("name"), "tb" + i));
+			bd.getMethodOverrides();
+			lbf.registerBeanDefinition("tb" + i, bd);
+		}
+		long after = usedHeap();
+		assertEquals(count, lbf.getBeanDefinitionCount());
+		return (after - before) / count;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Test
+	public void testBeanDefinitionsNotCompactedByDefault() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		GenericBeanDefinition bd = new GenericBeanDefinition();
+		String beanClassName = new String(TestBean.class.getName());
+		bd.setBeanClassName(beanClassName);
+		ConstructorArgumentValues cargs = new ConstructorArgumentValues();
+		bd.setConstructorArgumentValues(cargs);
+		MethodOverrides overrides = bd.getMethodOverrides();
+		lbf.registerBeanDefinition("tb", bd);
+
+		assertSame(beanClassName, bd.getBeanClassName());
+		assertNotSame(TestBean.class.getName(), bd.getBeanClassName());
+		assertSame(cargs, bd.getConstructorArgumentValues());
+		assertSame(overrides, bd.getMethodOverrides());
+	}
+
+	@Test
+	public void testBoundedMergedBeanDefinitionCache() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		BoundedMergedBeanDefinitionCache cache = new BoundedMergedBeanDefinitionCache(2);
+		lbf.setMergedBeanDefinitionCache(cache);
+		lbf.registerBeanDefinition("singleton", new RootBeanDefinition(TestBean.class));
+		for(int i = 0; i < 5; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			bd.getPropertyValues().add("age", i);
+			lbf.registerBeanDefinition("prototype" + i, bd);
+		}
+		assertNotNull(lbf.getBean("singleton"));
+		for(int i = 0; i < 5; i++) {
+			assertEquals(i, ((TestBean) lbf.getBean("prototype" + i)).getAge());
+		}
+		assertEquals(3, cache.size());
+		assertEquals(3, cache.getEvictionCount());
+		assertNotNull(cache.get("singleton"));
+
+		// Evicted merged bean definitions get merged again.
+		assertEquals(0, ((TestBean) lbf.getBean("prototype0")).getAge());
+		assertEquals(3, cache.size());
+		assertTrue(cache.getHitCount() > 0);
+		assertTrue(cache.getMissCount() > 0);
+	}
+
+	@Test
+	public void testMergedBeanDefinitionCacheCountsEachLookupOnce() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		DefaultMergedBeanDefinitionCache cache = new DefaultMergedBeanDefinitionCache();
+		lbf.setMergedBeanDefinitionCache(cache);
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		lbf.getMergedBeanDefinition("tb");
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		lbf.getBean("tb");
+		long hits = cache.getHitCount();
+		long misses = cache.getMissCount();
+		lbf.getMergedBeanDefinition("tb");
+		assertEquals(hits + 1, cache.getHitCount());
+		assertEquals(misses, cache.getMissCount());
+	}
+
+	@Test
+	public void testBoundedMergedBeanDefinitionCacheKeepsReferencedEntries() {
+		BoundedMergedBeanDefinitionCache cache = new BoundedMergedBeanDefinitionCache(2);
+		cache.put("a", prototypeDefinition());
+		cache.put("b", prototypeDefinition());
+		cache.put("c", prototypeDefinition());
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getEvictionCount());
+
+		assertNotNull(cache.get("b"));
+		cache.put("d", prototypeDefinition());
+		assertNotNull(cache.get("b"));
+		assertNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+
+		cache.remove("b");
+		cache.put("e", prototypeDefinition());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+	}
+
+	private static RootBeanDefinition prototypeDefinition() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		return bd;
+	}
+
+	@Test
+	public void testLazyCollectionInjection() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setLazyCollectionInjection(true);
+		for(String beanName : new String[] {"tb1", "tb2", "tb3"}) {
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.setLazyInit(true);
+			bd.getPropertyValues().add("name", beanName);
+			lbf.registerBeanDefinition(beanName, bd);
+		}
+		lbf.registerBeanDefinition("holder",
+				new RootBeanDefinition(CollectionHolder.class, RootBeanDefinition.AUTOWIRE_CONSTRUCTOR));
+		CollectionHolder holder = (CollectionHolder) lbf.getBean("holder");
+		assertEquals(3, holder.list.size());
+		assertEquals(3, holder.map.size());
+		assertEquals(Arrays.asList("tb1", "tb2", "tb3"), new ArrayList<String>(holder.map.keySet()));
+		assertFalse(lbf.containsSingleton("tb1"));
+		assertFalse(lbf.containsSingleton("tb2"));
+		assertFalse(lbf.containsSingleton("tb3"));
+		assertEquals(3, lbf.getDependenciesForBean("holder").length);
+
+		assertEquals("tb2", holder.list.get(1).getName());
+		assertTrue(lbf.containsSingleton("tb2"));
+		assertFalse(lbf.containsSingleton("tb1"));
+		assertSame(lbf.getBean("tb3"), holder.map.get("tb3"));
+		assertSame(holder.list.get(2), holder.map.get("tb3"));
+		assertNull(holder.map.get("tb4"));
+		assertFalse(lbf.containsSingleton("tb1"));
+		try {
+			holder.list.add(new TestBean());
+			fail("Should have thrown UnsupportedOperationException");
+		} catch (UnsupportedOperationException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBeanPostProcessorProfiling() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		DefaultBeanPostProcessorProfiler profiler = new DefaultBeanPostProcessorProfiler();
+		lbf.setBeanPostProcessorProfiler(profiler);
+		BeanPostProcessor slow = new BeanPostProcessor() {
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				return bean;
+			}
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return bean;
+			}
+		};
+		InstantiationAwareBeanPostProcessorAdapter fast = new InstantiationAwareBeanPostProcessorAdapter();
+		lbf.addBeanPostProcessor(fast);
+		lbf.addBeanPostProcessor(slow);
+		for(int i = 0; i < 3; i++) {
+			lbf.registerBeanDefinition("tb" + i, new RootBeanDefinition(TestBean.class));
+		}
+		lbf.preInstantiateSingletons();
+
+		assertEquals(3, profiler.getCallbackProfile(slow, BeanPostProcessorProfiler.AFTER_INITIALIZATION).getInvocationCount());
+		assertEquals(3, profiler.getCallbackProfile(fast, BeanPostProcessorProfiler.BEFORE_INSTANTIATION).getInvocationCount());
+		assertEquals(3, profiler.getCallbackProfile(fast, BeanPostProcessorProfiler.PROPERTY_VALUES).getInvocationCount());
+		assertEquals(7, profiler.getCallbackProfiles().size());
+		DefaultBeanPostProcessorProfiler.CallbackProfile mostExpensive = profiler.getMostExpensiveCallbacks(1).get(0);
+		assertSame(slow, mostExpensive.getBeanPostProcessor());
+		assertEquals(BeanPostProcessorProfiler.AFTER_INITIALIZATION, mostExpensive.getCallback());
+		assertTrue(profiler.getTotalNanos(slow) >= 3 * 5000000L);
+		factoryLog.info(profiler.getMostExpensiveCallbacks(3));
+	}
+
+	@Test
+	public void testSelectiveBeanPostProcessorIsSkipped() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		final List<String> processedBeans = new ArrayList<String>();
+		final List<Class<?>> askedClasses = new ArrayList<Class<?>>();
+		lbf.addBeanPostProcessor(new SelectiveBeanPostProcessor() {
+			public boolean isApplicableTo(Class<?> beanClass) {
+				askedClasses.add(beanClass);
+				return ITestBean.class.isAssignableFrom(beanClass);
+			}
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				processedBeans.add(beanName);
+				return bean;
+			}
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean;
+			}
+		});
+		for(int i = 0; i < 3; i++) {
+			lbf.registerBeanDefinition("tb" + i, new RootBeanDefinition(TestBean.class));
+			lbf.registerBeanDefinition("other" + i, new RootBeanDefinition(NestedTestBean.class));
+		}
+		lbf.preInstantiateSingletons();
+
+		assertEquals(Arrays.asList("tb0", "tb1", "tb2"), processedBeans);
+		assertEquals(Arrays.<Class<?>>asList(TestBean.class, NestedTestBean.class), askedClasses);
+	}
+
+	@Test
+	public void testSelectiveBeanPostProcessorIsSkippedForAllCallbacks() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		RecordingSelectiveBeanPostProcessor processor = new RecordingSelectiveBeanPostProcessor();
+		lbf.addBeanPostProcessor(processor);
+		RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class);
+		bd1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+		lbf.registerBeanDefinition("tb1", bd1);
+		RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class);
+		bd2.getPropertyValues().add("spouse", new RuntimeBeanReference("tb1"));
+		bd2.setDestroyMethodName("toString");
+		lbf.registerBeanDefinition("tb2", bd2);
+		lbf.registerBeanDefinition("nested", new RootBeanDefinition(NestedTestBean.class));
+		assertEquals(TestBean.class, lbf.getType("tb1"));
+		lbf.preInstantiateSingletons();
+		lbf.destroySingletons();
+
+		assertEquals(Arrays.asList("predictBeanType:nested", "determineCandidateConstructors:nested",
+				"postProcessBeforeInitialization:nested", "postProcessBeforeDestruction:nested"), processor.callbacks);
+		assertEquals(Arrays.<Class<?>>asList(TestBean.class, NestedTestBean.class), processor.askedClasses);
+
+		// Cached applicability gets dropped along with the singletons.
+		lbf.getBean("nested");
+		assertEquals(Arrays.<Class<?>>asList(TestBean.class, NestedTestBean.class, NestedTestBean.class),
+				processor.askedClasses);
+	}
+
+	@Test
+	public void testParallelDestroySingletons() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setDestructionParallelism(4);
+		Map<String, SlowDisposableBean> beans = new LinkedHashMap<String, SlowDisposableBean>();
+		for(String beanName : new String[] {"pool", "client", "cache1", "cache2", "cache3"}) {
+			SlowDisposableBean bean = new SlowDisposableBean(100);
+			beans.put(beanName, bean);
+			lbf.registerSingleton(beanName, bean);
+			lbf.registerDisposableBean(beanName, bean);
+		}
+		lbf.registerDependentBean("pool", "client");
+		lbf.destroySingletons();
+
+		for(SlowDisposableBean bean : beans.values()) {
+			assertTrue(bean.endTime > 0);
+		}
+		assertTrue("Client must be destroyed before the pool it depends on",
+				beans.get("client").endTime <= beans.get("pool").startTime);
+		SingletonDestructionReport report = lbf.getLastDestructionReport();
+		assertEquals(2, report.getWaveCount());
+		assertEquals(5, report.getDestructionTimes().size());
+		assertTrue(report.getDestructionTimeNanos("pool") >= 100000000L);
+		assertTrue(report.getTimedOutBeans().isEmpty());
+		assertTrue("Parallel shutdown took " + report.getTotalNanos() / 1000000 + " ms",
+				report.getTotalNanos() < 5 * 100000000L);
+		assertEquals(0, lbf.getSingletonCount());
+		factoryLog.info(report);
+	}
+
+	@Test
+	public void testParallelDestroySingletonsWithTimeout() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setDestructionParallelism(2);
+		lbf.setDestructionTimeout(100);
+		SlowDisposableBean stuck = new SlowDisposableBean(10000);
+		SlowDisposableBean executor = new SlowDisposableBean(0);
+		SlowDisposableBean other = new SlowDisposableBean(0);
+		lbf.registerDisposableBean("executor", executor);
+		lbf.registerDisposableBean("stuck", stuck);
+		lbf.registerDisposableBean("other", other);
+		lbf.registerDependentBean("executor", "stuck");
+		long startTime = System.currentTimeMillis();
+		lbf.destroySingletons();
+
+		assertTrue(System.currentTimeMillis() - startTime < 5000);
+		SingletonDestructionReport report = lbf.getLastDestructionReport();
+		assertEquals(Arrays.asList("stuck"), report.getTimedOutBeans());
+		assertEquals(-1, report.getDestructionTimeNanos("stuck"));
+		assertTrue(executor.endTime > 0);
+		assertTrue(other.endTime > 0);
+		assertTrue(report.toString().contains("timed out: [stuck]"));
+	}
+
+	@Test
+	public void testParallelDestroySingletonsWithNonDisposableAndInnerBeans() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setDestructionParallelism(4);
+		SlowDisposableBean outer = new SlowDisposableBean(50);
+		SlowDisposableBean inner = new SlowDisposableBean(50);
+		SlowDisposableBean pool = new SlowDisposableBean(50);
+		lbf.registerSingleton("outer", outer);
+		lbf.registerDisposableBean("outer", outer);
+		lbf.registerSingleton("plain", new TestBean());
+		lbf.registerDisposableBean("(inner bean)#1", inner);
+		lbf.registerDisposableBean("pool", pool);
+		// outer references a plain, non-disposable bean
+		lbf.registerDependentBean("plain", "outer");
+		// outer contains an inner bean, which references the pool
+		lbf.registerContainedBean("(inner bean)#1", "outer");
+		lbf.registerDependentBean("pool", "(inner bean)#1");
+		lbf.destroySingletons();
+
+		assertTrue(outer.endTime > 0);
+		assertTrue(inner.endTime > 0);
+		assertTrue(pool.endTime > 0);
+		assertTrue("Inner bean must be destroyed before the pool it depends on",
+				inner.endTime <= pool.startTime);
+		assertEquals(0, lbf.getSingletonCount());
+		assertTrue(lbf.getLastDestructionReport().getTimedOutBeans().isEmpty());
+	}
+
 	private static class TestPrincipal implements Principal {
 
 		private String  name;
@@ -2227,6 +2979,37 @@ public class DefaultListableBeanFactoryTests {
 		
 	}
 
+	public static class SlowDisposableBean implements DisposableBean {
+
+		private final long destroyMillis;
+
+		private volatile long startTime;
+
+		private volatile long endTime;
+
+		public SlowDisposableBean(long destroyMillis) {
+			this.destroyMillis = destroyMillis;
+		}
+
+		public void destroy() throws InterruptedException {
+			this.startTime = System.nanoTime();
+			Thread.sleep(this.destroyMillis);
+			this.endTime = System.nanoTime();
+		}
+	}
+
+	public static class CollectionHolder {
+
+		private final List<TestBean> list;
+
+		private final Map<String, TestBean> map;
+
+		public CollectionHolder(List<TestBean> list, Map<String, TestBean> map) {
+			this.list = list;
+			this.map = map;
+		}
+	}
+
 	public static class TestBeanFactory {
 		public static boolean initialized = false;
 		public TestBeanFactory() {
@@ -2240,6 +3023,37 @@ public class DefaultListableBeanFactoryTests {
 		}
 	}
 	
+	public static class SlowInitTestBean extends TestBean {
+		
+		public static final long INIT_MILLIS = 50;
+		
+		public void init() throws InterruptedException {
+			Thread.sleep(INIT_MILLIS);
+		}
+	}
+	
+	public static class LifecycleMethodsTestBean extends TestBean {
+		
+		private boolean initialized;
+		
+		private boolean closed;
+		
+		public void init() {
+			this.initialized = true;
+		}
+		
+		public void close() {
+			this.closed = true;
+		}
+	}
+	
+	public static class SlowConstructorTestBean extends TestBean {
+		
+		public SlowConstructorTestBean() throws InterruptedException {
+			Thread.sleep(200);
+		}
+	}
+	
 	private static class KnowsIfInstantiated  {
 		private static boolean instantiated;
 		
@@ -2255,4 +3069,45 @@ public class DefaultListableBeanFactoryTests {
 			instantiated = true;
 		}
 	}
+
+	private static class RecordingSelectiveBeanPostProcessor extends InstantiationAwareBeanPostProcessorAdapter
+			implements SelectiveBeanPostProcessor, DestructionAwareBeanPostProcessor {
+
+		private final List<String> callbacks = new ArrayList<String>();
+
+		private final List<Class<?>> askedClasses = new ArrayList<Class<?>>();
+
+		public boolean isApplicableTo(Class<?> beanClass) {
+			this.askedClasses.add(beanClass);
+			return NestedTestBean.class.equals(beanClass);
+		}
+
+		@Override
+		public Class<?> predictBeanType(Class<?> beanClass, String beanName) {
+			this.callbacks.add("predictBeanType:" + beanName);
+			return null;
+		}
+
+		@Override
+		public Constructor<?>[] determineCandidateConstructors(Class<?> beanClass, String beanName) {
+			this.callbacks.add("determineCandidateConstructors:" + beanName);
+			return null;
+		}
+
+		@Override
+		public Object getEarlyBeanReference(Object bean, String beanName) {
+			this.callbacks.add("getEarlyBeanReference:" + beanName);
+			return bean;
+		}
+
+		@Override
+		public Object postProcessBeforeInitialization(Object bean, String beanName) {
+			this.callbacks.add("postProcessBeforeInitialization:" + beanName);
+			return bean;
+		}
+
+		public void postProcessBeforeDestruction(Object bean, String beanName) {
+			this.callbacks.add("postProcessBeforeDestruction:" + beanName);
+		}
+	}
 }
@@ -0,0 +1,165 @@
+package com.tutorial.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+import com.tutorial.beans.BeanInstantiationException;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
+import com.tutorial.util.StopWatch;
+
+import test.beans.TestBean;
+
+public class BytecodeInstantiationStrategyTests {
+
+	private static final Log factoryLog = LogFactory.getLog(DefaultListableBeanFactory.class);
+
+	@Test
+	public void testInstantiateWithDefaultConstructor() {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		Object bean = strategy.instantiate(bd, "test", null);
+		assertEquals(TestBean.class, bean.getClass());
+		assertEquals(TestBean.class.getName() + "$$BeanAccessor$$",
+				strategy.getBeanAccessor(TestBean.class).getClass().getName().replaceAll("\\d+$", ""));
+		assertNotSame(TestBean.class.getClassLoader(), strategy.getBeanAccessor(TestBean.class).getClass().getClassLoader());
+	}
+
+	@Test
+	public void testInstantiateWithConstructorArguments() throws Exception {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		TestBean tb = (TestBean) strategy.instantiate(bd, "test", null,
+				TestBean.class.getConstructor(String.class, int.class), new Object[] {"juergen", 99});
+		assertEquals("juergen", tb.getName());
+		assertEquals(99, tb.getAge());
+	}
+
+	@Test
+	public void testInstantiateWithNonMatchingArgumentsFallsBackToReflection() throws Exception {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		try {
+			strategy.instantiate(bd, "test", null,
+					TestBean.class.getConstructor(String.class, int.class), new Object[] {"juergen", null});
+			fail("Should have thrown BeanInstantiationException");
+		} catch (BeanInstantiationException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConstructorExceptionIsWrapped() {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		RootBeanDefinition bd = new RootBeanDefinition(FailingBean.class);
+		try {
+			strategy.instantiate(bd, "test", null);
+			fail("Should have thrown BeanInstantiationException");
+		} catch (BeanInstantiationException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testNonPublicClassIsNotSupported() {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		assertNull(strategy.getBeanAccessor(NonPublicBean.class));
+		Object bean = strategy.instantiate(new RootBeanDefinition(NonPublicBean.class), "test", null);
+		assertEquals(NonPublicBean.class, bean.getClass());
+	}
+
+	@Test
+	public void testSetPropertyValue() throws Throwable {
+		BytecodeInstantiationStrategy strategy = new BytecodeInstantiationStrategy();
+		BeanAccessor accessor = strategy.getBeanAccessor(TestBean.class);
+		TestBean tb = new TestBean();
+		Method setName = TestBean.class.getMethod("setName", String.class);
+		Method setAge = TestBean.class.getMethod("setAge", int.class);
+		accessor.setPropertyValue(accessor.getWriteMethodIndex(setName), tb, "juergen");
+		accessor.setPropertyValue(accessor.getWriteMethodIndex(setAge), tb, 99);
+		assertEquals("juergen", tb.getName());
+		assertEquals(99, tb.getAge());
+		assertEquals(setName, accessor.getWriteMethod(accessor.getWriteMethodIndex(setName)));
+		assertEquals(-1, accessor.getWriteMethodIndex(Object.class.getMethod("toString")));
+	}
+
+	@Test
+	public void testPrototypeCreationWithProperties() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setInstantiationStrategy(new BytecodeInstantiationStrategy());
+		registerPrototype(lbf);
+		TestBean spouse = (TestBean) lbf.getBean("spouse");
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = (TestBean) lbf.getBean("test");
+			assertEquals("juergen", tb.getName());
+			assertEquals(99, tb.getAge());
+			assertSame(spouse, tb.getSpouse());
+		}
+	}
+
+	@Test
+	public void testPrototypeCreationComparedToReflection() {
+		if (factoryLog.isTraceEnabled() || factoryLog.isDebugEnabled()) {
+			// Skip this test: Trace logging blows the time limit.
+			return;
+		}
+		DefaultListableBeanFactory reflective = new DefaultListableBeanFactory();
+		registerPrototype(reflective);
+		DefaultListableBeanFactory generated = new DefaultListableBeanFactory();
+		generated.setInstantiationStrategy(new BytecodeInstantiationStrategy());
+		registerPrototype(generated);
+
+		StopWatch sw = new StopWatch();
+		for (int round = 0; round < 2; round++) {
+			// First round: warm-up, second round: measurement.
+			sw = new StopWatch();
+			sw.start("reflective");
+			createPrototypes(reflective);
+			sw.stop();
+			sw.start("generated");
+			createPrototypes(generated);
+			sw.stop();
+		}
+		long reflectiveMillis = sw.getTaskInfo()[0].getTimeMillis();
+		long generatedMillis = sw.getTaskInfo()[1].getTimeMillis();
+		factoryLog.info("Prototype creation: " + reflectiveMillis + " ms reflective, " + generatedMillis +
+				" ms generated (ratio " + (double) generatedMillis / Math.max(reflectiveMillis, 1) + ")");
+		assertTrue("Prototype creation took too long: " + generatedMillis, generatedMillis < 4000);
+		// Loose bound, leaving room for timing noise: generated accessors must not be markedly slower.
+		assertTrue("Generated prototype creation took " + generatedMillis + " ms versus " + reflectiveMillis +
+				" ms through reflection", generatedMillis <= reflectiveMillis * 2 + 100);
+	}
+
+	private void registerPrototype(DefaultListableBeanFactory lbf) {
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		rbd.getPropertyValues().add("name", "juergen");
+		rbd.getPropertyValues().add("age", "99");
+		rbd.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		lbf.registerBeanDefinition("test", rbd);
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+	}
+
+	private void createPrototypes(DefaultListableBeanFactory lbf) {
+		for (int i = 0; i < 100000; i++) {
+			lbf.getBean("test");
+		}
+	}
+
+
+	public static class FailingBean {
+
+		public FailingBean() {
+			throw new IllegalStateException("Expected");
+		}
+	}
+
+
+	static class NonPublicBean {
+	}
+
+}
@@ -2,9 +2,16 @@ package com.tutorial.beans.factory.support;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import com.tutorial.beans.factory.BeanDefinitionStoreException;
+import com.tutorial.beans.factory.config.BeanDefinition;
 import com.tutorial.core.io.ClassPathResource;
 
 import test.beans.TestBean;
@@ -44,4 +51,69 @@ public class PropertiesBeanDefinitionReaderTests {
 		assertEquals(23, bean.getAge());
 	}
 
+	@Test
+	public void testRegisterBeanDefinitionsInOneBatch() {
+		Properties props = new Properties();
+		props.setProperty("rob.(class)", TestBean.class.getName());
+		props.setProperty("rob.name", "Rob");
+		props.setProperty("rob.spouse(ref)", "sally");
+		props.setProperty("sally.(class)", TestBean.class.getName());
+		props.setProperty(" sally.age ", "21");
+		props.setProperty("invalid", "ignored");
+		assertEquals(2, this.reader.registerBeanDefinitions(props));
+		assertEquals(2, this.beanFactory.getBeanDefinitionCount());
+		TestBean rob = (TestBean) this.beanFactory.getBean("rob");
+		assertEquals("Rob", rob.getName());
+		assertSame(this.beanFactory.getBean("sally"), rob.getSpouse());
+		assertEquals(21, rob.getSpouse().getAge());
+
+		// Already registered beans are left alone.
+		props.setProperty("rob.name", "Robert");
+		assertEquals(0, this.reader.registerBeanDefinitions(props));
+		assertEquals("Rob", ((TestBean) this.beanFactory.getBean("rob")).getName());
+	}
+
+	@Test
+	public void testRegisterBeanDefinitionsWithNestedProperty() {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("tb.(class)", TestBean.class.getName());
+		map.put("tb.spouse(ref)", "sally");
+		map.put("tb.spouse.name", "Sally");
+		map.put("sally.(class)", TestBean.class.getName());
+		assertEquals(3, this.reader.registerBeanDefinitions(map, null));
+		// The nested key is a property of "tb" as well as of "tb.spouse".
+		assertEquals("Sally", this.beanFactory.getBeanDefinition("tb.spouse").getPropertyValues().getPropertyValue("name").getValue());
+		TestBean tb = (TestBean) this.beanFactory.getBean("tb");
+		assertSame(this.beanFactory.getBean("sally"), tb.getSpouse());
+		assertEquals("Sally", tb.getSpouse().getName());
+	}
+
+	@Test
+	public void testRegisterBeanDefinitionsInOrder() {
+		Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+		beanDefinitions.put("c", new RootBeanDefinition(TestBean.class));
+		beanDefinitions.put("a", new RootBeanDefinition(TestBean.class));
+		beanDefinitions.put("b", new RootBeanDefinition(TestBean.class));
+		this.beanFactory.registerBeanDefinitions(beanDefinitions);
+		assertEquals(Arrays.asList("c", "a", "b"), Arrays.asList(this.beanFactory.getBeanDefinitionNames()));
+		assertEquals(3, this.beanFactory.getBeanNamesForType(TestBean.class).length);
+	}
+
+	@Test
+	public void testRegisterBeanDefinitionsIsAllOrNothing() {
+		this.beanFactory.setAllowBeanDefinitionOverriding(false);
+		this.beanFactory.registerBeanDefinition("b", new RootBeanDefinition(TestBean.class));
+		Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+		beanDefinitions.put("a", new RootBeanDefinition(TestBean.class));
+		beanDefinitions.put("b", new RootBeanDefinition(TestBean.class));
+		try {
+			this.beanFactory.registerBeanDefinitions(beanDefinitions);
+			fail("Should have thrown BeanDefinitionStoreException");
+		} catch (BeanDefinitionStoreException ex) {
+			// expected
+		}
+		assertFalse(this.beanFactory.containsBeanDefinition("a"));
+		assertEquals(1, this.beanFactory.getBeanDefinitionCount());
+	}
+
 }
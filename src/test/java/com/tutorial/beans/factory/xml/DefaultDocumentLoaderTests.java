@@ -0,0 +1,143 @@
+package com.tutorial.beans.factory.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import com.tutorial.core.io.ClassPathResource;
+import com.tutorial.util.xml.SimpleSaxErrorHandler;
+import com.tutorial.util.xml.XmlValidationModeDetector;
+
+public class DefaultDocumentLoaderTests {
+
+	private static final String ITEMS_SCHEMA = "http://www.tutorial.com/schema/items.xsd";
+
+	private static final String NOTES_SCHEMA = "http://www.tutorial.com/schema/notes.xsd";
+
+	private final DefaultDocumentLoader loader = new DefaultDocumentLoader();
+
+	private final SimpleSaxErrorHandler errorHandler =
+			new SimpleSaxErrorHandler(LogFactory.getLog(DefaultDocumentLoaderTests.class));
+
+	@Test
+	public void testDtdResolvedOnce() throws Exception {
+		CountingEntityResolver entityResolver = new CountingEntityResolver(new BeansDtdResolver());
+		for(int i = 0; i < 3; i++) {
+			Document doc = this.loader.loadDocument(
+					new InputSource(new ClassPathResource("validateWithDtd.xml", getClass()).getInputStream()),
+					entityResolver, this.errorHandler, XmlValidationModeDetector.VALIDATION_DTD, false);
+			assertEquals("beans", doc.getDocumentElement().getNodeName());
+		}
+		assertEquals(1, entityResolver.count);
+	}
+
+	@Test
+	public void testSchemaCompiledOnce() throws Exception {
+		CountingEntityResolver entityResolver = new CountingEntityResolver(new SchemaResolver());
+		for(int i = 0; i < 3; i++) {
+			Document doc = loadItems("<item name='item" + i + "'/>", entityResolver);
+			Element item = (Element) doc.getDocumentElement().getFirstChild();
+			assertEquals("item" + i, item.getAttribute("name"));
+			// Default attribute value supplied by the schema.
+			assertEquals("1", item.getAttribute("count"));
+		}
+		assertEquals(1, entityResolver.count);
+
+		try {
+			loadItems("<item count='2'/>", entityResolver);
+			fail("Should have thrown SAXParseException");
+		} catch (SAXParseException ex) {
+			// expected: "name" is required
+		}
+		assertEquals(1, entityResolver.count);
+	}
+
+	@Test
+	public void testSchemaDeclaredBelowRootElement() throws Exception {
+		CountingEntityResolver entityResolver = new CountingEntityResolver(new SchemaResolver());
+		loadItems("<item name='item'/>", entityResolver);
+		for(int i = 0; i < 2; i++) {
+			Document doc = loadItems("<item name='item'/>" +
+					"<note xmlns='http://www.tutorial.com/schema/notes' " +
+					"xsi:schemaLocation='http://www.tutorial.com/schema/notes " + NOTES_SCHEMA + "' text='note'/>",
+					entityResolver);
+			Element note = (Element) doc.getDocumentElement().getLastChild();
+			assertEquals("note", note.getLocalName());
+			// Default attribute value supplied by the schema declared below the root element.
+			assertEquals("normal", note.getAttribute("priority"));
+		}
+
+		try {
+			loadItems("<note xmlns='http://www.tutorial.com/schema/notes' " +
+					"xsi:schemaLocation='http://www.tutorial.com/schema/notes " + NOTES_SCHEMA + "'/>",
+					entityResolver);
+			fail("Should have thrown SAXParseException");
+		} catch (SAXParseException ex) {
+			// expected: "text" is required
+		}
+	}
+
+	@Test
+	public void testSchemaWithoutCaching() throws Exception {
+		this.loader.setCacheGrammars(false);
+		this.loader.setPoolDocumentBuilders(false);
+		CountingEntityResolver entityResolver = new CountingEntityResolver(new SchemaResolver());
+		for(int i = 0; i < 2; i++) {
+			Document doc = loadItems("<item name='item'/>", entityResolver);
+			assertEquals("1", ((Element) doc.getDocumentElement().getFirstChild()).getAttribute("count"));
+		}
+		assertEquals(2, entityResolver.count);
+	}
+
+	private Document loadItems(String content, EntityResolver entityResolver) throws Exception {
+		String xml = "<?xml version='1.0' encoding='UTF-8'?>" +
+				"<items xmlns='http://www.tutorial.com/schema/items' " +
+				"xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance' " +
+				"xsi:schemaLocation='http://www.tutorial.com/schema/items " + ITEMS_SCHEMA + "'>" + content + "</items>";
+		return this.loader.loadDocument(new InputSource(new ByteArrayInputStream(xml.getBytes("UTF-8"))),
+				entityResolver, this.errorHandler, XmlValidationModeDetector.VALIDATION_XSD, true);
+	}
+
+
+	private static class SchemaResolver implements EntityResolver {
+
+		public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+			if(!ITEMS_SCHEMA.equals(systemId) && !NOTES_SCHEMA.equals(systemId)) {
+				return null;
+			}
+			String fileName = systemId.substring(systemId.lastIndexOf('/') + 1);
+			InputSource source = new InputSource(new ClassPathResource(fileName, getClass()).getInputStream());
+			source.setSystemId(systemId);
+			return source;
+		}
+	}
+
+
+	private static class CountingEntityResolver implements EntityResolver {
+
+		private final EntityResolver targetResolver;
+
+		private int count;
+
+		public CountingEntityResolver(EntityResolver targetResolver) {
+			this.targetResolver = targetResolver;
+		}
+
+		public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+			this.count++;
+			return this.targetResolver.resolveEntity(publicId, systemId);
+		}
+	}
+
+}
@@ -1,20 +1,35 @@
 package com.tutorial.beans.factory.xml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
 
 import com.tutorial.beans.factory.BeanDefinitionStoreException;
+import com.tutorial.beans.factory.config.BeanDefinition;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
 import com.tutorial.beans.factory.support.BeanDefinitionRegistry;
 import com.tutorial.beans.factory.support.DefaultListableBeanFactory;
+import com.tutorial.beans.factory.support.RootBeanDefinition;
 import com.tutorial.beans.factory.support.SimpleBeanDefinitionRegistry;
+import com.tutorial.core.env.StandardEnvironment;
 import com.tutorial.core.io.ClassPathResource;
+import com.tutorial.core.io.FileSystemResource;
 import com.tutorial.core.io.InputStreamResource;
 import com.tutorial.core.io.Resource;
 
@@ -117,6 +132,290 @@ public class XmlBeanDefinitionReaderTests {
 		testBeanDefinitions(registry);
 	}
 
+	@Test
+	public void testWithStreaming() {
+		SimpleBeanDefinitionRegistry registry = new SimpleBeanDefinitionRegistry();
+		Resource resource = new ClassPathResource("import.xml", getClass());
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
+		reader.setStreaming(true);
+		reader.setDocumentLoader(new FailingDocumentLoader());
+		assertEquals(24, reader.loadBeanDefinitions(resource));
+		testBeanDefinitions(registry);
+	}
+
+	@Test
+	public void testStreamingMatchesDom() {
+		for(String resourceName : new String[] {"test.xml", "collections.xml"}) {
+			Resource resource = new ClassPathResource(resourceName, getClass());
+			DefaultListableBeanFactory parsed = new DefaultListableBeanFactory();
+			new XmlBeanDefinitionReader(parsed).loadBeanDefinitions(resource);
+			DefaultListableBeanFactory streamed = new DefaultListableBeanFactory();
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(streamed);
+			reader.setStreaming(true);
+			reader.loadBeanDefinitions(resource);
+
+			assertEquals(Arrays.asList(parsed.getBeanDefinitionNames()),
+					Arrays.asList(streamed.getBeanDefinitionNames()));
+			for(String beanName : parsed.getBeanDefinitionNames()) {
+				if(!beanName.equals("inner")) {
+					// Inner bean names contain identity hash codes and never match.
+					assertEquals(beanName, parsed.getBeanDefinition(beanName), streamed.getBeanDefinition(beanName));
+				}
+				assertEquals(Arrays.asList(parsed.getAliases(beanName)), Arrays.asList(streamed.getAliases(beanName)));
+			}
+		}
+	}
+
+	@Test
+	public void testStreamingWithCollectionsAndInnerBeans() {
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(factory);
+		reader.setStreaming(true);
+		reader.loadBeanDefinitions(new ClassPathResource("collections.xml", getClass()));
+		assertTrue(factory.getBeanDefinition("inner").isLazyInit());
+		assertFalse(factory.getBeanDefinition("child").isLazyInit());
+		assertTrue(factory.isAlias("innerAlias"));
+		assertTrue(factory.isAlias("anotherInnerAlias"));
+
+		TestBean child = (TestBean) factory.getBean("child");
+		assertEquals("child", child.getName());
+		assertEquals(10, child.getAge());
+		assertEquals(3, child.getSomeList().size());
+		assertEquals("child", child.getSomeList().get(0));
+		assertNull(child.getSomeList().get(2));
+		TestBean inner = (TestBean) child.getSomeList().get(1);
+		assertEquals("inner <&>", inner.getName());
+		assertEquals("innerSpouse", inner.getSpouse().getName());
+		assertEquals(2, ((TestBean) inner.getSpouse()).getSomeSet().size());
+		assertEquals("value1", inner.getSomeMap().get("key1"));
+		assertEquals(child, inner.getSomeMap().get("key2"));
+		assertEquals("parent", inner.getSomeMap().get("key3"));
+		assertEquals("value2", inner.getSomeProperties().getProperty("prop2"));
+	}
+
+	@Test
+	public void testParallelLoadingMatchesSerial() {
+		Resource[] resources = new Resource[] {new ClassPathResource("test.xml", getClass()),
+				new ClassPathResource("collections.xml", getClass()), new ClassPathResource("import.xml", getClass())};
+		DefaultListableBeanFactory serial = new DefaultListableBeanFactory();
+		int serialCount = new XmlBeanDefinitionReader(serial).loadBeanDefinitions(resources);
+		DefaultListableBeanFactory parallel = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(parallel);
+		reader.setParallelism(3);
+		assertEquals(serialCount, reader.loadBeanDefinitions(resources));
+
+		// Anonymous beans in test.xml (loaded twice) get the same generated names and aliases.
+		assertEquals(Arrays.asList(serial.getBeanDefinitionNames()), Arrays.asList(parallel.getBeanDefinitionNames()));
+		for(String beanName : serial.getBeanDefinitionNames()) {
+			assertEquals(serial.getBeanDefinition(beanName).getBeanClassName(),
+					parallel.getBeanDefinition(beanName).getBeanClassName());
+			assertEquals(Arrays.asList(serial.getAliases(beanName)), Arrays.asList(parallel.getAliases(beanName)));
+		}
+		assertEquals(Arrays.asList("test.beans.TestBean"), Arrays.asList(parallel.getAliases("test.beans.TestBean#0")));
+		assertEquals(0, parallel.getAliases("test.beans.TestBean#1").length);
+	}
+
+	@Test
+	public void testParallelLoadingWithDuplicateBeanName() {
+		Resource[] resources = new Resource[] {new ClassPathResource("collections.xml", getClass()),
+				new ClassPathResource("test.xml", getClass()), new ClassPathResource("test.xml", getClass())};
+		DefaultListableBeanFactory serial = new DefaultListableBeanFactory();
+		serial.setAllowBeanDefinitionOverriding(false);
+		String serialMessage = null;
+		try {
+			new XmlBeanDefinitionReader(serial).loadBeanDefinitions(resources);
+			fail("Should have thrown BeanDefinitionStoreException");
+		} catch (BeanDefinitionStoreException ex) {
+			serialMessage = ex.getMessage();
+		}
+
+		DefaultListableBeanFactory parallel = new DefaultListableBeanFactory();
+		parallel.setAllowBeanDefinitionOverriding(false);
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(parallel);
+		reader.setParallelism(3);
+		try {
+			reader.loadBeanDefinitions(resources);
+			fail("Should have thrown BeanDefinitionStoreException");
+		} catch (BeanDefinitionStoreException ex) {
+			assertEquals(serialMessage, ex.getMessage());
+		}
+		assertEquals(Arrays.asList(serial.getBeanDefinitionNames()), Arrays.asList(parallel.getBeanDefinitionNames()));
+	}
+
+	@Test
+	public void testParallelLoadingWithReferenceToGeneratedBeanName() {
+		Resource[] resources = new Resource[] {new ClassPathResource("test.xml", getClass()),
+				new ClassPathResource("collections.xml", getClass())};
+		DefaultListableBeanFactory serial = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader serialReader = new XmlBeanDefinitionReader(serial);
+		serialReader.setDocumentReaderClass(GeneratedBeanDocumentReader.class);
+		serialReader.loadBeanDefinitions(resources);
+		DefaultListableBeanFactory parallel = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(parallel);
+		reader.setDocumentReaderClass(GeneratedBeanDocumentReader.class);
+		reader.setParallelism(2);
+		reader.loadBeanDefinitions(resources);
+
+		assertEquals(Arrays.asList(serial.getBeanDefinitionNames()), Arrays.asList(parallel.getBeanDefinitionNames()));
+		for(String fileName : new String[] {"test.xml", "collections.xml"}) {
+			BeanDefinition referrer = parallel.getBeanDefinition(fileName + "Referrer");
+			assertEquals(Arrays.asList(serial.getBeanDefinition(fileName + "Referrer").getDependsOn()),
+					Arrays.asList(referrer.getDependsOn()));
+			// Each resource's referrer points to the bean generated for that very resource.
+			assertEquals(fileName, ((TestBean) parallel.getBean(fileName + "Referrer")).getSpouse().getName());
+			assertEquals(fileName, ((TestBean) serial.getBean(fileName + "Referrer")).getSpouse().getName());
+		}
+	}
+
+	@Test
+	public void testWithSnapshot() throws Exception {
+		File snapshotDirectory = createTempDirectory();
+		try {
+			DefaultListableBeanFactory parsed = new DefaultListableBeanFactory();
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(parsed);
+			reader.setSnapshotDirectory(snapshotDirectory);
+			reader.loadBeanDefinitions(new ClassPathResource("import.xml", getClass()));
+			testBeanDefinitions(parsed);
+			assertEquals(1, snapshotDirectory.listFiles().length);
+
+			DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+			reader = new XmlBeanDefinitionReader(restored);
+			reader.setSnapshotDirectory(snapshotDirectory);
+			reader.setDocumentLoader(new FailingDocumentLoader());
+			assertEquals(24, reader.loadBeanDefinitions(new ClassPathResource("import.xml", getClass())));
+			testBeanDefinitions(restored);
+			assertEquals(restored.getMergedBeanDefinition("roderick"), parsed.getMergedBeanDefinition("roderick"));
+			restored.registerSingleton("father", new TestBean("Albert", 62));
+			TestBean roderick = (TestBean) restored.getBean("roderick");
+			assertEquals(31, roderick.getAge());
+			assertEquals("Albert", roderick.getSpouse().getName());
+			assertEquals("Kerry", ((TestBean) restored.getBean("kerry")).getName());
+			assertTrue(restored.getBean("factoryReferencerWithConstructor") instanceof DummyReferencer);
+		} finally {
+			deleteDirectory(snapshotDirectory);
+		}
+	}
+
+	@Test
+	public void testSnapshotStaleness() throws Exception {
+		File snapshotDirectory = createTempDirectory();
+		try {
+			File xmlFile = new File(snapshotDirectory, "beans.xml");
+			writeBeansXml(xmlFile, "first");
+			loadWithSnapshot(xmlFile, snapshotDirectory, null);
+
+			// Touched but unchanged: the content hash still matches.
+			xmlFile.setLastModified(xmlFile.lastModified() - 10000);
+			DefaultListableBeanFactory factory = loadWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader());
+			assertEquals("first", ((TestBean) factory.getBean("bean")).getName());
+			assertTrue(factory.isAlias("alias"));
+
+			writeBeansXml(xmlFile, "second");
+			xmlFile.setLastModified(xmlFile.lastModified() + 20000);
+			try {
+				loadWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader());
+				fail("Should have thrown BeanDefinitionStoreException: stale snapshot must not be used");
+			} catch (BeanDefinitionStoreException ex) {
+				// expected
+			}
+			factory = loadWithSnapshot(xmlFile, snapshotDirectory, null);
+			assertEquals("second", ((TestBean) factory.getBean("bean")).getName());
+			factory = loadWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader());
+			assertEquals("second", ((TestBean) factory.getBean("bean")).getName());
+		} finally {
+			deleteDirectory(snapshotDirectory);
+		}
+	}
+
+	@Test
+	public void testSnapshotStalenessWithProfilesAndWildcardImports() throws Exception {
+		File snapshotDirectory = createTempDirectory();
+		try {
+			File xmlFile = new File(snapshotDirectory, "beans.xml");
+			writeXml(xmlFile, "<beans profile=\"dev\"><bean id=\"bean\" class=\"test.beans.TestBean\"/></beans>");
+			assertEquals(1, countWithSnapshot(xmlFile, snapshotDirectory, null, "dev"));
+			assertEquals(1, countWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader(), "dev"));
+			// Snapshot written under profile "dev" must not be replayed without it.
+			assertEquals(0, countWithSnapshot(xmlFile, snapshotDirectory, null));
+			assertEquals(0, countWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader()));
+
+			String partsLocation = snapshotDirectory.toURI().toString() + "part*.xml";
+			writeXml(xmlFile, "<beans><import resource=\"" + partsLocation + "\"/></beans>");
+			writeXml(new File(snapshotDirectory, "part1.xml"),
+					"<beans><bean id=\"bean1\" class=\"test.beans.TestBean\"/></beans>");
+			assertEquals(1, countWithSnapshot(xmlFile, snapshotDirectory, null));
+			assertEquals(1, countWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader()));
+			// A newly matching resource makes the snapshot stale.
+			writeXml(new File(snapshotDirectory, "part2.xml"),
+					"<beans><bean id=\"bean2\" class=\"test.beans.TestBean\"/></beans>");
+			assertEquals(2, countWithSnapshot(xmlFile, snapshotDirectory, null));
+			assertEquals(2, countWithSnapshot(xmlFile, snapshotDirectory, new FailingDocumentLoader()));
+		} finally {
+			deleteDirectory(snapshotDirectory);
+		}
+	}
+
+	private int countWithSnapshot(File xmlFile, File snapshotDirectory, DocumentLoader documentLoader,
+			String... activeProfiles) {
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(factory);
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.setActiveProfiles(activeProfiles);
+		reader.setEnvironment(environment);
+		reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_NONE);
+		reader.setSnapshotDirectory(snapshotDirectory);
+		reader.setDocumentLoader(documentLoader);
+		reader.loadBeanDefinitions(new FileSystemResource(xmlFile));
+		return factory.getBeanDefinitionCount();
+	}
+
+	private void writeXml(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + content).getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private DefaultListableBeanFactory loadWithSnapshot(File xmlFile, File snapshotDirectory,
+			DocumentLoader documentLoader) {
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(factory);
+		reader.setSnapshotDirectory(snapshotDirectory);
+		reader.setDocumentLoader(documentLoader);
+		assertEquals(1, reader.loadBeanDefinitions(new FileSystemResource(xmlFile)));
+		return factory;
+	}
+
+	private void writeBeansXml(File file, String name) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<!DOCTYPE beans PUBLIC \"-//SPRING//DTD BEAN 2.0//EN\" " +
+					"\"http://www.springframework.org/dtd/spring-beans-2.0.dtd\">\n" +
+					"<beans><bean id=\"bean\" name=\"alias\" class=\"test.beans.TestBean\">" +
+					"<property name=\"name\" value=\"" + name + "\"/></bean></beans>").getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	private File createTempDirectory() throws IOException {
+		File dir = File.createTempFile("snapshots", "");
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+		return dir;
+	}
+
+	private void deleteDirectory(File dir) {
+		for(File file : dir.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(dir.delete());
+		assertFalse(dir.exists());
+	}
+	
 	private void testBeanDefinitions(BeanDefinitionRegistry registry) {
 		assertEquals(24, registry.getBeanDefinitionCount());
 		assertEquals(24, registry.getBeanDefinitionNames().length);
@@ -142,6 +441,22 @@ public class XmlBeanDefinitionReaderTests {
 		doTestValidation("validateWithXsd.xml");
 	}
 
+	@Test
+	public void testValidationModeDetectedWhileReadingDocument() {
+		final int[] opened = new int[1];
+		Resource resource = new ClassPathResource("validateWithDtd.xml", getClass()) {
+			@Override
+			public InputStream getInputStream() throws IOException {
+				opened[0]++;
+				return super.getInputStream();
+			}
+		};
+		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(factory).loadBeanDefinitions(resource);
+		assertNotNull(factory.getBean("testBean"));
+		assertEquals(1, opened[0]);
+	}
+
 	private void doTestValidation(String resourceName) {
 		DefaultListableBeanFactory factory = new DefaultListableBeanFactory();
 		Resource resource = new ClassPathResource(resourceName, getClass());
@@ -149,4 +464,34 @@ public class XmlBeanDefinitionReaderTests {
 		TestBean bean = (TestBean) factory.getBean("testBean");
 		assertNotNull(bean);
 	}
+
+
+	/**
+	 * Document reader that registers a bean with a generated name for each
+	 * resource, plus a bean referring to it.
+	 */
+	public static class GeneratedBeanDocumentReader extends DefaultBeanDefinitionDocumentReader {
+
+		@Override
+		protected void postProcessXml(Element root) {
+			String fileName = getReaderContext().getResource().getFileName();
+			RootBeanDefinition generated = new RootBeanDefinition(TestBean.class);
+			generated.getPropertyValues().add("name", fileName);
+			String generatedName = getReaderContext().registerWithGeneratedName(generated);
+			RootBeanDefinition referrer = new RootBeanDefinition(TestBean.class);
+			referrer.getPropertyValues().add("spouse", new RuntimeBeanReference(generatedName));
+			referrer.setDependsOn(new String[] {generatedName});
+			getReaderContext().getRegistry().registerBeanDefinition(fileName + "Referrer", referrer);
+		}
+	}
+
+
+	private static class FailingDocumentLoader implements DocumentLoader {
+
+		public Document loadDocument(InputSource inputSource, EntityResolver entityResolver,
+				ErrorHandler errorHandler, int validationMode, boolean namespaceAware) {
+			throw new IllegalStateException("XML should not have been parsed");
+		}
+	}
+
 }
@@ -0,0 +1,147 @@
+package com.tutorial.context.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.tutorial.core.io.FileSystemResource;
+
+import test.beans.TestBean;
+
+public class BeanDefinitionReloaderTests {
+
+	private static final String HEADER = "<?xml version='1.0' encoding='UTF-8'?>" +
+			"<!DOCTYPE beans PUBLIC '-//SPRING//DTD BEAN 2.0//EN' 'http://www.springframework.org/dtd/spring-beans-2.0.dtd'>";
+
+	private File file;
+
+	private GenericApplicationContext context;
+
+	private BeanDefinitionReloader reloader;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("beans", ".xml");
+		writeBeans("<bean id='a' class='test.beans.TestBean'><property name='age' value='1'/></bean>" +
+				"<bean id='b' class='test.beans.TestBean'><property name='spouse' ref='a'/></bean>" +
+				"<bean id='c' class='test.beans.TestBean'/>" +
+				"<bean id='d' class='test.beans.TestBean'/><alias name='d' alias='dAlias'/>");
+		this.context = new GenericApplicationContext();
+		this.reloader = new BeanDefinitionReloader(this.context);
+		assertEquals(4, this.reloader.loadBeanDefinitions(new FileSystemResource(this.file)));
+		this.context.refresh();
+	}
+
+	@After
+	public void tearDown() {
+		this.reloader.stop();
+		this.context.close();
+		this.file.delete();
+	}
+
+	@Test
+	public void testReloadChangedBean() throws IOException {
+		TestBean a = (TestBean) this.context.getBean("a");
+		TestBean b = (TestBean) this.context.getBean("b");
+		TestBean c = (TestBean) this.context.getBean("c");
+		writeBeans("<bean id='a' class='test.beans.TestBean'><property name='age' value='2'/></bean>" +
+				"<bean id='b' class='test.beans.TestBean'><property name='spouse' ref='a'/></bean>" +
+				"<bean id='c' class='test.beans.TestBean'/>" +
+				"<bean id='d' class='test.beans.TestBean'/><alias name='d' alias='dAlias'/>");
+
+		Set<String> affected = this.reloader.reload(new FileSystemResource(this.file));
+		assertEquals(Arrays.asList("a", "b"), Arrays.asList(affected.toArray()));
+		assertTrue(this.context.getBeanFactory().containsSingleton("b"));
+		TestBean newA = (TestBean) this.context.getBean("a");
+		assertNotSame(a, newA);
+		assertEquals(2, newA.getAge());
+		assertNotSame(b, this.context.getBean("b"));
+		assertSame(newA, ((TestBean) this.context.getBean("b")).getSpouse());
+		assertSame(c, this.context.getBean("c"));
+	}
+
+	@Test
+	public void testReloadAddedAndRemovedBeans() throws IOException {
+		TestBean c = (TestBean) this.context.getBean("c");
+		writeBeans("<bean id='a' class='test.beans.TestBean'><property name='age' value='1'/></bean>" +
+				"<bean id='b' class='test.beans.TestBean'><property name='spouse' ref='a'/></bean>" +
+				"<bean id='c' class='test.beans.TestBean'/>" +
+				"<bean id='e' class='test.beans.TestBean'/><alias name='e' alias='dAlias'/>");
+
+		Set<String> affected = this.reloader.reload(new FileSystemResource(this.file));
+		assertTrue(affected.contains("d"));
+		assertTrue(affected.contains("e"));
+		assertFalse(this.context.containsBeanDefinition("d"));
+		assertTrue(this.context.getBeanFactory().containsSingleton("e"));
+		assertSame(this.context.getBean("e"), this.context.getBean("dAlias"));
+		assertSame(c, this.context.getBean("c"));
+	}
+
+	@Test
+	public void testReloadUnchanged() throws IOException {
+		assertTrue(this.reloader.reload(new FileSystemResource(this.file)).isEmpty());
+	}
+
+	@Test
+	public void testReloadIfModified() throws IOException {
+		FileSystemResource resource = new FileSystemResource(this.file);
+		TestBean a = (TestBean) this.context.getBean("a");
+		this.reloader.reloadIfModified(resource);
+		assertSame(a, this.context.getBean("a"));
+
+		// Same length and same timestamp, but different content.
+		long lastModified = this.file.lastModified();
+		writeBeans("<bean id='a' class='test.beans.TestBean'><property name='age' value='5'/></bean>" +
+				"<bean id='b' class='test.beans.TestBean'><property name='spouse' ref='a'/></bean>" +
+				"<bean id='c' class='test.beans.TestBean'/>" +
+				"<bean id='d' class='test.beans.TestBean'/><alias name='d' alias='dAlias'/>");
+		assertTrue(this.file.setLastModified(lastModified));
+		this.reloader.reloadIfModified(resource);
+		assertEquals(5, ((TestBean) this.context.getBean("a")).getAge());
+	}
+
+	@Test
+	public void testWatchForChanges() throws Exception {
+		TestBean b = (TestBean) this.context.getBean("b");
+		this.reloader.setQuietPeriod(10);
+		this.reloader.start();
+		assertTrue(this.reloader.isRunning());
+		// Make sure the modification gets a different timestamp.
+		Thread.sleep(1100);
+		writeBeans("<bean id='a' class='test.beans.TestBean'><property name='age' value='3'/></bean>" +
+				"<bean id='b' class='test.beans.TestBean'><property name='spouse' ref='a'/></bean>" +
+				"<bean id='c' class='test.beans.TestBean'/>" +
+				"<bean id='d' class='test.beans.TestBean'/><alias name='d' alias='dAlias'/>");
+
+		long deadline = System.currentTimeMillis() + 20000;
+		while(((TestBean) this.context.getBean("a")).getAge() != 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(3, ((TestBean) this.context.getBean("a")).getAge());
+		assertNotSame(b, this.context.getBean("b"));
+		this.reloader.stop();
+		assertFalse(this.reloader.isRunning());
+	}
+
+	private void writeBeans(String beans) throws IOException {
+		FileOutputStream out = new FileOutputStream(this.file);
+		try {
+			out.write((HEADER + "<beans>" + beans + "</beans>").getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+}
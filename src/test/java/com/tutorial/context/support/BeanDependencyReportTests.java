@@ -0,0 +1,93 @@
+package com.tutorial.context.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.tutorial.beans.factory.InitializingBean;
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
+import com.tutorial.beans.factory.support.BeanDependencyReport;
+import com.tutorial.beans.factory.support.RootBeanDefinition;
+
+import test.beans.TestBean;
+
+public class BeanDependencyReportTests {
+
+	private static final String LOCATION = "classpath:com/tutorial/context/support/dependencyReport.xml";
+
+	@Test
+	public void testCriticalPath() {
+		BeanDependencyReport report = BeanDependencyReportGenerator.generateReport(LOCATION);
+		assertEquals(Arrays.asList("slow", "middle", "top", "independent"), Arrays.asList(report.getBeanNames().toArray()));
+		assertEquals(Collections.singleton("slow"), report.getDependencies("middle"));
+		assertEquals(Collections.singleton("middle"), report.getDependencies("top"));
+		assertTrue(report.getDependencies("independent").isEmpty());
+		assertTrue(report.getCyclicBeans().isEmpty());
+
+		assertEquals(Arrays.asList("slow", "middle", "top"), report.getCriticalPath());
+		assertTrue(report.getCreationTimeNanos("slow") >= 100000000L);
+		assertTrue(report.getCreationTimeNanos("independent") >= 10000000L);
+		// Nested creation of "slow" is attributed to "slow" only.
+		assertTrue(report.getCreationTimeNanos("middle") < 100000000L);
+		assertEquals(report.getCreationTimeNanos("slow") + report.getCreationTimeNanos("middle") +
+				report.getCreationTimeNanos("top"), report.getCriticalPathNanos());
+	}
+
+	@Test
+	public void testCriticalPathWithoutRecordedTimes() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBeanDefinition("a", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition b = new RootBeanDefinition(TestBean.class);
+		b.getPropertyValues().add("spouse", new RuntimeBeanReference("a"));
+		context.registerBeanDefinition("b", b);
+		context.registerBeanDefinition("c", new RootBeanDefinition(TestBean.class));
+		context.refresh();
+		BeanDependencyReport report = new BeanDependencyReport(context.getBeanFactory());
+		context.close();
+
+		assertEquals(Arrays.asList("a", "b"), report.getCriticalPath());
+		assertEquals(0, report.getCriticalPathNanos());
+		assertEquals(0, report.getCreationTimeNanos("c"));
+	}
+
+	@Test
+	public void testDotAndJsonOutput() throws Exception {
+		BeanDependencyReport report = BeanDependencyReportGenerator.generateReport(LOCATION);
+		String dot = report.toDot();
+		assertTrue(dot.startsWith("digraph beans {"));
+		assertTrue(dot.contains("\"middle\" -> \"slow\" [color=red, penwidth=2];"));
+		assertTrue(dot.contains("\"independent\" [label="));
+		assertFalse(dot.contains("template"));
+
+		String json = report.toJson();
+		assertTrue(json.startsWith("{\"beans\":[{\"name\":\"slow\",\"creationTimeNanos\":"));
+		assertTrue(json.contains("\"name\":\"top\",\"creationTimeNanos\":"));
+		assertTrue(json.contains("\"criticalPath\":{\"beans\":[\"slow\",\"middle\",\"top\"],\"totalTimeNanos\":"));
+		assertTrue(json.endsWith(",\"cyclicBeans\":[]}"));
+
+		StringWriter writer = new StringWriter();
+		BeanDependencyReportGenerator.writeReport(report, BeanDependencyReportGenerator.FORMAT_JSON, writer);
+		assertEquals(json, writer.toString());
+	}
+
+
+	public static class SlowBean extends TestBean implements InitializingBean {
+
+		private long initMillis;
+
+		public void setInitMillis(long initMillis) {
+			this.initMillis = initMillis;
+		}
+
+		public void afterPropertiesSet() throws InterruptedException {
+			Thread.sleep(this.initMillis);
+		}
+	}
+
+}
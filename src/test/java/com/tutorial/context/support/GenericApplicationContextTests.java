@@ -1,8 +1,19 @@
 package com.tutorial.context.support;
 
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.tutorial.beans.factory.config.RuntimeBeanReference;
 import com.tutorial.beans.factory.support.DefaultListableBeanFactory;
+import com.tutorial.beans.factory.support.RootBeanDefinition;
+import com.tutorial.core.metrics.StartupRecorder;
+import com.tutorial.core.metrics.StartupStep;
+
+import test.beans.TestBean;
 
 public class GenericApplicationContextTests {
 
@@ -13,4 +24,92 @@ public class GenericApplicationContextTests {
 		new GenericApplicationContext(lbf).refresh();
 	}
 
+	@Test
+	public void testStartupRecorder() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		ac.registerBeanDefinition("test", bd);
+		ac.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		StartupRecorder recorder = new StartupRecorder();
+		ac.setStartupRecorder(recorder);
+		ac.refresh();
+		assertSame(recorder, ac.getBeanFactory().getStartupRecorder());
+
+		List<StartupStep> roots = recorder.getRootSteps();
+		assertEquals(1, roots.size());
+		StartupStep refresh = roots.get(0);
+		assertEquals("refresh", refresh.getName());
+		assertEquals(StartupRecorder.CATEGORY_PHASE, refresh.getCategory());
+		assertTrue(refresh.isEnded());
+		assertTrue(refresh.getWallTimeNanos() >= 0);
+		List<String> phaseNames = new ArrayList<String>();
+		for(StartupStep phase : refresh.getChildren()) {
+			phaseNames.add(phase.getName());
+			assertTrue(phase.isEnded());
+			assertTrue(phase.getWallTimeNanos() <= refresh.getWallTimeNanos());
+		}
+		assertEquals("prepareRefresh", phaseNames.get(0));
+		assertEquals("finishRefresh", phaseNames.get(phaseNames.size() - 1));
+		assertTrue(phaseNames.contains("finishBeanFactoryInitialization"));
+
+		StartupStep test = recorder.findStep("test");
+		assertEquals(StartupRecorder.CATEGORY_BEAN, test.getCategory());
+		assertEquals("finishBeanFactoryInitialization", test.getParent().getName());
+		assertNull(test.getTriggeringBeanName());
+		StartupStep spouse = recorder.findStep("spouse");
+		assertSame(test, spouse.getParent());
+		assertEquals("test", spouse.getTriggeringBeanName());
+		assertTrue(spouse.getWallTimeNanos() <= test.getWallTimeNanos());
+		assertEquals(Thread.currentThread().getName(), spouse.getThreadName());
+		assertEquals(2, recorder.getSteps(StartupRecorder.CATEGORY_BEAN).size());
+		assertEquals(1, recorder.getSlowestSteps(StartupRecorder.CATEGORY_BEAN, 1).size());
+
+		String json = recorder.toJson();
+		assertTrue(json.startsWith("{\"steps\":[{\"category\":\"phase\",\"name\":\"refresh\""));
+		assertTrue(json.contains("\"name\":\"spouse\",\"thread\":"));
+		assertTrue(json.contains("\"triggeredBy\":\"test\""));
+
+		// Prototypes created after startup are recorded as root steps.
+		bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		ac.registerBeanDefinition("prototype", bd);
+		ac.getBean("prototype");
+		roots = recorder.getRootSteps();
+		assertEquals(2, roots.size());
+		assertEquals("prototype", roots.get(1).getName());
+	}
+
+	@Test
+	public void testNoStartupRecorderByDefault() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		ac.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class));
+		ac.refresh();
+		assertNull(ac.getStartupRecorder());
+		assertNull(ac.getBeanFactory().getStartupRecorder());
+	}
+
+	@Test
+	public void testStartupRecorderWithFailingRefresh() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.getPropertyValues().add("spouse", new RuntimeBeanReference("missing"));
+		ac.registerBeanDefinition("test", bd);
+		StartupRecorder recorder = new StartupRecorder();
+		ac.setStartupRecorder(recorder);
+		try {
+			ac.refresh();
+			fail("Should have thrown BeanCreationException");
+		} catch (RuntimeException ex) {
+			// expected
+		}
+		StartupStep refresh = recorder.getRootSteps().get(0);
+		assertTrue(refresh.isEnded());
+		assertFalse(recorder.findStep("finishBeanFactoryInitialization").isEnded());
+		assertTrue(recorder.findStep("test").isEnded());
+
+		// Subsequent steps are not attached to the abandoned phase.
+		assertTrue(recorder.start(StartupRecorder.CATEGORY_BEAN, "other").getParent() == null);
+	}
+
 }